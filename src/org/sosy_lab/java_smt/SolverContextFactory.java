@@ -26,6 +26,7 @@ import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.java_smt.api.FloatingPointRoundingMode;
 import org.sosy_lab.java_smt.api.SolverContext;
 import org.sosy_lab.java_smt.basicimpl.AbstractNumeralFormulaManager.NonLinearArithmetic;
+import org.sosy_lab.java_smt.delegate.cache.CachingSolverContext;
 import org.sosy_lab.java_smt.delegate.logging.LoggingSolverContext;
 import org.sosy_lab.java_smt.delegate.statistics.StatisticsSolverContext;
 import org.sosy_lab.java_smt.delegate.synchronize.SynchronizedSolverContext;
@@ -80,6 +81,13 @@ public class SolverContextFactory {
   @Option(secure = true, description = "Log solver actions, this may be slow!")
   private boolean useLogger = false;
 
+  @Option(
+      secure = true,
+      description =
+          "Reuse results of satisfiability checks, which are cached in memory "
+              + "and in a file for later runs, see the options with prefix solver.cache.")
+  private boolean cacheQueries = false;
+
   @Option(
       secure = true,
       description = "Sequentialize all solver actions to allow concurrent access!")
@@ -213,6 +221,9 @@ public class SolverContextFactory {
     if (useLogger) {
       context = new LoggingSolverContext(logger, context);
     }
+    if (cacheQueries) {
+      context = new CachingSolverContext(config, logger, context);
+    }
     if (synchronize) {
       context = new SynchronizedSolverContext(config, logger, shutdownNotifier, context);
     }
@@ -228,6 +239,7 @@ public class SolverContextFactory {
     switch (solverToCreate) {
       case CVC4:
         return CVC4SolverContext.create(
+            config,
             logger,
             shutdownNotifier,
             (int) randomSeed,
@@ -263,7 +275,7 @@ public class SolverContextFactory {
 
       case PRINCESS:
         return PrincessSolverContext.create(
-            config, shutdownNotifier, logfile, (int) randomSeed, nonLinearArithmetic);
+            config, logger, shutdownNotifier, logfile, (int) randomSeed, nonLinearArithmetic);
 
       case YICES2:
         return Yices2SolverContext.create(nonLinearArithmetic, shutdownNotifier, loader);
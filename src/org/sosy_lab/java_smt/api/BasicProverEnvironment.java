@@ -106,6 +106,20 @@ public interface BasicProverEnvironment<T> extends AutoCloseable {
    */
   List<BooleanFormula> getUnsatCore();
 
+  /**
+   * Get an unsat core as positions of the constraints on the stack, i.e., the i-th constraint that
+   * was added and not yet removed by {@link #pop()} has position i, starting with 0. This should be
+   * called only immediately after an {@link #isUnsat()} call that returned <code>true</code>.
+   *
+   * <p>This avoids the mapping of the unsat core back to formulas, but is only supported by some
+   * solvers, e.g., by Z3 with the option <code>solver.z3.trackUnsatCoreByIndex</code>.
+   *
+   * @throws UnsupportedOperationException if the solver does not track constraints by position.
+   */
+  default int[] getUnsatCoreIndices() {
+    throw new UnsupportedOperationException("unsat core by index is not supported by this prover");
+  }
+
   /**
    * Returns an UNSAT core (if it exists, otherwise {@code Optional.empty()}), over the chosen
    * assumptions. Does NOT require the {@link ProverOptions#GENERATE_UNSAT_CORE} option to work.
@@ -240,6 +240,22 @@ public interface FormulaManager {
    */
   <T extends Formula> T substitute(T f, Map<? extends Formula, ? extends Formula> fromToMapping);
 
+  /**
+   * Apply several substitutions to the same formula, with the same result as calling {@link
+   * #substitute(Formula, Map)} for each of them.
+   *
+   * <p>The formula is traversed only once. For each mapping, only the parts of the formula that
+   * contain a substituted part are rebuilt. This is much faster than single substitutions if the
+   * formula is large and each mapping changes only a small part of it. The structure of the last
+   * formula is kept, such that further calls for the same formula do not traverse it again.
+   *
+   * @param f Formula to change.
+   * @param fromToMappings Mappings of old and new formula parts.
+   * @return Formulas with parts replaced, one for each mapping and in the same order.
+   */
+  <T extends Formula> List<T> substitute(
+      T f, List<? extends Map<? extends Formula, ? extends Formula>> fromToMappings);
+
   /**
    * Translates the formula from another context into the context represented by {@code this}.
    * Default implementation relies on string serialization ({@link #dumpFormula(BooleanFormula)} and
@@ -12,8 +12,11 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.rationals.Rational;
@@ -91,6 +94,28 @@ public interface Model extends Iterable<ValueAssignment>, AutoCloseable {
    */
   @Nullable String evaluate(StringFormula f);
 
+  /**
+   * Evaluate several formulas of possibly different types in one step, substituting the values from
+   * the model.
+   *
+   * <p>The result is the same as calling {@link #evaluate(Formula)} for each formula, but solvers
+   * can evaluate all formulas with a single call into the solver or share intermediate results.
+   * Callers that evaluate many formulas in the same model, e.g., all predicates of an abstraction,
+   * should prefer this method.
+   *
+   * @param formulas Input formulas, any type except arrays.
+   * @return an unmodifiable list that contains the evaluation of each formula at the position of
+   *     the formula. An entry is <code>null</code> if the solver does not provide an evaluation.
+   * @throws IllegalArgumentException if a formula has unexpected type, e.g. Array.
+   */
+  default List<@Nullable Object> evaluateAll(List<? extends Formula> formulas) {
+    @Nullable Object[] values = new Object[formulas.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = evaluate(formulas.get(i));
+    }
+    return Collections.unmodifiableList(Arrays.asList(values));
+  }
+
   /**
    * Iterate over all values present in the model. Note that iterating multiple times may be
    * inefficient for some solvers, it is recommended to use {@link
@@ -38,6 +38,16 @@ public interface SolverContext extends AutoCloseable {
      */
     GENERATE_ALL_SAT,
 
+    /**
+     * Whether the solver should shrink each model found during the AllSAT computation to a prime
+     * implicant of the asserted formulas, such that one callback can cover many assignments of the
+     * important predicates. Predicates missing in a model may have arbitrary values. This option
+     * has only an effect together with {@link #GENERATE_ALL_SAT}. Solvers that can not provide the
+     * asserted formulas throw an {@link UnsupportedOperationException} when a prover environment
+     * with this option is created.
+     */
+    MINIMIZE_ALL_SAT_MODELS,
+
     /**
      * Whether the solver should generate an unsat core for unsatisfiable formulas. Unsat core is
      * generated over all formulas asserted with {@link
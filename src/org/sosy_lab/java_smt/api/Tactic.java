@@ -31,8 +31,6 @@ public enum Tactic {
    * Convert the formula to CNF (conjunctive normal form), using extra fresh variables to avoid the
    * size explosion. The resulting formula is not <i>equivalent</i> but only <i>equisatisfiable</i>
    * to the original one.
-   *
-   * <p>NB: currently this tactic does not have a default implementation.
    */
   TSEITIN_CNF,
 
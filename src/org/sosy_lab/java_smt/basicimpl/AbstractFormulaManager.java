@@ -15,8 +15,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -42,6 +44,8 @@ import org.sosy_lab.java_smt.api.visitors.FormulaTransformationVisitor;
 import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 import org.sosy_lab.java_smt.api.visitors.TraversalProcess;
 import org.sosy_lab.java_smt.basicimpl.tactics.NNFVisitor;
+import org.sosy_lab.java_smt.basicimpl.tactics.QELightVisitor;
+import org.sosy_lab.java_smt.basicimpl.tactics.TseitinCNFConverter;
 import org.sosy_lab.java_smt.utils.SolverUtils;
 
 /**
@@ -123,6 +127,14 @@ public abstract class AbstractFormulaManager<TFormulaInfo, TType, TEnv, TFuncDec
 
   private final FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> formulaCreator;
 
+  /**
+   * Structure of the formula of the last batch substitution, reused for the same formula. The
+   * skeleton references all subterms of the formula, thus it is only softly referenced and can be
+   * released by the garbage collector if memory gets low.
+   */
+  private volatile @Nullable SoftReference<SubstitutionSkeleton<TFormulaInfo>>
+      substitutionSkeleton = null;
+
   /** Builds a solver from the given theory implementations. */
   @SuppressWarnings("checkstyle:parameternumber")
   protected AbstractFormulaManager(
@@ -298,10 +310,7 @@ public abstract class AbstractFormulaManager<TFormulaInfo, TType, TEnv, TFuncDec
    * @throws InterruptedException Can be thrown by the native code.
    */
   protected BooleanFormula applyQELightImpl(BooleanFormula pF) throws InterruptedException {
-
-    // Returning the untouched formula is valid according to QE_LIGHT contract.
-    // TODO: substitution-based implementation.
-    return pF;
+    return getBooleanFormulaManager().transformRecursively(pF, new QELightVisitor(this));
   }
 
   /**
@@ -311,10 +320,7 @@ public abstract class AbstractFormulaManager<TFormulaInfo, TType, TEnv, TFuncDec
    * @throws InterruptedException Can be thrown by the native code.
    */
   protected BooleanFormula applyCNFImpl(BooleanFormula pF) throws InterruptedException {
-
-    // TODO: generic implementation.
-    throw new UnsupportedOperationException(
-        "Currently there is no generic implementation for CNF conversion");
+    return new TseitinCNFConverter(this).toCNF(pF);
   }
 
   /**
@@ -389,7 +395,13 @@ public abstract class AbstractFormulaManager<TFormulaInfo, TType, TEnv, TFuncDec
     if (this == otherManager) {
       return formula; // shortcut
     }
-    return parse(otherManager.dumpFormula(formula).toString());
+    try {
+      return new StructuralFormulaTranslator(otherManager, this).translate(formula);
+    } catch (UnsupportedOperationException e) {
+      // Some operators (quantifiers, extraction, solver-specific functions) can not be rebuilt
+      // from the visitor, thus we fall back to the more expensive serialization into SMT-LIB2.
+      return parse(otherManager.dumpFormula(formula).toString());
+    }
   }
 
   @Override
@@ -471,6 +483,25 @@ public abstract class AbstractFormulaManager<TFormulaInfo, TType, TEnv, TFuncDec
         });
   }
 
+  @Override
+  public <T extends Formula> List<T> substitute(
+      T pF, List<? extends Map<? extends Formula, ? extends Formula>> pFromToMappings) {
+    SoftReference<SubstitutionSkeleton<TFormulaInfo>> reference = substitutionSkeleton;
+    SubstitutionSkeleton<TFormulaInfo> skeleton = reference == null ? null : reference.get();
+    if (skeleton == null || !skeleton.getRoot().equals(pF)) {
+      skeleton = new SubstitutionSkeleton<>(formulaCreator, this, pF);
+      substitutionSkeleton = new SoftReference<>(skeleton);
+    }
+    ImmutableList.Builder<T> results =
+        ImmutableList.builderWithExpectedSize(pFromToMappings.size());
+    for (Map<? extends Formula, ? extends Formula> fromToMapping : pFromToMappings) {
+      @SuppressWarnings("unchecked")
+      T result = (T) skeleton.substitute(fromToMapping);
+      results.add(result);
+    }
+    return results.build();
+  }
+
   /**
    * Check whether the given String can be used as symbol/name for variables or undefined functions.
    * We disallow some keywords from SMTLib2 and other basic operators to be used as symbols.
@@ -11,7 +11,13 @@ package org.sosy_lab.java_smt.basicimpl;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.rationals.Rational;
 import org.sosy_lab.java_smt.api.ArrayFormula;
@@ -78,6 +84,18 @@ public abstract class AbstractModel<TFormulaInfo, TType, TEnv> implements Model
     return evaluateImpl(creator.extractInfo(f));
   }
 
+  @Override
+  public final List<@Nullable Object> evaluateAll(List<? extends Formula> formulas) {
+    List<TFormulaInfo> infos = new ArrayList<>(formulas.size());
+    for (Formula f : formulas) {
+      Preconditions.checkArgument(
+          !(f instanceof ArrayFormula),
+          "cannot compute a simple constant evaluation for an array-formula");
+      infos.add(creator.extractInfo(f));
+    }
+    return Collections.unmodifiableList(Arrays.asList(evaluateAllImpl(infos)));
+  }
+
   /**
    * Simplify the given formula and replace all symbols with their model values. If a symbol is not
    * set in the model and evaluation aborts, return <code>null</code>.
@@ -96,6 +114,22 @@ public abstract class AbstractModel<TFormulaInfo, TType, TEnv> implements Model
     return evaluatedF == null ? null : creator.convertValue(f, evaluatedF);
   }
 
+  /**
+   * Evaluate all given formulas like {@link #evaluateImpl} and return the values in the same order.
+   * Formulas that appear several times are evaluated only once. Solvers that can evaluate several
+   * formulas with one native call should override this method.
+   */
+  protected @Nullable Object[] evaluateAllImpl(List<TFormulaInfo> formulas) {
+    @Nullable Object[] values = new Object[formulas.size()];
+    Map<TFormulaInfo, Integer> firstIndex = Maps.newHashMapWithExpectedSize(formulas.size());
+    for (int i = 0; i < values.length; i++) {
+      TFormulaInfo f = formulas.get(i);
+      Integer index = firstIndex.putIfAbsent(f, i);
+      values[i] = index == null ? evaluateImpl(f) : values[index];
+    }
+    return values;
+  }
+
   @Override
   public String toString() {
     return Joiner.on('\n').join(iterator());
@@ -17,8 +17,9 @@ public abstract class AbstractProver<T> implements BasicProverEnvironment<T> {
 
   private final boolean generateModels;
   private final boolean generateAllSat;
+  protected final boolean minimizeAllSatModels;
   protected final boolean generateUnsatCores;
-  private final boolean generateUnsatCoresOverAssumptions;
+  protected final boolean generateUnsatCoresOverAssumptions;
   protected final boolean enableSL;
 
   private static final String TEMPLATE = "Please set the prover option %s.";
@@ -26,6 +27,7 @@ public abstract class AbstractProver<T> implements BasicProverEnvironment<T> {
   protected AbstractProver(Set<ProverOptions> pOptions) {
     generateModels = pOptions.contains(ProverOptions.GENERATE_MODELS);
     generateAllSat = pOptions.contains(ProverOptions.GENERATE_ALL_SAT);
+    minimizeAllSatModels = pOptions.contains(ProverOptions.MINIMIZE_ALL_SAT_MODELS);
     generateUnsatCores = pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE);
     generateUnsatCoresOverAssumptions =
         pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS);
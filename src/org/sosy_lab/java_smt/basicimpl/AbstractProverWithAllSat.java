@@ -11,12 +11,15 @@ package org.sosy_lab.java_smt.basicimpl;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.FormulaManager;
 import org.sosy_lab.java_smt.api.Model;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
 import org.sosy_lab.java_smt.api.SolverException;
@@ -25,11 +28,23 @@ import org.sosy_lab.java_smt.api.SolverException;
  * This class is a utility-class to avoid repeated implementation of the AllSAT computation.
  *
  * <p>If a solver does not support direct AllSAT computation, please inherit from this class.
+ *
+ * <p>AllSAT can be computed in parallel by {@link ParallelAllSat}, if the solver provides it and
+ * the prover implements {@link #getAssertedConstraints()}.
+ *
+ * <p>With {@link ProverOptions#MINIMIZE_ALL_SAT_MODELS}, each model is shrunk to a prime implicant
+ * of the asserted constraints before it is blocked, if the prover implements {@link
+ * #getAssertedConstraints()}.
  */
 public abstract class AbstractProverWithAllSat<T> extends AbstractProver<T> {
 
   protected final ShutdownNotifier shutdownNotifier;
   private final BooleanFormulaManager bmgr;
+  private final @Nullable FormulaManager fmgr;
+  private final @Nullable ParallelAllSat parallelAllSat;
+
+  /** Prefix for the selector variables of the minimized AllSAT computation. */
+  private static final String SELECTOR_PREFIX = "__ALLSAT_SELECTOR_";
 
   protected boolean closed;
 
@@ -39,7 +54,21 @@ public abstract class AbstractProverWithAllSat<T> extends AbstractProver<T> {
       ShutdownNotifier pShutdownNotifier) {
     super(pOptions);
     bmgr = pBmgr;
+    fmgr = null;
     shutdownNotifier = pShutdownNotifier;
+    parallelAllSat = null;
+  }
+
+  protected AbstractProverWithAllSat(
+      Set<ProverOptions> pOptions,
+      FormulaManager pFmgr,
+      ShutdownNotifier pShutdownNotifier,
+      ParallelAllSat pParallelAllSat) {
+    super(pOptions);
+    bmgr = pFmgr.getBooleanFormulaManager();
+    fmgr = pFmgr;
+    shutdownNotifier = pShutdownNotifier;
+    parallelAllSat = Preconditions.checkNotNull(pParallelAllSat);
   }
 
   @Override
@@ -48,10 +77,23 @@ public abstract class AbstractProverWithAllSat<T> extends AbstractProver<T> {
     Preconditions.checkState(!closed);
     checkGenerateAllSat();
 
+    if (parallelAllSat != null && parallelAllSat.isEnabled(importantPredicates.size())) {
+      List<BooleanFormula> constraints = getAssertedConstraints();
+      if (constraints != null) {
+        return parallelAllSat.allSat(callback, importantPredicates, constraints, fmgr);
+      }
+    }
+
+    List<BooleanFormula> constraints = minimizeAllSatModels ? getAssertedConstraints() : null;
+
     push();
     try {
       // try model-based computation of ALLSAT
-      iterateOverAllModels(callback, importantPredicates);
+      if (constraints != null) {
+        iterateOverAllMinimizedModels(callback, importantPredicates, constraints);
+      } else {
+        iterateOverAllModels(callback, importantPredicates);
+      }
     } catch (SolverException e) {
       // fallback to direct SAT/UNSAT-based computation of ALLSAT
       iterateOverAllPredicateCombinations(callback, importantPredicates, new ArrayDeque<>());
@@ -74,8 +116,10 @@ public abstract class AbstractProverWithAllSat<T> extends AbstractProver<T> {
 
       ImmutableList.Builder<BooleanFormula> valuesOfModel = ImmutableList.builder();
       try (Model model = getModelWithoutChecks()) {
-        for (BooleanFormula formula : importantPredicates) {
-          Boolean value = model.evaluate(formula);
+        List<@Nullable Object> evaluations = model.evaluateAll(importantPredicates);
+        for (int i = 0; i < importantPredicates.size(); i++) {
+          BooleanFormula formula = importantPredicates.get(i);
+          Boolean value = (Boolean) evaluations.get(i);
           if (value == null) {
             // This is a legal return value for evaluation.
             // The value doesn't matter. We ignore this assignment.
@@ -98,6 +142,100 @@ public abstract class AbstractProverWithAllSat<T> extends AbstractProver<T> {
     }
   }
 
+  /**
+   * This method computes all satisfiable assignments for the given predicates like {@link
+   * #iterateOverAllModels}, but shrinks the assignment of each model to a prime implicant of the
+   * asserted constraints before reporting and blocking it. Each reported assignment thus covers all
+   * assignments of the omitted predicates, and the reported assignments are pairwise disjoint.
+   *
+   * <p>An assignment is only shrunk as long as it implies the constraints and is disjoint from all
+   * previously reported assignments. The check requires the negated constraints and, for each
+   * reported assignment, a fresh variable that implies it. The blocking clauses are guarded by
+   * another selector. All selectors are only enabled for the respective satisfiability checks, such
+   * that the prover never needs to pop the blocking clauses.
+   *
+   * @param constraints all constraints on the stack, i.e., the formula whose models we enumerate.
+   */
+  private <R> void iterateOverAllMinimizedModels(
+      AllSatCallback<R> callback,
+      List<BooleanFormula> importantPredicates,
+      List<BooleanFormula> constraints)
+      throws SolverException, InterruptedException {
+    final BooleanFormula blockingSelector = bmgr.makeVariable(SELECTOR_PREFIX + "BLOCKING");
+    final BooleanFormula negationSelector = bmgr.makeVariable(SELECTOR_PREFIX + "NEGATION");
+    addConstraint(bmgr.implication(negationSelector, bmgr.not(bmgr.and(constraints))));
+
+    // the negation of the shrinking condition "F and not(any reported implicant)" is a disjunction
+    // of the negation selector and the selectors of all reported implicants
+    final List<BooleanFormula> violations = new ArrayList<>();
+    violations.add(negationSelector);
+
+    while (true) {
+      shutdownNotifier.shutdownIfNecessary();
+
+      List<BooleanFormula> values = new ArrayList<>();
+      push(blockingSelector);
+      try {
+        if (isUnsat()) {
+          break;
+        }
+        try (Model model = getModelWithoutChecks()) {
+          List<@Nullable Object> evaluations = model.evaluateAll(importantPredicates);
+          for (int i = 0; i < importantPredicates.size(); i++) {
+            BooleanFormula formula = importantPredicates.get(i);
+            Boolean value = (Boolean) evaluations.get(i);
+            if (value == null) {
+              // The value doesn't matter. We ignore this assignment.
+            } else if (value) {
+              values.add(formula);
+            } else {
+              values.add(bmgr.not(formula));
+            }
+          }
+        }
+      } finally {
+        pop();
+      }
+
+      // Greedily remove literals from the assignment, as long as it implies the constraints and
+      // does not overlap with a reported implicant.
+      // Any subset of an assignment that is no such implicant is no such implicant either.
+      if (isImplicant(violations, values)) {
+        for (int i = values.size() - 1; i >= 0; i--) {
+          shutdownNotifier.shutdownIfNecessary();
+          BooleanFormula literal = values.remove(i);
+          if (!isImplicant(violations, values)) {
+            values.add(i, literal);
+          }
+        }
+      }
+
+      final ImmutableList<BooleanFormula> implicant = ImmutableList.copyOf(values);
+      callback.apply(implicant);
+      shutdownNotifier.shutdownIfNecessary();
+
+      addConstraint(bmgr.implication(blockingSelector, bmgr.not(bmgr.and(implicant))));
+      BooleanFormula implicantSelector =
+          bmgr.makeVariable(SELECTOR_PREFIX + "IMPLICANT_" + violations.size());
+      addConstraint(bmgr.implication(implicantSelector, bmgr.and(implicant)));
+      violations.add(implicantSelector);
+    }
+  }
+
+  /**
+   * Checks whether the given assignment implies the constraints and is disjoint from all reported
+   * implicants, i.e., whether it is inconsistent with each of the guarded violations.
+   */
+  private boolean isImplicant(List<BooleanFormula> violations, List<BooleanFormula> assignment)
+      throws SolverException, InterruptedException {
+    push(bmgr.and(bmgr.or(violations), bmgr.and(assignment)));
+    try {
+      return isUnsat();
+    } finally {
+      pop();
+    }
+  }
+
   /**
    * This method computes all satisfiable assignments for the given predicates by (recursively)
    * traversing the decision tree over the given variables. The ordering of variables is fixed, and
@@ -146,6 +284,14 @@ public abstract class AbstractProverWithAllSat<T> extends AbstractProver<T> {
     }
   }
 
+  /**
+   * Returns all constraints on the stack of this prover, or null if they are unknown. Parallel
+   * AllSAT needs them to replay the stack in other provers.
+   */
+  protected @Nullable List<BooleanFormula> getAssertedConstraints() {
+    return null;
+  }
+
   /**
    * model computation without checks for further options.
    *
@@ -21,6 +21,7 @@ import org.sosy_lab.java_smt.api.ProverEnvironment;
 import org.sosy_lab.java_smt.api.SolverContext;
 import org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper.InterpolatingProverWithAssumptionsWrapper;
 import org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper.ProverWithAssumptionsWrapper;
+import org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper.SelectorProverWithAssumptionsWrapper;
 
 public abstract class AbstractSolverContext implements SolverContext {
 
@@ -37,7 +38,16 @@ public abstract class AbstractSolverContext implements SolverContext {
 
   @Override
   public final ProverEnvironment newProverEnvironment(ProverOptions... options) {
-    ProverEnvironment out = newProverEnvironment0(toSet(options));
+    Set<ProverOptions> optionSet = toSet(options);
+    checkProverOptions(optionSet);
+    if (!supportsAssumptionSolving() && useSelectorsForAssumptions()) {
+      return new SelectorProverWithAssumptionsWrapper(
+          newProverEnvironment0(
+              SelectorProverWithAssumptionsWrapper.getOptionsForDelegate(optionSet)),
+          fmgr.getBooleanFormulaManager(),
+          optionSet);
+    }
+    ProverEnvironment out = newProverEnvironment0(optionSet);
     if (!supportsAssumptionSolving()) {
       // In the case we do not already have a prover environment with assumptions,
       // we add a wrapper to it
@@ -52,9 +62,10 @@ public abstract class AbstractSolverContext implements SolverContext {
   @Override
   public final InterpolatingProverEnvironment<?> newProverEnvironmentWithInterpolation(
       ProverOptions... options) {
-
-    InterpolatingProverEnvironment<?> out = newProverEnvironmentWithInterpolation0(toSet(options));
-    if (!supportsAssumptionSolving()) {
+    Set<ProverOptions> optionSet = toSet(options);
+    checkProverOptions(optionSet);
+    InterpolatingProverEnvironment<?> out = newProverEnvironmentWithInterpolation0(optionSet);
+    if (!supportsAssumptionSolvingWithInterpolation()) {
       // In the case we do not already have a prover environment with assumptions,
       // we add a wrapper to it
       out = new InterpolatingProverWithAssumptionsWrapper<>(out, fmgr);
@@ -69,7 +80,9 @@ public abstract class AbstractSolverContext implements SolverContext {
   @Override
   public final OptimizationProverEnvironment newOptimizationProverEnvironment(
       ProverOptions... options) {
-    return newOptimizationProverEnvironment0(toSet(options));
+    Set<ProverOptions> optionSet = toSet(options);
+    checkProverOptions(optionSet);
+    return newOptimizationProverEnvironment0(optionSet);
   }
 
   protected abstract OptimizationProverEnvironment newOptimizationProverEnvironment0(
@@ -92,6 +105,47 @@ public abstract class AbstractSolverContext implements SolverContext {
    */
   protected abstract boolean supportsAssumptionSolving();
 
+  /**
+   * Whether the interpolating prover environments of the solver support {@link
+   * org.sosy_lab.java_smt.api.BasicProverEnvironment#isUnsatWithAssumptions(java.util.Collection)}.
+   * By default, this is the same as {@link #supportsAssumptionSolving()}.
+   */
+  protected boolean supportsAssumptionSolvingWithInterpolation() {
+    return supportsAssumptionSolving();
+  }
+
+  /**
+   * Whether prover environments of a solver without support for assumptions (see {@link
+   * #supportsAssumptionSolving()}) implement assumptions by selector literals that are reused
+   * across checks, instead of pushing one frame per assumption. Interpolating prover environments
+   * always push the assumptions.
+   *
+   * @see SelectorProverWithAssumptionsWrapper
+   */
+  protected boolean useSelectorsForAssumptions() {
+    return false;
+  }
+
+  /**
+   * Whether the prover environments of the solver can shrink the models of the AllSAT computation,
+   * i.e., whether they support {@link ProverOptions#MINIMIZE_ALL_SAT_MODELS}. This requires the
+   * asserted constraints, see {@link AbstractProverWithAllSat}.
+   */
+  protected boolean supportsMinimizedAllSatModels() {
+    return false;
+  }
+
+  private void checkProverOptions(Set<ProverOptions> options) {
+    if (options.contains(ProverOptions.MINIMIZE_ALL_SAT_MODELS)
+        && !supportsMinimizedAllSatModels()) {
+      throw new UnsupportedOperationException(
+          "The prover option "
+              + ProverOptions.MINIMIZE_ALL_SAT_MODELS
+              + " is not supported by "
+              + getSolverName());
+    }
+  }
+
   private static Set<ProverOptions> toSet(ProverOptions... options) {
     Set<ProverOptions> opts = EnumSet.noneOf(ProverOptions.class);
     Collections.addAll(opts, options);
@@ -11,19 +11,15 @@ package org.sosy_lab.java_smt.basicimpl;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.java_smt.api.ArrayFormula;
@@ -39,7 +35,6 @@ import org.sosy_lab.java_smt.api.FunctionDeclaration;
 import org.sosy_lab.java_smt.api.FunctionDeclarationKind;
 import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
 import org.sosy_lab.java_smt.api.NumeralFormula.RationalFormula;
-import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
 import org.sosy_lab.java_smt.api.RegexFormula;
 import org.sosy_lab.java_smt.api.StringFormula;
 import org.sosy_lab.java_smt.api.visitors.DefaultFormulaVisitor;
@@ -276,17 +271,23 @@ public abstract class FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> {
       FormulaVisitor<TraversalProcess> pFormulaVisitor,
       Formula pF,
       Predicate<Formula> shouldProcess) {
-    RecursiveFormulaVisitorImpl recVisitor = new RecursiveFormulaVisitorImpl(pFormulaVisitor);
-    recVisitor.addToQueue(pF);
-    while (!recVisitor.isQueueEmpty()) {
-      Formula tt = recVisitor.pop();
-      if (shouldProcess.test(tt)) {
-        TraversalProcess process = visit(tt, recVisitor);
-        if (process == TraversalProcess.ABORT) {
-          return;
-        }
-      }
-    }
+    new RecursiveFormulaVisitorImpl<>(this).visit(pFormulaVisitor, null, pF, shouldProcess);
+  }
+
+  /**
+   * Visit all subterms of the formula, each distinct term at most once.
+   *
+   * @param pFormulaVisitor is applied to each term before its children, and decides which children
+   *     are visited.
+   * @param pPostOrder is applied to each visited term after all its visited children.
+   */
+  public void visitRecursively(
+      FormulaVisitor<TraversalProcess> pFormulaVisitor,
+      Consumer<Formula> pPostOrder,
+      Formula pF,
+      Predicate<Formula> shouldProcess) {
+    new RecursiveFormulaVisitorImpl<>(this)
+        .visit(pFormulaVisitor, checkNotNull(pPostOrder), pF, shouldProcess);
   }
 
   public <T extends Formula> T transformRecursively(
@@ -298,16 +299,16 @@ public abstract class FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> {
       FormulaVisitor<? extends Formula> pFormulaVisitor, T pF, Predicate<Object> shouldProcess) {
 
     final Deque<Formula> toProcess = new ArrayDeque<>();
-    Map<Formula, Formula> pCache = new HashMap<>();
-    FormulaTransformationVisitorImpl recVisitor =
-        new FormulaTransformationVisitorImpl(pFormulaVisitor, toProcess, pCache);
+    NativeTermMap<TFormulaInfo, Formula> pCache = newTermMap();
+    FormulaTransformationVisitorImpl<TFormulaInfo> recVisitor =
+        new FormulaTransformationVisitorImpl<>(pFormulaVisitor, toProcess, pCache);
     toProcess.push(pF);
 
     // Process the work queue
     while (!toProcess.isEmpty()) {
       Formula tt = toProcess.peek();
 
-      if (pCache.containsKey(tt)) {
+      if (pCache.containsFormula(tt)) {
         toProcess.pop();
         continue;
       }
@@ -315,14 +316,23 @@ public abstract class FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> {
       if (shouldProcess.test(tt)) {
         visit(tt, recVisitor);
       } else {
-        pCache.put(tt, tt);
+        pCache.putByFormula(tt, tt);
       }
     }
     @SuppressWarnings("unchecked")
-    T out = (T) pCache.get(pF);
+    T out = (T) pCache.getByFormula(pF);
     return out;
   }
 
+  /**
+   * Create an empty map from native terms to values, used for caching during the traversal of
+   * formulas. Solvers that represent terms by primitive numbers should override this method and
+   * return a specialized implementation like {@link LongTermMap} or {@link IntTermMap}.
+   */
+  protected <V> NativeTermMap<TFormulaInfo, V> newTermMap() {
+    return new HashTermMap<>(this::extractInfo);
+  }
+
   /**
    * Wrapper for {@link #extractVariablesAndUFs(Formula, boolean, BiConsumer)} which unwraps both
    * input and output.
@@ -354,32 +364,34 @@ public abstract class FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> {
       final Formula pFormula,
       final boolean extractUF,
       final BiConsumer<String, Formula> pConsumer) {
-    visitRecursively(
-        new VariableAndUFExtractor(extractUF, pConsumer, ImmutableSet.of(), new LinkedHashSet<>()),
-        pFormula);
+    // a symbol can be bound inside a quantifier and free outside of it
+    RecursiveFormulaVisitorImpl<TFormulaInfo> traversal =
+        new RecursiveFormulaVisitorImpl<>(this, true);
+    traversal.visit(
+        new VariableAndUFExtractor(extractUF, pConsumer, traversal), null, pFormula, t -> true);
   }
 
   private class VariableAndUFExtractor extends DefaultFormulaVisitor<TraversalProcess> {
 
     private final boolean extractUF;
     private final BiConsumer<String, Formula> consumer;
-    private final Set<Formula> boundVariablesInContext;
+
+    /** The traversal knows the variables bound by quantifiers around the current formula. */
+    private final RecursiveFormulaVisitorImpl<TFormulaInfo> traversal;
 
     /**
-     * let's collect all visited symbols here, to avoid redundant visitation of symbols in nested
-     * quantified formulas.
+     * let's collect all found symbols here, because the same symbol is visited again in each nested
+     * quantified formula.
      */
-    private final Set<Formula> alreadyVisited;
+    private final NativeTermMap<TFormulaInfo, Boolean> alreadyFound = newTermMap();
 
     VariableAndUFExtractor(
         boolean pExtractUF,
         BiConsumer<String, Formula> pConsumer,
-        Set<Formula> pBoundVariablesInContext,
-        Set<Formula> pAlreadyVisited) {
+        RecursiveFormulaVisitorImpl<TFormulaInfo> pTraversal) {
       extractUF = pExtractUF;
       consumer = pConsumer;
-      boundVariablesInContext = pBoundVariablesInContext;
-      alreadyVisited = pAlreadyVisited;
+      traversal = pTraversal;
     }
 
     @Override
@@ -391,12 +403,11 @@ public abstract class FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> {
     public TraversalProcess visitFunction(
         Formula f, List<Formula> args, FunctionDeclaration<?> functionDeclaration) {
 
-      if (!boundVariablesInContext.contains(f) // TODO can UFs be bounded?
+      if (extractUF
           && functionDeclaration.getKind() == FunctionDeclarationKind.UF
-          && extractUF) {
-        if (alreadyVisited.add(f)) {
-          consumer.accept(functionDeclaration.getName(), f);
-        }
+          && !traversal.isBound(f) // TODO can UFs be bounded?
+          && alreadyFound.putByFormula(f, Boolean.TRUE) == null) {
+        consumer.accept(functionDeclaration.getName(), f);
       }
       return TraversalProcess.CONTINUE;
     }
@@ -406,31 +417,11 @@ public abstract class FormulaCreator<TFormulaInfo, TType, TEnv, TFuncDecl> {
 
       // If we are inside a quantified formula, bound variables appear to be free,
       // but they are actually bound by the surrounding context.
-      if (!boundVariablesInContext.contains(f)) {
-        if (alreadyVisited.add(f)) {
-          consumer.accept(name, f);
-        }
+      if (!traversal.isBound(f) && alreadyFound.putByFormula(f, Boolean.TRUE) == null) {
+        consumer.accept(name, f);
       }
       return TraversalProcess.CONTINUE;
     }
-
-    @Override
-    public TraversalProcess visitQuantifier(
-        BooleanFormula f, Quantifier q, List<Formula> boundVariables, BooleanFormula body) {
-
-      // We begin a new nested scope, thus we need a 'really' recursive call and
-      // use another visitor-instance which knows the corresponding bound variables.
-      visitRecursively(
-          new VariableAndUFExtractor(
-              extractUF,
-              consumer,
-              Sets.union(boundVariablesInContext, ImmutableSet.copyOf(boundVariables)),
-              alreadyVisited),
-          body);
-
-      // Afterwards, we skip the already finished body-formula.
-      return TraversalProcess.SKIP;
-    }
   }
 
   @SuppressWarnings("unchecked")
@@ -12,32 +12,46 @@ import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.Formula;
 import org.sosy_lab.java_smt.api.FunctionDeclaration;
 import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
 import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 
-/** Internal implementation of recursive transformation. */
-final class FormulaTransformationVisitorImpl implements FormulaVisitor<Void> {
+/**
+ * Internal implementation of recursive transformation.
+ *
+ * <p>The results are cached by the native terms of the formulas, such that wrapper objects only
+ * need to be created for calling the delegate.
+ */
+@SuppressWarnings("ClassTypeParameterName")
+final class FormulaTransformationVisitorImpl<TFormulaInfo> implements FormulaVisitor<Void> {
 
   private final Deque<Formula> toProcess;
-  private final Map<Formula, Formula> pCache;
+  private final NativeTermMap<TFormulaInfo, Formula> pCache;
   private final FormulaVisitor<? extends Formula> delegate;
 
   FormulaTransformationVisitorImpl(
       FormulaVisitor<? extends Formula> delegate,
       Deque<Formula> toProcess,
-      Map<Formula, Formula> pCache) {
+      NativeTermMap<TFormulaInfo, Formula> pCache) {
     this.toProcess = Preconditions.checkNotNull(toProcess);
     this.pCache = Preconditions.checkNotNull(pCache);
     this.delegate = Preconditions.checkNotNull(delegate);
   }
 
+  private void cache(Formula f, Formula result) {
+    pCache.putByFormula(f, result);
+  }
+
+  private @Nullable Formula getCached(Formula f) {
+    return pCache.getByFormula(f);
+  }
+
   @Override
   public Void visitFreeVariable(Formula f, String name) {
-    pCache.put(f, delegate.visitFreeVariable(f, name));
+    cache(f, delegate.visitFreeVariable(f, name));
     return null;
   }
 
@@ -46,14 +60,14 @@ final class FormulaTransformationVisitorImpl implements FormulaVisitor<Void> {
     Preconditions.checkNotNull(f);
 
     // Bound variable transformation is not allowed.
-    pCache.put(f, f);
+    cache(f, f);
     return null;
   }
 
   @Override
   public Void visitConstant(Formula f, Object value) {
     Preconditions.checkNotNull(f);
-    pCache.put(f, delegate.visitConstant(f, value));
+    cache(f, delegate.visitConstant(f, value));
     return null;
   }
 
@@ -68,7 +82,7 @@ final class FormulaTransformationVisitorImpl implements FormulaVisitor<Void> {
     List<Formula> newArgs = new ArrayList<>(args.size());
 
     for (Formula c : args) {
-      Formula newC = pCache.get(c);
+      Formula newC = getCached(c);
 
       if (newC != null) {
         newArgs.add(newC);
@@ -87,7 +101,7 @@ final class FormulaTransformationVisitorImpl implements FormulaVisitor<Void> {
         toProcess.pop();
       }
       Formula out = delegate.visitFunction(f, newArgs, functionDeclaration);
-      Formula prev = pCache.put(f, out);
+      Formula prev = pCache.putByFormula(f, out);
       assert prev == null;
     }
     return null;
@@ -101,12 +115,12 @@ final class FormulaTransformationVisitorImpl implements FormulaVisitor<Void> {
     Preconditions.checkNotNull(boundVariables);
     Preconditions.checkNotNull(body);
 
-    BooleanFormula transformedBody = (BooleanFormula) pCache.get(body);
+    BooleanFormula transformedBody = (BooleanFormula) getCached(body);
 
     if (transformedBody != null) {
       BooleanFormula newTt =
           (BooleanFormula) delegate.visitQuantifier(f, quantifier, boundVariables, transformedBody);
-      pCache.put(f, newTt);
+      cache(f, newTt);
 
     } else {
       toProcess.push(body);
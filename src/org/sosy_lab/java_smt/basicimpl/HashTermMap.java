@@ -0,0 +1,54 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.Formula;
+
+/** Default {@link NativeTermMap} for solvers whose terms are objects. */
+@SuppressWarnings("ClassTypeParameterName")
+final class HashTermMap<TFormulaInfo, V> implements NativeTermMap<TFormulaInfo, V> {
+
+  private final Map<TFormulaInfo, V> map = new HashMap<>();
+  private final Function<Formula, TFormulaInfo> keyFunction;
+
+  HashTermMap(Function<Formula, TFormulaInfo> pKeyFunction) {
+    keyFunction = checkNotNull(pKeyFunction);
+  }
+
+  @Override
+  public @Nullable V get(TFormulaInfo pTerm) {
+    return map.get(checkNotNull(pTerm));
+  }
+
+  @Override
+  public @Nullable V put(TFormulaInfo pTerm, V pValue) {
+    return map.put(checkNotNull(pTerm), checkNotNull(pValue));
+  }
+
+  @Override
+  public @Nullable V getByFormula(Formula pFormula) {
+    return get(keyFunction.apply(pFormula));
+  }
+
+  @Override
+  public @Nullable V putByFormula(Formula pFormula, V pValue) {
+    return put(keyFunction.apply(pFormula), pValue);
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+}
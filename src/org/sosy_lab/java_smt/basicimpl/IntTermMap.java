@@ -0,0 +1,133 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.function.ToIntFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.Formula;
+
+/**
+ * {@link NativeTermMap} with primitive keys and open addressing, for solvers that represent terms
+ * by int indices, like Yices2.
+ */
+public final class IntTermMap<V> implements NativeTermMap<Integer, V> {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Keys and values of the map, a slot is empty if its value is null. */
+  private int[] keys = new int[INITIAL_CAPACITY];
+
+  private @Nullable Object[] values = new Object[INITIAL_CAPACITY];
+
+  private int size = 0;
+
+  private final @Nullable ToIntFunction<Formula> keyFunction;
+
+  /** Create a map that is only accessed by primitive keys. */
+  public IntTermMap() {
+    keyFunction = null;
+  }
+
+  /** Create a map that reads the native term of a formula with the given function. */
+  public IntTermMap(ToIntFunction<Formula> pKeyFunction) {
+    keyFunction = checkNotNull(pKeyFunction);
+  }
+
+  @Override
+  public @Nullable V get(Integer pTerm) {
+    return getInt(pTerm.intValue());
+  }
+
+  @SuppressWarnings("unchecked")
+  public @Nullable V getInt(int pKey) {
+    int mask = keys.length - 1;
+    for (int i = slot(pKey, mask); values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == pKey) {
+        return (V) values[i];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public @Nullable V put(Integer pTerm, V pValue) {
+    return putInt(pTerm.intValue(), pValue);
+  }
+
+  @CanIgnoreReturnValue
+  @SuppressWarnings("unchecked")
+  public @Nullable V putInt(int pKey, V pValue) {
+    checkNotNull(pValue);
+    if (2 * (size + 1) > keys.length) {
+      resize();
+    }
+    int mask = keys.length - 1;
+    int i = slot(pKey, mask);
+    while (values[i] != null) {
+      if (keys[i] == pKey) {
+        V previous = (V) values[i];
+        values[i] = pValue;
+        return previous;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = pKey;
+    values[i] = pValue;
+    size++;
+    return null;
+  }
+
+  @Override
+  public @Nullable V getByFormula(Formula pFormula) {
+    return getInt(key(pFormula));
+  }
+
+  @Override
+  public @Nullable V putByFormula(Formula pFormula, V pValue) {
+    return putInt(key(pFormula), pValue);
+  }
+
+  private int key(Formula pFormula) {
+    checkState(keyFunction != null, "map is only accessed by primitive keys");
+    return keyFunction.applyAsInt(pFormula);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private static int slot(int pKey, int mask) {
+    // native terms are often aligned or consecutive, thus the bits need to be mixed
+    int h = pKey * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private void resize() {
+    int[] oldKeys = keys;
+    @Nullable Object[] oldValues = values;
+    keys = new int[2 * oldKeys.length];
+    values = new Object[2 * oldValues.length];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != null) {
+        int i = slot(oldKeys[j], mask);
+        while (values[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.Formula;
+
+/**
+ * Map from native solver terms to non-null values, used for memoization when traversing formulas.
+ *
+ * <p>Solvers that represent terms by primitive numbers provide specialized implementations, which
+ * neither box keys nor compare wrapper objects. The methods taking a {@link Formula} read the
+ * native term directly from the wrapper, such that traversals never create boxed keys.
+ *
+ * @param <TFormulaInfo> the solver specific type for formulas.
+ * @see FormulaCreator#newTermMap()
+ */
+@SuppressWarnings("ClassTypeParameterName")
+public interface NativeTermMap<TFormulaInfo, V> {
+
+  @Nullable V get(TFormulaInfo pTerm);
+
+  /** Store the value for the term and return the previous value, if any. */
+  @CanIgnoreReturnValue
+  @Nullable V put(TFormulaInfo pTerm, V pValue);
+
+  default boolean containsKey(TFormulaInfo pTerm) {
+    return get(pTerm) != null;
+  }
+
+  /** Get the value for the native term of the formula. */
+  @Nullable V getByFormula(Formula pFormula);
+
+  /** Store the value for the native term of the formula and return the previous value, if any. */
+  @CanIgnoreReturnValue
+  @Nullable V putByFormula(Formula pFormula, V pValue);
+
+  default boolean containsFormula(Formula pFormula) {
+    return getByFormula(pFormula) != null;
+  }
+
+  int size();
+}
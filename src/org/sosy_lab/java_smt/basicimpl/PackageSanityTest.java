@@ -18,5 +18,11 @@ public class PackageSanityTest extends AbstractPackageSanityTests {
   {
     setDistinctValues(FormulaType.class, FormulaType.BooleanType, FormulaType.IntegerType);
     setDefault(ShutdownNotifier.class, ShutdownManager.create().getNotifier());
+    // these classes require a solver-specific FormulaCreator and are tested with each solver
+    ignoreClasses(
+        c ->
+            c == RecursiveFormulaVisitorImpl.class
+                || c == FormulaTransformationVisitorImpl.class
+                || c == SubstitutionSkeleton.class);
   }
 }
@@ -0,0 +1,441 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Ascii;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sosy_lab.common.ShutdownManager;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BasicProverEnvironment.AllSatCallback;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.utils.FormulaTranslator;
+
+/**
+ * Computes AllSAT by cube and conquer.
+ *
+ * <p>The assignments of the first k important predicates split the search space into 2^k disjoint
+ * cubes. Each cube is solved by a prover of its own, which enumerates the models of the remaining
+ * predicates sequentially. Solver contexts are not thread-safe, thus every worker uses a separate
+ * context and solves several cubes one after another, such that the asserted constraints are
+ * translated only once per worker. All accesses to the formula manager of the calling prover are
+ * serialized, including the calls of the {@link AllSatCallback}.
+ *
+ * <p>The contexts of the workers only get the options of the solver itself, i.e., no logging,
+ * statistics, or caching, and they are kept for later AllSAT computations until {@link #close()}.
+ */
+@Options(prefix = "solver.allsat")
+public final class ParallelAllSat {
+
+  @Option(
+      secure = true,
+      description =
+          "Number of threads that compute AllSAT in parallel by cube and conquer. "
+              + "The value 1 computes AllSAT sequentially in the prover itself.")
+  private int parallelism = 1;
+
+  @Option(
+      secure = true,
+      description =
+          "Number of important predicates whose assignments split AllSAT into 2^k cubes. "
+              + "The value 0 chooses a depth with at least four cubes per thread.")
+  private int cubeDepth = 0;
+
+  @Option(
+      secure = true,
+      description =
+          "Report the models of parallel AllSAT in the order of the cubes, "
+              + "i.e., the order of the sequential decision tree, instead of the order "
+              + "in which they are found. This delays all models until all cubes are solved.")
+  private boolean deterministicOrder = false;
+
+  /** Upper bound for the automatically chosen and for the configured depth of cubes. */
+  private static final int MAX_CUBE_DEPTH = 20;
+
+  /** Options of the main context that are relevant for the solver in the workers. */
+  private static final ImmutableList<String> SHARED_OPTIONS =
+      ImmutableList.of(
+          "solver.floatingPointRoundingMode", "solver.nonLinearArithmetic", "solver.randomSeed");
+
+  private final Configuration workerConfig;
+  private final LogManager logger;
+  private final ShutdownNotifier shutdownNotifier;
+  private final Solvers solver;
+
+  /** Threads of the workers, idle threads terminate after a while. */
+  private final ExecutorService executor =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("parallel-allsat-%d").setDaemon(true).build());
+
+  /** Contexts of the workers that are currently not used. Guarded by itself. */
+  private final Deque<WorkerContext> idleContexts = new ArrayDeque<>();
+
+  private boolean closed = false;
+
+  public ParallelAllSat(
+      Configuration pConfig,
+      LogManager pLogger,
+      ShutdownNotifier pShutdownNotifier,
+      Solvers pSolver)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    if (parallelism < 1) {
+      throw new InvalidConfigurationException("Parallelism of AllSAT must be positive.");
+    }
+    if (cubeDepth < 0 || cubeDepth > MAX_CUBE_DEPTH) {
+      throw new InvalidConfigurationException(
+          "Depth of cubes for AllSAT must be between 0 and " + MAX_CUBE_DEPTH + ".");
+    }
+    solver = checkNotNull(pSolver);
+    workerConfig = getWorkerConfig(pConfig, pSolver);
+    logger = checkNotNull(pLogger);
+    shutdownNotifier = checkNotNull(pShutdownNotifier);
+  }
+
+  /**
+   * Returns the options of the solver itself, without any options for logging or for wrappers of
+   * the context. The workers compute AllSAT sequentially.
+   */
+  private static Configuration getWorkerConfig(Configuration pConfig, Solvers pSolver)
+      throws InvalidConfigurationException {
+    String solverPrefix = "solver." + Ascii.toLowerCase(pSolver.name()) + ".";
+    ConfigurationBuilder builder = Configuration.builder();
+    for (String line : Splitter.on('\n').omitEmptyStrings().split(pConfig.asPropertiesString())) {
+      List<String> option = Splitter.on('=').trimResults().limit(2).splitToList(line);
+      String name = option.get(0);
+      // options for logging queries would write the same files from all workers
+      if ((name.startsWith(solverPrefix) && !name.contains("log"))
+          || SHARED_OPTIONS.contains(name)) {
+        builder.setOption(name, option.get(1));
+      }
+    }
+    return builder.setOption("solver.allsat.parallelism", "1").build();
+  }
+
+  /** Whether AllSAT over the given number of important predicates is computed in parallel. */
+  boolean isEnabled(int pNumberOfPredicates) {
+    return parallelism > 1 && getCubeDepth(pNumberOfPredicates) > 0;
+  }
+
+  private int getCubeDepth(int pNumberOfPredicates) {
+    int depth = cubeDepth;
+    if (depth == 0) {
+      // the cubes are not balanced, thus we use several cubes per thread
+      depth = 2 + 32 - Integer.numberOfLeadingZeros(parallelism - 1);
+    }
+    return Math.min(Math.min(depth, MAX_CUBE_DEPTH), pNumberOfPredicates);
+  }
+
+  /**
+   * Compute AllSAT over the important predicates for the conjunction of the given constraints.
+   *
+   * @param pManager the formula manager of the constraints and predicates, which also receives the
+   *     models.
+   * @param pConstraints all constraints that are asserted in the calling prover.
+   */
+  <R> R allSat(
+      AllSatCallback<R> pCallback,
+      List<BooleanFormula> pImportant,
+      List<BooleanFormula> pConstraints,
+      FormulaManager pManager)
+      throws SolverException, InterruptedException {
+    int depth = getCubeDepth(pImportant.size());
+    int numberOfCubes = 1 << depth;
+    int numberOfWorkers = Math.min(parallelism, numberOfCubes);
+
+    // cubes in the order of the sequential decision tree, positive literals first
+    BooleanFormulaManager bmgr = pManager.getBooleanFormulaManager();
+    List<List<BooleanFormula>> cubes = new ArrayList<>(numberOfCubes);
+    for (int cube = 0; cube < numberOfCubes; cube++) {
+      ImmutableList.Builder<BooleanFormula> literals = ImmutableList.builder();
+      for (int i = 0; i < depth; i++) {
+        BooleanFormula predicate = pImportant.get(i);
+        boolean negated = ((cube >> (depth - 1 - i)) & 1) == 1;
+        literals.add(negated ? bmgr.not(predicate) : predicate);
+      }
+      cubes.add(literals.build());
+    }
+
+    Conquest<R> conquest =
+        new Conquest<>(pCallback, pManager, cubes, pImportant, pConstraints, depth);
+    List<WorkerContext> contexts = new ArrayList<>(numberOfWorkers);
+    try {
+      for (int i = 0; i < numberOfWorkers; i++) {
+        contexts.add(leaseContext());
+      }
+    } catch (InvalidConfigurationException e) {
+      contexts.forEach(this::releaseContext);
+      throw new SolverException("invalid configuration for the contexts of parallel AllSAT", e);
+    }
+    List<Future<Void>> workers = new ArrayList<>(numberOfWorkers);
+    for (WorkerContext context : contexts) {
+      // the worker returns its context when it is finished
+      workers.add(executor.submit(new Worker(conquest, context)));
+    }
+    awaitWorkers(workers, contexts);
+
+    if (deterministicOrder) {
+      for (List<List<BooleanFormula>> models : conquest.modelsPerCube) {
+        models.forEach(pCallback::apply);
+      }
+    }
+    return pCallback.getResult();
+  }
+
+  /** Wait for all workers, the first failure stops all other workers and is rethrown. */
+  private void awaitWorkers(List<Future<Void>> pWorkers, List<WorkerContext> pContexts)
+      throws SolverException, InterruptedException {
+    for (Future<Void> worker : pWorkers) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        stopWorkers(pContexts, "AllSAT was interrupted");
+        throw e;
+      } catch (ExecutionException e) {
+        stopWorkers(pContexts, "another cube of AllSAT failed");
+        shutdownNotifier.shutdownIfNecessary();
+        Throwable cause = e.getCause();
+        if (cause instanceof SolverException) {
+          throw (SolverException) cause;
+        } else if (cause instanceof InterruptedException) {
+          throw (InterruptedException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        } else {
+          throw new SolverException("parallel AllSAT failed", cause);
+        }
+      }
+    }
+  }
+
+  /** Stopped workers close their contexts instead of returning them. */
+  private static void stopWorkers(List<WorkerContext> pContexts, String pReason) {
+    for (WorkerContext context : pContexts) {
+      context.shutdownManager.requestShutdown(pReason);
+    }
+  }
+
+  /** Returns an idle context of a worker, or creates a new one. */
+  private WorkerContext leaseContext() throws InvalidConfigurationException {
+    synchronized (idleContexts) {
+      checkState(!closed, "the solver context is already closed");
+      WorkerContext context = idleContexts.poll();
+      if (context != null) {
+        return context;
+      }
+    }
+    ShutdownManager workerShutdownManager = ShutdownManager.createWithParent(shutdownNotifier);
+    SolverContext context =
+        new SolverContextFactory(workerConfig, logger, workerShutdownManager.getNotifier())
+            .generateContext(solver);
+    return new WorkerContext(context, workerShutdownManager);
+  }
+
+  /** Keeps the context of a worker for later, unless it was stopped. */
+  private void releaseContext(WorkerContext pContext) {
+    synchronized (idleContexts) {
+      if (!closed && !pContext.shutdownManager.getNotifier().shouldShutdown()) {
+        idleContexts.push(pContext);
+        return;
+      }
+    }
+    pContext.context.close();
+  }
+
+  /** Closes all contexts of the workers. Workers that are still running close their own context. */
+  void close() {
+    List<WorkerContext> contexts;
+    synchronized (idleContexts) {
+      closed = true;
+      contexts = new ArrayList<>(idleContexts);
+      idleContexts.clear();
+    }
+    for (WorkerContext context : contexts) {
+      context.context.close();
+    }
+    executor.shutdown();
+  }
+
+  /** A context of a worker, which can be stopped separately from the other workers. */
+  private static final class WorkerContext {
+
+    private final SolverContext context;
+    private final ShutdownManager shutdownManager;
+
+    WorkerContext(SolverContext pContext, ShutdownManager pShutdownManager) {
+      context = pContext;
+      shutdownManager = pShutdownManager;
+    }
+  }
+
+  /** The state of one parallel AllSAT computation that is shared by all workers. */
+  private final class Conquest<R> {
+
+    private final AllSatCallback<R> callback;
+    private final FormulaManager manager;
+    private final List<List<BooleanFormula>> cubes;
+    private final List<BooleanFormula> important;
+    private final List<BooleanFormula> constraints;
+    private final int depth;
+
+    /** Serializes all accesses to the formula manager of the calling prover. */
+    private final Object lock = new Object();
+
+    /** The next cube that is not yet taken by a worker. */
+    private final AtomicInteger nextCube = new AtomicInteger();
+
+    /** Models by cube, only used for a deterministic order. Each cube is solved by one worker. */
+    private final List<List<List<BooleanFormula>>> modelsPerCube;
+
+    Conquest(
+        AllSatCallback<R> pCallback,
+        FormulaManager pManager,
+        List<List<BooleanFormula>> pCubes,
+        List<BooleanFormula> pImportant,
+        List<BooleanFormula> pConstraints,
+        int pDepth) {
+      callback = pCallback;
+      manager = pManager;
+      cubes = pCubes;
+      important = pImportant;
+      constraints = pConstraints;
+      depth = pDepth;
+      modelsPerCube = new ArrayList<>(cubes.size());
+      for (int i = 0; i < cubes.size(); i++) {
+        modelsPerCube.add(new ArrayList<>());
+      }
+    }
+
+    /** Accept a model of a cube. Translation and callback are serialized. */
+    void apply(int pCube, List<BooleanFormula> pModel, FormulaTranslator pFromWorker) {
+      synchronized (lock) {
+        ImmutableList.Builder<BooleanFormula> model = ImmutableList.builder();
+        model.addAll(cubes.get(pCube));
+        for (BooleanFormula value : pModel) {
+          model.add(pFromWorker.translate(value));
+        }
+        if (deterministicOrder) {
+          modelsPerCube.get(pCube).add(model.build());
+        } else {
+          callback.apply(model.build());
+        }
+      }
+    }
+  }
+
+  /** A thread with a separate context that solves cubes until all cubes are taken. */
+  private final class Worker implements Callable<Void> {
+
+    private final Conquest<?> conquest;
+    private final WorkerContext workerContext;
+    private final ShutdownNotifier workerShutdownNotifier;
+
+    Worker(Conquest<?> pConquest, WorkerContext pWorkerContext) {
+      conquest = pConquest;
+      workerContext = pWorkerContext;
+      workerShutdownNotifier = pWorkerContext.shutdownManager.getNotifier();
+    }
+
+    @Override
+    public Void call() throws SolverException, InterruptedException {
+      try {
+        solveCubes();
+      } finally {
+        releaseContext(workerContext);
+      }
+      return null;
+    }
+
+    private void solveCubes() throws SolverException, InterruptedException {
+      SolverContext context = workerContext.context;
+      try (ProverEnvironment prover =
+          context.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT)) {
+        FormulaManager workerManager = context.getFormulaManager();
+        FormulaTranslator toWorker = new FormulaTranslator(conquest.manager, workerManager);
+        FormulaTranslator fromWorker = new FormulaTranslator(workerManager, conquest.manager);
+
+        List<BooleanFormula> constraints;
+        List<BooleanFormula> important;
+        synchronized (conquest.lock) {
+          constraints = translate(conquest.constraints, toWorker);
+          important = translate(conquest.important, toWorker);
+        }
+        for (BooleanFormula constraint : constraints) {
+          prover.addConstraint(constraint);
+        }
+        BooleanFormulaManager bmgr = workerManager.getBooleanFormulaManager();
+        List<BooleanFormula> remaining = important.subList(conquest.depth, important.size());
+
+        int cube;
+        while ((cube = conquest.nextCube.getAndIncrement()) < conquest.cubes.size()) {
+          workerShutdownNotifier.shutdownIfNecessary();
+          prover.push();
+          for (int i = 0; i < conquest.depth; i++) {
+            boolean negated = ((cube >> (conquest.depth - 1 - i)) & 1) == 1;
+            prover.addConstraint(negated ? bmgr.not(important.get(i)) : important.get(i));
+          }
+          final int currentCube = cube;
+          prover.allSat(
+              new AllSatCallback<Void>() {
+                @Override
+                public void apply(List<BooleanFormula> pModel) {
+                  conquest.apply(currentCube, pModel, fromWorker);
+                }
+
+                @Override
+                public Void getResult() {
+                  return null;
+                }
+              },
+              remaining);
+          prover.pop();
+        }
+      }
+    }
+
+    private List<BooleanFormula> translate(
+        List<BooleanFormula> pFormulas, FormulaTranslator pTranslator) {
+      List<BooleanFormula> result = new ArrayList<>(pFormulas.size());
+      for (BooleanFormula f : pFormulas) {
+        result.add(pTranslator.translate(f));
+      }
+      return result;
+    }
+  }
+}
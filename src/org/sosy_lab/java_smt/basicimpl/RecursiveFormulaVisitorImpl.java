@@ -13,9 +13,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.Formula;
 import org.sosy_lab.java_smt.api.FunctionDeclaration;
@@ -24,39 +25,108 @@ import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 import org.sosy_lab.java_smt.api.visitors.TraversalProcess;
 import org.sosy_lab.java_smt.api.visitors.TraversalProcess.TraversalType;
 
-final class RecursiveFormulaVisitorImpl implements FormulaVisitor<TraversalProcess> {
+/**
+ * Iterative traversal of a formula that visits each distinct term exactly once.
+ *
+ * <p>Terms are identified by their native solver term, such that the traversal does not depend on
+ * the type of the wrapper objects. The body of a quantified formula is traversed in a new scope
+ * that knows the bound variables. Optionally, terms are visited again in each such scope, because
+ * the same term can have a different meaning inside and outside of the quantifier. Optionally, a
+ * callback is applied to each visited term after all its traversed children were visited.
+ */
+@SuppressWarnings("ClassTypeParameterName")
+final class RecursiveFormulaVisitorImpl<TFormulaInfo> implements FormulaVisitor<TraversalProcess> {
 
-  private final Set<Formula> seen = new HashSet<>();
-  private final Deque<Formula> toVisit = new ArrayDeque<>();
+  private final Deque<Entry<TFormulaInfo>> toVisit = new ArrayDeque<>();
+  private final FormulaCreator<TFormulaInfo, ?, ?, ?> creator;
 
-  private final FormulaVisitor<TraversalProcess> delegate;
+  /** Whether terms are visited again in the body of each quantifier. */
+  private final boolean visitOncePerScope;
 
-  RecursiveFormulaVisitorImpl(FormulaVisitor<TraversalProcess> pDelegate) {
-    delegate = checkNotNull(pDelegate);
+  private @Nullable FormulaVisitor<TraversalProcess> delegate;
+
+  /** Scope of the formula that is currently visited. */
+  private Scope<TFormulaInfo> currentScope;
+
+  RecursiveFormulaVisitorImpl(FormulaCreator<TFormulaInfo, ?, ?, ?> pCreator) {
+    this(pCreator, false);
   }
 
-  void addToQueue(Formula f) {
-    if (seen.add(f)) {
-      toVisit.push(f);
+  RecursiveFormulaVisitorImpl(
+      FormulaCreator<TFormulaInfo, ?, ?, ?> pCreator, boolean pVisitOncePerScope) {
+    creator = checkNotNull(pCreator);
+    visitOncePerScope = pVisitOncePerScope;
+    currentScope = new Scope<>(null, null, creator.newTermMap());
+  }
+
+  /**
+   * Traverse the formula and all its children, unless they are skipped by the visitor.
+   *
+   * @param pDelegate visitor that is applied to each term before its children are visited.
+   * @param pPostOrder callback that is applied to each visited term after its children.
+   * @param pShouldProcess terms not matching the predicate and their children are not visited.
+   */
+  void visit(
+      FormulaVisitor<TraversalProcess> pDelegate,
+      @Nullable Consumer<Formula> pPostOrder,
+      Formula pF,
+      Predicate<Formula> pShouldProcess) {
+    delegate = checkNotNull(pDelegate);
+    toVisit.push(new Entry<>(pF, currentScope));
+    while (!toVisit.isEmpty()) {
+      Entry<TFormulaInfo> entry = toVisit.pop();
+      if (entry.finished) {
+        checkNotNull(pPostOrder).accept(entry.formula);
+        continue;
+      }
+
+      // Mark terms as seen when visiting them instead of when queueing them,
+      // such that all children of a term are visited before the term itself is finished.
+      if (entry.scope.seen.putByFormula(entry.formula, Boolean.TRUE) != null
+          || !pShouldProcess.test(entry.formula)) {
+        continue;
+      }
+      if (pPostOrder != null) {
+        entry.finished = true;
+        toVisit.push(entry);
+      }
+      currentScope = entry.scope;
+      if (creator.visit(entry.formula, this) == TraversalProcess.ABORT) {
+        toVisit.clear();
+        return;
+      }
     }
   }
 
-  boolean isQueueEmpty() {
-    return toVisit.isEmpty();
+  /**
+   * Check whether the given variable is bound by a quantifier that encloses the term that is
+   * currently visited.
+   */
+  boolean isBound(Formula pF) {
+    for (Scope<TFormulaInfo> scope = currentScope; scope != null; scope = scope.parent) {
+      if (scope.boundVariables != null && scope.boundVariables.containsFormula(pF)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private void addToQueueIfNecessary(TraversalProcess result, List<? extends Formula> pOperands) {
-    if (result == TraversalProcess.CONTINUE) {
-      for (Formula f : pOperands) {
-        addToQueue(f);
+  private void addToQueue(List<? extends Formula> pOperands, Scope<TFormulaInfo> pScope) {
+    for (Formula f : pOperands) {
+      if (!pScope.seen.containsFormula(f)) {
+        toVisit.push(new Entry<>(f, pScope));
       }
-    } else if (result.getType() == TraversalType.CUSTOM_TYPE) {
-      pOperands.stream().filter(result::contains).forEach(this::addToQueue);
     }
   }
 
-  Formula pop() {
-    return toVisit.pop();
+  private void addToQueueIfNecessary(
+      TraversalProcess result, List<? extends Formula> pOperands, Scope<TFormulaInfo> pScope) {
+    if (result == TraversalProcess.CONTINUE) {
+      addToQueue(pOperands, pScope);
+    } else if (result.getType() == TraversalType.CUSTOM_TYPE) {
+      addToQueue(
+          ImmutableList.copyOf(pOperands.stream().filter(result::contains).iterator()), pScope);
+    }
   }
 
   @Override
@@ -78,7 +148,7 @@ final class RecursiveFormulaVisitorImpl implements FormulaVisitor<TraversalProce
   public TraversalProcess visitFunction(
       Formula pF, List<Formula> pArgs, FunctionDeclaration<?> pFunctionDeclaration) {
     TraversalProcess result = delegate.visitFunction(pF, pArgs, pFunctionDeclaration);
-    addToQueueIfNecessary(result, pArgs);
+    addToQueueIfNecessary(result, pArgs, currentScope);
     return result;
   }
 
@@ -86,7 +156,46 @@ final class RecursiveFormulaVisitorImpl implements FormulaVisitor<TraversalProce
   public TraversalProcess visitQuantifier(
       BooleanFormula pF, Quantifier pQuantifier, List<Formula> boundVars, BooleanFormula pBody) {
     TraversalProcess result = delegate.visitQuantifier(pF, pQuantifier, boundVars, pBody);
-    addToQueueIfNecessary(result, ImmutableList.of(pBody));
+    NativeTermMap<TFormulaInfo, Boolean> boundKeys = creator.newTermMap();
+    for (Formula boundVar : boundVars) {
+      boundKeys.putByFormula(boundVar, Boolean.TRUE);
+    }
+    NativeTermMap<TFormulaInfo, Boolean> seen =
+        visitOncePerScope ? creator.newTermMap() : currentScope.seen;
+    addToQueueIfNecessary(
+        result, ImmutableList.of(pBody), new Scope<>(currentScope, boundKeys, seen));
     return result;
   }
+
+  /**
+   * The variables bound by one quantifier, and the terms already visited, which are shared with the
+   * parent scope unless terms are visited once per scope.
+   */
+  private static final class Scope<TFormulaInfo> {
+    private final @Nullable Scope<TFormulaInfo> parent;
+    private final @Nullable NativeTermMap<TFormulaInfo, Boolean> boundVariables;
+    private final NativeTermMap<TFormulaInfo, Boolean> seen;
+
+    private Scope(
+        @Nullable Scope<TFormulaInfo> pParent,
+        @Nullable NativeTermMap<TFormulaInfo, Boolean> pBoundVariables,
+        NativeTermMap<TFormulaInfo, Boolean> pSeen) {
+      parent = pParent;
+      boundVariables = pBoundVariables;
+      seen = pSeen;
+    }
+  }
+
+  private static final class Entry<TFormulaInfo> {
+    private final Formula formula;
+    private final Scope<TFormulaInfo> scope;
+
+    /** Whether the children of the formula were already queued. */
+    private boolean finished = false;
+
+    private Entry(Formula pFormula, Scope<TFormulaInfo> pScope) {
+      formula = pFormula;
+      scope = pScope;
+    }
+  }
 }
@@ -0,0 +1,473 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import org.sosy_lab.common.rationals.Rational;
+import org.sosy_lab.java_smt.api.ArrayFormula;
+import org.sosy_lab.java_smt.api.BitvectorFormula;
+import org.sosy_lab.java_smt.api.BitvectorFormulaManager;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.FormulaType;
+import org.sosy_lab.java_smt.api.FormulaType.BitvectorType;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
+import org.sosy_lab.java_smt.api.FunctionDeclarationKind;
+import org.sosy_lab.java_smt.api.NumeralFormula;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.NumeralFormulaManager;
+import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
+import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
+
+/**
+ * Translates formulas from one {@link FormulaManager} into another one by walking the formula
+ * structure of the source and rebuilding each node with the public API of the target.
+ *
+ * <p>The traversal is iterative and uses a memo table, such that each shared subterm is translated
+ * exactly once. The memo table can be provided by the caller and reused for several translations
+ * between the same pair of managers.
+ *
+ * <p>Not every node kind can be rebuilt from the information available through a {@link
+ * FormulaVisitor}, e.g., quantifiers, bit-vector extraction, or solver-specific operators. For such
+ * nodes an {@link UnsupportedOperationException} is thrown and the caller is expected to fall back
+ * to another translation strategy, e.g., dumping and parsing SMT-LIB2.
+ */
+public final class StructuralFormulaTranslator {
+
+  private final FormulaManager source;
+  private final FormulaManager target;
+  private final BooleanFormulaManager bmgr;
+
+  private final Map<Formula, Formula> cache;
+  private final Map<FunctionDeclaration<?>, FunctionDeclaration<?>> declarationCache;
+
+  private final Deque<Formula> toProcess = new ArrayDeque<>();
+  private final TranslationVisitor visitor = new TranslationVisitor();
+
+  /**
+   * Create a translator with a fresh memo table, which is only valid for the given managers.
+   *
+   * @param pSource the manager that created the formulas that will be translated.
+   * @param pTarget the manager that will create the translated formulas.
+   */
+  public StructuralFormulaTranslator(FormulaManager pSource, FormulaManager pTarget) {
+    this(pSource, pTarget, new HashMap<>(), new HashMap<>());
+  }
+
+  /**
+   * Create a translator that uses the given memo tables. Both maps are modified during translation
+   * and must only be shared between translators for the same pair of managers.
+   *
+   * @param pCache maps source formulas to their already translated counterparts.
+   * @param pDeclarationCache maps declarations of uninterpreted functions in the source to their
+   *     counterparts in the target.
+   */
+  public StructuralFormulaTranslator(
+      FormulaManager pSource,
+      FormulaManager pTarget,
+      Map<Formula, Formula> pCache,
+      Map<FunctionDeclaration<?>, FunctionDeclaration<?>> pDeclarationCache) {
+    source = checkNotNull(pSource);
+    target = checkNotNull(pTarget);
+    bmgr = target.getBooleanFormulaManager();
+    cache = checkNotNull(pCache);
+    declarationCache = checkNotNull(pDeclarationCache);
+  }
+
+  /**
+   * Translate the given formula into the target manager.
+   *
+   * @throws UnsupportedOperationException if the formula contains a node that can not be rebuilt
+   *     structurally. Already translated subterms remain in the memo table.
+   */
+  public <T extends Formula> T translate(T pFormula) {
+    toProcess.clear();
+    toProcess.push(pFormula);
+    while (!toProcess.isEmpty()) {
+      Formula f = toProcess.peek();
+      if (cache.containsKey(f)) {
+        toProcess.pop();
+      } else {
+        source.visit(f, visitor);
+      }
+    }
+    @SuppressWarnings("unchecked")
+    T out = (T) cache.get(pFormula);
+    return out;
+  }
+
+  /** Visitor that either translates a node or schedules its missing operands. */
+  private final class TranslationVisitor implements FormulaVisitor<Void> {
+
+    @Override
+    public Void visitFreeVariable(Formula f, String name) {
+      cache.put(f, target.makeVariable(source.getFormulaType(f), name));
+      return null;
+    }
+
+    @Override
+    public Void visitBoundVariable(Formula f, int deBruijnIdx) {
+      throw new UnsupportedOperationException("Cannot translate bound variable " + f);
+    }
+
+    @Override
+    public Void visitConstant(Formula f, Object value) {
+      cache.put(f, makeConstant(source.getFormulaType(f), value));
+      return null;
+    }
+
+    @Override
+    public Void visitFunction(
+        Formula f, List<Formula> args, FunctionDeclaration<?> functionDeclaration) {
+      List<Formula> newArgs = new ArrayList<>(args.size());
+      boolean allArgumentsTranslated = true;
+      for (Formula arg : args) {
+        Formula newArg = cache.get(arg);
+        if (newArg == null) {
+          toProcess.push(arg);
+          allArgumentsTranslated = false;
+        } else {
+          newArgs.add(newArg);
+        }
+      }
+      if (allArgumentsTranslated) {
+        toProcess.pop();
+        cache.put(f, makeFunction(f, args, newArgs, functionDeclaration));
+      }
+      return null;
+    }
+
+    @Override
+    public Void visitQuantifier(
+        BooleanFormula f,
+        Quantifier quantifier,
+        List<Formula> boundVariables,
+        BooleanFormula body) {
+      throw new UnsupportedOperationException("Cannot translate quantified formula " + f);
+    }
+  }
+
+  private Formula makeConstant(FormulaType<?> type, Object value) {
+    if (type.isBooleanType() && value instanceof Boolean) {
+      return bmgr.makeBoolean((Boolean) value);
+    } else if (type.isIntegerType() && value instanceof BigInteger) {
+      return target.getIntegerFormulaManager().makeNumber((BigInteger) value);
+    } else if (type.isRationalType() && value instanceof Rational) {
+      return target.getRationalFormulaManager().makeNumber((Rational) value);
+    } else if (type.isRationalType() && value instanceof BigDecimal) {
+      return target.getRationalFormulaManager().makeNumber((BigDecimal) value);
+    } else if (type.isRationalType() && value instanceof BigInteger) {
+      return target.getRationalFormulaManager().makeNumber((BigInteger) value);
+    } else if (type.isBitvectorType() && value instanceof BigInteger) {
+      return target
+          .getBitvectorFormulaManager()
+          .makeBitvector(((BitvectorType) type).getSize(), (BigInteger) value);
+    } else if (type.isStringType() && value instanceof String) {
+      return target.getStringFormulaManager().makeString((String) value);
+    }
+    throw new UnsupportedOperationException(
+        String.format("Cannot translate constant '%s' of type %s", value, type));
+  }
+
+  /**
+   * Rebuild a function application in the target.
+   *
+   * @param f the original application in the source.
+   * @param args the original arguments in the source, used for type information.
+   * @param newArgs the translated arguments.
+   */
+  @SuppressWarnings("unchecked")
+  private Formula makeFunction(
+      Formula f, List<Formula> args, List<Formula> newArgs, FunctionDeclaration<?> decl) {
+    switch (decl.getKind()) {
+      case AND:
+        return bmgr.and((List<BooleanFormula>) (List<?>) newArgs);
+      case OR:
+        return bmgr.or((List<BooleanFormula>) (List<?>) newArgs);
+      case NOT:
+        return bmgr.not((BooleanFormula) newArgs.get(0));
+      case XOR:
+        return foldLeft(newArgs, (a, b) -> bmgr.xor((BooleanFormula) a, (BooleanFormula) b));
+      case IMPLIES:
+        return bmgr.implication((BooleanFormula) newArgs.get(0), (BooleanFormula) newArgs.get(1));
+      case ITE:
+        return bmgr.ifThenElse((BooleanFormula) newArgs.get(0), newArgs.get(1), newArgs.get(2));
+      case IFF:
+      case EQ:
+      case BV_EQ:
+        return chain(newArgs, getEquality(args));
+      case DISTINCT:
+        return makeDistinct(args, newArgs);
+
+      case SELECT:
+        return target
+            .getArrayFormulaManager()
+            .select((ArrayFormula<Formula, Formula>) newArgs.get(0), newArgs.get(1));
+      case STORE:
+        return target
+            .getArrayFormulaManager()
+            .store((ArrayFormula<Formula, Formula>) newArgs.get(0), newArgs.get(1), newArgs.get(2));
+
+      case UF:
+        return target.makeApplication(getDeclaration(decl), newArgs);
+      case VAR:
+        if (newArgs.isEmpty()) {
+          return target.makeVariable(source.getFormulaType(f), decl.getName());
+        }
+        break;
+
+      case UMINUS:
+        return getNumeralManager(args).negate((NumeralFormula) newArgs.get(0));
+      case ADD:
+        return getNumeralManager(args).sum((List<NumeralFormula>) (List<?>) newArgs);
+      case SUB:
+        return foldNumeral(args, newArgs, NumeralFormulaManager::subtract);
+      case MUL:
+        return foldNumeral(args, newArgs, NumeralFormulaManager::multiply);
+      case DIV:
+        return foldNumeral(args, newArgs, NumeralFormulaManager::divide);
+      case MODULO:
+        return target
+            .getIntegerFormulaManager()
+            .modulo((IntegerFormula) newArgs.get(0), (IntegerFormula) newArgs.get(1));
+      case LT:
+        return chainNumeral(args, newArgs, NumeralFormulaManager::lessThan);
+      case LTE:
+        return chainNumeral(args, newArgs, NumeralFormulaManager::lessOrEquals);
+      case GT:
+        return chainNumeral(args, newArgs, NumeralFormulaManager::greaterThan);
+      case GTE:
+        return chainNumeral(args, newArgs, NumeralFormulaManager::greaterOrEquals);
+      case EQ_ZERO:
+        return compareWithZero(args, newArgs.get(0), NumeralFormulaManager::equal);
+      case GTE_ZERO:
+        return compareWithZero(args, newArgs.get(0), NumeralFormulaManager::greaterOrEquals);
+      case FLOOR:
+        return getNumeralManager(args).floor((NumeralFormula) newArgs.get(0));
+
+      default:
+        if (source.getFormulaType(f).isBitvectorType() || isBitvectorPredicate(decl)) {
+          return makeBitvectorFunction(f, args, newArgs, decl);
+        }
+    }
+    throw new UnsupportedOperationException("Cannot translate function " + decl);
+  }
+
+  private Formula makeBitvectorFunction(
+      Formula f, List<Formula> args, List<Formula> newArgs, FunctionDeclaration<?> decl) {
+    BitvectorFormulaManager bvmgr = target.getBitvectorFormulaManager();
+    List<BitvectorFormula> bvArgs = castList(newArgs);
+    switch (decl.getKind()) {
+      case BV_NOT:
+        return bvmgr.not(bvArgs.get(0));
+      case BV_NEG:
+        return bvmgr.negate(bvArgs.get(0));
+      case BV_AND:
+        return foldLeft(bvArgs, bvmgr::and);
+      case BV_OR:
+        return foldLeft(bvArgs, bvmgr::or);
+      case BV_XOR:
+        return foldLeft(bvArgs, bvmgr::xor);
+      case BV_ADD:
+        return foldLeft(bvArgs, bvmgr::add);
+      case BV_SUB:
+        return foldLeft(bvArgs, bvmgr::subtract);
+      case BV_MUL:
+        return foldLeft(bvArgs, bvmgr::multiply);
+      case BV_CONCAT:
+        return foldLeft(bvArgs, bvmgr::concat);
+      case BV_SDIV:
+        return bvmgr.divide(bvArgs.get(0), bvArgs.get(1), true);
+      case BV_UDIV:
+        return bvmgr.divide(bvArgs.get(0), bvArgs.get(1), false);
+      case BV_SREM:
+        return bvmgr.modulo(bvArgs.get(0), bvArgs.get(1), true);
+      case BV_UREM:
+        return bvmgr.modulo(bvArgs.get(0), bvArgs.get(1), false);
+      case BV_SHL:
+        return bvmgr.shiftLeft(bvArgs.get(0), bvArgs.get(1));
+      case BV_LSHR:
+        return bvmgr.shiftRight(bvArgs.get(0), bvArgs.get(1), false);
+      case BV_ASHR:
+        return bvmgr.shiftRight(bvArgs.get(0), bvArgs.get(1), true);
+      case BV_SIGN_EXTENSION:
+      case BV_ZERO_EXTENSION:
+        FormulaType<?> resultType = source.getFormulaType(f);
+        FormulaType<?> argType = source.getFormulaType(args.get(0));
+        int extensionBits =
+            ((BitvectorType) resultType).getSize() - ((BitvectorType) argType).getSize();
+        return bvmgr.extend(
+            bvArgs.get(0),
+            extensionBits,
+            decl.getKind() == FunctionDeclarationKind.BV_SIGN_EXTENSION);
+      case BV_ULT:
+        return chain(bvArgs, (a, b) -> bvmgr.lessThan(a, b, false));
+      case BV_SLT:
+        return chain(bvArgs, (a, b) -> bvmgr.lessThan(a, b, true));
+      case BV_ULE:
+        return chain(bvArgs, (a, b) -> bvmgr.lessOrEquals(a, b, false));
+      case BV_SLE:
+        return chain(bvArgs, (a, b) -> bvmgr.lessOrEquals(a, b, true));
+      case BV_UGT:
+        return chain(bvArgs, (a, b) -> bvmgr.greaterThan(a, b, false));
+      case BV_SGT:
+        return chain(bvArgs, (a, b) -> bvmgr.greaterThan(a, b, true));
+      case BV_UGE:
+        return chain(bvArgs, (a, b) -> bvmgr.greaterOrEquals(a, b, false));
+      case BV_SGE:
+        return chain(bvArgs, (a, b) -> bvmgr.greaterOrEquals(a, b, true));
+      default:
+        // BV_EXTRACT does not expose its indices, other operations are not supported.
+        throw new UnsupportedOperationException("Cannot translate function " + decl);
+    }
+  }
+
+  private static boolean isBitvectorPredicate(FunctionDeclaration<?> decl) {
+    switch (decl.getKind()) {
+      case BV_ULT:
+      case BV_SLT:
+      case BV_ULE:
+      case BV_SLE:
+      case BV_UGT:
+      case BV_SGT:
+      case BV_UGE:
+      case BV_SGE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Return the equality operator in the target matching the type of the source operands. */
+  @SuppressWarnings("unchecked")
+  private BinaryPredicate<Formula> getEquality(List<Formula> args) {
+    FormulaType<?> type = source.getFormulaType(args.get(0));
+    if (type.isBooleanType()) {
+      return (a, b) -> bmgr.equivalence((BooleanFormula) a, (BooleanFormula) b);
+    } else if (type.isIntegerType() || type.isRationalType()) {
+      NumeralFormulaManager<NumeralFormula, ?> nmgr = getNumeralManager(args);
+      return (a, b) -> nmgr.equal((NumeralFormula) a, (NumeralFormula) b);
+    } else if (type.isBitvectorType()) {
+      BitvectorFormulaManager bvmgr = target.getBitvectorFormulaManager();
+      return (a, b) -> bvmgr.equal((BitvectorFormula) a, (BitvectorFormula) b);
+    } else if (type.isArrayType()) {
+      return (a, b) ->
+          target
+              .getArrayFormulaManager()
+              .equivalence((ArrayFormula<Formula, Formula>) a, (ArrayFormula<Formula, Formula>) b);
+    }
+    throw new UnsupportedOperationException("Cannot translate equality over type " + type);
+  }
+
+  private Formula makeDistinct(List<Formula> args, List<Formula> newArgs) {
+    FormulaType<?> type = source.getFormulaType(args.get(0));
+    if (type.isIntegerType() || type.isRationalType()) {
+      return getNumeralManager(args).distinct(castList(newArgs));
+    } else if (type.isBitvectorType()) {
+      return target.getBitvectorFormulaManager().distinct(castList(newArgs));
+    }
+    throw new UnsupportedOperationException("Cannot translate distinct over type " + type);
+  }
+
+  private FunctionDeclaration<?> getDeclaration(FunctionDeclaration<?> decl) {
+    FunctionDeclaration<?> newDecl = declarationCache.get(decl);
+    if (newDecl == null) {
+      newDecl =
+          target.getUFManager().declareUF(decl.getName(), decl.getType(), decl.getArgumentTypes());
+      declarationCache.put(decl, newDecl);
+    }
+    return newDecl;
+  }
+
+  /**
+   * Return the numeral manager of the target that can handle all the given source operands. Mixed
+   * integer and rational operands are handled by the rational manager.
+   */
+  @SuppressWarnings("unchecked")
+  private NumeralFormulaManager<NumeralFormula, ?> getNumeralManager(List<Formula> args) {
+    for (Formula arg : args) {
+      if (source.getFormulaType(arg).isRationalType()) {
+        return (NumeralFormulaManager<NumeralFormula, ?>)
+            (NumeralFormulaManager<?, ?>) target.getRationalFormulaManager();
+      }
+    }
+    return (NumeralFormulaManager<NumeralFormula, ?>)
+        (NumeralFormulaManager<?, ?>) target.getIntegerFormulaManager();
+  }
+
+  private Formula foldNumeral(
+      List<Formula> args, List<Formula> newArgs, NumeralOperation<NumeralFormula> operation) {
+    NumeralFormulaManager<NumeralFormula, ?> nmgr = getNumeralManager(args);
+    List<NumeralFormula> numeralArgs = castList(newArgs);
+    return foldLeft(numeralArgs, (a, b) -> operation.apply(nmgr, a, b));
+  }
+
+  private BooleanFormula chainNumeral(
+      List<Formula> args, List<Formula> newArgs, NumeralOperation<BooleanFormula> operation) {
+    NumeralFormulaManager<NumeralFormula, ?> nmgr = getNumeralManager(args);
+    List<NumeralFormula> numeralArgs = castList(newArgs);
+    return chain(numeralArgs, (a, b) -> operation.apply(nmgr, a, b));
+  }
+
+  private BooleanFormula compareWithZero(
+      List<Formula> args, Formula newArg, NumeralOperation<BooleanFormula> operation) {
+    NumeralFormulaManager<NumeralFormula, ?> nmgr = getNumeralManager(args);
+    return operation.apply(nmgr, (NumeralFormula) newArg, nmgr.makeNumber(0));
+  }
+
+  /** Apply a binary operation from left to right, i.e., {@code ((a op b) op c) op ...}. */
+  private static <T> T foldLeft(List<? extends T> args, BinaryOperator<T> operation) {
+    T result = args.get(0);
+    for (int i = 1; i < args.size(); i++) {
+      result = operation.apply(result, args.get(i));
+    }
+    return result;
+  }
+
+  /** Apply a binary predicate on neighbours, i.e., {@code (a op b) and (b op c) and ...}. */
+  private <T> BooleanFormula chain(List<T> args, BinaryPredicate<T> predicate) {
+    if (args.size() == 2) {
+      return predicate.apply(args.get(0), args.get(1));
+    }
+    List<BooleanFormula> parts = new ArrayList<>(args.size() - 1);
+    for (int i = 1; i < args.size(); i++) {
+      parts.add(predicate.apply(args.get(i - 1), args.get(i)));
+    }
+    return bmgr.and(parts);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> castList(List<?> list) {
+    return (List<T>) list;
+  }
+
+  /** A binary predicate with a Boolean formula as result. */
+  @FunctionalInterface
+  private interface BinaryPredicate<T> {
+    BooleanFormula apply(T a, T b);
+  }
+
+  /** An operation of a {@link NumeralFormulaManager} with two operands. */
+  @FunctionalInterface
+  private interface NumeralOperation<R> {
+    R apply(NumeralFormulaManager<NumeralFormula, ?> nmgr, NumeralFormula a, NumeralFormula b);
+  }
+}
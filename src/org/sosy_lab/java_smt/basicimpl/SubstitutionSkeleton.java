@@ -0,0 +1,254 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
+import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
+import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
+import org.sosy_lab.java_smt.api.visitors.TraversalProcess;
+
+/**
+ * Structure of a formula, for applying many substitutions to it.
+ *
+ * <p>The skeleton stores each distinct subterm of the formula once, in post-order, together with
+ * links to its children and parents. A substitution only rebuilds the subterms that contain a
+ * substituted term, i.e., the cone of influence of the substitution, and reuses all other subterms.
+ */
+@SuppressWarnings("ClassTypeParameterName")
+final class SubstitutionSkeleton<TFormulaInfo> {
+
+  private final FormulaCreator<TFormulaInfo, ?, ?, ?> creator;
+  private final FormulaManager fmgr;
+  private final Formula root;
+
+  /** Subterms by their native term. */
+  private final NativeTermMap<TFormulaInfo, Node> nodesByTerm;
+
+  /** Subterms in post-order, thus each subterm has a larger index than its children. */
+  private final List<Node> nodes = new ArrayList<>();
+
+  SubstitutionSkeleton(
+      FormulaCreator<TFormulaInfo, ?, ?, ?> pCreator, FormulaManager pFmgr, Formula pRoot) {
+    creator = checkNotNull(pCreator);
+    fmgr = checkNotNull(pFmgr);
+    root = checkNotNull(pRoot);
+    nodesByTerm = creator.newTermMap();
+    creator.visitRecursively(new NodeCollector(), this::addNode, root, t -> true);
+    linkParents();
+  }
+
+  Formula getRoot() {
+    return root;
+  }
+
+  private void addNode(Formula pF) {
+    Node node = checkNotNull(nodesByTerm.get(creator.extractInfo(pF)));
+    if (node.index >= 0) {
+      return; // already added from another quantifier scope
+    }
+    node.index = nodes.size();
+    node.children = new int[node.operands.size()];
+    for (int i = 0; i < node.children.length; i++) {
+      node.children[i] =
+          checkNotNull(nodesByTerm.get(creator.extractInfo(node.operands.get(i)))).index;
+    }
+    nodes.add(node);
+  }
+
+  private void linkParents() {
+    int[] parentCount = new int[nodes.size()];
+    for (Node node : nodes) {
+      for (int child : node.children) {
+        parentCount[child]++;
+      }
+    }
+    for (int i = 0; i < parentCount.length; i++) {
+      nodes.get(i).parents = new int[parentCount[i]];
+    }
+    for (Node node : nodes) {
+      for (int child : node.children) {
+        Node childNode = nodes.get(child);
+        childNode.parents[--parentCount[child]] = node.index;
+      }
+    }
+  }
+
+  /** Apply the substitution to the formula, like {@link FormulaManager#substitute}. */
+  Formula substitute(Map<? extends Formula, ? extends Formula> pFromToMapping) {
+    // Find the substituted subterms and all subterms above them.
+    IntTermMap<Formula> replacements = new IntTermMap<>();
+    IntTermMap<Boolean> cone = new IntTermMap<>();
+    int[] worklist = new int[16];
+    int worklistSize = 0;
+    for (Map.Entry<? extends Formula, ? extends Formula> entry : pFromToMapping.entrySet()) {
+      Node node = nodesByTerm.get(creator.extractInfo(entry.getKey()));
+      if (node != null && node.isSubstitutable() && cone.putInt(node.index, true) == null) {
+        replacements.putInt(node.index, checkNotNull(entry.getValue()));
+        if (worklistSize == worklist.length) {
+          worklist = Arrays.copyOf(worklist, 2 * worklistSize);
+        }
+        worklist[worklistSize++] = node.index;
+      }
+    }
+    if (worklistSize == 0) {
+      return root;
+    }
+    for (int i = 0; i < worklistSize; i++) {
+      for (int parent : nodes.get(worklist[i]).parents) {
+        if (cone.putInt(parent, true) == null) {
+          if (worklistSize == worklist.length) {
+            worklist = Arrays.copyOf(worklist, 2 * worklistSize);
+          }
+          worklist[worklistSize++] = parent;
+        }
+      }
+    }
+
+    // Rebuild the cone bottom-up, i.e., in post-order.
+    int[] changed = Arrays.copyOf(worklist, worklistSize);
+    Arrays.sort(changed);
+    IntTermMap<Formula> results = new IntTermMap<>();
+    for (int index : changed) {
+      Formula replacement = replacements.getInt(index);
+      results.putInt(index, replacement != null ? replacement : rebuild(nodes.get(index), results));
+    }
+    return checkNotNull(results.getInt(nodes.size() - 1));
+  }
+
+  private Formula rebuild(Node pNode, IntTermMap<Formula> pResults) {
+    List<Formula> newOperands = new ArrayList<>(pNode.children.length);
+    for (int child : pNode.children) {
+      Formula result = pResults.getInt(child);
+      newOperands.add(result != null ? result : nodes.get(child).formula);
+    }
+    if (pNode.quantifier != null) {
+      return fmgr.getQuantifiedFormulaManager()
+          .mkQuantifier(
+              pNode.quantifier, pNode.boundVariables, (BooleanFormula) newOperands.get(0));
+    }
+    return fmgr.makeApplication(checkNotNull(pNode.declaration), newOperands);
+  }
+
+  private static final class Node {
+    private final Formula formula;
+    private final @Nullable FunctionDeclaration<?> declaration;
+    private final @Nullable Quantifier quantifier;
+    private final List<Formula> boundVariables;
+    private final List<Formula> operands;
+    private final boolean freeVariable;
+
+    private int index = -1;
+    private int[] children = new int[0];
+    private int[] parents = new int[0];
+
+    private Node(
+        Formula pFormula,
+        @Nullable FunctionDeclaration<?> pDeclaration,
+        @Nullable Quantifier pQuantifier,
+        List<Formula> pBoundVariables,
+        List<Formula> pOperands,
+        boolean pFreeVariable) {
+      formula = pFormula;
+      declaration = pDeclaration;
+      quantifier = pQuantifier;
+      boundVariables = pBoundVariables;
+      operands = pOperands;
+      freeVariable = pFreeVariable;
+    }
+
+    /** Free variables and function applications can be substituted, like in substitute(). */
+    private boolean isSubstitutable() {
+      return freeVariable || declaration != null;
+    }
+  }
+
+  private final class NodeCollector implements FormulaVisitor<TraversalProcess> {
+
+    /**
+     * The body of a quantifier is visited in a new scope, but we need each subterm only once.
+     * Skipped subterms are still passed to {@link #addNode}.
+     */
+    private boolean isKnown(Formula pF) {
+      return nodesByTerm.containsKey(creator.extractInfo(pF));
+    }
+
+    private TraversalProcess add(Node pNode) {
+      nodesByTerm.put(creator.extractInfo(pNode.formula), pNode);
+      return TraversalProcess.CONTINUE;
+    }
+
+    @Override
+    public TraversalProcess visitFreeVariable(Formula pF, String pName) {
+      return addLeaf(pF, true);
+    }
+
+    @Override
+    public TraversalProcess visitBoundVariable(Formula pF, int pDeBruijnIdx) {
+      return addLeaf(pF, false);
+    }
+
+    @Override
+    public TraversalProcess visitConstant(Formula pF, Object pValue) {
+      return addLeaf(pF, false);
+    }
+
+    private TraversalProcess addLeaf(Formula pF, boolean pFreeVariable) {
+      if (isKnown(pF)) {
+        return TraversalProcess.SKIP;
+      }
+      return add(new Node(pF, null, null, ImmutableList.of(), ImmutableList.of(), pFreeVariable));
+    }
+
+    @Override
+    public TraversalProcess visitFunction(
+        Formula pF, List<Formula> pArgs, FunctionDeclaration<?> pFunctionDeclaration) {
+      if (isKnown(pF)) {
+        return TraversalProcess.SKIP;
+      }
+      return add(
+          new Node(
+              pF,
+              pFunctionDeclaration,
+              null,
+              ImmutableList.of(),
+              ImmutableList.copyOf(pArgs),
+              false));
+    }
+
+    @Override
+    public TraversalProcess visitQuantifier(
+        BooleanFormula pF,
+        Quantifier pQuantifier,
+        List<Formula> pBoundVariables,
+        BooleanFormula pBody) {
+      if (isKnown(pF)) {
+        return TraversalProcess.SKIP;
+      }
+      return add(
+          new Node(
+              pF,
+              null,
+              pQuantifier,
+              ImmutableList.copyOf(pBoundVariables),
+              ImmutableList.of(pBody),
+              false));
+    }
+  }
+}
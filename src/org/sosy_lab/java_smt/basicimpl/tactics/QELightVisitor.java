@@ -0,0 +1,277 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl.tactics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.FormulaType;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
+import org.sosy_lab.java_smt.api.FunctionDeclarationKind;
+import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
+import org.sosy_lab.java_smt.api.visitors.BooleanFormulaTransformationVisitor;
+import org.sosy_lab.java_smt.api.visitors.DefaultFormulaVisitor;
+import org.sosy_lab.java_smt.api.visitors.TraversalProcess;
+
+/**
+ * Light-weight quantifier elimination by substitution.
+ *
+ * <p>A bound variable x of an existential quantifier is eliminated, if the body is a conjunction
+ * with a definition "x = t", where t does not contain x. The definition is removed and x is
+ * replaced by t in all other conjuncts. Dually, a bound variable of a universal quantifier is
+ * eliminated with a disjunct "x != t". Boolean variables are eliminated in the same way, if they
+ * appear as conjunct (or disjunct) themselves.
+ *
+ * <p>Additionally, a bound variable of an existential quantifier is eliminated, if it only appears
+ * in bounds on one side, e.g., only in lower bounds "t <= x", because such bounds can always be
+ * satisfied together. For bitvectors, this requires non-strict bounds of the same signedness.
+ *
+ * <p>All other bound variables remain quantified. The formulas are only constructed via the
+ * public managers, thus this works for all theories and solvers that support quantifiers.
+ */
+public class QELightVisitor extends BooleanFormulaTransformationVisitor {
+
+  private final FormulaManager fmgr;
+  private final BooleanFormulaManager bfmgr;
+
+  public QELightVisitor(FormulaManager pFmgr) {
+    super(pFmgr);
+    fmgr = pFmgr;
+    bfmgr = pFmgr.getBooleanFormulaManager();
+  }
+
+  @Override
+  public BooleanFormula visitQuantifier(
+      Quantifier quantifier,
+      BooleanFormula quantifiedAST,
+      List<Formula> boundVars,
+      BooleanFormula processedBody) {
+    boolean exists = quantifier == Quantifier.EXISTS;
+    List<BooleanFormula> parts =
+        new ArrayList<>(
+            exists
+                ? bfmgr.toConjunctionArgs(processedBody, true)
+                : bfmgr.toDisjunctionArgs(processedBody, true));
+    List<Formula> remainingVars = new ArrayList<>(boundVars);
+
+    // eliminating a variable can enable the elimination of another one
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      Iterator<Formula> it = remainingVars.iterator();
+      while (it.hasNext()) {
+        Formula var = it.next();
+        if (eliminateByDefinition(var, parts, exists)
+            || (exists && eliminateOneSidedBounds(var, parts))) {
+          it.remove();
+          changed = true;
+        }
+      }
+    }
+
+    if (remainingVars.size() == boundVars.size()) {
+      return super.visitQuantifier(quantifier, quantifiedAST, boundVars, processedBody);
+    }
+    BooleanFormula body = exists ? bfmgr.and(parts) : bfmgr.or(parts);
+    if (remainingVars.isEmpty()) {
+      return body;
+    }
+    return super.visitQuantifier(quantifier, quantifiedAST, remainingVars, body);
+  }
+
+  /**
+   * Search for a part that defines the variable, i.e., an equality for existential quantifiers and
+   * a disequality for universal quantifiers. If found, remove the part and substitute the variable
+   * in all other parts.
+   */
+  private boolean eliminateByDefinition(Formula var, List<BooleanFormula> parts, boolean exists) {
+    for (int i = 0; i < parts.size(); i++) {
+      BooleanFormula part = parts.get(i);
+      @Nullable Formula definition = null;
+      if (var.equals(part)) {
+        definition = bfmgr.makeBoolean(exists);
+      } else {
+        Relation relation = getRelation(part);
+        if (relation != null && relation.kind == FunctionDeclarationKind.NOT) {
+          if (var.equals(relation.args.get(0))) {
+            definition = bfmgr.makeBoolean(!exists);
+          } else if (!exists) {
+            definition = getDefinedValue(var, getRelation((BooleanFormula) relation.args.get(0)));
+          }
+        } else if (exists) {
+          definition = getDefinedValue(var, relation);
+        }
+      }
+
+      if (definition != null) {
+        parts.remove(i);
+        ImmutableMap<Formula, Formula> substitution = ImmutableMap.of(var, definition);
+        for (int j = 0; j < parts.size(); j++) {
+          parts.set(j, fmgr.substitute(parts.get(j), substitution));
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns t, if the relation is an equality "var = t" or "t = var" without var in t. */
+  private @Nullable Formula getDefinedValue(Formula var, @Nullable Relation relation) {
+    if (relation == null
+        || (relation.kind != FunctionDeclarationKind.EQ
+            && relation.kind != FunctionDeclarationKind.BV_EQ)
+        || relation.args.size() != 2) {
+      return null;
+    }
+    Formula left = relation.args.get(0);
+    Formula right = relation.args.get(1);
+    if (var.equals(left) && !containsVariable(right, var)) {
+      return right;
+    } else if (var.equals(right) && !containsVariable(left, var)) {
+      return left;
+    }
+    return null;
+  }
+
+  /**
+   * Remove all parts that contain the variable, if they are bounds on the same side of the variable
+   * and thus can always be satisfied together. This also eliminates unused variables.
+   */
+  private boolean eliminateOneSidedBounds(Formula var, List<BooleanFormula> parts) {
+    FormulaType<?> type = fmgr.getFormulaType(var);
+    boolean isNumeral = type.isIntegerType() || type.isRationalType();
+
+    List<BooleanFormula> bounds = new ArrayList<>();
+    @Nullable Boolean upper = null;
+    @Nullable Boolean signed = null;
+    for (BooleanFormula part : parts) {
+      if (!containsVariable(part, var)) {
+        continue;
+      }
+      Relation relation = getRelation(part);
+      if (relation == null || relation.args.size() != 2) {
+        return false;
+      }
+      boolean lessOrEqual;
+      @Nullable Boolean isSigned = null;
+      switch (relation.kind) {
+        case LT:
+        case LTE:
+          lessOrEqual = true;
+          break;
+        case GT:
+        case GTE:
+          lessOrEqual = false;
+          break;
+        case BV_ULE:
+          lessOrEqual = true;
+          isSigned = false;
+          break;
+        case BV_SLE:
+          lessOrEqual = true;
+          isSigned = true;
+          break;
+        case BV_UGE:
+          lessOrEqual = false;
+          isSigned = false;
+          break;
+        case BV_SGE:
+          lessOrEqual = false;
+          isSigned = true;
+          break;
+        default:
+          return false;
+      }
+      if (isSigned == null ? !isNumeral : !type.isBitvectorType()) {
+        return false;
+      }
+      if (isSigned != null) {
+        // the minimal (or maximal) value of a bitvector depends on the signedness
+        if (signed != null && !signed.equals(isSigned)) {
+          return false;
+        }
+        signed = isSigned;
+      }
+
+      Formula left = relation.args.get(0);
+      Formula right = relation.args.get(1);
+      boolean isUpper;
+      if (var.equals(left) && !containsVariable(right, var)) {
+        isUpper = lessOrEqual;
+      } else if (var.equals(right) && !containsVariable(left, var)) {
+        isUpper = !lessOrEqual;
+      } else {
+        return false;
+      }
+      if (upper != null && upper != isUpper) {
+        return false;
+      }
+      upper = isUpper;
+      bounds.add(part);
+    }
+
+    // this also holds for unused variables of any type, whose domain is never empty
+    parts.removeAll(bounds);
+    return true;
+  }
+
+  /** Checks whether the variable occurs in the formula, also as a bound variable. */
+  private boolean containsVariable(Formula f, Formula var) {
+    AtomicBoolean found = new AtomicBoolean(false);
+    fmgr.visitRecursively(
+        f,
+        new DefaultFormulaVisitor<TraversalProcess>() {
+          @Override
+          protected TraversalProcess visitDefault(Formula pF) {
+            if (var.equals(pF)) {
+              found.set(true);
+              return TraversalProcess.ABORT;
+            }
+            return TraversalProcess.CONTINUE;
+          }
+        });
+    return found.get();
+  }
+
+  private @Nullable Relation getRelation(BooleanFormula f) {
+    return fmgr.visit(
+        f,
+        new DefaultFormulaVisitor<@Nullable Relation>() {
+          @Override
+          protected @Nullable Relation visitDefault(Formula pF) {
+            return null;
+          }
+
+          @Override
+          public Relation visitFunction(
+              Formula pF, List<Formula> args, FunctionDeclaration<?> functionDeclaration) {
+            return new Relation(functionDeclaration.getKind(), args);
+          }
+        });
+  }
+
+  /** An application of a function with its kind and arguments. */
+  private static final class Relation {
+    private final FunctionDeclarationKind kind;
+    private final ImmutableList<Formula> args;
+
+    private Relation(FunctionDeclarationKind pKind, List<Formula> pArgs) {
+      kind = pKind;
+      args = ImmutableList.copyOf(pArgs);
+    }
+  }
+}
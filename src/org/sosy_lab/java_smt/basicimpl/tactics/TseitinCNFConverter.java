@@ -0,0 +1,402 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl.tactics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
+import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
+import org.sosy_lab.java_smt.api.visitors.BooleanFormulaVisitor;
+
+/**
+ * Converts Boolean formulas into an equisatisfiable CNF by introducing a fresh variable for each
+ * Boolean connective (Tseitin transformation).
+ *
+ * <p>The conversion is polarity-aware (Plaisted-Greenbaum): for a subformula that only occurs
+ * positively (or only negatively), only the clauses for one direction of its definition are
+ * generated. Subformulas that occur several times in the formula are converted only once.
+ * Theory atoms and quantified formulas are kept as literals of the CNF.
+ *
+ * <p>The formula is traversed iteratively, thus deeply nested formulas do not overflow the stack.
+ * For large formulas, {@link #toCNF(BooleanFormula, Consumer)} passes each clause to a consumer
+ * instead of building one conjunction of all clauses.
+ */
+public class TseitinCNFConverter {
+
+  /** Prefix of the fresh variables that represent the subformulas. */
+  private static final String VARIABLE_PREFIX = "__TSEITIN_";
+
+  /** Fresh variables must be distinct for all converted formulas, even across converters. */
+  private static final AtomicLong variableCounter = new AtomicLong();
+
+  private static final int POSITIVE = 1;
+  private static final int NEGATIVE = 2;
+  private static final int BOTH = POSITIVE | NEGATIVE;
+
+  private enum Kind {
+    LITERAL,
+    NOT,
+    AND,
+    OR,
+    XOR,
+    EQUIVALENCE,
+    IMPLICATION,
+    IF_THEN_ELSE
+  }
+
+  /** A subformula of the converted formula. */
+  private static final class Node {
+    private final Kind kind;
+    private final List<BooleanFormula> children;
+    private int polarity = 0;
+    private boolean finished = false;
+
+    /** The literal representing this subformula in the CNF, and its negation. */
+    private @Nullable BooleanFormula literal;
+
+    private @Nullable BooleanFormula negatedLiteral;
+
+    private Node(Kind pKind, List<BooleanFormula> pChildren) {
+      kind = pKind;
+      children = pChildren;
+    }
+  }
+
+  private final BooleanFormulaManager bfmgr;
+  private final NodeBuilder nodeBuilder = new NodeBuilder();
+
+  public TseitinCNFConverter(FormulaManager pFmgr) {
+    bfmgr = pFmgr.getBooleanFormulaManager();
+  }
+
+  /**
+   * Convert the given formula into CNF.
+   *
+   * @return a conjunction of clauses that is equisatisfiable to the given formula.
+   */
+  public BooleanFormula toCNF(BooleanFormula pFormula) {
+    List<BooleanFormula> clauses = new ArrayList<>();
+    toCNF(pFormula, clause -> clauses.add(bfmgr.or(clause)));
+    return bfmgr.and(clauses);
+  }
+
+  /**
+   * Convert the given formula into CNF and pass each clause to the consumer, as soon as it is
+   * generated. The conjunction of all clauses is equisatisfiable to the given formula.
+   *
+   * @param pClauseConsumer receives each clause as a non-empty list of literals. A literal is a
+   *     Boolean constant, atom, or negated atom. An unsatisfiable formula may produce a clause
+   *     consisting of the literal <code>false</code>.
+   */
+  public void toCNF(BooleanFormula pFormula, Consumer<List<BooleanFormula>> pClauseConsumer) {
+    checkNotNull(pClauseConsumer);
+    Map<BooleanFormula, Node> nodes = new HashMap<>();
+    List<Node> postOrder = collectNodes(pFormula, nodes);
+
+    // The root node is visited first in reverse post-order, every node before its children.
+    nodes.get(pFormula).polarity = POSITIVE;
+    for (int i = postOrder.size() - 1; i >= 0; i--) {
+      propagatePolarity(postOrder.get(i), nodes);
+    }
+
+    Node root = nodes.get(pFormula);
+    for (Node node : postOrder) {
+      if (node != root) {
+        defineLiteral(node, nodes, pClauseConsumer);
+      }
+    }
+
+    // The root is asserted, thus a conjunction or disjunction needs no fresh variable.
+    List<BooleanFormula> children = getLiterals(root.children, nodes, false);
+    switch (root.kind) {
+      case AND:
+        for (BooleanFormula child : children) {
+          emitClause(ImmutableList.of(child), pClauseConsumer);
+        }
+        break;
+      case OR:
+        emitClause(children, pClauseConsumer);
+        break;
+      default:
+        defineLiteral(root, nodes, pClauseConsumer);
+        emitClause(ImmutableList.of(root.literal), pClauseConsumer);
+    }
+  }
+
+  /** Returns all subformulas in post-order, i.e., each node after all of its children. */
+  private List<Node> collectNodes(BooleanFormula pFormula, Map<BooleanFormula, Node> nodes) {
+    List<Node> postOrder = new ArrayList<>();
+    Deque<BooleanFormula> stack = new ArrayDeque<>();
+    stack.push(pFormula);
+    while (!stack.isEmpty()) {
+      BooleanFormula formula = stack.peek();
+      Node node = nodes.get(formula);
+      if (node == null) {
+        node = bfmgr.visit(formula, nodeBuilder);
+        if (node.kind == Kind.LITERAL) {
+          node.literal = formula;
+          if (bfmgr.isTrue(formula) || bfmgr.isFalse(formula)) {
+            node.negatedLiteral = bfmgr.makeBoolean(!bfmgr.isTrue(formula));
+          } else {
+            node.negatedLiteral = bfmgr.not(formula);
+          }
+        }
+        nodes.put(formula, node);
+        for (BooleanFormula child : node.children) {
+          if (!nodes.containsKey(child)) {
+            stack.push(child);
+          }
+        }
+      } else {
+        stack.pop();
+        if (!node.finished) {
+          node.finished = true;
+          postOrder.add(node);
+        }
+      }
+    }
+    return postOrder;
+  }
+
+  private void propagatePolarity(Node node, Map<BooleanFormula, Node> nodes) {
+    for (int i = 0; i < node.children.size(); i++) {
+      Node child = nodes.get(node.children.get(i));
+      switch (node.kind) {
+        case NOT:
+          child.polarity |= flip(node.polarity);
+          break;
+        case IMPLICATION:
+          child.polarity |= i == 0 ? flip(node.polarity) : node.polarity;
+          break;
+        case XOR:
+        case EQUIVALENCE:
+          child.polarity |= BOTH;
+          break;
+        case IF_THEN_ELSE:
+          child.polarity |= i == 0 ? BOTH : node.polarity;
+          break;
+        default:
+          child.polarity |= node.polarity;
+      }
+    }
+  }
+
+  private static int flip(int polarity) {
+    return ((polarity & POSITIVE) << 1) | ((polarity & NEGATIVE) >> 1);
+  }
+
+  /**
+   * Assign the literal of the given node and emit the clauses that define it, for the polarities in
+   * which the node occurs. All children must already have a literal.
+   */
+  private void defineLiteral(
+      Node node, Map<BooleanFormula, Node> nodes, Consumer<List<BooleanFormula>> consumer) {
+    if (node.kind == Kind.LITERAL) {
+      return;
+    }
+    if (node.kind == Kind.NOT) {
+      Node child = nodes.get(node.children.get(0));
+      node.literal = child.negatedLiteral;
+      node.negatedLiteral = child.literal;
+      return;
+    }
+
+    BooleanFormula v = bfmgr.makeVariable(VARIABLE_PREFIX + variableCounter.getAndIncrement());
+    BooleanFormula notV = bfmgr.not(v);
+    node.literal = v;
+    node.negatedLiteral = notV;
+    boolean positive = (node.polarity & POSITIVE) != 0;
+    boolean negative = (node.polarity & NEGATIVE) != 0;
+
+    List<BooleanFormula> lits = getLiterals(node.children, nodes, false);
+    List<BooleanFormula> negLits = getLiterals(node.children, nodes, true);
+    switch (node.kind) {
+      case AND:
+        if (positive) {
+          for (BooleanFormula lit : lits) {
+            emitClause(ImmutableList.of(notV, lit), consumer);
+          }
+        }
+        if (negative) {
+          emitClause(prepend(v, negLits), consumer);
+        }
+        break;
+      case OR:
+        if (positive) {
+          emitClause(prepend(notV, lits), consumer);
+        }
+        if (negative) {
+          for (BooleanFormula negLit : negLits) {
+            emitClause(ImmutableList.of(v, negLit), consumer);
+          }
+        }
+        break;
+      case IMPLICATION:
+        if (positive) {
+          emitClause(ImmutableList.of(notV, negLits.get(0), lits.get(1)), consumer);
+        }
+        if (negative) {
+          emitClause(ImmutableList.of(v, lits.get(0)), consumer);
+          emitClause(ImmutableList.of(v, negLits.get(1)), consumer);
+        }
+        break;
+      case XOR:
+        if (positive) {
+          emitClause(ImmutableList.of(notV, lits.get(0), lits.get(1)), consumer);
+          emitClause(ImmutableList.of(notV, negLits.get(0), negLits.get(1)), consumer);
+        }
+        if (negative) {
+          emitClause(ImmutableList.of(v, negLits.get(0), lits.get(1)), consumer);
+          emitClause(ImmutableList.of(v, lits.get(0), negLits.get(1)), consumer);
+        }
+        break;
+      case EQUIVALENCE:
+        if (positive) {
+          emitClause(ImmutableList.of(notV, negLits.get(0), lits.get(1)), consumer);
+          emitClause(ImmutableList.of(notV, lits.get(0), negLits.get(1)), consumer);
+        }
+        if (negative) {
+          emitClause(ImmutableList.of(v, lits.get(0), lits.get(1)), consumer);
+          emitClause(ImmutableList.of(v, negLits.get(0), negLits.get(1)), consumer);
+        }
+        break;
+      case IF_THEN_ELSE:
+        if (positive) {
+          emitClause(ImmutableList.of(notV, negLits.get(0), lits.get(1)), consumer);
+          emitClause(ImmutableList.of(notV, lits.get(0), lits.get(2)), consumer);
+        }
+        if (negative) {
+          emitClause(ImmutableList.of(v, negLits.get(0), negLits.get(1)), consumer);
+          emitClause(ImmutableList.of(v, lits.get(0), negLits.get(2)), consumer);
+        }
+        break;
+      default:
+        throw new AssertionError("unexpected kind of node: " + node.kind);
+    }
+  }
+
+  private static List<BooleanFormula> prepend(BooleanFormula first, List<BooleanFormula> rest) {
+    return ImmutableList.<BooleanFormula>builder().add(first).addAll(rest).build();
+  }
+
+  private static List<BooleanFormula> getLiterals(
+      List<BooleanFormula> formulas, Map<BooleanFormula, Node> nodes, boolean negated) {
+    List<BooleanFormula> literals = new ArrayList<>(formulas.size());
+    for (BooleanFormula formula : formulas) {
+      Node node = nodes.get(formula);
+      literals.add(negated ? node.negatedLiteral : node.literal);
+    }
+    return literals;
+  }
+
+  /**
+   * Pass a clause to the consumer after removing constant and duplicate literals. Clauses that
+   * contain the literal <code>true</code> are omitted.
+   */
+  private void emitClause(List<BooleanFormula> literals, Consumer<List<BooleanFormula>> consumer) {
+    Set<BooleanFormula> clause = new LinkedHashSet<>(literals.size());
+    for (BooleanFormula literal : literals) {
+      if (bfmgr.isTrue(literal)) {
+        return;
+      } else if (!bfmgr.isFalse(literal)) {
+        clause.add(literal);
+      }
+    }
+    if (clause.isEmpty()) {
+      consumer.accept(ImmutableList.of(bfmgr.makeFalse()));
+    } else {
+      consumer.accept(ImmutableList.copyOf(clause));
+    }
+  }
+
+  /** Determines the kind and the children of a single node, without visiting the children. */
+  private static final class NodeBuilder implements BooleanFormulaVisitor<Node> {
+
+    private static Node literal() {
+      return new Node(Kind.LITERAL, ImmutableList.of());
+    }
+
+    @Override
+    public Node visitConstant(boolean value) {
+      return literal();
+    }
+
+    @Override
+    public Node visitBoundVar(BooleanFormula var, int deBruijnIdx) {
+      return literal();
+    }
+
+    @Override
+    public Node visitNot(BooleanFormula operand) {
+      return new Node(Kind.NOT, ImmutableList.of(operand));
+    }
+
+    @Override
+    public Node visitAnd(List<BooleanFormula> operands) {
+      return new Node(Kind.AND, ImmutableList.copyOf(operands));
+    }
+
+    @Override
+    public Node visitOr(List<BooleanFormula> operands) {
+      return new Node(Kind.OR, ImmutableList.copyOf(operands));
+    }
+
+    @Override
+    public Node visitXor(BooleanFormula operand1, BooleanFormula operand2) {
+      return new Node(Kind.XOR, ImmutableList.of(operand1, operand2));
+    }
+
+    @Override
+    public Node visitEquivalence(BooleanFormula operand1, BooleanFormula operand2) {
+      return new Node(Kind.EQUIVALENCE, ImmutableList.of(operand1, operand2));
+    }
+
+    @Override
+    public Node visitImplication(BooleanFormula operand1, BooleanFormula operand2) {
+      return new Node(Kind.IMPLICATION, ImmutableList.of(operand1, operand2));
+    }
+
+    @Override
+    public Node visitIfThenElse(
+        BooleanFormula condition, BooleanFormula thenFormula, BooleanFormula elseFormula) {
+      return new Node(Kind.IF_THEN_ELSE, ImmutableList.of(condition, thenFormula, elseFormula));
+    }
+
+    @Override
+    public Node visitQuantifier(
+        Quantifier quantifier,
+        BooleanFormula quantifiedAST,
+        List<Formula> boundVars,
+        BooleanFormula body) {
+      // the body can not be converted outside the scope of the quantifier
+      return literal();
+    }
+
+    @Override
+    public Node visitAtom(BooleanFormula atom, FunctionDeclaration<BooleanFormula> funcDecl) {
+      return literal();
+    }
+  }
+}
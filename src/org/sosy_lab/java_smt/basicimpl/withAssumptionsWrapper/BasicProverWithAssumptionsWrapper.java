@@ -94,6 +94,11 @@ public class BasicProverWithAssumptionsWrapper<T, P extends BasicProverEnvironme
     return delegate.getUnsatCore();
   }
 
+  @Override
+  public int[] getUnsatCoreIndices() {
+    return delegate.getUnsatCoreIndices();
+  }
+
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
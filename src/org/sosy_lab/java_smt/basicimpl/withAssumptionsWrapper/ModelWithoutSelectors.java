@@ -0,0 +1,107 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import java.math.BigInteger;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.rationals.Rational;
+import org.sosy_lab.java_smt.api.BitvectorFormula;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.NumeralFormula.RationalFormula;
+import org.sosy_lab.java_smt.api.StringFormula;
+
+/**
+ * Model of a {@link SelectorProverWithAssumptionsWrapper}, which hides the assignments of the
+ * selector variables. Evaluation is not affected.
+ */
+class ModelWithoutSelectors implements Model {
+
+  private final Model delegate;
+  private final String selectorPrefix;
+
+  ModelWithoutSelectors(Model pDelegate, String pSelectorPrefix) {
+    delegate = checkNotNull(pDelegate);
+    selectorPrefix = checkNotNull(pSelectorPrefix);
+  }
+
+  @Override
+  public <T extends Formula> @Nullable T eval(T pFormula) {
+    return delegate.eval(pFormula);
+  }
+
+  @Override
+  public @Nullable Object evaluate(Formula pF) {
+    return delegate.evaluate(pF);
+  }
+
+  @Override
+  public List<@Nullable Object> evaluateAll(List<? extends Formula> pFormulas) {
+    return delegate.evaluateAll(pFormulas);
+  }
+
+  @Override
+  public @Nullable BigInteger evaluate(IntegerFormula pF) {
+    return delegate.evaluate(pF);
+  }
+
+  @Override
+  public @Nullable Rational evaluate(RationalFormula pF) {
+    return delegate.evaluate(pF);
+  }
+
+  @Override
+  public @Nullable Boolean evaluate(BooleanFormula pF) {
+    return delegate.evaluate(pF);
+  }
+
+  @Override
+  public @Nullable BigInteger evaluate(BitvectorFormula pF) {
+    return delegate.evaluate(pF);
+  }
+
+  @Override
+  public @Nullable String evaluate(StringFormula pF) {
+    return delegate.evaluate(pF);
+  }
+
+  @Override
+  public ImmutableList<ValueAssignment> asList() {
+    return filter(delegate.asList(), selectorPrefix);
+  }
+
+  /** Remove the assignments of all variables whose name starts with the prefix of selectors. */
+  static ImmutableList<ValueAssignment> filter(
+      List<ValueAssignment> pAssignments, String pSelectorPrefix) {
+    ImmutableList.Builder<ValueAssignment> builder = ImmutableList.builder();
+    for (ValueAssignment assignment : pAssignments) {
+      if (!assignment.getName().startsWith(pSelectorPrefix)) {
+        builder.add(assignment);
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public String toString() {
+    return Joiner.on('\n').join(iterator());
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+}
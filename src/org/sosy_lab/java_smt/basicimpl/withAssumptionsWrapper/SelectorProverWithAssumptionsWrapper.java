@@ -0,0 +1,301 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.Model.ValueAssignment;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * Implementation of solving with assumptions by selector literals, for solvers that do not support
+ * assumptions themselves.
+ *
+ * <p>For each assumption, a fresh Boolean variable (the selector) is created, and the implication
+ * from the selector to the assumption is asserted once on the current level of the stack. A check
+ * with assumptions pushes a single frame that asserts the selectors of all assumptions. The
+ * implications stay on the stack and are reused by later checks with overlapping assumptions, until
+ * their level is popped. The unsat core over assumptions is derived from the selectors in the unsat
+ * core of the solver, thus the wrapped prover needs to generate unsat cores.
+ *
+ * <p>In contrast to {@link ProverWithAssumptionsWrapper}, which pushes one frame per assumption,
+ * the number of operations on the stack of the solver does not depend on the number of assumptions.
+ * The selectors are part of the solver's model, but are hidden from the models and model
+ * assignments returned by this prover, including selectors of levels that were already popped.
+ */
+public class SelectorProverWithAssumptionsWrapper implements ProverEnvironment {
+
+  private static final String SELECTOR_PREFIX = "__ASSUMPTION_SELECTOR_";
+
+  private static final String TEMPLATE = "Please set the prover option %s.";
+
+  private final ProverEnvironment delegate;
+  private final BooleanFormulaManager bmgr;
+  private final boolean generateUnsatCores;
+  private final boolean generateUnsatCoresOverAssumptions;
+
+  /** Selectors by their assumption, for all selectors whose implication is on the stack. */
+  private final Map<BooleanFormula, Selector> selectorsByAssumption = new HashMap<>();
+
+  /** Selectors by their variable, to translate unsat cores. */
+  private final Map<BooleanFormula, Selector> selectorsByVariable = new HashMap<>();
+
+  /** Selectors by their implication, to hide implications from unsat cores. */
+  private final Map<BooleanFormula, Selector> selectorsByImplication = new HashMap<>();
+
+  /** Selectors whose implication was asserted on each level of the stack. */
+  private final List<List<Selector>> selectorsPerLevel = new ArrayList<>();
+
+  /**
+   * Positions of the constraints of the user on the stack of the wrapped prover, in ascending
+   * order. The implications of the selectors are asserted in between.
+   */
+  private final List<Integer> constraintPositions = new ArrayList<>();
+
+  /** Number of constraints on the stack of the wrapped prover when each level was pushed. */
+  private final List<Integer> delegateSizePerLevel = new ArrayList<>();
+
+  /** Number of constraints on the stack of the wrapped prover, without the assumption frame. */
+  private int delegateSize = 0;
+
+  /** Selectors of the last check, if they are still asserted in the topmost frame. */
+  private ImmutableList<BooleanFormula> activeSelectors = ImmutableList.of();
+
+  private boolean assumptionFrame = false;
+  private int selectorCounter = 0;
+
+  /**
+   * @param pDelegate prover that generates unsat cores, if unsat cores or unsat cores over
+   *     assumptions are required.
+   * @param pOptions options that were requested for this prover.
+   */
+  public SelectorProverWithAssumptionsWrapper(
+      ProverEnvironment pDelegate, BooleanFormulaManager pBmgr, Set<ProverOptions> pOptions) {
+    delegate = checkNotNull(pDelegate);
+    bmgr = checkNotNull(pBmgr);
+    generateUnsatCores = pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE);
+    generateUnsatCoresOverAssumptions =
+        pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS);
+    selectorsPerLevel.add(new ArrayList<>());
+  }
+
+  /**
+   * Options for the wrapped prover, such that it generates the unsat cores required for unsat cores
+   * over assumptions.
+   */
+  public static Set<ProverOptions> getOptionsForDelegate(Set<ProverOptions> pOptions) {
+    if (pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS)) {
+      Set<ProverOptions> options = EnumSet.copyOf(pOptions);
+      options.remove(ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS);
+      options.add(ProverOptions.GENERATE_UNSAT_CORE);
+      return options;
+    }
+    return pOptions;
+  }
+
+  /** Remove the frame with the selectors of the last check from the stack. */
+  private void clearAssumptions() {
+    if (assumptionFrame) {
+      delegate.pop();
+      assumptionFrame = false;
+      activeSelectors = ImmutableList.of();
+    }
+  }
+
+  @Override
+  public void push() {
+    clearAssumptions();
+    delegate.push();
+    selectorsPerLevel.add(new ArrayList<>());
+    delegateSizePerLevel.add(delegateSize);
+  }
+
+  @Override
+  public void pop() {
+    checkState(selectorsPerLevel.size() > 1, "pop on empty stack");
+    clearAssumptions();
+    delegate.pop();
+    // the implications of the popped level are no longer asserted
+    for (Selector selector : selectorsPerLevel.remove(selectorsPerLevel.size() - 1)) {
+      selectorsByAssumption.remove(selector.assumption);
+      selectorsByVariable.remove(selector.variable);
+      selectorsByImplication.remove(selector.implication);
+    }
+    delegateSize = delegateSizePerLevel.remove(delegateSizePerLevel.size() - 1);
+    while (!constraintPositions.isEmpty()
+        && constraintPositions.get(constraintPositions.size() - 1) >= delegateSize) {
+      constraintPositions.remove(constraintPositions.size() - 1);
+    }
+  }
+
+  @Override
+  public Void addConstraint(BooleanFormula pConstraint) throws InterruptedException {
+    clearAssumptions();
+    constraintPositions.add(delegateSize++);
+    return delegate.addConstraint(pConstraint);
+  }
+
+  @Override
+  public int size() {
+    return selectorsPerLevel.size() - 1;
+  }
+
+  @Override
+  public boolean isUnsat() throws SolverException, InterruptedException {
+    clearAssumptions();
+    return delegate.isUnsat();
+  }
+
+  @Override
+  public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    ImmutableList.Builder<BooleanFormula> builder = ImmutableList.builder();
+    for (BooleanFormula assumption : pAssumptions) {
+      Selector selector = selectorsByAssumption.get(assumption);
+      if (selector == null) {
+        clearAssumptions();
+        BooleanFormula variable = bmgr.makeVariable(SELECTOR_PREFIX + selectorCounter++);
+        selector = new Selector(variable, assumption, bmgr.implication(variable, assumption));
+        delegate.addConstraint(selector.implication);
+        delegateSize++;
+        selectorsByAssumption.put(assumption, selector);
+        selectorsByVariable.put(variable, selector);
+        selectorsByImplication.put(selector.implication, selector);
+        selectorsPerLevel.get(selectorsPerLevel.size() - 1).add(selector);
+      }
+      builder.add(selector.variable);
+    }
+    ImmutableList<BooleanFormula> newSelectors = builder.build();
+
+    // the frame of the last check can be reused for the same assumptions
+    if (!assumptionFrame || !activeSelectors.equals(newSelectors)) {
+      clearAssumptions();
+      delegate.push();
+      assumptionFrame = true;
+      for (BooleanFormula selector : newSelectors) {
+        delegate.addConstraint(selector);
+      }
+      activeSelectors = newSelectors;
+    }
+    return delegate.isUnsat();
+  }
+
+  @Override
+  public Model getModel() throws SolverException {
+    return new ModelWithoutSelectors(delegate.getModel(), SELECTOR_PREFIX);
+  }
+
+  @Override
+  public ImmutableList<ValueAssignment> getModelAssignments() throws SolverException {
+    return ModelWithoutSelectors.filter(delegate.getModelAssignments(), SELECTOR_PREFIX);
+  }
+
+  /** The unsat core contains the assumptions of the last check instead of their selectors. */
+  @Override
+  public List<BooleanFormula> getUnsatCore() {
+    checkState(generateUnsatCores, TEMPLATE, ProverOptions.GENERATE_UNSAT_CORE);
+    ImmutableList.Builder<BooleanFormula> core = ImmutableList.builder();
+    for (BooleanFormula formula : delegate.getUnsatCore()) {
+      Selector selector = selectorsByVariable.get(formula);
+      if (selector != null) {
+        core.add(selector.assumption);
+      } else if (!selectorsByImplication.containsKey(formula)) {
+        core.add(formula);
+      }
+    }
+    return core.build();
+  }
+
+  /**
+   * Positions refer to the constraints of the user. Implications and selectors of assumptions in
+   * the unsat core of the wrapped prover are skipped.
+   */
+  @Override
+  public int[] getUnsatCoreIndices() {
+    checkState(generateUnsatCores, TEMPLATE, ProverOptions.GENERATE_UNSAT_CORE);
+    int[] delegatePositions = delegate.getUnsatCoreIndices();
+    int[] positions = new int[delegatePositions.length];
+    int size = 0;
+    for (int delegatePosition : delegatePositions) {
+      int position = Collections.binarySearch(constraintPositions, delegatePosition);
+      if (position >= 0) {
+        positions[size++] = position;
+      }
+    }
+    return Arrays.copyOf(positions, size);
+  }
+
+  @Override
+  public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
+      Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
+    checkState(
+        generateUnsatCoresOverAssumptions,
+        TEMPLATE,
+        ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS);
+    if (!isUnsatWithAssumptions(pAssumptions)) {
+      return Optional.empty();
+    }
+    ImmutableList.Builder<BooleanFormula> core = ImmutableList.builder();
+    for (BooleanFormula formula : delegate.getUnsatCore()) {
+      Selector selector = selectorsByVariable.get(formula);
+      if (selector != null && activeSelectors.contains(formula)) {
+        core.add(selector.assumption);
+      }
+    }
+    return Optional.of(core.build());
+  }
+
+  @Override
+  public ImmutableMap<String, String> getStatistics() {
+    return delegate.getStatistics();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  @Override
+  public <R> R allSat(AllSatCallback<R> pCallback, List<BooleanFormula> pImportant)
+      throws InterruptedException, SolverException {
+    clearAssumptions();
+    return delegate.allSat(pCallback, pImportant);
+  }
+
+  private static final class Selector {
+    private final BooleanFormula variable;
+    private final BooleanFormula assumption;
+    private final BooleanFormula implication;
+
+    private Selector(
+        BooleanFormula pVariable, BooleanFormula pAssumption, BooleanFormula pImplication) {
+      variable = pVariable;
+      assumption = pAssumption;
+      implication = pImplication;
+    }
+  }
+}
@@ -11,6 +11,8 @@
  * {@link org.sosy_lab.java_smt.api.BasicProverEnvironment#isUnsatWithAssumptions}, we wrap it in a
  * (subclass of) BasicProverWithAssumptionsWrapper, whose task it is to keep the assumptions as long
  * on the solver's stack as no other operation accesses it. It allows computing interpolants and
- * unsat cores. without direct support from the solver.
+ * unsat cores. without direct support from the solver. Alternatively, the
+ * SelectorProverWithAssumptionsWrapper guards each assumption with a fresh selector variable that
+ * is asserted only once and can be reused by later queries.
  */
 package org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper;
@@ -0,0 +1,241 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.Model.ValueAssignment;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * Prover environment that answers satisfiability checks from a {@link QueryCacheStore} if the same
+ * query was already solved before.
+ *
+ * <p>The key of a query is a hash over the SMT-LIB representation of all asserted constraints and
+ * assumptions, and over the name, version, and options of the solver and the prover. Constraints
+ * are sorted and duplicates are removed, such that the order of assertions does not matter. If a
+ * model or an unsat core is requested after a cached answer, the query is solved again by the
+ * wrapped prover.
+ */
+class CachingProverEnvironment implements ProverEnvironment {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+  private static final Comparator<HashCode> HASH_ORDER =
+      Comparator.comparing(HashCode::asBytes, UnsignedBytes.lexicographicalComparator());
+
+  private final ProverEnvironment delegate;
+  private final FormulaManager manager;
+  private final QueryCacheStore store;
+  private final String solverIdentifier;
+
+  /** Hashes of the asserted constraints, one list per frame of the assertion stack. */
+  private final List<List<HashCode>> frames = new ArrayList<>();
+
+  /** Assumptions of the last query that was answered from the cache, or null. */
+  private @Nullable ImmutableList<BooleanFormula> cachedQuery = null;
+
+  CachingProverEnvironment(
+      ProverEnvironment pDelegate,
+      FormulaManager pManager,
+      QueryCacheStore pStore,
+      String pSolverIdentifier) {
+    delegate = checkNotNull(pDelegate);
+    manager = checkNotNull(pManager);
+    store = checkNotNull(pStore);
+    solverIdentifier = checkNotNull(pSolverIdentifier);
+    frames.add(new ArrayList<>());
+  }
+
+  @Override
+  public void push() {
+    cachedQuery = null;
+    frames.add(new ArrayList<>());
+    delegate.push();
+  }
+
+  @Override
+  public void pop() {
+    checkState(frames.size() > 1, "pop on empty stack");
+    cachedQuery = null;
+    frames.remove(frames.size() - 1);
+    delegate.pop();
+  }
+
+  @Override
+  public @Nullable Void addConstraint(BooleanFormula pConstraint) throws InterruptedException {
+    cachedQuery = null;
+    frames.get(frames.size() - 1).add(hash(pConstraint));
+    return delegate.addConstraint(pConstraint);
+  }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  @Override
+  public boolean isUnsat() throws SolverException, InterruptedException {
+    return check(ImmutableList.of());
+  }
+
+  @Override
+  public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    return check(ImmutableList.copyOf(pAssumptions));
+  }
+
+  private boolean check(ImmutableList<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    HashCode key = queryKey(pAssumptions);
+    Boolean cached = store.lookup(key);
+    if (cached != null) {
+      cachedQuery = pAssumptions;
+      return cached;
+    }
+    cachedQuery = null;
+    boolean unsat = solve(pAssumptions);
+    store.store(key, unsat);
+    return unsat;
+  }
+
+  private boolean solve(List<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    return pAssumptions.isEmpty()
+        ? delegate.isUnsat()
+        : delegate.isUnsatWithAssumptions(pAssumptions);
+  }
+
+  /** If the last answer was taken from the cache, let the wrapped prover solve the query. */
+  private void ensureSolved() throws SolverException, InterruptedException {
+    if (cachedQuery != null) {
+      store.recordRecomputation();
+      solve(cachedQuery);
+      cachedQuery = null;
+    }
+  }
+
+  private HashCode hash(BooleanFormula pFormula) {
+    return HASH_FUNCTION.hashString(
+        manager.dumpFormula(pFormula).toString(), StandardCharsets.UTF_8);
+  }
+
+  /** Compute a key of 128 bits for the current assertion stack and the given assumptions. */
+  private HashCode queryKey(Collection<BooleanFormula> pAssumptions) {
+    TreeSet<HashCode> constraints = new TreeSet<>(HASH_ORDER);
+    frames.forEach(constraints::addAll);
+    TreeSet<HashCode> assumptions = new TreeSet<>(HASH_ORDER);
+    for (BooleanFormula assumption : pAssumptions) {
+      assumptions.add(hash(assumption));
+    }
+
+    Hasher hasher = HASH_FUNCTION.newHasher();
+    hasher.putString(solverIdentifier, StandardCharsets.UTF_8);
+    hasher.putInt(constraints.size());
+    constraints.forEach(h -> hasher.putBytes(h.asBytes()));
+    hasher.putInt(assumptions.size());
+    assumptions.forEach(h -> hasher.putBytes(h.asBytes()));
+    return HashCode.fromBytes(Arrays.copyOf(hasher.hash().asBytes(), 16));
+  }
+
+  @Override
+  public Model getModel() throws SolverException {
+    try {
+      ensureSolved();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolverException("interrupted while solving the query again", e);
+    }
+    return delegate.getModel();
+  }
+
+  @Override
+  public ImmutableList<ValueAssignment> getModelAssignments() throws SolverException {
+    try {
+      ensureSolved();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolverException("interrupted while solving the query again", e);
+    }
+    return delegate.getModelAssignments();
+  }
+
+  @Override
+  public List<BooleanFormula> getUnsatCore() {
+    try {
+      ensureSolved();
+    } catch (SolverException e) {
+      throw new IllegalStateException("solving the query again failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while solving the query again", e);
+    }
+    return delegate.getUnsatCore();
+  }
+
+  @Override
+  public int[] getUnsatCoreIndices() {
+    try {
+      ensureSolved();
+    } catch (SolverException e) {
+      throw new IllegalStateException("solving the query again failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while solving the query again", e);
+    }
+    return delegate.getUnsatCoreIndices();
+  }
+
+  @Override
+  public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
+      Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
+    cachedQuery = null;
+    return delegate.unsatCoreOverAssumptions(pAssumptions);
+  }
+
+  @Override
+  public ImmutableMap<String, String> getStatistics() {
+    ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    builder.putAll(delegate.getStatistics());
+    store.getStatistics().forEach((key, value) -> builder.put("cache." + key, value));
+    return builder.buildOrThrow();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  @Override
+  public <R> R allSat(AllSatCallback<R> pCallback, List<BooleanFormula> pImportant)
+      throws InterruptedException, SolverException {
+    cachedQuery = null;
+    return delegate.allSat(pCallback, pImportant);
+  }
+}
@@ -0,0 +1,219 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.configuration.TimeSpanOption;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.time.TimeSpan;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.InterpolatingProverEnvironment;
+import org.sosy_lab.java_smt.api.OptimizationProverEnvironment;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext;
+
+/**
+ * Solver context whose provers reuse the results of earlier satisfiability checks. Results are
+ * cached in memory, including answers for subsumed queries, and in a file for later runs. Only the
+ * basic prover environment is cached, interpolation and optimization always use the solver.
+ */
+@Options(prefix = "solver.cache")
+public class CachingSolverContext implements SolverContext {
+
+  /**
+   * Solvers whose models are independent of the prover and stay valid after the prover has changed
+   * or was closed. Models of other solvers query the native prover and are not reused.
+   */
+  private static final ImmutableSet<Solvers> SOLVERS_WITH_INDEPENDENT_MODELS =
+      Sets.immutableEnumSet(Solvers.PRINCESS, Solvers.SMTINTERPOL, Solvers.Z3);
+
+  @Option(
+      secure = true,
+      description =
+          "Maximum number of results that are cached in memory for each solver context, "
+              + "including unsat cores and models to answer subsumed queries. "
+              + "The value 0 disables the cache in memory.")
+  private int inMemorySize = 1000;
+
+  @Option(
+      secure = true,
+      description =
+          "Maximum number of cached models that are evaluated to answer a query that is not "
+              + "subsumed otherwise, starting with the most recently used ones. "
+              + "The value 0 disables the evaluation of models, and models are not cached.")
+  private int inMemoryModelChecks = 0;
+
+  @Option(secure = true, description = "Store results of satisfiability checks in a file.")
+  private boolean persistent = true;
+
+  @Option(secure = true, description = "File for storing the results of satisfiability checks.")
+  @FileOption(FileOption.Type.OUTPUT_FILE)
+  private Path file = Path.of("query-cache.bin");
+
+  @Option(
+      secure = true,
+      description =
+          "Maximum number of stored results. The oldest results are removed if there are more.")
+  private int maxEntries = 1_000_000;
+
+  @Option(
+      secure = true,
+      description =
+          "Remove stored results that are older than this. The value 0 disables the limit.")
+  @TimeSpanOption(codeUnit = TimeUnit.MILLISECONDS, defaultUserUnit = TimeUnit.DAYS, min = 0)
+  private TimeSpan maxAge = TimeSpan.of(30, TimeUnit.DAYS);
+
+  private final SolverContext delegate;
+
+  /** Name, version, and options of the solver, results of other solvers must not be reused. */
+  private final String solverIdentifier;
+
+  private final @Nullable ResultCache resultCache;
+  private final @Nullable QueryCacheStore store;
+
+  public CachingSolverContext(Configuration pConfig, LogManager pLogger, SolverContext pDelegate)
+      throws InvalidConfigurationException {
+    pConfig.inject(this, CachingSolverContext.class);
+    delegate = checkNotNull(pDelegate);
+    if (maxEntries <= 0 || inMemorySize < 0) {
+      throw new InvalidConfigurationException("Size of the query cache must be positive.");
+    }
+    if (inMemoryModelChecks < 0) {
+      throw new InvalidConfigurationException("Number of model checks must not be negative.");
+    }
+    solverIdentifier =
+        Joiner.on('\n')
+            .join(delegate.getSolverName(), delegate.getVersion(), getSolverOptions(pConfig));
+    resultCache = inMemorySize == 0 ? null : new ResultCache(inMemorySize, inMemoryModelChecks);
+    if (persistent) {
+      try {
+        store = QueryCacheStore.open(file, maxEntries, maxAge.asMillis(), pLogger);
+      } catch (IOException e) {
+        throw new InvalidConfigurationException(
+            "Could not open query cache " + file + ": " + e.getMessage(), e);
+      }
+    } else {
+      store = null;
+    }
+  }
+
+  /**
+   * Get all options that can influence the solver, i.e., all options of JavaSMT except those of
+   * this cache.
+   */
+  private static String getSolverOptions(Configuration pConfig) {
+    return Splitter.on('\n').omitEmptyStrings().splitToList(pConfig.asPropertiesString()).stream()
+        .filter(line -> line.startsWith("solver.") && !line.startsWith("solver.cache"))
+        .sorted()
+        .collect(Collectors.joining("\n"));
+  }
+
+  @Override
+  public FormulaManager getFormulaManager() {
+    return delegate.getFormulaManager();
+  }
+
+  @SuppressWarnings("resource")
+  @Override
+  public ProverEnvironment newProverEnvironment(ProverOptions... pOptions) {
+    ProverEnvironment prover = delegate.newProverEnvironment(pOptions);
+    if (resultCache != null) {
+      Set<ProverOptions> options = ImmutableSet.copyOf(pOptions);
+      prover =
+          new ResultCachingProverEnvironment(
+              prover,
+              resultCache,
+              options.contains(ProverOptions.GENERATE_UNSAT_CORE),
+              resultCache.usesModels()
+                  && options.contains(ProverOptions.GENERATE_MODELS)
+                  && SOLVERS_WITH_INDEPENDENT_MODELS.contains(delegate.getSolverName()));
+    }
+    if (store != null) {
+      // options of the prover are part of the key, e.g., they can enable separation logic
+      String proverIdentifier =
+          solverIdentifier
+              + '\n'
+              + Arrays.stream(pOptions)
+                  .map(ProverOptions::name)
+                  .sorted()
+                  .distinct()
+                  .collect(Collectors.joining(","));
+      prover =
+          new CachingProverEnvironment(
+              prover, delegate.getFormulaManager(), store, proverIdentifier);
+    }
+    return prover;
+  }
+
+  @Override
+  public InterpolatingProverEnvironment<?> newProverEnvironmentWithInterpolation(
+      ProverOptions... pOptions) {
+    return delegate.newProverEnvironmentWithInterpolation(pOptions);
+  }
+
+  @Override
+  public OptimizationProverEnvironment newOptimizationProverEnvironment(ProverOptions... pOptions) {
+    return delegate.newOptimizationProverEnvironment(pOptions);
+  }
+
+  @Override
+  public String getVersion() {
+    return delegate.getVersion();
+  }
+
+  @Override
+  public Solvers getSolverName() {
+    return delegate.getSolverName();
+  }
+
+  @Override
+  public ImmutableMap<String, String> getStatistics() {
+    ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    builder.putAll(delegate.getStatistics());
+    if (resultCache != null) {
+      resultCache
+          .getStatistics()
+          .forEach((key, value) -> builder.put("cache.memory." + key, value));
+    }
+    if (store != null) {
+      store.getStatistics().forEach((key, value) -> builder.put("cache." + key, value));
+    }
+    return builder.buildOrThrow();
+  }
+
+  @Override
+  public void close() {
+    if (resultCache != null) {
+      resultCache.close(); // models must be closed before the context
+    }
+    if (store != null) {
+      store.close();
+    }
+    delegate.close();
+  }
+}
@@ -0,0 +1,375 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.log.LogManager;
+
+/**
+ * Persistent store for results of satisfiability checks, indexed by a 128-bit hash of the query.
+ *
+ * <p>The file is memory-mapped and only appended to, each result is a record of fixed size. When
+ * the file is opened, all records are read into memory and records older than the maximum age are
+ * dropped. If the number of entries exceeds the maximum size, the oldest entries are dropped and
+ * the remaining entries are written again at the beginning of the file.
+ *
+ * <p>Each record contains a checksum over its key, timestamp, and result, and records with an
+ * invalid checksum are ignored. The operating system can write the pages of the file in any order,
+ * thus a crash during an append or during a compaction leaves a mix of old, new, and torn records.
+ * Each record with a valid checksum is a correct result on its own, thus such a crash can at most
+ * lose entries.
+ *
+ * <p>A file is opened only once per process and shared by all users. A second process that uses the
+ * same file at the same time can read the existing results, but does not store new ones.
+ */
+final class QueryCacheStore implements Closeable {
+
+  private static final int MAGIC = 0x4a534d43; // "JSMC"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 16;
+  private static final int RECORD_SIZE = 32;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final int UNSAT = 1;
+  private static final int SAT = 2;
+
+  /** Stores that are currently open, such that several contexts in one process share the file. */
+  private static final Map<Path, QueryCacheStore> openStores = new HashMap<>();
+
+  private final Path file;
+  private final int maxEntries;
+  private final long maxAgeMillis;
+  private final LogManager logger;
+
+  /** All valid results in the order they are stored in the file. */
+  private final LinkedHashMap<HashCode, Entry> entries = new LinkedHashMap<>();
+
+  private @Nullable FileChannel channel;
+  private @Nullable FileLock lock;
+  private @Nullable MappedByteBuffer buffer;
+
+  /** Number of records in the file, including outdated records and replaced records. */
+  private int records = 0;
+
+  private int references = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long recomputations = 0;
+
+  private QueryCacheStore(Path pFile, int pMaxEntries, long pMaxAgeMillis, LogManager pLogger) {
+    file = pFile;
+    maxEntries = pMaxEntries;
+    maxAgeMillis = pMaxAgeMillis;
+    logger = pLogger;
+  }
+
+  /**
+   * Open the store in the given file, or share an already open store of this file.
+   *
+   * @param pMaxEntries maximum number of stored results.
+   * @param pMaxAgeMillis results older than this are dropped, zero for no limit.
+   */
+  static QueryCacheStore open(Path pFile, int pMaxEntries, long pMaxAgeMillis, LogManager pLogger)
+      throws IOException {
+    checkArgument(pMaxEntries > 0, "cache size must be positive");
+    checkArgument(pMaxAgeMillis >= 0, "maximum age must not be negative");
+    Path file = pFile.toAbsolutePath().normalize();
+    synchronized (openStores) {
+      QueryCacheStore store = openStores.get(file);
+      if (store == null) {
+        store = new QueryCacheStore(file, pMaxEntries, pMaxAgeMillis, pLogger);
+        store.load();
+        openStores.put(file, store);
+      }
+      store.references++;
+      return store;
+    }
+  }
+
+  private void load() throws IOException {
+    Path parent = file.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      lock = channel.tryLock();
+      if (lock == null) {
+        logger.log(
+            Level.WARNING,
+            "Query cache",
+            file,
+            "is used by another process, new results will not be stored.");
+      }
+
+      long size = channel.size();
+      if (size == 0) {
+        if (lock == null) {
+          closeFile();
+        } else {
+          map(Math.min(INITIAL_CAPACITY, maxEntries));
+          buffer.putInt(0, MAGIC);
+          buffer.putInt(4, VERSION);
+        }
+        return;
+      }
+
+      MappedByteBuffer content =
+          channel.map(lock == null ? MapMode.READ_ONLY : MapMode.READ_WRITE, 0, size);
+      if (size < HEADER_SIZE || content.getInt(0) != MAGIC || content.getInt(4) != VERSION) {
+        throw new IOException("File " + file + " is not a query cache of this version");
+      }
+      long now = System.currentTimeMillis();
+      boolean outdated = false;
+      for (int index = 0; HEADER_SIZE + (index + 1L) * RECORD_SIZE <= size; index++) {
+        int pos = HEADER_SIZE + index * RECORD_SIZE;
+        int result = content.getInt(pos + 24);
+        if (content.getInt(pos + 28) != checksum(content, pos)
+            || (result != UNSAT && result != SAT)) {
+          // unused space or a torn record, the latter is removed by the next compaction
+          outdated |= !isZero(content, pos);
+          continue;
+        }
+        records = index + 1;
+        Entry entry = new Entry(result == UNSAT, content.getLong(pos + 16));
+        if (isOutdated(entry, now)) {
+          evictions++;
+          outdated = true;
+        } else {
+          // keep the order of the file, newer records of the same query replace older ones
+          HashCode key = readKey(content, pos);
+          entries.remove(key);
+          entries.put(key, entry);
+        }
+      }
+
+      if (lock == null) {
+        closeFile();
+      } else {
+        buffer = content;
+        if (outdated || entries.size() > maxEntries) {
+          compact();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      closeFile();
+      throw e;
+    }
+  }
+
+  private boolean isOutdated(Entry pEntry, long pNow) {
+    return maxAgeMillis > 0 && pNow - pEntry.timestamp > maxAgeMillis;
+  }
+
+  /** Compute the checksum over key, timestamp, and result of the record at the given position. */
+  private static int checksum(MappedByteBuffer pContent, int pPos) {
+    CRC32 crc = new CRC32();
+    for (int i = 0; i < 28; i++) {
+      crc.update(pContent.get(pPos + i));
+    }
+    return (int) crc.getValue();
+  }
+
+  private static boolean isZero(MappedByteBuffer pContent, int pPos) {
+    for (int i = 0; i < RECORD_SIZE; i++) {
+      if (pContent.get(pPos + i) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static HashCode readKey(MappedByteBuffer pContent, int pPos) {
+    byte[] key = new byte[16];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = pContent.get(pPos + i);
+    }
+    return HashCode.fromBytes(key);
+  }
+
+  /** Map the file with the given number of records. This grows the file if needed. */
+  private void map(int pRecords) throws IOException {
+    buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) pRecords * RECORD_SIZE);
+  }
+
+  private int capacity() {
+    return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+  }
+
+  /**
+   * Look up the result of a query.
+   *
+   * @return whether the query is unsatisfiable, or null if the result is unknown.
+   */
+  synchronized @Nullable Boolean lookup(HashCode pKey) {
+    Entry entry = entries.get(pKey);
+    if (entry != null && isOutdated(entry, System.currentTimeMillis())) {
+      entries.remove(pKey);
+      evictions++;
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.unsat;
+  }
+
+  /** Record the result of a query that was solved. */
+  synchronized void store(HashCode pKey, boolean pUnsat) {
+    checkArgument(pKey.bits() == 128, "query keys have 128 bits");
+    checkState(references > 0, "query cache is already closed");
+    Entry entry = new Entry(pUnsat, System.currentTimeMillis());
+    entries.remove(pKey);
+    entries.put(pKey, entry);
+    if (buffer == null) {
+      return; // the file is read-only or not usable
+    }
+    try {
+      if (entries.size() > maxEntries || (records >= capacity() && capacity() >= maxEntries)) {
+        compact(); // this also writes the new entry
+      } else {
+        if (records >= capacity()) {
+          map(Math.min(2 * capacity(), maxEntries));
+        }
+        write(records++, pKey, entry);
+      }
+    } catch (IOException e) {
+      logger.logUserException(Level.WARNING, e, "Could not write query cache, disabling it");
+      closeFile();
+    }
+  }
+
+  /** Increment the counter for cached results that had to be computed again by the solver. */
+  synchronized void recordRecomputation() {
+    recomputations++;
+  }
+
+  /**
+   * Write all entries to the beginning of the file and remove outdated and replaced records. If
+   * there are too many entries, the oldest entries are dropped such that the store is filled to
+   * three quarters of its maximum size.
+   */
+  private void compact() throws IOException {
+    int retained = entries.size() > maxEntries ? maxEntries * 3 / 4 : entries.size();
+    List<Map.Entry<HashCode, Entry>> sorted = new ArrayList<>(entries.entrySet());
+    sorted.sort(Comparator.comparingLong(e -> e.getValue().timestamp));
+    List<Map.Entry<HashCode, Entry>> kept = sorted.subList(sorted.size() - retained, sorted.size());
+    evictions += entries.size() - retained;
+    entries.clear();
+    for (Map.Entry<HashCode, Entry> e : kept) {
+      entries.put(e.getKey(), e.getValue());
+    }
+
+    if (capacity() < retained) {
+      map(retained);
+    }
+    records = 0;
+    for (Map.Entry<HashCode, Entry> e : entries.entrySet()) {
+      write(records++, e.getKey(), e.getValue());
+    }
+    for (int pos = HEADER_SIZE + records * RECORD_SIZE; pos < buffer.capacity(); pos++) {
+      buffer.put(pos, (byte) 0);
+    }
+    buffer.force();
+  }
+
+  private void write(int pIndex, HashCode pKey, Entry pEntry) {
+    int pos = HEADER_SIZE + pIndex * RECORD_SIZE;
+    byte[] key = pKey.asBytes();
+    for (int i = 0; i < key.length; i++) {
+      buffer.put(pos + i, key[i]);
+    }
+    buffer.putLong(pos + 16, pEntry.timestamp);
+    buffer.putInt(pos + 24, pEntry.unsat ? UNSAT : SAT);
+    buffer.putInt(pos + 28, checksum(buffer, pos));
+  }
+
+  synchronized ImmutableMap<String, String> getStatistics() {
+    long queries = hits + misses;
+    return ImmutableMap.of(
+        "hits", Long.toString(hits),
+        "misses", Long.toString(misses),
+        "hitRate", queries == 0 ? "0.0" : Double.toString((double) hits / queries),
+        "entries", Integer.toString(entries.size()),
+        "evictions", Long.toString(evictions),
+        "recomputations", Long.toString(recomputations));
+  }
+
+  /** Release this store. The file is closed when all users have released it. */
+  @Override
+  public void close() {
+    synchronized (openStores) {
+      checkState(references > 0, "query cache is already closed");
+      references--;
+      if (references == 0) {
+        openStores.remove(file);
+        synchronized (this) {
+          if (buffer != null) {
+            buffer.force();
+          }
+          closeFile();
+        }
+      }
+    }
+  }
+
+  private void closeFile() {
+    buffer = null;
+    try {
+      if (lock != null) {
+        lock.release();
+      }
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      logger.logUserException(Level.WARNING, e, "Could not close query cache");
+    }
+    lock = null;
+    channel = null;
+  }
+
+  private static final class Entry {
+    private final boolean unsat;
+    private final long timestamp;
+
+    Entry(boolean pUnsat, long pTimestamp) {
+      unsat = pUnsat;
+      timestamp = pTimestamp;
+    }
+  }
+}
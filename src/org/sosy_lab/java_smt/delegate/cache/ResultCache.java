@@ -0,0 +1,345 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+
+/**
+ * In-memory cache for results of satisfiability checks of one solver context, bounded by the number
+ * of entries and evicting the least recently used entry.
+ *
+ * <p>Besides exact matches of the set of constraints, the cache answers queries that are subsumed
+ * by a cached result:
+ *
+ * <ul>
+ *   <li>A query is unsatisfiable if it contains the unsat core of a cached unsatisfiable query.
+ *   <li>A query is satisfiable if it is a subset of a cached satisfiable query.
+ *   <li>A query is satisfiable if a cached model evaluates all its constraints to true. Only the
+ *       models of the most recently used entries are evaluated, up to a given number.
+ * </ul>
+ *
+ * <p>Cached results are indexed by their constraints, such that only results that share a
+ * constraint with the query are checked for subsumption. Models are evaluated without holding the
+ * lock of the cache.
+ */
+final class ResultCache implements AutoCloseable {
+
+  private final Map<ImmutableSet<BooleanFormula>, CachedResult> entries;
+
+  /** Unsatisfiable results by the first constraint of their unsat core. */
+  private final SetMultimap<BooleanFormula, CachedResult> unsatResultsByCoreConstraint =
+      HashMultimap.create();
+
+  /** Unsatisfiable results with an empty unsat core, which subsume every query. */
+  private final Set<CachedResult> unsatResultsWithEmptyCore = new LinkedHashSet<>();
+
+  /** Satisfiable results by each of their constraints. */
+  private final SetMultimap<BooleanFormula, CachedResult> satResultsByConstraint =
+      HashMultimap.create();
+
+  private final int maxModelChecks;
+
+  private long exactHits = 0;
+  private long unsatCoreHits = 0;
+  private long satSubsetHits = 0;
+  private long satModelHits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * @param pMaxEntries maximum number of cached results.
+   * @param pMaxModelChecks maximum number of models that are evaluated for a query, 0 disables
+   *     the evaluation of models.
+   */
+  ResultCache(int pMaxEntries, int pMaxModelChecks) {
+    checkArgument(pMaxEntries > 0, "cache size must be positive");
+    checkArgument(pMaxModelChecks >= 0, "number of model checks must not be negative");
+    maxModelChecks = pMaxModelChecks;
+    entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<ImmutableSet<BooleanFormula>, CachedResult> pEldest) {
+            if (size() > pMaxEntries) {
+              evictions++;
+              discard(pEldest.getValue());
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /** Whether models of satisfiable results are used and should be stored. */
+  boolean usesModels() {
+    return maxModelChecks > 0;
+  }
+
+  /** Get a cached result that answers the query for the given set of constraints, if possible. */
+  @Nullable CachedResult lookup(Set<BooleanFormula> pConstraints) {
+    Deque<CachedResult> candidates = new ArrayDeque<>();
+    synchronized (this) {
+      CachedResult result = entries.get(pConstraints);
+      if (result != null) {
+        exactHits++;
+        return result;
+      }
+      result = findUnsatCore(pConstraints);
+      if (result != null) {
+        unsatCoreHits++;
+        return markUsed(result);
+      }
+      result = findSatSuperset(pConstraints);
+      if (result != null) {
+        satSubsetHits++;
+        return markUsed(result);
+      }
+      if (maxModelChecks > 0) {
+        // the most recently used entries are the last ones
+        for (CachedResult cached : entries.values()) {
+          if (cached.model != null && !cached.inUse) {
+            candidates.addFirst(cached);
+            if (candidates.size() > maxModelChecks) {
+              candidates.removeLast();
+            }
+          }
+        }
+        candidates.forEach(cached -> cached.inUse = true);
+      }
+    }
+
+    // evaluating models is the most expensive check, thus it is done last and without the lock
+    CachedResult result = null;
+    try {
+      for (CachedResult cached : candidates) {
+        Model model = cached.model;
+        if (model != null && satisfies(model, pConstraints)) {
+          result = cached;
+          break;
+        }
+      }
+    } finally {
+      synchronized (this) {
+        candidates.forEach(CachedResult::release);
+        if (result != null) {
+          satModelHits++;
+          markUsed(result);
+        } else {
+          misses++;
+        }
+      }
+    }
+    return result;
+  }
+
+  private @Nullable CachedResult findUnsatCore(Set<BooleanFormula> pConstraints) {
+    if (!unsatResultsWithEmptyCore.isEmpty()) {
+      return unsatResultsWithEmptyCore.iterator().next();
+    }
+    // a contained unsat core also contains its first constraint
+    for (BooleanFormula constraint : pConstraints) {
+      for (CachedResult cached : unsatResultsByCoreConstraint.get(constraint)) {
+        if (pConstraints.containsAll(cached.unsatCore)) {
+          return cached;
+        }
+      }
+    }
+    return null;
+  }
+
+  private @Nullable CachedResult findSatSuperset(Set<BooleanFormula> pConstraints) {
+    if (pConstraints.isEmpty()) {
+      for (CachedResult cached : entries.values()) {
+        if (!cached.unsat) {
+          return cached;
+        }
+      }
+      return null;
+    }
+    // a superset contains every constraint, thus the smallest set of candidates suffices
+    Set<CachedResult> candidates = null;
+    for (BooleanFormula constraint : pConstraints) {
+      Set<CachedResult> results = satResultsByConstraint.get(constraint);
+      if (candidates == null || results.size() < candidates.size()) {
+        candidates = results;
+        if (candidates.isEmpty()) {
+          return null;
+        }
+      }
+    }
+    for (CachedResult cached : candidates) {
+      if (cached.constraints.containsAll(pConstraints)) {
+        return cached;
+      }
+    }
+    return null;
+  }
+
+  /** Mark the entry of the result as recently used, if the result is still cached. */
+  private CachedResult markUsed(CachedResult pResult) {
+    entries.get(pResult.constraints);
+    return pResult;
+  }
+
+  private static boolean satisfies(Model pModel, Set<BooleanFormula> pConstraints) {
+    try {
+      for (BooleanFormula constraint : pConstraints) {
+        if (!Boolean.TRUE.equals(pModel.evaluate(constraint))) {
+          return false;
+        }
+      }
+      return true;
+    } catch (IllegalArgumentException | UnsupportedOperationException e) {
+      // the model can not evaluate symbols that were created after it
+      return false;
+    }
+  }
+
+  /**
+   * Record that the given constraints are unsatisfiable.
+   *
+   * @param pCore a subset of the constraints that is already unsatisfiable.
+   */
+  synchronized void storeUnsat(
+      ImmutableSet<BooleanFormula> pConstraints, ImmutableSet<BooleanFormula> pCore) {
+    put(new CachedResult(pConstraints, true, pCore, null));
+  }
+
+  /**
+   * Record that the given constraints are satisfiable.
+   *
+   * @param pModel a model for the constraints, that is owned and closed by the cache.
+   */
+  synchronized void storeSat(ImmutableSet<BooleanFormula> pConstraints, @Nullable Model pModel) {
+    put(new CachedResult(pConstraints, false, ImmutableSet.of(), pModel));
+  }
+
+  private void put(CachedResult pResult) {
+    CachedResult old = entries.put(pResult.constraints, pResult);
+    if (old != null) {
+      discard(old);
+    }
+    if (pResult.unsat) {
+      if (pResult.unsatCore.isEmpty()) {
+        unsatResultsWithEmptyCore.add(pResult);
+      } else {
+        unsatResultsByCoreConstraint.put(pResult.unsatCore.iterator().next(), pResult);
+      }
+    } else {
+      for (BooleanFormula constraint : pResult.constraints) {
+        satResultsByConstraint.put(constraint, pResult);
+      }
+    }
+  }
+
+  /** Remove a result that is no longer in the map of entries from the indices and close it. */
+  private void discard(CachedResult pResult) {
+    if (pResult.unsat) {
+      if (pResult.unsatCore.isEmpty()) {
+        unsatResultsWithEmptyCore.remove(pResult);
+      } else {
+        unsatResultsByCoreConstraint.remove(pResult.unsatCore.iterator().next(), pResult);
+      }
+    } else {
+      for (BooleanFormula constraint : pResult.constraints) {
+        satResultsByConstraint.remove(constraint, pResult);
+      }
+    }
+    pResult.close();
+  }
+
+  synchronized ImmutableMap<String, String> getStatistics() {
+    return ImmutableMap.<String, String>builder()
+        .put("exactHits", Long.toString(exactHits))
+        .put("unsatCoreHits", Long.toString(unsatCoreHits))
+        .put("satSubsetHits", Long.toString(satSubsetHits))
+        .put("satModelHits", Long.toString(satModelHits))
+        .put("misses", Long.toString(misses))
+        .put("entries", Integer.toString(entries.size()))
+        .put("evictions", Long.toString(evictions))
+        .buildOrThrow();
+  }
+
+  @Override
+  public synchronized void close() {
+    entries.values().forEach(CachedResult::close);
+    entries.clear();
+    unsatResultsByCoreConstraint.clear();
+    unsatResultsWithEmptyCore.clear();
+    satResultsByConstraint.clear();
+  }
+
+  /**
+   * Result of a satisfiability check, with an unsat core or optionally a model. The fields for the
+   * model are guarded by the lock of the cache.
+   */
+  static final class CachedResult {
+    private final ImmutableSet<BooleanFormula> constraints;
+    private final boolean unsat;
+    private final ImmutableSet<BooleanFormula> unsatCore;
+    private @Nullable Model model;
+
+    /** Whether the model is evaluated, it must not be used by another thread or be closed. */
+    private boolean inUse = false;
+
+    /** Whether the result was removed from the cache, while its model was in use. */
+    private boolean closeWhenReleased = false;
+
+    private CachedResult(
+        ImmutableSet<BooleanFormula> pConstraints,
+        boolean pUnsat,
+        ImmutableSet<BooleanFormula> pUnsatCore,
+        @Nullable Model pModel) {
+      constraints = pConstraints;
+      unsat = pUnsat;
+      unsatCore = pUnsatCore;
+      model = pModel;
+    }
+
+    boolean isUnsat() {
+      return unsat;
+    }
+
+    ImmutableSet<BooleanFormula> getUnsatCore() {
+      return unsatCore;
+    }
+
+    private void release() {
+      inUse = false;
+      if (closeWhenReleased) {
+        close();
+      }
+    }
+
+    private void close() {
+      if (inUse) {
+        closeWhenReleased = true;
+      } else if (model != null) {
+        model.close();
+        model = null;
+      }
+    }
+  }
+}
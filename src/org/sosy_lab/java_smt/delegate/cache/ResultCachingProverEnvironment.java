@@ -0,0 +1,228 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.Model.ValueAssignment;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.delegate.cache.ResultCache.CachedResult;
+
+/**
+ * Prover environment that answers satisfiability checks from a {@link ResultCache} of its solver
+ * context, if the current constraints are subsumed by a cached result.
+ *
+ * <p>After each satisfiability check of the wrapped prover, the unsat core or the model is stored
+ * in the cache, if the prover was created with the corresponding option. If a model is requested
+ * after a cached answer, the query is solved again by the wrapped prover.
+ */
+class ResultCachingProverEnvironment implements ProverEnvironment {
+
+  private final ProverEnvironment delegate;
+  private final ResultCache cache;
+  private final boolean storeUnsatCores;
+  private final boolean storeModels;
+
+  /** The asserted constraints, one list per frame of the assertion stack. */
+  private final List<List<BooleanFormula>> frames = new ArrayList<>();
+
+  /** Assumptions of the last query that was answered from the cache, or null. */
+  private @Nullable ImmutableList<BooleanFormula> cachedQuery = null;
+
+  /** Unsat core of the last query, if it was answered from the cache and is unsatisfiable. */
+  private @Nullable ImmutableSet<BooleanFormula> cachedUnsatCore = null;
+
+  /**
+   * @param pStoreUnsatCores whether the wrapped prover generates unsat cores, otherwise all
+   *     constraints of an unsatisfiable query are stored.
+   * @param pStoreModels whether models of the wrapped prover are stored, this requires that the
+   *     models stay valid after the prover has changed or was closed.
+   */
+  ResultCachingProverEnvironment(
+      ProverEnvironment pDelegate,
+      ResultCache pCache,
+      boolean pStoreUnsatCores,
+      boolean pStoreModels) {
+    delegate = checkNotNull(pDelegate);
+    cache = checkNotNull(pCache);
+    storeUnsatCores = pStoreUnsatCores;
+    storeModels = pStoreModels;
+    frames.add(new ArrayList<>());
+  }
+
+  @Override
+  public void push() {
+    resetCachedQuery();
+    frames.add(new ArrayList<>());
+    delegate.push();
+  }
+
+  @Override
+  public void pop() {
+    checkState(frames.size() > 1, "pop on empty stack");
+    resetCachedQuery();
+    frames.remove(frames.size() - 1);
+    delegate.pop();
+  }
+
+  @Override
+  public @Nullable Void addConstraint(BooleanFormula pConstraint) throws InterruptedException {
+    resetCachedQuery();
+    frames.get(frames.size() - 1).add(pConstraint);
+    return delegate.addConstraint(pConstraint);
+  }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  private void resetCachedQuery() {
+    cachedQuery = null;
+    cachedUnsatCore = null;
+  }
+
+  @Override
+  public boolean isUnsat() throws SolverException, InterruptedException {
+    return check(ImmutableList.of());
+  }
+
+  @Override
+  public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    return check(ImmutableList.copyOf(pAssumptions));
+  }
+
+  private boolean check(ImmutableList<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    ImmutableSet.Builder<BooleanFormula> builder = ImmutableSet.builder();
+    frames.forEach(builder::addAll);
+    ImmutableSet<BooleanFormula> constraints = builder.addAll(pAssumptions).build();
+
+    CachedResult cached = cache.lookup(constraints);
+    if (cached != null) {
+      cachedQuery = pAssumptions;
+      cachedUnsatCore = cached.isUnsat() ? cached.getUnsatCore() : null;
+      return cached.isUnsat();
+    }
+
+    resetCachedQuery();
+    boolean unsat = solve(pAssumptions);
+    if (unsat) {
+      // unsat cores are not available for checks with assumptions
+      cache.storeUnsat(
+          constraints,
+          storeUnsatCores && pAssumptions.isEmpty()
+              ? ImmutableSet.copyOf(delegate.getUnsatCore())
+              : constraints);
+    } else {
+      cache.storeSat(constraints, storeModels ? delegate.getModel() : null);
+    }
+    return unsat;
+  }
+
+  private boolean solve(List<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    return pAssumptions.isEmpty()
+        ? delegate.isUnsat()
+        : delegate.isUnsatWithAssumptions(pAssumptions);
+  }
+
+  /** If the last answer was taken from the cache, let the wrapped prover solve the query. */
+  private void ensureSolved() throws SolverException {
+    if (cachedQuery != null) {
+      try {
+        solve(cachedQuery);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SolverException("interrupted while solving the query again", e);
+      }
+      resetCachedQuery();
+    }
+  }
+
+  @Override
+  public Model getModel() throws SolverException {
+    ensureSolved();
+    return delegate.getModel();
+  }
+
+  @Override
+  public ImmutableList<ValueAssignment> getModelAssignments() throws SolverException {
+    ensureSolved();
+    return delegate.getModelAssignments();
+  }
+
+  /** The unsat core of a cached result is also an unsat core of the current query. */
+  @Override
+  public List<BooleanFormula> getUnsatCore() {
+    checkState(
+        storeUnsatCores, "Please set the prover option %s.", ProverOptions.GENERATE_UNSAT_CORE);
+    if (cachedUnsatCore != null) {
+      return cachedUnsatCore.asList();
+    }
+    try {
+      ensureSolved();
+    } catch (SolverException e) {
+      throw new IllegalStateException("solving the query again failed", e);
+    }
+    return delegate.getUnsatCore();
+  }
+
+  /** Positions are not cached, thus the wrapped prover solves a cached query again. */
+  @Override
+  public int[] getUnsatCoreIndices() {
+    try {
+      ensureSolved();
+    } catch (SolverException e) {
+      throw new IllegalStateException("solving the query again failed", e);
+    }
+    return delegate.getUnsatCoreIndices();
+  }
+
+  @Override
+  public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
+      Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
+    resetCachedQuery();
+    return delegate.unsatCoreOverAssumptions(pAssumptions);
+  }
+
+  @Override
+  public ImmutableMap<String, String> getStatistics() {
+    ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    builder.putAll(delegate.getStatistics());
+    cache.getStatistics().forEach((key, value) -> builder.put("cache.memory." + key, value));
+    return builder.buildOrThrow();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  @Override
+  public <R> R allSat(AllSatCallback<R> pCallback, List<BooleanFormula> pImportant)
+      throws InterruptedException, SolverException {
+    resetCachedQuery();
+    return delegate.allSat(pCallback, pImportant);
+  }
+}
@@ -13,6 +13,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -106,6 +107,13 @@ class LoggingBasicProverEnvironment<T> implements BasicProverEnvironment<T> {
     return unsatCore;
   }
 
+  @Override
+  public int[] getUnsatCoreIndices() {
+    int[] unsatCore = wrapped.getUnsatCoreIndices();
+    logger.log(Level.FINE, "unsat-core", Arrays.toString(unsatCore));
+    return unsatCore;
+  }
+
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> assumptions) throws SolverException, InterruptedException {
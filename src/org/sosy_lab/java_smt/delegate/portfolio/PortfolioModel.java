@@ -0,0 +1,111 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.portfolio;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.math.BigInteger;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.rationals.Rational;
+import org.sosy_lab.java_smt.api.BitvectorFormula;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.NumeralFormula.RationalFormula;
+import org.sosy_lab.java_smt.api.StringFormula;
+import org.sosy_lab.java_smt.utils.FormulaTranslator;
+
+/**
+ * Model of the solver that answered a query of a {@link PortfolioProverEnvironment}. Formulas are
+ * translated into the solver for evaluation and results are translated back.
+ */
+class PortfolioModel implements Model {
+
+  private final Model delegate;
+  private final FormulaTranslator toSolver;
+  private final FormulaTranslator fromSolver;
+
+  PortfolioModel(Model pDelegate, FormulaTranslator pToSolver, FormulaTranslator pFromSolver) {
+    delegate = checkNotNull(pDelegate);
+    toSolver = checkNotNull(pToSolver);
+    fromSolver = checkNotNull(pFromSolver);
+  }
+
+  @Override
+  public <T extends Formula> @Nullable T eval(T pFormula) {
+    T result = delegate.eval(toSolver.translate(pFormula));
+    return result == null ? null : fromSolver.translate(result);
+  }
+
+  @Override
+  public @Nullable Object evaluate(Formula pF) {
+    return delegate.evaluate(toSolver.translate(pF));
+  }
+
+  @Override
+  public List<@Nullable Object> evaluateAll(List<? extends Formula> pFormulas) {
+    return delegate.evaluateAll(
+        ImmutableList.copyOf(Lists.transform(pFormulas, toSolver::translate)));
+  }
+
+  @Override
+  public @Nullable BigInteger evaluate(IntegerFormula pF) {
+    return delegate.evaluate(toSolver.translate(pF));
+  }
+
+  @Override
+  public @Nullable Rational evaluate(RationalFormula pF) {
+    return delegate.evaluate(toSolver.translate(pF));
+  }
+
+  @Override
+  public @Nullable Boolean evaluate(BooleanFormula pF) {
+    return delegate.evaluate(toSolver.translate(pF));
+  }
+
+  @Override
+  public @Nullable BigInteger evaluate(BitvectorFormula pF) {
+    return delegate.evaluate(toSolver.translate(pF));
+  }
+
+  @Override
+  public @Nullable String evaluate(StringFormula pF) {
+    return delegate.evaluate(toSolver.translate(pF));
+  }
+
+  @Override
+  public ImmutableList<ValueAssignment> asList() {
+    ImmutableList.Builder<ValueAssignment> builder = ImmutableList.builder();
+    for (ValueAssignment va : delegate.asList()) {
+      builder.add(
+          new ValueAssignment(
+              fromSolver.translate(va.getKey()),
+              fromSolver.translate(va.getValueAsFormula()),
+              fromSolver.translate(va.getAssignmentAsFormula()),
+              va.getName(),
+              va.getValue(),
+              va.getArgumentsInterpretation()));
+    }
+    return builder.build();
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+}
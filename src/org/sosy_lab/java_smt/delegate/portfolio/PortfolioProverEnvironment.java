@@ -0,0 +1,576 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.portfolio;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.ShutdownManager;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.utils.FormulaTranslator;
+
+/**
+ * A prover environment that runs every satisfiability check concurrently on several solvers and
+ * returns the first definitive answer.
+ *
+ * <p>Each solver gets its own {@link SolverContext}. All constraints are given with the formula
+ * manager of the user and are translated into each solver. Once a solver has answered, the other
+ * solvers are not interrupted immediately, because an interrupted context can not be used again
+ * and would have to be re-created with a replay of the whole assertion stack. Instead, they may
+ * finish their current check in the background for a bounded time: as long as the winner needed,
+ * but at least {@link #MIN_LOSER_GRACE_MILLIS} milliseconds. A solver that is still busy after
+ * this time, or when the next query starts, is interrupted via its {@link ShutdownNotifier} and
+ * re-created before its next query. Changes of the assertion stack are queued for a busy solver
+ * and applied once its check has terminated. Models and unsat cores are taken from the solver that
+ * answered the last query and are translated back into the formula manager of the user.
+ *
+ * <p>Like all other prover environments, this class is not thread-safe. Formula translation happens
+ * only on the calling thread and only for solvers without a running check, the worker threads only
+ * run the solvers.
+ */
+public final class PortfolioProverEnvironment implements ProverEnvironment {
+
+  private final Configuration config;
+  private final LogManager logger;
+  private final ShutdownNotifier shutdownNotifier;
+  private final FormulaManager manager;
+  private final ProverOptions[] options;
+
+  private final ImmutableList<Participant> participants;
+  private final ExecutorService executor;
+
+  /** Interrupts solvers that did not finish in time after losing a race. */
+  private final ScheduledExecutorService watchdog;
+
+  /** Minimal time that a losing solver may continue its check in the background. */
+  private static final long MIN_LOSER_GRACE_MILLIS = 100;
+
+  /** All asserted constraints, the first frame contains constraints asserted before any push. */
+  private final List<List<BooleanFormula>> frames = new ArrayList<>();
+
+  /** The participant that answered the last query, or null if there is no valid answer. */
+  private @Nullable Participant winner = null;
+
+  private boolean closed = false;
+
+  /**
+   * Create a portfolio of new solver contexts.
+   *
+   * @param pConfig configuration for all created solver contexts.
+   * @param pLogger logger for all created solver contexts.
+   * @param pShutdownNotifier stops all solvers of the portfolio.
+   * @param pManager the formula manager that creates all formulas that are given to this
+   *     environment and that receives all returned formulas.
+   * @param pSolvers the solvers that are raced against each other.
+   * @param pOptions options for all created prover environments.
+   */
+  public PortfolioProverEnvironment(
+      Configuration pConfig,
+      LogManager pLogger,
+      ShutdownNotifier pShutdownNotifier,
+      FormulaManager pManager,
+      List<Solvers> pSolvers,
+      ProverOptions... pOptions)
+      throws InvalidConfigurationException {
+    checkArgument(!pSolvers.isEmpty(), "portfolio requires at least one solver");
+    config = checkNotNull(pConfig);
+    logger = checkNotNull(pLogger);
+    shutdownNotifier = checkNotNull(pShutdownNotifier);
+    manager = checkNotNull(pManager);
+    options = pOptions.clone();
+    frames.add(new ArrayList<>());
+
+    ImmutableList.Builder<Participant> builder = ImmutableList.builder();
+    try {
+      for (Solvers solver : pSolvers) {
+        builder.add(new Participant(solver));
+      }
+    } catch (InvalidConfigurationException | RuntimeException e) {
+      builder.build().forEach(Participant::close);
+      throw e;
+    }
+    participants = builder.build();
+    executor =
+        Executors.newFixedThreadPool(
+            participants.size(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("portfolio-prover-%d")
+                .setDaemon(true)
+                .build());
+    watchdog =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("portfolio-watchdog-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  @Override
+  public void push() {
+    checkState(!closed);
+    winner = null;
+    frames.add(new ArrayList<>());
+    for (Participant p : participants) {
+      if (p.canApplyDirectly()) {
+        p.prover.push();
+      } else {
+        p.queue(participant -> participant.prover.push());
+      }
+    }
+  }
+
+  @Override
+  public void pop() {
+    checkState(!closed);
+    checkState(frames.size() > 1, "pop on empty stack");
+    winner = null;
+    frames.remove(frames.size() - 1);
+    for (Participant p : participants) {
+      if (p.canApplyDirectly()) {
+        p.prover.pop();
+      } else {
+        p.queue(participant -> participant.prover.pop());
+      }
+    }
+  }
+
+  @Override
+  public @Nullable Void addConstraint(BooleanFormula pConstraint) throws InterruptedException {
+    checkState(!closed);
+    winner = null;
+    frames.get(frames.size() - 1).add(pConstraint);
+    for (Participant p : participants) {
+      if (p.canApplyDirectly()) {
+        p.prover.addConstraint(p.toSolver.translate(pConstraint));
+      } else {
+        // the context of a busy participant must not be used, translation happens later
+        p.queue(
+            participant ->
+                participant.prover.addConstraint(participant.toSolver.translate(pConstraint)));
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public int size() {
+    checkState(!closed);
+    return frames.size() - 1;
+  }
+
+  @Override
+  public boolean isUnsat() throws SolverException, InterruptedException {
+    return race(p -> p.prover::isUnsat);
+  }
+
+  @Override
+  public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
+      throws SolverException, InterruptedException {
+    return race(
+        p -> {
+          List<BooleanFormula> assumptions = p.translateToSolver(pAssumptions);
+          return () -> p.prover.isUnsatWithAssumptions(assumptions);
+        });
+  }
+
+  @Override
+  public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
+      Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
+    Optional<List<BooleanFormula>> core =
+        race(
+            p -> {
+              List<BooleanFormula> assumptions = p.translateToSolver(pAssumptions);
+              return () -> p.prover.unsatCoreOverAssumptions(assumptions);
+            });
+    return core.map(getWinner()::translateFromSolver);
+  }
+
+  @Override
+  public Model getModel() throws SolverException {
+    Participant p = getWinner();
+    return new PortfolioModel(p.prover.getModel(), p.toSolver, p.fromSolver);
+  }
+
+  @Override
+  public List<BooleanFormula> getUnsatCore() {
+    Participant p = getWinner();
+    return p.translateFromSolver(p.prover.getUnsatCore());
+  }
+
+  /** All solvers get the same constraints in the same order, thus positions need no mapping. */
+  @Override
+  public int[] getUnsatCoreIndices() {
+    return getWinner().prover.getUnsatCoreIndices();
+  }
+
+  /**
+   * Enumerate all models with a single solver. The enumeration is not raced, because the callback
+   * of the user must not be called from several solvers. The solver that answered the last query is
+   * preferred.
+   */
+  @Override
+  public <R> R allSat(AllSatCallback<R> pCallback, List<BooleanFormula> pImportant)
+      throws InterruptedException, SolverException {
+    checkState(!closed);
+    Participant p = winner;
+    if (p == null) {
+      p = prepareParticipants().get(0);
+    }
+    final Participant solver = p;
+    R result =
+        solver.prover.allSat(
+            new AllSatCallback<R>() {
+              @Override
+              public void apply(List<BooleanFormula> pModel) {
+                pCallback.apply(solver.translateFromSolver(pModel));
+              }
+
+              @Override
+              public R getResult() throws InterruptedException {
+                return pCallback.getResult();
+              }
+            },
+            solver.translateToSolver(pImportant));
+    winner = null; // allSat does not leave a valid model behind
+    return result;
+  }
+
+  /** Statistics of all solvers, prefixed with the name of the solver. */
+  @Override
+  public ImmutableMap<String, String> getStatistics() {
+    checkState(!closed);
+    ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (Participant p : participants) {
+      builder.put(p.solver + ".wins", Integer.toString(p.wins));
+      builder.put(p.solver + ".rebuilds", Integer.toString(p.rebuilds));
+      if (p.isReady()) {
+        p.prover.getStatistics().forEach((key, value) -> builder.put(p.solver + "." + key, value));
+      }
+    }
+    return builder.buildKeepingLast();
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    winner = null;
+    for (Participant p : participants) {
+      p.interrupt();
+      p.awaitPendingCheck();
+      p.close();
+    }
+    watchdog.shutdownNow();
+    executor.shutdown();
+  }
+
+  private Participant getWinner() {
+    checkState(!closed);
+    checkState(winner != null, "no satisfiability check with a definitive answer available");
+    return winner;
+  }
+
+  /**
+   * Run a query on all available participants and return the first successful result. All other
+   * participants continue their query in the background for a bounded time, the result is ignored.
+   *
+   * @param pTask creates the query for a single participant. It is called on the calling thread and
+   *     can translate formulas, the returned query is executed on a worker thread.
+   */
+  private <R> R race(RaceTask<R> pTask) throws SolverException, InterruptedException {
+    checkState(!closed);
+    winner = null;
+    List<Participant> available = prepareParticipants();
+
+    long start = System.nanoTime();
+    CompletionService<R> completion = new ExecutorCompletionService<>(executor);
+    Map<Future<R>, Participant> running = new IdentityHashMap<>();
+    for (Participant p : available) {
+      Callable<R> query = pTask.prepare(p);
+      running.put(completion.submit(query), p);
+    }
+
+    Throwable failure = null;
+    try {
+      for (int i = 0; i < running.size(); i++) {
+        Future<R> done = completion.take();
+        Participant p = running.get(done);
+        try {
+          R result = done.get();
+          winner = p;
+          p.wins++;
+          return result;
+        } catch (ExecutionException e) {
+          // the next solver may still give an answer
+          failure = e.getCause();
+          logger.logDebugException(e, "solver " + p.solver + " failed in portfolio");
+        }
+      }
+    } finally {
+      long grace =
+          Math.max(
+              System.nanoTime() - start, TimeUnit.MILLISECONDS.toNanos(MIN_LOSER_GRACE_MILLIS));
+      running.forEach(
+          (future, p) -> {
+            if (p != winner && !future.isDone()) {
+              p.pendingCheck = future;
+              if (winner == null) {
+                p.interrupt(); // nobody waits for the result
+              } else {
+                p.interruptAfter(future, grace);
+              }
+            }
+          });
+    }
+
+    if (failure instanceof SolverException) {
+      throw (SolverException) failure;
+    } else if (failure instanceof InterruptedException) {
+      throw (InterruptedException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else {
+      throw new SolverException("all solvers of the portfolio failed", failure);
+    }
+  }
+
+  /**
+   * Get all participants that can run a query. Participants that are still busy with an earlier
+   * query are interrupted, they are re-created once they have reacted to the interrupt. All other
+   * participants apply the queued changes of the assertion stack. If no participant is available,
+   * we wait for one.
+   */
+  private List<Participant> prepareParticipants() throws InterruptedException {
+    List<Participant> available = new ArrayList<>();
+    for (Participant p : participants) {
+      if (p.hasPendingCheck()) {
+        p.interrupt();
+        continue; // the solver has not yet reacted to the interrupt
+      }
+      p.prepare();
+      available.add(p);
+    }
+    if (available.isEmpty()) {
+      Participant p = participants.get(0);
+      p.awaitPendingCheck();
+      p.prepare();
+      available.add(p);
+    }
+    return available;
+  }
+
+  @FunctionalInterface
+  private interface RaceTask<R> {
+    Callable<R> prepare(Participant pParticipant);
+  }
+
+  /** A change of the assertion stack of a participant. */
+  @FunctionalInterface
+  private interface StackOperation {
+    void applyTo(Participant pParticipant) throws InterruptedException;
+  }
+
+  /** A single solver of the portfolio with its own context and prover. */
+  private final class Participant {
+
+    private final Solvers solver;
+
+    private ShutdownManager shutdownManager;
+    private SolverContext context;
+    private ProverEnvironment prover;
+    private FormulaTranslator toSolver;
+    private FormulaTranslator fromSolver;
+
+    /** Whether this participant was interrupted and needs to be re-created before its next use. */
+    private boolean stale = false;
+
+    /** The query that lost the last race, as long as it might be running. */
+    private @Nullable Future<?> pendingCheck = null;
+
+    /** Changes of the assertion stack that were made while the participant was busy. */
+    private final List<StackOperation> queuedOperations = new ArrayList<>();
+
+    private int wins = 0;
+    private int rebuilds = 0;
+
+    Participant(Solvers pSolver) throws InvalidConfigurationException {
+      solver = pSolver;
+      create();
+    }
+
+    private void create() throws InvalidConfigurationException {
+      shutdownManager = ShutdownManager.createWithParent(shutdownNotifier);
+      context =
+          new SolverContextFactory(config, logger, shutdownManager.getNotifier())
+              .generateContext(solver);
+      prover = context.newProverEnvironment(options);
+      toSolver = new FormulaTranslator(manager, context.getFormulaManager());
+      fromSolver = new FormulaTranslator(context.getFormulaManager(), manager);
+    }
+
+    /** Whether the prover can be used directly on the calling thread. */
+    boolean isReady() {
+      return !stale && !hasPendingCheck() && !shutdownManager.getNotifier().shouldShutdown();
+    }
+
+    /** Whether a change of the assertion stack can be applied without queueing it. */
+    boolean canApplyDirectly() {
+      return isReady() && queuedOperations.isEmpty();
+    }
+
+    /**
+     * Queue a change of the assertion stack until the next query. An interrupted participant gets
+     * all changes when it is re-created.
+     */
+    void queue(StackOperation pOperation) {
+      if (!stale) {
+        queuedOperations.add(pOperation);
+      }
+    }
+
+    /** Make the participant ready for a query, its last query must have terminated. */
+    void prepare() throws InterruptedException {
+      pendingCheck = null;
+      if (!stale && shutdownManager.getNotifier().shouldShutdown()) {
+        stale = true;
+      }
+      if (stale) {
+        rebuild();
+      } else {
+        applyQueuedOperations();
+      }
+    }
+
+    private void applyQueuedOperations() throws InterruptedException {
+      for (StackOperation operation : queuedOperations) {
+        operation.applyTo(this);
+      }
+      queuedOperations.clear();
+    }
+
+    /** Replace the interrupted context with a new one and replay all constraints. */
+    private void rebuild() throws InterruptedException {
+      close();
+      queuedOperations.clear();
+      try {
+        create();
+      } catch (InvalidConfigurationException e) {
+        throw new AssertionError("configuration was already accepted for the same solver", e);
+      }
+      stale = false;
+      rebuilds++;
+      for (int i = 0; i < frames.size(); i++) {
+        if (i > 0) {
+          prover.push();
+        }
+        for (BooleanFormula constraint : frames.get(i)) {
+          prover.addConstraint(toSolver.translate(constraint));
+        }
+      }
+    }
+
+    /**
+     * Stop the running query after the given time in nanoseconds, unless it has terminated before.
+     * The participant notices the interrupt when it is prepared for its next query.
+     */
+    void interruptAfter(Future<?> pCheck, long pNanos) {
+      // only the thread-safe shutdown manager is accessed from the watchdog
+      ShutdownManager manager = shutdownManager;
+      watchdog.schedule(
+          () -> {
+            if (!pCheck.isDone()) {
+              manager.requestShutdown("the solver did not finish in time after losing a race");
+            }
+          },
+          pNanos,
+          TimeUnit.NANOSECONDS);
+    }
+
+    /** Stop the running query, which makes the context unusable. */
+    void interrupt() {
+      if (hasPendingCheck()) {
+        shutdownManager.requestShutdown("the solver did not finish before the next query");
+        stale = true;
+      }
+    }
+
+    boolean hasPendingCheck() {
+      return pendingCheck != null && !pendingCheck.isDone();
+    }
+
+    void awaitPendingCheck() {
+      if (pendingCheck != null) {
+        try {
+          Uninterruptibles.getUninterruptibly(pendingCheck);
+        } catch (ExecutionException e) {
+          // expected, the check was interrupted
+        }
+        pendingCheck = null;
+      }
+    }
+
+    List<BooleanFormula> translateToSolver(Collection<BooleanFormula> pFormulas) {
+      List<BooleanFormula> result = new ArrayList<>(pFormulas.size());
+      for (BooleanFormula f : pFormulas) {
+        result.add(toSolver.translate(f));
+      }
+      return result;
+    }
+
+    List<BooleanFormula> translateFromSolver(Collection<BooleanFormula> pFormulas) {
+      List<BooleanFormula> result = new ArrayList<>(pFormulas.size());
+      for (BooleanFormula f : pFormulas) {
+        result.add(fromSolver.translate(f));
+      }
+      return result;
+    }
+
+    void close() {
+      prover.close();
+      context.close();
+    }
+  }
+}
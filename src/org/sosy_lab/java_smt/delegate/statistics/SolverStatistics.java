@@ -82,6 +82,18 @@ public class SolverStatistics {
     return unsat.getMaxTime();
   }
 
+  public TimeSpan getP50TimeOfIsUnsatQueries() {
+    return unsat.getPercentile(0.5);
+  }
+
+  public TimeSpan getP90TimeOfIsUnsatQueries() {
+    return unsat.getPercentile(0.9);
+  }
+
+  public TimeSpan getP99TimeOfIsUnsatQueries() {
+    return unsat.getPercentile(0.99);
+  }
+
   public int getNumberOfAllSatQueries() {
     return allSat.getNumberOfIntervals();
   }
@@ -94,6 +106,18 @@ public class SolverStatistics {
     return allSat.getMaxTime();
   }
 
+  public TimeSpan getP50TimeOfAllSatQueries() {
+    return allSat.getPercentile(0.5);
+  }
+
+  public TimeSpan getP90TimeOfAllSatQueries() {
+    return allSat.getPercentile(0.9);
+  }
+
+  public TimeSpan getP99TimeOfAllSatQueries() {
+    return allSat.getPercentile(0.99);
+  }
+
   public int getNumberOfInterpolationQueries() {
     return interpolation.getNumberOfIntervals();
   }
@@ -106,6 +130,18 @@ public class SolverStatistics {
     return interpolation.getMaxTime();
   }
 
+  public TimeSpan getP50TimeOfInterpolationQueries() {
+    return interpolation.getPercentile(0.5);
+  }
+
+  public TimeSpan getP90TimeOfInterpolationQueries() {
+    return interpolation.getPercentile(0.9);
+  }
+
+  public TimeSpan getP99TimeOfInterpolationQueries() {
+    return interpolation.getPercentile(0.99);
+  }
+
   public int getNumberOfBooleanOperations() {
     return booleanOperations.get();
   }
@@ -165,12 +201,21 @@ public class SolverStatistics {
         .put("number of isUnsat queries", getNumberOfIsUnsatQueries())
         .put("sumTime of isUnsat queries", getSumTimeOfIsUnsatQueries())
         .put("maxTime of isUnsat queries", getMaxTimeOfIsUnsatQueries())
+        .put("p50Time of isUnsat queries", getP50TimeOfIsUnsatQueries())
+        .put("p90Time of isUnsat queries", getP90TimeOfIsUnsatQueries())
+        .put("p99Time of isUnsat queries", getP99TimeOfIsUnsatQueries())
         .put("number of allSat queries", getNumberOfAllSatQueries())
         .put("sumTime of allSat queries", getSumTimeOfAllSatQueries())
         .put("maxTime of allSat queries", getMaxTimeOfAllSatQueries())
+        .put("p50Time of allSat queries", getP50TimeOfAllSatQueries())
+        .put("p90Time of allSat queries", getP90TimeOfAllSatQueries())
+        .put("p99Time of allSat queries", getP99TimeOfAllSatQueries())
         .put("number of interpolation queries", getNumberOfInterpolationQueries())
         .put("sumTime of interpolation queries", getSumTimeOfInterpolationQueries())
         .put("maxTime of interpolation queries", getMaxTimeOfInterpolationQueries())
+        .put("p50Time of interpolation queries", getP50TimeOfInterpolationQueries())
+        .put("p90Time of interpolation queries", getP90TimeOfInterpolationQueries())
+        .put("p99Time of interpolation queries", getP99TimeOfInterpolationQueries())
         .put("number of visits", getNumberOfVisits())
         .put("number of Boolean operations", getNumberOfBooleanOperations())
         .put("number of Numeric operations", getNumberOfNumericOperations())
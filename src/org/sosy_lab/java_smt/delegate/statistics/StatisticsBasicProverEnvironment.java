@@ -27,9 +27,14 @@ class StatisticsBasicProverEnvironment<T> implements BasicProverEnvironment<T> {
   final TimerWrapper unsatTimer;
   private final TimerWrapper allSatTimer;
 
-  StatisticsBasicProverEnvironment(BasicProverEnvironment<T> pDelegate, SolverStatistics pStats) {
+  /** Called after each finished satisfiability check, by the thread that uses the prover. */
+  final Runnable afterQuery;
+
+  StatisticsBasicProverEnvironment(
+      BasicProverEnvironment<T> pDelegate, SolverStatistics pStats, Runnable pAfterQuery) {
     delegate = checkNotNull(pDelegate);
     stats = checkNotNull(pStats);
+    afterQuery = checkNotNull(pAfterQuery);
     unsatTimer = stats.unsat.getNewTimer();
     allSatTimer = stats.allSat.getNewTimer();
     stats.provers.getAndIncrement();
@@ -61,22 +66,28 @@ class StatisticsBasicProverEnvironment<T> implements BasicProverEnvironment<T> {
   @Override
   public boolean isUnsat() throws SolverException, InterruptedException {
     unsatTimer.start();
+    final boolean unsat;
     try {
-      return delegate.isUnsat();
+      unsat = delegate.isUnsat();
     } finally {
       unsatTimer.stop();
     }
+    afterQuery.run();
+    return unsat;
   }
 
   @Override
   public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
       throws SolverException, InterruptedException {
     unsatTimer.start();
+    final boolean unsat;
     try {
-      return delegate.isUnsatWithAssumptions(pAssumptions);
+      unsat = delegate.isUnsatWithAssumptions(pAssumptions);
     } finally {
       unsatTimer.stop();
     }
+    afterQuery.run();
+    return unsat;
   }
 
   @SuppressWarnings("resource")
@@ -92,6 +103,12 @@ class StatisticsBasicProverEnvironment<T> implements BasicProverEnvironment<T> {
     return delegate.getUnsatCore();
   }
 
+  @Override
+  public int[] getUnsatCoreIndices() {
+    stats.unsatCore.getAndIncrement();
+    return delegate.getUnsatCoreIndices();
+  }
+
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
@@ -178,6 +178,12 @@ class StatisticsFormulaManager implements FormulaManager {
     return delegate.substitute(pF, pFromToMapping);
   }
 
+  @Override
+  public <T extends Formula> List<T> substitute(
+      T pF, List<? extends Map<? extends Formula, ? extends Formula>> pFromToMappings) {
+    return delegate.substitute(pF, pFromToMappings);
+  }
+
   @Override
   public BooleanFormula translateFrom(BooleanFormula pFormula, FormulaManager pOtherContext) {
     return delegate.translateFrom(pFormula, pOtherContext);
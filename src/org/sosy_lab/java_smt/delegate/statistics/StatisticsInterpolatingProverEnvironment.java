@@ -22,8 +22,8 @@ class StatisticsInterpolatingProverEnvironment<T> extends StatisticsBasicProverE
   private final TimerWrapper itpTimer;
 
   StatisticsInterpolatingProverEnvironment(
-      InterpolatingProverEnvironment<T> pDelegate, SolverStatistics pStats) {
-    super(pDelegate, pStats);
+      InterpolatingProverEnvironment<T> pDelegate, SolverStatistics pStats, Runnable pAfterQuery) {
+    super(pDelegate, pStats, pAfterQuery);
     delegate = pDelegate;
     itpTimer = stats.interpolation.getNewTimer();
   }
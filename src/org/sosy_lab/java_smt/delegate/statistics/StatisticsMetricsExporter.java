@@ -0,0 +1,364 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.statistics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.time.TimeSpan;
+
+/**
+ * Exports the {@link SolverStatistics} of a {@link StatisticsSolverContext} as machine-readable
+ * metrics, either as attributes of an MBean or as a snapshot in the Prometheus text exposition
+ * format (version 0.0.4). The statistics reported by the solver itself are included with the
+ * prefix "javasmt_solver_", as far as their values are numeric.
+ *
+ * <p>The exporter can be used from any thread, e.g., by the JMX server. It never accesses the
+ * solver itself: statistics about the interaction are read when they are requested, and the
+ * statistics of the solver are the latest snapshot that was taken by the thread using the context
+ * after a satisfiability check. The MBean is unregistered automatically when the context is
+ * closed.
+ */
+public class StatisticsMetricsExporter {
+
+  private static final String PREFIX = "javasmt_";
+  private static final String SOLVER_PREFIX = "solver_";
+  private static final String OBJECT_NAME = "org.sosy_lab.java_smt:type=SolverStatistics,solver=";
+
+  private static final AtomicInteger ID_GENERATOR = new AtomicInteger();
+
+  private final StatisticsSolverContext context;
+  private final String solverName;
+  private @Nullable ObjectName objectName = null;
+  private @Nullable MBeanServer server = null;
+
+  public StatisticsMetricsExporter(StatisticsSolverContext pContext) {
+    context = checkNotNull(pContext);
+    solverName = context.getSolverName().toString().toLowerCase(Locale.ROOT);
+    context.attachExporter();
+  }
+
+  /** Register an MBean for the statistics of the context in the platform MBean server. */
+  @CanIgnoreReturnValue
+  public ObjectName registerMBean() throws JMException {
+    return registerMBean(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  /**
+   * Register an MBean for the statistics of the context. Each metric is an attribute named after
+   * the metric and the values of its labels, e.g., "push_total" or "query_seconds.isUnsat.0.5".
+   * The MBean is unregistered when the context is closed.
+   *
+   * @return the unique name of the registered MBean
+   */
+  @CanIgnoreReturnValue
+  public synchronized ObjectName registerMBean(MBeanServer pServer) throws JMException {
+    checkState(objectName == null, "MBean is already registered");
+    ObjectName name =
+        new ObjectName(OBJECT_NAME + solverName + ",id=" + ID_GENERATOR.getAndIncrement());
+    objectName = pServer.registerMBean(new StatisticsMBean(), name).getObjectName();
+    server = pServer;
+    context.addCloseListener(this::unregisterMBean);
+    return objectName;
+  }
+
+  /** Remove the MBean from its MBean server, if it is registered. */
+  public synchronized void unregisterMBean() {
+    if (objectName != null) {
+      try {
+        server.unregisterMBean(objectName);
+      } catch (InstanceNotFoundException e) {
+        // already removed from the server by someone else
+      } catch (MBeanRegistrationException e) {
+        throw new AssertionError("MBean without registration callbacks can not fail", e);
+      }
+      objectName = null;
+      server = null;
+    }
+  }
+
+  /** Write a snapshot of all metrics in the Prometheus text exposition format (version 0.0.4). */
+  public void writePrometheus(Writer pWriter) throws IOException {
+    for (MetricFamily family : collect()) {
+      pWriter.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+      pWriter.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+      for (Sample sample : family.samples) {
+        pWriter.append(family.name).append(sample.suffix).append("{solver=\"");
+        pWriter.append(escape(solverName)).append('"');
+        for (Map.Entry<String, String> label : sample.labels.entrySet()) {
+          pWriter.append(',').append(label.getKey()).append("=\"");
+          pWriter.append(escape(label.getValue())).append('"');
+        }
+        pWriter.append("} ").append(formatValue(sample.value)).append('\n');
+      }
+    }
+    pWriter.flush();
+  }
+
+  private List<MetricFamily> collect() {
+    SolverStatistics stats = context.getSolverStatistics();
+    List<MetricFamily> families = new ArrayList<>();
+
+    families.add(counter("prover_environments", "Created prover environments.", stats.provers));
+    families.add(counter("push", "Push operations.", stats.push));
+    families.add(counter("pop", "Pop operations.", stats.pop));
+    families.add(counter("add_constraint", "AddConstraint operations.", stats.constraint));
+    families.add(counter("model", "Model queries.", stats.model));
+    families.add(counter("unsat_core", "UnsatCore queries.", stats.unsatCore));
+    families.add(counter("model_evaluations", "Evaluations in models.", stats.modelEvaluations));
+    families.add(counter("model_listings", "Listings of model assignments.", stats.modelListings));
+    families.add(counter("visits", "Visits of formulas.", stats.visits));
+
+    ImmutableList.Builder<Sample> operations = ImmutableList.builder();
+    ImmutableMap.<String, AtomicInteger>builder()
+        .put("boolean", stats.booleanOperations)
+        .put("numeric", stats.numericOperations)
+        .put("array", stats.arrayOperations)
+        .put("sl", stats.slOperations)
+        .put("uf", stats.ufOperations)
+        .put("quantifier", stats.quantifierOperations)
+        .put("bv", stats.bvOperations)
+        .put("fp", stats.fpOperations)
+        .put("type", stats.typeOperations)
+        .put("string", stats.stringOperations)
+        .build()
+        .forEach(
+            (theory, count) ->
+                operations.add(new Sample("", ImmutableMap.of("theory", theory), count.get())));
+    families.add(
+        new MetricFamily(
+            "formula_operations_total",
+            "counter",
+            "Operations of the formula managers.",
+            operations.build()));
+
+    ImmutableMap<String, TimerPool> timers =
+        ImmutableMap.of(
+            "isUnsat", stats.unsat, "allSat", stats.allSat, "interpolation", stats.interpolation);
+    ImmutableList.Builder<Sample> querySamples = ImmutableList.builder();
+    ImmutableList.Builder<Sample> maxSamples = ImmutableList.builder();
+    for (Map.Entry<String, TimerPool> entry : timers.entrySet()) {
+      ImmutableMap<String, String> labels = ImmutableMap.of("operation", entry.getKey());
+      TimerPool timer = entry.getValue();
+      for (double quantile : new double[] {0.5, 0.9, 0.99}) {
+        querySamples.add(
+            new Sample(
+                "",
+                ImmutableMap.of("operation", entry.getKey(), "quantile", Double.toString(quantile)),
+                seconds(timer.getPercentile(quantile))));
+      }
+      querySamples.add(new Sample("_sum", labels, seconds(timer.getSumTime())));
+      querySamples.add(new Sample("_count", labels, timer.getNumberOfIntervals()));
+      maxSamples.add(new Sample("", labels, seconds(timer.getMaxTime())));
+    }
+    families.add(
+        new MetricFamily(
+            "query_seconds", "summary", "Duration of solver queries.", querySamples.build()));
+    families.add(
+        new MetricFamily(
+            "query_seconds_max",
+            "gauge",
+            "Maximal duration of solver queries.",
+            maxSamples.build()));
+
+    // only numeric values can be exported, names must be unique after sanitizing
+    Map<String, Double> solverStatistics = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : context.getSolverOwnStatistics().entrySet()) {
+      @Nullable Double value = parseValue(entry.getValue());
+      if (value != null) {
+        solverStatistics.putIfAbsent(sanitize(entry.getKey()), value);
+      }
+    }
+    solverStatistics.forEach(
+        (name, value) ->
+            families.add(
+                new MetricFamily(
+                    SOLVER_PREFIX + name,
+                    "gauge",
+                    "Statistics of the solver.",
+                    ImmutableList.of(new Sample("", ImmutableMap.of(), value)))));
+
+    return families;
+  }
+
+  private static MetricFamily counter(String name, String help, AtomicInteger value) {
+    Sample sample = new Sample("", ImmutableMap.of(), value.get());
+    return new MetricFamily(name + "_total", "counter", help, ImmutableList.of(sample));
+  }
+
+  private static double seconds(TimeSpan time) {
+    return time.getSaturated(TimeUnit.NANOSECONDS) / 1e9;
+  }
+
+  private static @Nullable Double parseValue(String value) {
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /** Metric names may only contain letters, digits, and underscores. */
+  private static String sanitize(String name) {
+    String sanitized = name.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]+", "_");
+    return sanitized.isEmpty() || Character.isDigit(sanitized.charAt(0))
+        ? "_" + sanitized
+        : sanitized;
+  }
+
+  private static String escape(String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String formatValue(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    } else {
+      return Double.toString(value);
+    }
+  }
+
+  /** All samples of one metric, which share the name, type, and description. */
+  private static final class MetricFamily {
+    private final String name;
+    private final String type;
+    private final String help;
+    private final ImmutableList<Sample> samples;
+
+    private MetricFamily(String pName, String pType, String pHelp, ImmutableList<Sample> pSamples) {
+      name = PREFIX + pName;
+      type = pType;
+      help = pHelp;
+      samples = pSamples;
+    }
+  }
+
+  /** A single value of a metric, whose name is extended by the suffix. */
+  private static final class Sample {
+    private final String suffix;
+    private final ImmutableMap<String, String> labels;
+    private final double value;
+
+    private Sample(String pSuffix, ImmutableMap<String, String> pLabels, double pValue) {
+      suffix = pSuffix;
+      labels = pLabels;
+      value = pValue;
+    }
+
+    private String getAttributeName(MetricFamily family) {
+      String name = family.name.substring(PREFIX.length()) + suffix;
+      return labels.isEmpty() ? name : name + "." + Joiner.on('.').join(labels.values());
+    }
+  }
+
+  /** An MBean with one read-only attribute per metric, all values are read on demand. */
+  private final class StatisticsMBean implements DynamicMBean {
+
+    private Map<String, Double> getValues() {
+      Map<String, Double> values = new LinkedHashMap<>();
+      for (MetricFamily family : collect()) {
+        for (Sample sample : family.samples) {
+          values.put(sample.getAttributeName(family), sample.value);
+        }
+      }
+      return values;
+    }
+
+    @Override
+    public Object getAttribute(String pAttribute) throws AttributeNotFoundException {
+      @Nullable Double value = getValues().get(pAttribute);
+      if (value == null) {
+        throw new AttributeNotFoundException(pAttribute);
+      }
+      return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute pAttribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("all attributes are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] pAttributes) {
+      Map<String, Double> values = getValues();
+      AttributeList result = new AttributeList();
+      for (String attribute : pAttributes) {
+        @Nullable Double value = values.get(attribute);
+        if (value != null) {
+          result.add(new Attribute(attribute, value));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList pAttributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String pActionName, Object[] pParams, String[] pSignature) {
+      throw new UnsupportedOperationException("no operations available");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> attributes = new ArrayList<>();
+      for (MetricFamily family : collect()) {
+        for (Sample sample : family.samples) {
+          attributes.add(
+              new MBeanAttributeInfo(
+                  sample.getAttributeName(family),
+                  Double.class.getName(),
+                  family.help,
+                  true,
+                  false,
+                  false));
+        }
+      }
+      return new MBeanInfo(
+          StatisticsMetricsExporter.class.getName(),
+          "Statistics of a solver context",
+          attributes.toArray(new MBeanAttributeInfo[0]),
+          null,
+          null,
+          null);
+    }
+  }
+}
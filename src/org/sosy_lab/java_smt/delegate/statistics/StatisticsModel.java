@@ -12,6 +12,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.collect.ImmutableList;
 import java.math.BigInteger;
+import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.rationals.Rational;
 import org.sosy_lab.java_smt.api.BitvectorFormula;
@@ -44,6 +45,12 @@ class StatisticsModel implements Model {
     return delegate.evaluate(pF);
   }
 
+  @Override
+  public List<@Nullable Object> evaluateAll(List<? extends Formula> pFormulas) {
+    stats.modelEvaluations.getAndAdd(pFormulas.size());
+    return delegate.evaluateAll(pFormulas);
+  }
+
   @Override
   public @Nullable BigInteger evaluate(IntegerFormula pF) {
     stats.modelEvaluations.getAndIncrement();
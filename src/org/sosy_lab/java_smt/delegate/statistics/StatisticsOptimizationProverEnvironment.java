@@ -20,8 +20,8 @@ class StatisticsOptimizationProverEnvironment extends StatisticsBasicProverEnvir
   private final OptimizationProverEnvironment delegate;
 
   StatisticsOptimizationProverEnvironment(
-      OptimizationProverEnvironment pDelegate, SolverStatistics pStats) {
-    super(pDelegate, pStats);
+      OptimizationProverEnvironment pDelegate, SolverStatistics pStats, Runnable pAfterQuery) {
+    super(pDelegate, pStats, pAfterQuery);
     delegate = pDelegate;
   }
 
@@ -38,11 +38,14 @@ class StatisticsOptimizationProverEnvironment extends StatisticsBasicProverEnvir
   @Override
   public OptStatus check() throws InterruptedException, SolverException {
     unsatTimer.start();
+    final OptStatus status;
     try {
-      return delegate.check();
+      status = delegate.check();
     } finally {
       unsatTimer.stop();
     }
+    afterQuery.run();
+    return status;
   }
 
   @Override
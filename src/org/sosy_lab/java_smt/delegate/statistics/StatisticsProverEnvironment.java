@@ -14,7 +14,8 @@ import org.sosy_lab.java_smt.api.ProverEnvironment;
 class StatisticsProverEnvironment extends StatisticsBasicProverEnvironment<Void>
     implements ProverEnvironment {
 
-  StatisticsProverEnvironment(BasicProverEnvironment<Void> pDelegate, SolverStatistics pStats) {
-    super(pDelegate, pStats);
+  StatisticsProverEnvironment(
+      BasicProverEnvironment<Void> pDelegate, SolverStatistics pStats, Runnable pAfterQuery) {
+    super(pDelegate, pStats, pAfterQuery);
   }
 }
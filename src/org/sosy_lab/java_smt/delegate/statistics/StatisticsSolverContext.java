@@ -11,7 +11,10 @@ package org.sosy_lab.java_smt.delegate.statistics;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.FormulaManager;
 import org.sosy_lab.java_smt.api.InterpolatingProverEnvironment;
@@ -24,6 +27,24 @@ public class StatisticsSolverContext implements SolverContext {
   private final SolverContext delegate;
   private final SolverStatistics stats = new SolverStatistics();
 
+  /**
+   * The latest statistics of the solver itself. Solvers must only be accessed by the thread that
+   * uses the context, thus other threads read this snapshot. It is refreshed by the thread that
+   * uses the context, after the next satisfiability check if an exporter requested it, and when the
+   * context is closed if an exporter is attached. Querying the statistics of the solver can be
+   * expensive, e.g., it changes the verbosity of Boolector, thus without exporter it is not done.
+   */
+  private volatile ImmutableMap<String, String> solverOwnStatistics = ImmutableMap.of();
+
+  private final AtomicBoolean solverOwnStatisticsRequested = new AtomicBoolean(false);
+
+  private volatile boolean exporterAttached = false;
+
+  /** Actions to be run when the context is closed, e.g., to unregister exporters. */
+  private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+  private volatile boolean closed = false;
+
   public StatisticsSolverContext(SolverContext pDelegate) {
     delegate = checkNotNull(pDelegate);
   }
@@ -36,7 +57,10 @@ public class StatisticsSolverContext implements SolverContext {
   @SuppressWarnings("resource")
   @Override
   public ProverEnvironment newProverEnvironment(ProverOptions... pOptions) {
-    return new StatisticsProverEnvironment(delegate.newProverEnvironment(pOptions), stats);
+    return new StatisticsProverEnvironment(
+        delegate.newProverEnvironment(pOptions),
+        stats,
+        this::refreshSolverOwnStatisticsIfRequested);
   }
 
   @SuppressWarnings("resource")
@@ -44,14 +68,18 @@ public class StatisticsSolverContext implements SolverContext {
   public InterpolatingProverEnvironment<?> newProverEnvironmentWithInterpolation(
       ProverOptions... pOptions) {
     return new StatisticsInterpolatingProverEnvironment<>(
-        delegate.newProverEnvironmentWithInterpolation(pOptions), stats);
+        delegate.newProverEnvironmentWithInterpolation(pOptions),
+        stats,
+        this::refreshSolverOwnStatisticsIfRequested);
   }
 
   @SuppressWarnings("resource")
   @Override
   public OptimizationProverEnvironment newOptimizationProverEnvironment(ProverOptions... pOptions) {
     return new StatisticsOptimizationProverEnvironment(
-        delegate.newOptimizationProverEnvironment(pOptions), stats);
+        delegate.newOptimizationProverEnvironment(pOptions),
+        stats,
+        this::refreshSolverOwnStatisticsIfRequested);
   }
 
   @Override
@@ -67,7 +95,7 @@ public class StatisticsSolverContext implements SolverContext {
   @Override
   public ImmutableMap<String, String> getStatistics() {
     ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-    builder.putAll(delegate.getStatistics());
+    builder.putAll(closed ? solverOwnStatistics : refreshSolverOwnStatistics());
     for (Map.Entry<String, Object> entry : getSolverStatistics().asMap().entrySet()) {
       builder.put(entry.getKey(), entry.getValue().toString());
     }
@@ -76,9 +104,59 @@ public class StatisticsSolverContext implements SolverContext {
 
   @Override
   public void close() {
+    if (!closed) {
+      if (exporterAttached) {
+        refreshSolverOwnStatistics();
+      }
+      closed = true;
+      for (Runnable listener : closeListeners) {
+        // removing guarantees that a concurrently added listener is run only once
+        if (closeListeners.remove(listener)) {
+          listener.run();
+        }
+      }
+    }
     delegate.close();
   }
 
+  private ImmutableMap<String, String> refreshSolverOwnStatistics() {
+    ImmutableMap<String, String> statistics = delegate.getStatistics();
+    solverOwnStatistics = statistics;
+    return statistics;
+  }
+
+  private void refreshSolverOwnStatisticsIfRequested() {
+    if (solverOwnStatisticsRequested.getAndSet(false)) {
+      refreshSolverOwnStatistics();
+    }
+  }
+
+  /**
+   * export the latest snapshot of the statistics of the solver itself, without the statistics
+   * about the interaction. This method can be called from any thread and never accesses the
+   * solver, but requests a new snapshot after the next satisfiability check.
+   */
+  ImmutableMap<String, String> getSolverOwnStatistics() {
+    solverOwnStatisticsRequested.set(true);
+    return solverOwnStatistics;
+  }
+
+  /** Keep a final snapshot of the statistics of the solver itself when the context is closed. */
+  void attachExporter() {
+    exporterAttached = true;
+  }
+
+  /**
+   * Run the given action when the context is closed, or immediately if it is already closed.
+   * Actions can be run from any thread.
+   */
+  void addCloseListener(Runnable pListener) {
+    closeListeners.add(pListener);
+    if (closed && closeListeners.remove(pListener)) {
+      pListener.run();
+    }
+  }
+
   /** export statistics about the solver interaction. */
   public SolverStatistics getSolverStatistics() {
     return stats;
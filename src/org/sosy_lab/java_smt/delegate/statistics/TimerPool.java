@@ -8,88 +8,90 @@
 
 package org.sosy_lab.java_smt.delegate.statistics;
 
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.WeakReference;
-import java.util.IdentityHashMap;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import org.sosy_lab.common.time.TimeSpan;
-import org.sosy_lab.common.time.Timer;
 
+/**
+ * A pool of timers that accumulates the intervals of all its timers, e.g., of all provers of one
+ * solver context.
+ *
+ * <p>Timers can be used concurrently from many threads. Finished intervals are recorded without
+ * locks, and additionally in a histogram with logarithmic buckets (with a relative error of at most
+ * 1/{@value #SUB_BUCKETS}) from which percentiles of the interval lengths are computed.
+ */
 public class TimerPool {
 
-  /** We assume one common unit for all sub-timers. */
-  private static final TimeUnit UNIT = new Timer().getMaxTime().getUnit();
+  /** Number of histogram buckets per power of two, must be a power of two. */
+  private static final int SUB_BUCKETS = 8;
 
-  /**
-   * This map contains all usable timers.
-   *
-   * <p>We use WeakReferences to avoid memory leak when deleting timers. WeakReference allows us to
-   * access the wrapped Timer before GC.
-   */
-  private final IdentityHashMap<WeakReference<TimerWrapper>, Timer> activeTimers =
-      new IdentityHashMap<>();
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
 
-  private final ReferenceQueue<TimerWrapper> referenceQueue = new ReferenceQueue<>();
+  /** Enough buckets for all non-negative long values. */
+  private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
 
-  /**
-   * The sum of times of all intervals. This field should be accessed through {@link #getSumTime()}
-   * to account for a currently running interval.
-   */
-  private long sumTime = 0;
+  /** All timers with a currently running interval. */
+  private final Set<TimerWrapper> runningTimers = ConcurrentHashMap.newKeySet();
 
-  /** The maximal time of all intervals. */
-  private long maxTime = 0;
+  /** The sum of times of all finished intervals in nanoseconds. */
+  private final LongAdder sumTime = new LongAdder();
 
-  /**
-   * The number of intervals. This field should be accessed through {@link #getNumberOfIntervals()}
-   * to account for a currently running interval.
-   */
-  private int numberOfIntervals = 0;
+  /** The maximal time of all finished intervals in nanoseconds. */
+  private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+  /** The number of finished intervals. */
+  private final LongAdder numberOfIntervals = new LongAdder();
+
+  /** The number of finished intervals per bucket of lengths. */
+  private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
 
   public TimerPool() {}
 
   public TimerWrapper getNewTimer() {
-    cleanupReferences();
-    Timer timer = new Timer();
-    TimerWrapper wrapper = new TimerWrapper(timer);
-    assert UNIT == timer.getSumTime().getUnit() : "sub-timers should use same unit";
-    synchronized (activeTimers) {
-      activeTimers.put(new WeakReference<>(wrapper, referenceQueue), timer);
-    }
-    return wrapper;
-  }
-
-  private void cleanupReferences() {
-    Reference<? extends TimerWrapper> ref;
-    while ((ref = referenceQueue.poll()) != null) {
-      synchronized (activeTimers) {
-        closeTimer(activeTimers.remove(ref));
-      }
-    }
+    return new TimerWrapper(this);
   }
 
-  /** Stop the given Timer and collect its values. */
-  private void closeTimer(Timer timer) {
-    timer.stopIfRunning();
-    sumTime += convert(timer.getSumTime());
-    maxTime = Math.max(maxTime, convert(timer.getMaxTime()));
-    numberOfIntervals += timer.getNumberOfIntervals();
+  @VisibleForTesting
+  void record(long time) {
+    sumTime.add(time);
+    maxTime.accumulate(time);
+    numberOfIntervals.increment();
+    histogram.incrementAndGet(bucketIndex(time));
   }
 
-  private long convert(TimeSpan time) {
-    // we assume the same unit for all sub-timers.
-    return time.getSaturated(UNIT);
+  /**
+   * Small values get their own bucket, larger values are split into {@link #SUB_BUCKETS} buckets
+   * per power of two.
+   */
+  @VisibleForTesting
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
   }
 
-  private long eval(Function<Timer, Long> f, BiFunction<Long, Long, Long> acc) {
-    long currentInterval = 0;
-    for (Timer timer : activeTimers.values()) {
-      currentInterval = acc.apply(currentInterval, f.apply(timer));
+  /** Returns the largest value that belongs to the bucket. */
+  @VisibleForTesting
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
     }
-    return currentInterval;
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return lowerBound + (width - 1);
   }
 
   /*
@@ -97,10 +99,12 @@ public class TimerPool {
    * (up to the current time). If no timer was started, this method returns 0.
    */
   public TimeSpan getSumTime() {
-    cleanupReferences();
-    synchronized (activeTimers) {
-      return export(sumTime + eval(t -> convert(t.getSumTime()), Math::addExact));
+    long now = System.nanoTime();
+    long sum = sumTime.sum();
+    for (TimerWrapper timer : runningTimers) {
+      sum = Math.addExact(sum, timer.getCurrentTime(now));
     }
+    return export(sum);
   }
 
   /**
@@ -108,10 +112,12 @@ public class TimerPool {
    * counted (up to the current time). If no timer was started, this method returns 0.
    */
   public TimeSpan getMaxTime() {
-    cleanupReferences();
-    synchronized (activeTimers) {
-      return export(Math.max(maxTime, eval(t -> convert(t.getMaxTime()), Math::max)));
+    long now = System.nanoTime();
+    long max = maxTime.get();
+    for (TimerWrapper timer : runningTimers) {
+      max = Math.max(max, timer.getCurrentTime(now));
     }
+    return export(max);
   }
 
   /**
@@ -119,36 +125,85 @@ public class TimerPool {
    * If no timer was started, this method returns 0.
    */
   public int getNumberOfIntervals() {
-    cleanupReferences();
-    synchronized (activeTimers) {
-      return (int) (numberOfIntervals + eval(t -> (long) t.getNumberOfIntervals(), Math::addExact));
+    return Math.toIntExact(numberOfIntervals.sum() + runningTimers.size());
+  }
+
+  /**
+   * Return the time that is not exceeded by the given fraction of all finished intervals, e.g., the
+   * median for 0.5. The result is an upper bound of the exact percentile with a relative error of
+   * at most 1/{@value #SUB_BUCKETS}, but never larger than the maximal time. If no interval was
+   * finished, this method returns 0.
+   *
+   * @param pPercentile a value between 0 and 1
+   */
+  public TimeSpan getPercentile(double pPercentile) {
+    checkArgument(
+        0 <= pPercentile && pPercentile <= 1, "percentile %s is not in [0,1]", pPercentile);
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = histogram.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return export(0);
     }
+    long rank = Math.max(1, (long) Math.ceil(pPercentile * total));
+    long seen = 0;
+    int index = 0;
+    while (index < BUCKETS - 1) {
+      seen += counts[index];
+      if (seen >= rank) {
+        break;
+      }
+      index++;
+    }
+    return export(Math.min(bucketUpperBound(index), maxTime.get()));
   }
 
-  private TimeSpan export(long time) {
-    return TimeSpan.of(time, UNIT);
+  private static TimeSpan export(long time) {
+    return TimeSpan.ofNanos(time);
   }
 
   @Override
   public String toString() {
-    cleanupReferences();
     return getSumTime().formatAs(TimeUnit.SECONDS);
   }
 
-  /** A minimal wrapper to keep a reference on the timer and provide a limited view. */
+  /**
+   * A minimal timer that reports its intervals to the pool. A single timer must not be used by
+   * several threads at the same time, but each thread can use its own timer of the same pool.
+   */
   public static class TimerWrapper {
-    private final Timer timer;
+    private final TimerPool pool;
 
-    TimerWrapper(Timer pTimer) {
-      timer = pTimer;
+    /** The start of the current interval, only valid while the timer is running. */
+    private volatile long startTime;
+
+    /** A timer can be used by several threads one after another, e.g., by a shared prover. */
+    private volatile boolean running = false;
+
+    TimerWrapper(TimerPool pPool) {
+      pool = pPool;
     }
 
     public void start() {
-      timer.start();
+      checkState(!running, "timer already running");
+      running = true;
+      startTime = System.nanoTime();
+      pool.runningTimers.add(this);
     }
 
     public void stop() {
-      timer.stop();
+      checkState(running, "timer not running");
+      long time = System.nanoTime() - startTime;
+      pool.runningTimers.remove(this);
+      running = false;
+      pool.record(Math.max(0, time));
+    }
+
+    private long getCurrentTime(long now) {
+      return Math.max(0, now - startTime);
     }
   }
 }
@@ -0,0 +1,126 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.statistics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import org.junit.Test;
+
+public class TimerPoolTest {
+
+  private static final ImmutableList<Long> VALUES =
+      ImmutableList.of(
+          0L,
+          1L,
+          7L,
+          8L,
+          9L,
+          15L,
+          16L,
+          17L,
+          1000L,
+          1L << 40,
+          (1L << 40) - 1,
+          (1L << 40) + 1,
+          1L << 62,
+          (1L << 62) - 1,
+          Long.MAX_VALUE - (1L << 59),
+          Long.MAX_VALUE - 1,
+          Long.MAX_VALUE);
+
+  @Test
+  public void testBucketBounds() {
+    for (long value : VALUES) {
+      int index = TimerPool.bucketIndex(value);
+      long upperBound = TimerPool.bucketUpperBound(index);
+      assertThat(upperBound).isAtLeast(value);
+      // relative error of at most 1/8
+      assertThat(upperBound - value).isAtMost(value / 8);
+      assertThat(TimerPool.bucketIndex(upperBound)).isEqualTo(index);
+      if (upperBound < Long.MAX_VALUE) {
+        assertThat(TimerPool.bucketIndex(upperBound + 1)).isEqualTo(index + 1);
+      }
+    }
+  }
+
+  @Test
+  public void testLastBucket() {
+    int index = TimerPool.bucketIndex(Long.MAX_VALUE);
+    assertThat(TimerPool.bucketUpperBound(index)).isEqualTo(Long.MAX_VALUE);
+    assertThat(TimerPool.bucketIndex(Long.MAX_VALUE - 1)).isEqualTo(index);
+  }
+
+  @Test
+  public void testBucketsAreConsecutive() {
+    long lowerBound = 0;
+    for (int index = 0; index <= TimerPool.bucketIndex(Long.MAX_VALUE); index++) {
+      assertThat(TimerPool.bucketIndex(lowerBound)).isEqualTo(index);
+      long upperBound = TimerPool.bucketUpperBound(index);
+      assertThat(upperBound).isAtLeast(lowerBound);
+      lowerBound = upperBound + 1;
+    }
+    // the last bucket ends with the largest value
+    assertThat(lowerBound).isEqualTo(Long.MIN_VALUE);
+  }
+
+  @Test
+  public void testPercentileWithoutIntervals() {
+    TimerPool pool = new TimerPool();
+    assertThat(pool.getPercentile(0.5).asNanos()).isEqualTo(0L);
+  }
+
+  @Test
+  public void testPercentile() {
+    TimerPool pool = new TimerPool();
+    for (long time = 1; time <= 100; time++) {
+      pool.record(time);
+    }
+    assertThat(pool.getPercentile(0).asNanos()).isEqualTo(1L);
+    assertThat(pool.getPercentile(0.5).asNanos()).isIn(Range.closed(50L, 56L));
+    assertThat(pool.getPercentile(0.9).asNanos()).isIn(Range.closed(90L, 100L));
+    // never larger than the maximal time
+    assertThat(pool.getPercentile(1).asNanos()).isEqualTo(100L);
+    assertThat(pool.getNumberOfIntervals()).isEqualTo(100);
+  }
+
+  @Test
+  public void testPercentileOfLargeValues() {
+    TimerPool pool = new TimerPool();
+    pool.record(1);
+    pool.record(Long.MAX_VALUE - 1);
+    pool.record(Long.MAX_VALUE);
+    assertThat(pool.getPercentile(0.3).asNanos()).isEqualTo(1L);
+    assertThat(pool.getPercentile(0.5).asNanos()).isEqualTo(Long.MAX_VALUE);
+    assertThat(pool.getPercentile(1).asNanos()).isEqualTo(Long.MAX_VALUE);
+    assertThat(pool.getMaxTime().asNanos()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testInvalidPercentile() {
+    TimerPool pool = new TimerPool();
+    assertThrows(IllegalArgumentException.class, () -> pool.getPercentile(-0.1));
+    assertThrows(IllegalArgumentException.class, () -> pool.getPercentile(1.5));
+  }
+
+  @Test
+  public void testTimerStartAndStop() {
+    TimerPool pool = new TimerPool();
+    TimerPool.TimerWrapper timer = pool.getNewTimer();
+    timer.start();
+    assertThat(pool.getNumberOfIntervals()).isEqualTo(1);
+    assertThrows(IllegalStateException.class, timer::start);
+    timer.stop();
+    assertThrows(IllegalStateException.class, timer::stop);
+    assertThat(pool.getNumberOfIntervals()).isEqualTo(1);
+    assertThat(pool.getPercentile(1)).isEqualTo(pool.getMaxTime());
+  }
+}
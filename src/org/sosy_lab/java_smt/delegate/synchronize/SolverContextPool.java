@@ -0,0 +1,208 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.delegate.synchronize;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.java_smt.api.SolverContext;
+
+/**
+ * A bounded pool of solver contexts that are used for provers in separate contexts.
+ *
+ * <p>A context is leased for the lifetime of one prover and returned when the prover is closed.
+ * Returned contexts are kept for further provers until they are unused for longer than the idle
+ * timeout. If the maximum number of contexts is in use, leasing blocks until a context is returned
+ * or a shutdown is requested. Thus, a thread that leases a second context while it holds the only
+ * one is only stopped by a shutdown request or by an interrupt.
+ */
+final class SolverContextPool implements AutoCloseable {
+
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  private final Supplier<SolverContext> factory;
+  private final ShutdownNotifier shutdownNotifier;
+  private final int prewarmedContexts;
+  private final long idleTimeoutNanos;
+
+  /** Limits the number of leased contexts, or null if the pool is unbounded. */
+  private final @Nullable Semaphore permits;
+
+  /** Idle contexts, the most recently returned context is the first element. */
+  private final Deque<IdleContext> idle = new ArrayDeque<>();
+
+  private boolean prewarmed = false;
+  private boolean closed = false;
+
+  private int leases = 0;
+  private int waits = 0;
+  private int creations = 0;
+  private int evictions = 0;
+
+  /**
+   * @param pFactory creates new contexts, called at most once per context in the pool.
+   * @param pMaxSize maximum number of contexts in use at the same time, zero for no limit.
+   * @param pPrewarmedContexts number of contexts that are created when the first context is leased.
+   * @param pIdleTimeoutNanos idle contexts are closed after this time.
+   * @param pShutdownNotifier stops waiting for a context.
+   */
+  SolverContextPool(
+      Supplier<SolverContext> pFactory,
+      int pMaxSize,
+      int pPrewarmedContexts,
+      long pIdleTimeoutNanos,
+      ShutdownNotifier pShutdownNotifier) {
+    checkArgument(pMaxSize >= 0, "pool size must not be negative");
+    checkArgument(pPrewarmedContexts >= 0, "number of prewarmed contexts must not be negative");
+    checkArgument(pIdleTimeoutNanos >= 0, "idle timeout must not be negative");
+    factory = checkNotNull(pFactory);
+    permits = pMaxSize == 0 ? null : new Semaphore(pMaxSize, true);
+    prewarmedContexts = pMaxSize == 0 ? pPrewarmedContexts : Math.min(pMaxSize, pPrewarmedContexts);
+    idleTimeoutNanos = pIdleTimeoutNanos;
+    shutdownNotifier = checkNotNull(pShutdownNotifier);
+  }
+
+  /**
+   * Get a context for exclusive use, either a previously returned one or a new one. The context has
+   * to be given back with {@link #release}.
+   *
+   * <p>If the maximum number of contexts is in use, this method waits until a context is returned,
+   * the thread is interrupted, or a shutdown is requested. New contexts are created without holding
+   * the lock of the pool, such that other threads can return their contexts in the meantime.
+   */
+  SolverContext lease() throws InterruptedException {
+    if (permits != null && !permits.tryAcquire()) {
+      synchronized (this) {
+        waits++;
+      }
+      // poll, such that a shutdown request is noticed although nobody interrupts this thread
+      while (!permits.tryAcquire(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+        shutdownNotifier.shutdownIfNecessary();
+      }
+    }
+    try {
+      prewarmIfNecessary();
+      @Nullable SolverContext context = pollIdleContext();
+      return context != null ? context : factory.get();
+    } catch (RuntimeException | Error e) {
+      if (permits != null) {
+        permits.release();
+      }
+      throw e;
+    }
+  }
+
+  private void prewarmIfNecessary() {
+    synchronized (this) {
+      if (prewarmed) {
+        return;
+      }
+      prewarmed = true;
+      creations += prewarmedContexts;
+    }
+    for (int i = 0; i < prewarmedContexts; i++) {
+      addIdleContext(factory.get());
+    }
+  }
+
+  /** Get the most recently returned idle context, or null if a new one needs to be created. */
+  private @Nullable SolverContext pollIdleContext() {
+    List<SolverContext> evicted;
+    IdleContext context;
+    synchronized (this) {
+      checkState(!closed, "pool of solver contexts is already closed");
+      leases++;
+      evicted = evictIdleContexts();
+      context = idle.pollFirst();
+      if (context == null) {
+        creations++;
+      }
+    }
+    evicted.forEach(SolverContext::close);
+    return context == null ? null : context.context;
+  }
+
+  /** Give back a context that was retrieved via {@link #lease}. */
+  void release(SolverContext pContext) {
+    addIdleContext(checkNotNull(pContext));
+    if (permits != null) {
+      permits.release();
+    }
+  }
+
+  private void addIdleContext(SolverContext pContext) {
+    List<SolverContext> unused;
+    synchronized (this) {
+      if (closed) {
+        unused = ImmutableList.of(pContext);
+      } else {
+        unused = evictIdleContexts();
+        idle.addFirst(new IdleContext(pContext, System.nanoTime()));
+      }
+    }
+    // closing a context can take some time, thus it is done without holding the lock
+    unused.forEach(SolverContext::close);
+  }
+
+  /** Remove all contexts that were idle for longer than the timeout, they need to be closed. */
+  private List<SolverContext> evictIdleContexts() {
+    assert Thread.holdsLock(this);
+    List<SolverContext> evicted = new ArrayList<>();
+    long now = System.nanoTime();
+    while (!idle.isEmpty() && now - idle.peekLast().since > idleTimeoutNanos) {
+      evictions++;
+      evicted.add(idle.pollLast().context);
+    }
+    return evicted;
+  }
+
+  synchronized ImmutableMap<String, String> getStatistics() {
+    return ImmutableMap.of(
+        "leases", Integer.toString(leases),
+        "waits", Integer.toString(waits),
+        "creations", Integer.toString(creations),
+        "evictions", Integer.toString(evictions),
+        "idle", Integer.toString(idle.size()));
+  }
+
+  /** Close all idle contexts. Contexts that are still in use are closed when they are returned. */
+  @Override
+  public void close() {
+    List<SolverContext> unused = new ArrayList<>();
+    synchronized (this) {
+      closed = true;
+      while (!idle.isEmpty()) {
+        unused.add(idle.pollFirst().context);
+      }
+    }
+    unused.forEach(SolverContext::close);
+  }
+
+  private static final class IdleContext {
+    private final SolverContext context;
+    private final long since;
+
+    IdleContext(SolverContext pContext, long pSince) {
+      context = pContext;
+      since = pSince;
+    }
+  }
+}
@@ -89,6 +89,13 @@ class SynchronizedBasicProverEnvironment<T> implements BasicProverEnvironment<T>
     }
   }
 
+  @Override
+  public int[] getUnsatCoreIndices() {
+    synchronized (sync) {
+      return delegate.getUnsatCoreIndices();
+    }
+  }
+
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
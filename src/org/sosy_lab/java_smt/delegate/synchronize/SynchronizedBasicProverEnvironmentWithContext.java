@@ -22,31 +22,45 @@ import org.sosy_lab.java_smt.api.FormulaManager;
 import org.sosy_lab.java_smt.api.Model;
 import org.sosy_lab.java_smt.api.SolverContext;
 import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.utils.FormulaTranslator;
+import org.sosy_lab.java_smt.utils.SolverUtils;
 
 class SynchronizedBasicProverEnvironmentWithContext<T> implements BasicProverEnvironment<T> {
 
   private final BasicProverEnvironment<T> delegate;
-  final FormulaManager manager;
-  final FormulaManager otherManager;
   final SolverContext sync;
 
+  /** The separate context of the delegate, it is returned to the pool when closing the prover. */
+  private final SolverContext otherContext;
+
+  private final SolverContextPool contextPool;
+  private boolean closed = false;
+
+  /** Translators for both directions, they keep a cache of already translated subterms. */
+  final FormulaTranslator toOther;
+
+  final FormulaTranslator fromOther;
+
   SynchronizedBasicProverEnvironmentWithContext(
       BasicProverEnvironment<T> pDelegate,
       SolverContext pSync,
       FormulaManager pManager,
-      FormulaManager pOtherManager) {
+      SolverContext pOtherContext,
+      SolverContextPool pContextPool) {
     delegate = checkNotNull(pDelegate);
     sync = checkNotNull(pSync);
-    manager = checkNotNull(pManager);
-    otherManager = checkNotNull(pOtherManager);
+    otherContext = checkNotNull(pOtherContext);
+    contextPool = checkNotNull(pContextPool);
+    FormulaManager otherManager = otherContext.getFormulaManager();
+    toOther = SolverUtils.formulaTranslator(pManager, otherManager);
+    fromOther = SolverUtils.formulaTranslator(otherManager, pManager);
   }
 
-  List<BooleanFormula> translate(
-      Collection<BooleanFormula> fs, FormulaManager from, FormulaManager to) {
+  List<BooleanFormula> translate(Collection<BooleanFormula> fs, FormulaTranslator translator) {
     ImmutableList.Builder<BooleanFormula> result = ImmutableList.builder();
     synchronized (sync) {
       for (BooleanFormula f : fs) {
-        result.add(to.translateFrom(f, from));
+        result.add(translator.translate(f));
       }
     }
     return result.build();
@@ -61,7 +75,7 @@ class SynchronizedBasicProverEnvironmentWithContext<T> implements BasicProverEnv
   public @Nullable T addConstraint(BooleanFormula pConstraint) throws InterruptedException {
     BooleanFormula constraint;
     synchronized (sync) {
-      constraint = otherManager.translateFrom(pConstraint, manager);
+      constraint = toOther.translate(pConstraint);
     }
     return delegate.addConstraint(constraint);
   }
@@ -86,29 +100,35 @@ class SynchronizedBasicProverEnvironmentWithContext<T> implements BasicProverEnv
   @Override
   public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
       throws SolverException, InterruptedException {
-    return delegate.isUnsatWithAssumptions(translate(pAssumptions, manager, otherManager));
+    return delegate.isUnsatWithAssumptions(translate(pAssumptions, toOther));
   }
 
   @SuppressWarnings("resource")
   @Override
   public Model getModel() throws SolverException {
     synchronized (sync) {
-      return new SynchronizedModelWithContext(delegate.getModel(), sync, manager, otherManager);
+      return new SynchronizedModelWithContext(delegate.getModel(), sync, toOther);
     }
   }
 
   @Override
   public List<BooleanFormula> getUnsatCore() {
-    return translate(delegate.getUnsatCore(), otherManager, manager);
+    return translate(delegate.getUnsatCore(), fromOther);
+  }
+
+  @Override
+  public int[] getUnsatCoreIndices() {
+    // the constraints have the same positions in the other context
+    return delegate.getUnsatCoreIndices();
   }
 
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> pAssumptions) throws SolverException, InterruptedException {
     Optional<List<BooleanFormula>> core =
-        delegate.unsatCoreOverAssumptions(translate(pAssumptions, manager, otherManager));
+        delegate.unsatCoreOverAssumptions(translate(pAssumptions, toOther));
     if (core.isPresent()) {
-      return Optional.of(translate(core.orElseThrow(), otherManager, manager));
+      return Optional.of(translate(core.orElseThrow(), fromOther));
     } else {
       return Optional.empty();
     }
@@ -124,8 +144,13 @@ class SynchronizedBasicProverEnvironmentWithContext<T> implements BasicProverEnv
   @Override
   public void close() {
     synchronized (sync) {
+      if (closed) {
+        return;
+      }
+      closed = true;
       delegate.close();
     }
+    contextPool.release(otherContext);
   }
 
   @Override
@@ -133,7 +158,7 @@ class SynchronizedBasicProverEnvironmentWithContext<T> implements BasicProverEnv
       throws InterruptedException, SolverException {
     AllSatCallback<R> callback = new AllSatCallbackWithContext<>(pCallback);
     synchronized (sync) {
-      return delegate.allSat(callback, translate(pImportant, manager, otherManager));
+      return delegate.allSat(callback, translate(pImportant, toOther));
     }
   }
 
@@ -147,7 +172,7 @@ class SynchronizedBasicProverEnvironmentWithContext<T> implements BasicProverEnv
 
     @Override
     public void apply(List<BooleanFormula> pModel) {
-      delegateCallback.apply(translate(pModel, otherManager, manager));
+      delegateCallback.apply(translate(pModel, fromOther));
     }
 
     @Override
@@ -227,6 +227,14 @@ class SynchronizedFormulaManager implements FormulaManager {
     }
   }
 
+  @Override
+  public <T extends Formula> List<T> substitute(
+      T pF, List<? extends Map<? extends Formula, ? extends Formula>> pFromToMappings) {
+    synchronized (sync) {
+      return delegate.substitute(pF, pFromToMappings);
+    }
+  }
+
   @Override
   public BooleanFormula translateFrom(BooleanFormula pFormula, FormulaManager pOtherContext) {
     synchronized (sync) {
@@ -28,21 +28,25 @@ class SynchronizedInterpolatingProverEnvironmentWithContext<T>
       InterpolatingProverEnvironment<T> pDelegate,
       SolverContext pSync,
       FormulaManager pManager,
-      FormulaManager pOtherManager) {
-    super(pDelegate, pSync, pManager, pOtherManager);
+      SolverContext pOtherContext,
+      SolverContextPool pContextPool) {
+    super(pDelegate, pSync, pManager, pOtherContext, pContextPool);
     delegate = checkNotNull(pDelegate);
   }
 
   @Override
   public BooleanFormula getInterpolant(Collection<T> pFormulasOfA)
       throws SolverException, InterruptedException {
-    return manager.translateFrom(delegate.getInterpolant(pFormulasOfA), otherManager);
+    BooleanFormula interpolant = delegate.getInterpolant(pFormulasOfA);
+    synchronized (sync) {
+      return fromOther.translate(interpolant);
+    }
   }
 
   @Override
   public List<BooleanFormula> getSeqInterpolants(List<? extends Collection<T>> pPartitionedFormulas)
       throws SolverException, InterruptedException {
-    return translate(delegate.getSeqInterpolants(pPartitionedFormulas), otherManager, manager);
+    return translate(delegate.getSeqInterpolants(pPartitionedFormulas), fromOther);
   }
 
   @Override
@@ -50,6 +54,6 @@ class SynchronizedInterpolatingProverEnvironmentWithContext<T>
       List<? extends Collection<T>> pPartitionedFormulas, int[] pStartOfSubTree)
       throws SolverException, InterruptedException {
     return translate(
-        delegate.getTreeInterpolants(pPartitionedFormulas, pStartOfSubTree), otherManager, manager);
+        delegate.getTreeInterpolants(pPartitionedFormulas, pStartOfSubTree), fromOther);
   }
 }
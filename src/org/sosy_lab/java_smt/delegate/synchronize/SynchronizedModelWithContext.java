@@ -12,17 +12,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.collect.ImmutableList;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.rationals.Rational;
 import org.sosy_lab.java_smt.api.BitvectorFormula;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.Formula;
-import org.sosy_lab.java_smt.api.FormulaManager;
 import org.sosy_lab.java_smt.api.Model;
 import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
 import org.sosy_lab.java_smt.api.NumeralFormula.RationalFormula;
 import org.sosy_lab.java_smt.api.SolverContext;
 import org.sosy_lab.java_smt.api.StringFormula;
+import org.sosy_lab.java_smt.utils.FormulaTranslator;
 
 class SynchronizedModelWithContext implements Model {
 
@@ -31,15 +33,12 @@ class SynchronizedModelWithContext implements Model {
 
   private final Model delegate;
   private final SolverContext sync;
-  private final FormulaManager manager;
-  private final FormulaManager otherManager;
+  private final FormulaTranslator toOther;
 
-  SynchronizedModelWithContext(
-      Model pDelegate, SolverContext pSync, FormulaManager pManager, FormulaManager pOtherManager) {
+  SynchronizedModelWithContext(Model pDelegate, SolverContext pSync, FormulaTranslator pToOther) {
     delegate = checkNotNull(pDelegate);
     sync = checkNotNull(pSync);
-    manager = checkNotNull(pManager);
-    otherManager = checkNotNull(pOtherManager);
+    toOther = checkNotNull(pToOther);
   }
 
   @Override
@@ -66,11 +65,26 @@ class SynchronizedModelWithContext implements Model {
   public @Nullable Boolean evaluate(BooleanFormula pF) {
     BooleanFormula f;
     synchronized (sync) {
-      f = otherManager.translateFrom(pF, manager);
+      f = toOther.translate(pF);
     }
     return delegate.evaluate(f);
   }
 
+  /**
+   * Translates all formulas into the context of the prover and evaluates them there. Formulas that
+   * can not be translated cause an {@link UnsupportedOperationException}.
+   */
+  @Override
+  public List<@Nullable Object> evaluateAll(List<? extends Formula> pFormulas) {
+    List<Formula> formulas = new ArrayList<>(pFormulas.size());
+    synchronized (sync) {
+      for (Formula formula : pFormulas) {
+        formulas.add(toOther.translate(formula));
+      }
+    }
+    return delegate.evaluateAll(formulas);
+  }
+
   @Override
   public @Nullable BigInteger evaluate(BitvectorFormula pF) {
     throw new UnsupportedOperationException(UNSUPPORTED_OPERATION);
@@ -19,7 +19,8 @@ class SynchronizedProverEnvironmentWithContext
       ProverEnvironment pDelegate,
       SolverContext pSync,
       FormulaManager pManager,
-      FormulaManager pOtherManager) {
-    super(pDelegate, pSync, pManager, pOtherManager);
+      SolverContext pOtherContext,
+      SolverContextPool pContextPool) {
+    super(pDelegate, pSync, pManager, pOtherContext, pContextPool);
   }
 }
@@ -12,12 +12,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import java.util.concurrent.TimeUnit;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.Configuration;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.configuration.TimeSpanOption;
 import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.time.TimeSpan;
 import org.sosy_lab.java_smt.SolverContextFactory;
 import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.FormulaManager;
@@ -36,11 +39,33 @@ public class SynchronizedSolverContext implements SolverContext {
               + "This allows more parallelity when solving larger queries.")
   private boolean useSeperateProvers = false;
 
+  @Option(
+      secure = true,
+      description =
+          "Maximum number of seperate contexts that are used by provers at the same time. "
+              + "Creating a new prover waits until a context is available. "
+              + "The value 0 disables the limit.")
+  private int contextPoolSize = 0;
+
+  @Option(
+      secure = true,
+      description =
+          "Number of seperate contexts that are created in advance "
+              + "when the first prover with a seperate context is requested.")
+  private int prewarmedContexts = 0;
+
+  @Option(
+      secure = true,
+      description = "Close seperate contexts that were not used by any prover for this time.")
+  @TimeSpanOption(codeUnit = TimeUnit.MILLISECONDS, defaultUserUnit = TimeUnit.SECONDS, min = 0)
+  private TimeSpan contextIdleTimeout = TimeSpan.ofSeconds(60);
+
   private final SolverContext delegate;
   private final SolverContext sync;
   private final Configuration config;
   private final LogManager logger;
   private final ShutdownNotifier shutdownNotifier;
+  private final SolverContextPool contextPool;
 
   public SynchronizedSolverContext(
       Configuration pConfig,
@@ -54,6 +79,17 @@ public class SynchronizedSolverContext implements SolverContext {
     config = pConfig;
     logger = pLogger;
     shutdownNotifier = pShutdownNotifier;
+    if (contextPoolSize < 0 || prewarmedContexts < 0) {
+      throw new InvalidConfigurationException(
+          "Size of the context pool and number of prewarmed contexts must not be negative.");
+    }
+    contextPool =
+        new SolverContextPool(
+            this::createOtherContext,
+            contextPoolSize,
+            prewarmedContexts,
+            contextIdleTimeout.asNanos(),
+            shutdownNotifier);
   }
 
   @SuppressWarnings("resource")
@@ -72,6 +108,15 @@ public class SynchronizedSolverContext implements SolverContext {
     return ((SynchronizedSolverContext) otherContext).delegate;
   }
 
+  private SolverContext leaseOtherContext() {
+    try {
+      return contextPool.lease();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for a seperate context", e);
+    }
+  }
+
   @Override
   public FormulaManager getFormulaManager() {
     return new SynchronizedFormulaManager(delegate.getFormulaManager(), delegate);
@@ -80,15 +125,25 @@ public class SynchronizedSolverContext implements SolverContext {
   @SuppressWarnings("resource")
   @Override
   public ProverEnvironment newProverEnvironment(ProverOptions... pOptions) {
-    synchronized (sync) {
-      if (useSeperateProvers) {
-        SolverContext otherContext = createOtherContext();
-        return new SynchronizedProverEnvironmentWithContext(
-            otherContext.newProverEnvironment(pOptions),
-            sync,
-            delegate.getFormulaManager(),
-            otherContext.getFormulaManager());
-      } else {
+    if (useSeperateProvers) {
+      // leasing might block until another prover releases its context, thus no lock here.
+      SolverContext otherContext = leaseOtherContext();
+      try {
+        synchronized (sync) {
+          return new SynchronizedProverEnvironmentWithContext(
+              otherContext.newProverEnvironment(pOptions),
+              sync,
+              delegate.getFormulaManager(),
+              otherContext,
+              contextPool);
+        }
+      } catch (RuntimeException | Error e) {
+        // the prover does not exist and will never release the leased context
+        contextPool.release(otherContext);
+        throw e;
+      }
+    } else {
+      synchronized (sync) {
         return new SynchronizedProverEnvironment(delegate.newProverEnvironment(pOptions), delegate);
       }
     }
@@ -98,15 +153,25 @@ public class SynchronizedSolverContext implements SolverContext {
   @Override
   public InterpolatingProverEnvironment<?> newProverEnvironmentWithInterpolation(
       ProverOptions... pOptions) {
-    synchronized (sync) {
-      if (useSeperateProvers) {
-        SolverContext otherContext = createOtherContext();
-        return new SynchronizedInterpolatingProverEnvironmentWithContext<>(
-            otherContext.newProverEnvironmentWithInterpolation(pOptions),
-            sync,
-            delegate.getFormulaManager(),
-            otherContext.getFormulaManager());
-      } else {
+    if (useSeperateProvers) {
+      // leasing might block until another prover releases its context, thus no lock here.
+      SolverContext otherContext = leaseOtherContext();
+      try {
+        synchronized (sync) {
+          return new SynchronizedInterpolatingProverEnvironmentWithContext<>(
+              otherContext.newProverEnvironmentWithInterpolation(pOptions),
+              sync,
+              delegate.getFormulaManager(),
+              otherContext,
+              contextPool);
+        }
+      } catch (RuntimeException | Error e) {
+        // the prover does not exist and will never release the leased context
+        contextPool.release(otherContext);
+        throw e;
+      }
+    } else {
+      synchronized (sync) {
         return new SynchronizedInterpolatingProverEnvironment<>(
             delegate.newProverEnvironmentWithInterpolation(pOptions), delegate);
       }
@@ -140,13 +205,24 @@ public class SynchronizedSolverContext implements SolverContext {
 
   @Override
   public ImmutableMap<String, String> getStatistics() {
+    ImmutableMap<String, String> statistics;
     synchronized (sync) {
-      return delegate.getStatistics();
+      statistics = delegate.getStatistics();
+    }
+    if (!useSeperateProvers) {
+      return statistics;
     }
+    ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    builder.putAll(statistics);
+    contextPool
+        .getStatistics()
+        .forEach((key, value) -> builder.put("synchronized.contextPool." + key, value));
+    return builder.buildOrThrow();
   }
 
   @Override
   public void close() {
+    contextPool.close();
     synchronized (sync) {
       delegate.close();
     }
@@ -9,10 +9,13 @@
 package org.sosy_lab.java_smt.solvers.boolector;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -37,6 +40,13 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
   private final BoolectorFormulaManager manager;
   private final BoolectorFormulaCreator creator;
   protected final Deque<List<Long>> assertedFormulas = new ArrayDeque<>();
+
+  /**
+   * Names of the variables, arrays and UFs in the asserted formulas of each level, parallel to
+   * {@link #assertedFormulas}. They are only extended by new assertions when a model is listed.
+   */
+  private final Deque<VariableNames> variableNames = new ArrayDeque<>();
+
   protected boolean wasLastSatCheckSat = false; // and stack is not changed
   private final TerminationCallback terminationCallback;
   private final long terminationCallbackHelper;
@@ -74,6 +84,7 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
       // remove the whole stack, including the initial level from the constructor call.
       BtorJNI.boolector_pop(manager.getEnvironment(), assertedFormulas.size());
       assertedFormulas.clear();
+      variableNames.clear();
       // You can't use delete here because you wouldn't be able to access model
       // Wait till we have visitor/toList, after that we can delete here
       // BtorJNI.boolector_delete(btor);
@@ -113,6 +124,7 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
     Preconditions.checkState(!closed);
     Preconditions.checkState(size() > 0);
     assertedFormulas.pop();
+    variableNames.pop();
     BtorJNI.boolector_pop(manager.getEnvironment(), 1);
   }
 
@@ -120,6 +132,7 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
   public void push() {
     Preconditions.checkState(!closed);
     assertedFormulas.push(new ArrayList<>());
+    variableNames.push(new VariableNames());
     BtorJNI.boolector_push(manager.getEnvironment(), 1);
   }
 
@@ -161,7 +174,7 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
 
   @Override
   protected Model getModelWithoutChecks() {
-    return new BoolectorModel(btor, creator, this, getAssertedTerms());
+    return new BoolectorModel(btor, creator, this);
   }
 
   @Override
@@ -173,12 +186,38 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
     return null;
   }
 
-  protected Collection<Long> getAssertedTerms() {
-    List<Long> result = new ArrayList<>();
-    assertedFormulas.forEach(result::addAll);
+  @Override
+  protected List<BooleanFormula> getAssertedConstraints() {
+    Preconditions.checkState(!closed);
+    List<BooleanFormula> result = new ArrayList<>();
+    // the deque contains the topmost level first
+    assertedFormulas
+        .descendingIterator()
+        .forEachRemaining(level -> level.forEach(t -> result.add(creator.encapsulateBoolean(t))));
     return result;
   }
 
+  /**
+   * Returns the names of all variables, arrays and UFs in the asserted formulas. Only the formulas
+   * asserted since the last call are scanned, the names of older formulas are cached per level.
+   */
+  ImmutableSet<String> getVariableNames() {
+    Preconditions.checkState(!closed);
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    Iterator<List<Long>> levels = assertedFormulas.iterator();
+    for (VariableNames names : variableNames) {
+      List<Long> terms = levels.next();
+      for (; names.scannedTerms < terms.size(); names.scannedTerms++) {
+        BoolectorModel.collectVariableNames(
+            BtorJNI.boolector_help_dump_node_smt2(btor, terms.get(names.scannedTerms)),
+            creator,
+            names.names);
+      }
+      result.addAll(names.names);
+    }
+    return result.build();
+  }
+
   /**
    * Simply returns true if the prover is closed. False otherwise.
    *
@@ -188,6 +227,11 @@ abstract class BoolectorAbstractProver<T> extends AbstractProverWithAllSat<T> {
     return closed;
   }
 
+  private static final class VariableNames {
+    private final Set<String> names = new LinkedHashSet<>();
+    private int scannedTerms = 0;
+  }
+
   private long addTerminationCallback() {
     Preconditions.checkState(!closed, "solver context is already closed");
     return BtorJNI.boolector_set_termination(btor, terminationCallback);
@@ -33,6 +33,8 @@ import org.sosy_lab.java_smt.api.FunctionDeclarationKind;
 import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 import org.sosy_lab.java_smt.basicimpl.FormulaCreator;
 import org.sosy_lab.java_smt.basicimpl.FunctionDeclarationImpl;
+import org.sosy_lab.java_smt.basicimpl.LongTermMap;
+import org.sosy_lab.java_smt.basicimpl.NativeTermMap;
 import org.sosy_lab.java_smt.solvers.boolector.BoolectorFormula.BoolectorArrayFormula;
 import org.sosy_lab.java_smt.solvers.boolector.BoolectorFormula.BoolectorBitvectorFormula;
 import org.sosy_lab.java_smt.solvers.boolector.BoolectorFormula.BoolectorBooleanFormula;
@@ -419,4 +421,9 @@ public class BoolectorFormulaCreator extends FormulaCreator<Long, Long, Long, Lo
       ArrayFormula<TI, TE> pArray) {
     return ((BoolectorArrayFormula<TI, TE>) pArray).getIndexType();
   }
+
+  @Override
+  protected <V> NativeTermMap<Long, V> newTermMap() {
+    return new LongTermMap<>(f -> ((BoolectorFormula) f).getTerm());
+  }
 }
@@ -38,6 +38,13 @@ final class BoolectorFormulaManager extends AbstractFormulaManager<Long, Long, L
         null);
   }
 
+  @Override
+  protected BooleanFormula applyQELightImpl(BooleanFormula pF) throws InterruptedException {
+    // The generic implementation requires a visitor.
+    // Returning the untouched formula is valid according to QE_LIGHT contract.
+    return pF;
+  }
+
   @Override
   public BooleanFormula parse(String pS) throws IllegalArgumentException {
     throw new UnsupportedOperationException("Boolector can not parse single formulas.");
@@ -13,11 +13,8 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.sosy_lab.java_smt.basicimpl.AbstractModel.CachingAbstractModel;
 
 class BoolectorModel extends CachingAbstractModel<Long, Long, Long> {
@@ -89,18 +86,11 @@ class BoolectorModel extends CachingAbstractModel<Long, Long, Long> {
   private final BoolectorFormulaCreator bfCreator;
   private boolean closed = false;
 
-  private final ImmutableList<Long> assertedTerms;
-
-  BoolectorModel(
-      long btor,
-      BoolectorFormulaCreator creator,
-      BoolectorAbstractProver<?> pProver,
-      Collection<Long> assertedTerms) {
+  BoolectorModel(long btor, BoolectorFormulaCreator creator, BoolectorAbstractProver<?> pProver) {
     super(creator);
     this.bfCreator = creator;
     this.btor = btor;
     this.prover = pProver;
-    this.assertedTerms = ImmutableList.copyOf(assertedTerms);
   }
 
   @Override
@@ -112,16 +102,22 @@ class BoolectorModel extends CachingAbstractModel<Long, Long, Long> {
     }
   }
 
+  @Override
+  protected ImmutableList<ValueAssignment> toList() {
+    Preconditions.checkState(!closed);
+    Preconditions.checkState(!prover.isClosed(), "cannot use model after prover is closed");
+    // Use String instead of the node (long) as we need the name again later!
+    return toList1(prover.getVariableNames());
+  }
+
   /* (non-Javadoc)
+  * Boolector provides no access to the children of a node, thus we search the SMTLIB2 dump of
+  * an asserted term for variables/ufs/arrays and gather them by using the vars cache.
+  *
   * Escape characters are used if the string contains i.e. spaces or ( ).
   * If one wants to use |, one needs an escape char, either | or \
-
-  * Get String representation for each asserted term
-  * Search each string for variables/ufs/arrays and gather them by using the vars cache
-
-  * Split of () at the beginning and end, get substrings by spaces if no | is present, get
-  * substrings encasing | | without escape chars else then by spacing
-  * (\|.+?\|(?<!\\\|))|
+  * A name within | | ends at the first | without escape char, other names end at a space or
+  * bracket. The dump is scanned once from left to right.
 
   * It might be that Boolector uses "BTOR_1@varname" or BTORanyNumber@ (their own BTOR format)
   * for some reason as an escape for vars! We set the proper option that it should always
@@ -134,62 +130,72 @@ class BoolectorModel extends CachingAbstractModel<Long, Long, Long> {
   * Further, it might be that Boolector returns the variable name with its own escape added, so
   * we have to strip this if it occurs
   */
-  @Override
-  protected ImmutableList<ValueAssignment> toList() {
-    Preconditions.checkState(!closed);
-    Preconditions.checkState(!prover.isClosed(), "cannot use model after prover is closed");
-    // Use String instead of the node (long) as we need the name again later!
-    ImmutableSet.Builder<String> variablesBuilder = ImmutableSet.builder();
-
-    for (long term : assertedTerms) {
-      String termString = BtorJNI.boolector_help_dump_node_smt2(btor, term);
-
-      List<String> escapedList = new ArrayList<>();
-      // Matches all escaped names
-      Pattern pattern = Pattern.compile("(\\|.+?\\|(?<!\\\\\\|))");
-      Matcher matcher = pattern.matcher(termString);
-
-      while (matcher.find()) {
-        escapedList.add(matcher.group());
-      }
-      // Now remove all escaped strings from the term string as it allows
-      // special characters/keywords
-      String inputReplaced = termString;
-      for (String escaped : escapedList) {
-        inputReplaced = inputReplaced.replace(escaped, "");
-      }
-      // Delete brackets, but keep the spaces, then split on spaces into substrings
-      inputReplaced = inputReplaced.replace("(", " ").replace(")", " ");
-      Iterable<String> maybeVars = Splitter.onPattern("\\s+").split(inputReplaced);
-      // maybeVars may include a lot of unnecessary Strings, including SMT keywords or empty
-      // strings. However, removing them would just increase runtime with no benefit as we check
-      // them against the variables cache.
-      // TODO: decide if its benefitial to code cleanness and structure to handle the strings
-      // proper, or else remove the SMT_KEYWORDS
-
-      // Strings in maybeVars may not have SMTLIB2 keywords
-      for (String var : maybeVars) {
-        // Strip Boolector escape sequence (BTOR_number@; example: BTOR_1@)
-        // It seems like that if the escape seq is used as a name, there will be an escape seq
-        // before it. Always only removing the first should be fine
-        String varReplaced = var.replaceFirst("^(BTOR_\\d+@)", "");
-
-        if (!SMT_KEYWORDS.contains(varReplaced) && bfCreator.formulaCacheContains(varReplaced)) {
-          variablesBuilder.add(varReplaced);
+  static void collectVariableNames(
+      String termString, BoolectorFormulaCreator creator, Set<String> variables) {
+    final int length = termString.length();
+    int pos = 0;
+    while (pos < length) {
+      char c = termString.charAt(pos);
+      if (c == '(' || c == ')' || Character.isWhitespace(c)) {
+        pos++;
+      } else if (c == '|') {
+        int end = findClosingBar(termString, pos + 1);
+        if (end < 0) {
+          // no escaped name, continue with the next token
+          pos++;
+          continue;
+        }
+        // escaped Strings may have SMTLIB2 keywords in them
+        String var = stripBoolectorEscape(termString.substring(pos + 1, end));
+        if (creator.formulaCacheContains(var)) {
+          variables.add(var);
         }
+        pos = end + 1;
+      } else {
+        int end = pos + 1;
+        while (end < length && !isDelimiter(termString.charAt(end))) {
+          end++;
+        }
+        // Strings outside of | | may be SMTLIB2 keywords
+        String var = stripBoolectorEscape(termString.substring(pos, end));
+        if (!SMT_KEYWORDS.contains(var) && creator.formulaCacheContains(var)) {
+          variables.add(var);
+        }
+        pos = end;
       }
-      // escaped Strings may have SMTLIB2 keywords in them
-      for (String var : escapedList) {
-        // Get rid of the sourrounding | and strip Boolector escape sequence (BTOR_number@; example:
-        // BTOR_1@) if present
-        String varSubs = var.substring(1, var.length() - 1).replaceFirst("^(BTOR_\\d+@)", "");
+    }
+  }
 
-        if (bfCreator.formulaCacheContains(varSubs)) {
-          variablesBuilder.add(varSubs);
-        }
+  /** Returns the position of the next | without escape char within the line, or -1. */
+  private static int findClosingBar(String termString, int start) {
+    for (int pos = start; pos < termString.length(); pos++) {
+      char c = termString.charAt(pos);
+      if (c == '\n' || c == '\r') {
+        return -1;
+      } else if (c == '|' && pos > start && termString.charAt(pos - 1) != '\\') {
+        return pos;
       }
     }
-    return toList1(variablesBuilder.build());
+    return -1;
+  }
+
+  private static boolean isDelimiter(char c) {
+    return c == '(' || c == ')' || c == '|' || Character.isWhitespace(c);
+  }
+
+  /** Strip the Boolector escape sequence (BTOR_number@; example: BTOR_1@), if present. */
+  private static String stripBoolectorEscape(String name) {
+    if (!name.startsWith("BTOR_")) {
+      return name;
+    }
+    int pos = "BTOR_".length();
+    while (pos < name.length() && Character.isDigit(name.charAt(pos))) {
+      pos++;
+    }
+    if (pos > "BTOR_".length() && pos < name.length() && name.charAt(pos) == '@') {
+      return name.substring(pos + 1);
+    }
+    return name;
   }
 
   private ImmutableList<ValueAssignment> toList1(Set<String> variables) {
@@ -220,6 +220,11 @@ public final class BoolectorSolverContext extends AbstractSolverContext {
     return true;
   }
 
+  @Override
+  protected boolean supportsMinimizedAllSatModels() {
+    return true;
+  }
+
   /** set basic options for running Boolector. */
   private static void setOptions(
       Configuration config, PathCounterTemplate solverLogfile, long randomSeed, long btor)
@@ -17,6 +17,9 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.FloatingPointRoundingMode;
@@ -29,29 +32,52 @@ import org.sosy_lab.java_smt.basicimpl.AbstractSolverContext;
 
 public final class CVC4SolverContext extends AbstractSolverContext {
 
+  @Options(prefix = "solver.cvc4")
+  private static class CVC4Settings {
+
+    @Option(
+        secure = true,
+        description =
+            "Let all provers share the ExprManager of the context, instead of copying each"
+                + " asserted expression into a separate ExprManager per prover. Solver options"
+                + " are then no longer separated between provers.")
+    private boolean sharedExprManager = false;
+
+    private CVC4Settings(org.sosy_lab.common.configuration.Configuration config)
+        throws InvalidConfigurationException {
+      config.inject(this);
+    }
+  }
+
   // creator is final, except after closing, then null.
   private CVC4FormulaCreator creator;
   private final ShutdownNotifier shutdownNotifier;
   private final int randomSeed;
+  private final CVC4Settings settings;
 
   private CVC4SolverContext(
       CVC4FormulaCreator creator,
       CVC4FormulaManager manager,
       ShutdownNotifier pShutdownNotifier,
-      int pRandomSeed) {
+      int pRandomSeed,
+      CVC4Settings pSettings) {
     super(manager);
     this.creator = creator;
     shutdownNotifier = pShutdownNotifier;
     randomSeed = pRandomSeed;
+    settings = pSettings;
   }
 
   public static SolverContext create(
+      org.sosy_lab.common.configuration.Configuration config,
       LogManager pLogger,
       ShutdownNotifier pShutdownNotifier,
       int randomSeed,
       NonLinearArithmetic pNonLinearArithmetic,
       FloatingPointRoundingMode pFloatingPointRoundingMode,
-      Consumer<String> pLoader) {
+      Consumer<String> pLoader)
+      throws InvalidConfigurationException {
+    CVC4Settings settings = new CVC4Settings(config);
 
     pLoader.accept("cvc4jni");
 
@@ -106,7 +132,7 @@ public final class CVC4SolverContext extends AbstractSolverContext {
             slTheory,
             strTheory);
 
-    return new CVC4SolverContext(creator, manager, pShutdownNotifier, randomSeed);
+    return new CVC4SolverContext(creator, manager, pShutdownNotifier, randomSeed, settings);
   }
 
   @Override
@@ -134,7 +160,8 @@ public final class CVC4SolverContext extends AbstractSolverContext {
         shutdownNotifier,
         randomSeed,
         pOptions,
-        getFormulaManager().getBooleanFormulaManager());
+        getFormulaManager().getBooleanFormulaManager(),
+        settings.sharedExprManager);
   }
 
   @Override
@@ -142,6 +169,11 @@ public final class CVC4SolverContext extends AbstractSolverContext {
     return false;
   }
 
+  @Override
+  protected boolean supportsMinimizedAllSatModels() {
+    return true;
+  }
+
   @Override
   protected InterpolatingProverEnvironment<?> newProverEnvironmentWithInterpolation0(
       Set<ProverOptions> pSet) {
@@ -56,51 +56,73 @@ class CVC4TheoremProver extends AbstractProverWithAllSat<Void>
    * The local exprManager allows to set options per Prover (and not globally). See <a
    * href="https://github.com/CVC4/CVC4/issues/3055">Issue 3055</a> for details.
    *
-   * <p>TODO If the overhead of importing/exporting the expressions is too expensive, we can disable
-   * this behavior. This change would cost us the flexibility of setting options per Prover.
+   * <p>If the overhead of importing/exporting the expressions is too expensive, the provers can
+   * share the exprManager of the context. This costs us the flexibility of setting options per
+   * Prover.
    */
-  private final ExprManager exprManager = new ExprManager();
+  private final ExprManager exprManager;
 
-  /** We copy expression between different ExprManagers. The map serves as cache. */
-  private final ExprManagerMapCollection exportMapping = new ExprManagerMapCollection();
+  /**
+   * We copy expression between different ExprManagers. The map serves as cache. It is null if the
+   * exprManager is shared with the context.
+   */
+  private final @Nullable ExprManagerMapCollection exportMapping;
 
   // CVC4 does not support separation logic in incremental mode.
   private final boolean incremental;
 
+  private final int randomSeed;
+  private final Set<ProverOptions> options;
+
   protected CVC4TheoremProver(
       CVC4FormulaCreator pFormulaCreator,
       ShutdownNotifier pShutdownNotifier,
-      int randomSeed,
+      int pRandomSeed,
       Set<ProverOptions> pOptions,
-      BooleanFormulaManager pBmgr) {
+      BooleanFormulaManager pBmgr,
+      boolean pSharedExprManager) {
     super(pOptions, pBmgr, pShutdownNotifier);
 
     creator = pFormulaCreator;
-    smtEngine = new SmtEngine(exprManager);
+    if (pSharedExprManager) {
+      exprManager = creator.getEnv();
+      exportMapping = null;
+    } else {
+      exprManager = new ExprManager();
+      exportMapping = new ExprManagerMapCollection();
+    }
+    randomSeed = pRandomSeed;
+    options = pOptions;
     incremental = !enableSL;
     assertedFormulas.push(new ArrayList<>()); // create initial level
 
-    setOptions(randomSeed, pOptions);
+    smtEngine = newSmtEngine();
+  }
+
+  private SmtEngine newSmtEngine() {
+    SmtEngine engine = new SmtEngine(exprManager);
+    setOptions(engine, randomSeed, options);
+    return engine;
   }
 
-  private void setOptions(int randomSeed, Set<ProverOptions> pOptions) {
-    smtEngine.setOption("incremental", new SExpr(incremental));
+  private void setOptions(SmtEngine engine, int pRandomSeed, Set<ProverOptions> pOptions) {
+    engine.setOption("incremental", new SExpr(incremental));
     if (pOptions.contains(ProverOptions.GENERATE_MODELS)) {
-      smtEngine.setOption("produce-models", new SExpr(true));
+      engine.setOption("produce-models", new SExpr(true));
     }
     if (pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE)) {
-      smtEngine.setOption("produce-unsat-cores", new SExpr(true));
+      engine.setOption("produce-unsat-cores", new SExpr(true));
     }
-    smtEngine.setOption("produce-assertions", new SExpr(true));
-    smtEngine.setOption("dump-models", new SExpr(true));
-    // smtEngine.setOption("produce-unsat-cores", new SExpr(true));
-    smtEngine.setOption("output-language", new SExpr("smt2"));
-    smtEngine.setOption("random-seed", new SExpr(randomSeed));
+    engine.setOption("produce-assertions", new SExpr(true));
+    engine.setOption("dump-models", new SExpr(true));
+    // engine.setOption("produce-unsat-cores", new SExpr(true));
+    engine.setOption("output-language", new SExpr("smt2"));
+    engine.setOption("random-seed", new SExpr(pRandomSeed));
     // Set Strings option to enable all String features (such as lessOrEquals)
-    smtEngine.setOption("strings-exp", new SExpr(true));
+    engine.setOption("strings-exp", new SExpr(true));
     // Enable more complete quantifier solving (for more information see
     // CVC4QuantifiedFormulaManager)
-    smtEngine.setOption("full-saturate-quant", new SExpr(true));
+    engine.setOption("full-saturate-quant", new SExpr(true));
   }
 
   protected void setOptionForIncremental() {
@@ -109,12 +131,12 @@ class CVC4TheoremProver extends AbstractProverWithAllSat<Void>
 
   /** import an expression from global context into this prover's context. */
   protected Expr importExpr(Expr expr) {
-    return expr.exportTo(exprManager, exportMapping);
+    return exportMapping == null ? expr : expr.exportTo(exprManager, exportMapping);
   }
 
   /** export an expression from this prover's context into global context. */
   protected Expr exportExpr(Expr expr) {
-    return expr.exportTo(creator.getEnv(), exportMapping);
+    return exportMapping == null ? expr : expr.exportTo(creator.getEnv(), exportMapping);
   }
 
   @Override
@@ -179,10 +201,6 @@ class CVC4TheoremProver extends AbstractProverWithAllSat<Void>
     if (!changedSinceLastSatQuery) {
       changedSinceLastSatQuery = true;
       closeAllModels();
-      if (!incremental) {
-        // create a new clean smtEngine
-        smtEngine = new SmtEngine(exprManager);
-      }
     }
   }
 
@@ -214,6 +232,8 @@ class CVC4TheoremProver extends AbstractProverWithAllSat<Void>
     closeAllModels();
     changedSinceLastSatQuery = false;
     if (!incremental) {
+      // a SmtEngine can only be checked once in non-incremental mode
+      smtEngine = newSmtEngine();
       for (Expr expr : getAssertedExpressions()) {
         smtEngine.assertFormula(importExpr(expr));
       }
@@ -269,6 +289,17 @@ class CVC4TheoremProver extends AbstractProverWithAllSat<Void>
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  protected List<BooleanFormula> getAssertedConstraints() {
+    Preconditions.checkState(!closed);
+    List<BooleanFormula> result = new ArrayList<>();
+    // the deque contains the topmost level first
+    assertedFormulas
+        .descendingIterator()
+        .forEachRemaining(level -> level.forEach(e -> result.add(creator.encapsulateBoolean(e))));
+    return result;
+  }
+
   protected Collection<Expr> getAssertedExpressions() {
     List<Expr> result = new ArrayList<>();
     assertedFormulas.forEach(result::addAll);
@@ -280,9 +311,11 @@ class CVC4TheoremProver extends AbstractProverWithAllSat<Void>
     if (!closed) {
       closeAllModels();
       assertedFormulas.clear();
-      exportMapping.delete();
-      // smtEngine.delete();
-      exprManager.delete();
+      if (exportMapping != null) { // the exprManager is owned by this prover
+        exportMapping.delete();
+        // smtEngine.delete();
+        exprManager.delete();
+      }
       closed = true;
     }
   }
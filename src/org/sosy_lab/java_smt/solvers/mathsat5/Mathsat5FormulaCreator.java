@@ -127,6 +127,8 @@ import org.sosy_lab.java_smt.api.FunctionDeclarationKind;
 import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 import org.sosy_lab.java_smt.basicimpl.FormulaCreator;
 import org.sosy_lab.java_smt.basicimpl.FunctionDeclarationImpl;
+import org.sosy_lab.java_smt.basicimpl.LongTermMap;
+import org.sosy_lab.java_smt.basicimpl.NativeTermMap;
 import org.sosy_lab.java_smt.solvers.mathsat5.Mathsat5Formula.Mathsat5ArrayFormula;
 import org.sosy_lab.java_smt.solvers.mathsat5.Mathsat5Formula.Mathsat5BitvectorFormula;
 import org.sosy_lab.java_smt.solvers.mathsat5.Mathsat5Formula.Mathsat5BooleanFormula;
@@ -589,4 +591,9 @@ class Mathsat5FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
   protected Long getBooleanVarDeclarationImpl(Long pLong) {
     return msat_term_get_decl(pLong);
   }
+
+  @Override
+  protected <V> NativeTermMap<Long, V> newTermMap() {
+    return new LongTermMap<>(f -> ((Mathsat5Formula) f).getTerm());
+  }
 }
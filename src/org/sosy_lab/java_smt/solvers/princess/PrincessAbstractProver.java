@@ -20,18 +20,23 @@ import ap.parser.IFormula;
 import ap.parser.IFunction;
 import ap.parser.ITerm;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.FluentIterable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
 import org.sosy_lab.java_smt.api.SolverException;
 import org.sosy_lab.java_smt.basicimpl.AbstractProverWithAllSat;
+import org.sosy_lab.java_smt.basicimpl.ParallelAllSat;
 import scala.Enumeration.Value;
 
 @SuppressWarnings("ClassTypeParameterName")
@@ -42,6 +47,9 @@ abstract class PrincessAbstractProver<E, AF> extends AbstractProverWithAllSat<E>
   protected final Deque<List<AF>> assertedFormulas = new ArrayDeque<>(); // all terms on all levels
   private final Deque<Level> trackingStack = new ArrayDeque<>(); // symbols on all levels
 
+  /** Symbols declared in the API, only tracked with lazy symbol declaration. */
+  private final @Nullable Set<Object> declaredSymbols;
+
   private final PrincessFormulaCreator creator;
   protected boolean wasLastSatCheckSat = false; // and stack is not changed
 
@@ -50,11 +58,16 @@ abstract class PrincessAbstractProver<E, AF> extends AbstractProverWithAllSat<E>
       PrincessFormulaCreator creator,
       SimpleAPI pApi,
       ShutdownNotifier pShutdownNotifier,
-      Set<ProverOptions> pOptions) {
-    super(pOptions, pMgr.getBooleanFormulaManager(), pShutdownNotifier);
+      Set<ProverOptions> pOptions,
+      ParallelAllSat pParallelAllSat) {
+    super(pOptions, pMgr, pShutdownNotifier, pParallelAllSat);
     this.mgr = pMgr;
     this.creator = creator;
     this.api = checkNotNull(pApi);
+    declaredSymbols =
+        creator.getEnv().useLazySymbolDeclaration()
+            ? Collections.newSetFromMap(new IdentityHashMap<>())
+            : null;
 
     assertedFormulas.push(new ArrayList<>());
     trackingStack.push(new Level(0));
@@ -85,6 +98,9 @@ abstract class PrincessAbstractProver<E, AF> extends AbstractProverWithAllSat<E>
   protected void addConstraint0(IFormula t) {
     Preconditions.checkState(!closed);
     wasLastSatCheckSat = false;
+    if (declaredSymbols != null) {
+      creator.getEnv().forEachSymbol(t, this::declareSymbol);
+    }
     api.addAssertion(api.abbrevSharedExpressions(t, creator.getEnv().getMinAtomsForAbbreviation()));
   }
 
@@ -118,8 +134,15 @@ abstract class PrincessAbstractProver<E, AF> extends AbstractProverWithAllSat<E>
     assertedFormulas.pop();
     api.pop();
 
-    // we have to recreate symbols on lower levels, because JavaSMT assumes "global" symbols.
     Level level = trackingStack.pop();
+    if (declaredSymbols != null) {
+      // the symbols of this level are declared again when they are used.
+      declaredSymbols.removeAll(level.booleanSymbols);
+      declaredSymbols.removeAll(level.intSymbols);
+      declaredSymbols.removeAll(level.functionSymbols);
+      return;
+    }
+    // we have to recreate symbols on lower levels, because JavaSMT assumes "global" symbols.
     api.addBooleanVariables(asScala(level.booleanSymbols));
     api.addConstants(asScala(level.intSymbols));
     level.functionSymbols.forEach(api::addFunction);
@@ -187,6 +210,13 @@ abstract class PrincessAbstractProver<E, AF> extends AbstractProverWithAllSat<E>
 
   protected abstract Iterable<IExpression> getAssertedFormulas();
 
+  @Override
+  protected List<BooleanFormula> getAssertedConstraints() {
+    return FluentIterable.from(getAssertedFormulas())
+        .transform(mgr::encapsulateBooleanFormula)
+        .toList();
+  }
+
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> assumptions) {
@@ -214,6 +244,19 @@ abstract class PrincessAbstractProver<E, AF> extends AbstractProverWithAllSat<E>
     return result;
   }
 
+  /** declare a symbol from the environment, unless it is already declared in this prover. */
+  private void declareSymbol(Object symbol) {
+    if (declaredSymbols.add(symbol)) {
+      if (symbol instanceof IFormula) {
+        addSymbol((IFormula) symbol);
+      } else if (symbol instanceof ITerm) {
+        addSymbol((ITerm) symbol);
+      } else {
+        addSymbol((IFunction) symbol);
+      }
+    }
+  }
+
   /** add external definition: boolean variable. */
   void addSymbol(IFormula f) {
     Preconditions.checkState(!closed);
@@ -50,9 +50,11 @@ import java.io.StringReader;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +62,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.function.Consumer;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.Appender;
 import org.sosy_lab.common.Appenders;
@@ -70,9 +73,12 @@ import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.io.PathCounterTemplate;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.FormulaType;
 import org.sosy_lab.java_smt.api.FormulaType.ArrayFormulaType;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.basicimpl.ParallelAllSat;
 import scala.Tuple2;
 import scala.Tuple4;
 import scala.collection.immutable.Seq;
@@ -102,6 +108,20 @@ class PrincessEnvironment {
   public static final Sort BOOL_SORT = Sort$.MODULE$.Bool();
   public static final Sort INTEGER_SORT = Sort.Integer$.MODULE$;
 
+  @Option(
+      secure = true,
+      description =
+          "Implement solving with assumptions by selector literals that are reused across "
+              + "checks, instead of pushing one stack level per assumption.")
+  private boolean assumptionsWithSelectors = false;
+
+  @Option(
+      secure = true,
+      description =
+          "Declare symbols in a prover only when they occur in a formula asserted to it, "
+              + "instead of declaring all known symbols in every new prover.")
+  private boolean lazySymbolDeclaration = false;
+
   @Option(secure = true, description = "log all queries as Princess-specific Scala code")
   private boolean logAllQueriesAsScala = false;
 
@@ -123,6 +143,7 @@ class PrincessEnvironment {
   private final int randomSeed;
   private final @Nullable PathCounterTemplate basicLogfile;
   private final ShutdownNotifier shutdownNotifier;
+  private final ParallelAllSat parallelAllSat;
 
   /**
    * The wrapped API is the first created API. It will never be used outside this class and never be
@@ -136,10 +157,12 @@ class PrincessEnvironment {
   PrincessEnvironment(
       Configuration config,
       @Nullable final PathCounterTemplate pBasicLogfile,
+      LogManager pLogger,
       ShutdownNotifier pShutdownNotifier,
       final int pRandomSeed)
       throws InvalidConfigurationException {
     config.inject(this);
+    parallelAllSat = new ParallelAllSat(config, pLogger, pShutdownNotifier, Solvers.PRINCESS);
 
     basicLogfile = pBasicLogfile;
     shutdownNotifier = pShutdownNotifier;
@@ -162,16 +185,22 @@ class PrincessEnvironment {
     SimpleAPI newApi =
         getNewApi(useForInterpolation || pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE));
 
-    // add all symbols, that are available until now
-    boolVariablesCache.values().forEach(newApi::addBooleanVariable);
-    sortedVariablesCache.values().forEach(newApi::addConstant);
-    functionsCache.values().forEach(newApi::addFunction);
+    if (!lazySymbolDeclaration) {
+      // add all symbols, that are available until now
+      boolVariablesCache.values().forEach(newApi::addBooleanVariable);
+      sortedVariablesCache.values().forEach(newApi::addConstant);
+      functionsCache.values().forEach(newApi::addFunction);
+    }
 
     PrincessAbstractProver<?, ?> prover;
     if (useForInterpolation) {
-      prover = new PrincessInterpolatingProver(mgr, creator, newApi, shutdownNotifier, pOptions);
+      prover =
+          new PrincessInterpolatingProver(
+              mgr, creator, newApi, shutdownNotifier, pOptions, parallelAllSat);
     } else {
-      prover = new PrincessTheoremProver(mgr, creator, newApi, shutdownNotifier, pOptions);
+      prover =
+          new PrincessTheoremProver(
+              mgr, creator, newApi, shutdownNotifier, pOptions, parallelAllSat);
     }
     registeredProvers.add(prover);
     return prover;
@@ -233,6 +262,52 @@ class PrincessEnvironment {
     return minAtomsForAbbreviation;
   }
 
+  boolean useSelectorsForAssumptions() {
+    return assumptionsWithSelectors;
+  }
+
+  boolean useLazySymbolDeclaration() {
+    return lazySymbolDeclaration;
+  }
+
+  /**
+   * Call the consumer once for each symbol of this environment that occurs in the given expression,
+   * i.e., for Boolean variables ({@link IFormula}), constants ({@link ITerm}) and uninterpreted
+   * functions ({@link IFunction}). Shared subexpressions are visited only once.
+   */
+  void forEachSymbol(IExpression expr, Consumer<Object> consumer) {
+    Set<IExpression> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<IExpression> waitlist = new ArrayDeque<>();
+    waitlist.push(expr);
+    while (!waitlist.isEmpty()) {
+      IExpression e = waitlist.pop();
+      if (!visited.add(e)) {
+        continue;
+      }
+      if (e instanceof IConstant) {
+        ConstantTerm c = ((IConstant) e).c();
+        ITerm symbol = sortedVariablesCache.get(c.name());
+        if (symbol instanceof IConstant && ((IConstant) symbol).c() == c) {
+          consumer.accept(symbol);
+        }
+      } else if (e instanceof IAtom && ((IAtom) e).args().isEmpty()) {
+        Predicate pred = ((IAtom) e).pred();
+        IFormula symbol = boolVariablesCache.get(pred.name());
+        if (symbol instanceof IAtom && ((IAtom) symbol).pred() == pred) {
+          consumer.accept(symbol);
+        }
+      } else if (e instanceof IFunApp) {
+        IFunction fun = ((IFunApp) e).fun();
+        if (functionsCache.get(fun.name()) == fun) {
+          consumer.accept(fun);
+        }
+      }
+      for (int i = 0; i < e.length(); i++) {
+        waitlist.push(e.apply(i));
+      }
+    }
+  }
+
   void unregisterStack(PrincessAbstractProver<?, ?> stack) {
     Preconditions.checkState(
         registeredProvers.contains(stack), "cannot unregister stack, it is not registered");
@@ -244,6 +319,7 @@ class PrincessEnvironment {
     for (PrincessAbstractProver<?, ?> prover : ImmutableList.copyOf(registeredProvers)) {
       prover.close();
     }
+    parallelAllSat.close();
     api.shutDown();
     api.reset();
     Preconditions.checkState(registeredProvers.isEmpty());
@@ -621,18 +697,27 @@ class PrincessEnvironment {
   }
 
   private void addSymbol(IFormula symbol) {
+    if (lazySymbolDeclaration) {
+      return; // provers declare the symbol on first use
+    }
     for (PrincessAbstractProver<?, ?> prover : registeredProvers) {
       prover.addSymbol(symbol);
     }
   }
 
   private void addSymbol(ITerm symbol) {
+    if (lazySymbolDeclaration) {
+      return; // provers declare the symbol on first use
+    }
     for (PrincessAbstractProver<?, ?> prover : registeredProvers) {
       prover.addSymbol(symbol);
     }
   }
 
   private void addFunction(IFunction funcDecl) {
+    if (lazySymbolDeclaration) {
+      return; // provers declare the symbol on first use
+    }
     for (PrincessAbstractProver<?, ?> prover : registeredProvers) {
       prover.addSymbol(funcDecl);
     }
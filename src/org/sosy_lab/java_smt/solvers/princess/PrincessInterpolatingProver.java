@@ -36,6 +36,7 @@ import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.InterpolatingProverEnvironment;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
 import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.basicimpl.ParallelAllSat;
 import scala.collection.Seq;
 import scala.collection.mutable.ArrayBuffer;
 
@@ -50,8 +51,9 @@ class PrincessInterpolatingProver extends PrincessAbstractProver<Integer, Intege
       PrincessFormulaCreator creator,
       SimpleAPI pApi,
       ShutdownNotifier pShutdownNotifier,
-      Set<ProverOptions> pOptions) {
-    super(pMgr, creator, pApi, pShutdownNotifier, pOptions);
+      Set<ProverOptions> pOptions,
+      ParallelAllSat pParallelAllSat) {
+    super(pMgr, creator, pApi, pShutdownNotifier, pOptions, pParallelAllSat);
   }
 
   @Override
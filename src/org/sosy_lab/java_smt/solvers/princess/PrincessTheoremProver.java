@@ -12,6 +12,7 @@ import ap.SimpleAPI;
 import ap.parser.IExpression;
 import ap.parser.IFormula;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -19,6 +20,7 @@ import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.ProverEnvironment;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.basicimpl.ParallelAllSat;
 
 class PrincessTheoremProver extends PrincessAbstractProver<Void, IExpression>
     implements ProverEnvironment {
@@ -28,8 +30,9 @@ class PrincessTheoremProver extends PrincessAbstractProver<Void, IExpression>
       PrincessFormulaCreator creator,
       SimpleAPI pApi,
       ShutdownNotifier pShutdownNotifier,
-      Set<ProverOptions> pOptions) {
-    super(pMgr, creator, pApi, pShutdownNotifier, pOptions);
+      Set<ProverOptions> pOptions,
+      ParallelAllSat pParallelAllSat) {
+    super(pMgr, creator, pApi, pShutdownNotifier, pOptions, pParallelAllSat);
   }
 
   @Override
@@ -47,6 +50,7 @@ class PrincessTheoremProver extends PrincessAbstractProver<Void, IExpression>
 
   @Override
   protected Iterable<IExpression> getAssertedFormulas() {
-    return Iterables.concat(assertedFormulas);
+    // from the bottom of the stack, in the order of the partition numbers of the formulas
+    return Iterables.concat(ImmutableList.copyOf(assertedFormulas.descendingIterator()));
   }
 }
@@ -11,7 +11,9 @@ package org.sosy_lab.java_smt.solvers.smtinterpol;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import de.uni_freiburg.informatik.ultimate.logic.Annotation;
+import de.uni_freiburg.informatik.ultimate.logic.ApplicationTerm;
 import de.uni_freiburg.informatik.ultimate.logic.FunctionSymbol;
 import de.uni_freiburg.informatik.ultimate.logic.Model;
 import de.uni_freiburg.informatik.ultimate.logic.ReasonUnknown;
@@ -50,10 +52,36 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
   protected final Map<String, Term> annotatedTerms = new HashMap<>(); // Collection of termNames
   protected final ShutdownNotifier shutdownNotifier;
 
+  /**
+   * Every assumption that is not a Boolean constant is represented by a selector constant that
+   * implies it. The implication is asserted once on the current level and the selector is reused
+   * until this level is popped.
+   */
+  private final Map<Term, Term> selectorsByAssumption = new HashMap<>();
+
+  /** Assumptions whose selector was introduced on each level, parallel to assertedFormulas. */
+  private final Deque<List<Term>> selectorAssumptionsPerLevel = new ArrayDeque<>();
+
+  /**
+   * Whether the frame with the assumption literals of the last check is still open, such that a
+   * model or unsat core can be queried. It is closed by the next operation on the stack.
+   */
+  private boolean assumptionFrameOpen = false;
+
+  /** Assumptions of the open frame by the term of their name, as returned in unsat cores. */
+  private final Map<Term, Term> assumptionsByName = new HashMap<>();
+
+  /** Assumptions of the open frame, their symbols are part of the model. */
+  private final List<Term> openAssumptions = new ArrayList<>();
+
   private static final String PREFIX = "term_"; // for termnames
   private static final UniqueIdGenerator termIdGenerator =
       new UniqueIdGenerator(); // for different termnames
 
+  private static final String SELECTOR_PREFIX = "__ASSUMPTION_SELECTOR_";
+  private static final String ASSUMPTION_PREFIX = "assumption_";
+  private static final UniqueIdGenerator selectorIdGenerator = new UniqueIdGenerator();
+
   SmtInterpolAbstractProver(
       SmtInterpolFormulaManager pMgr,
       Script pEnv,
@@ -65,6 +93,7 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
     env = pEnv;
     shutdownNotifier = pShutdownNotifier;
     assertedFormulas.push(new ArrayList<>());
+    selectorAssumptionsPerLevel.push(new ArrayList<>());
   }
 
   protected boolean isClosed() {
@@ -80,28 +109,37 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
   @Override
   public void push() {
     checkState(!closed);
+    closeAssumptionFrame();
     assertedFormulas.push(new ArrayList<>());
+    selectorAssumptionsPerLevel.push(new ArrayList<>());
     env.push(1);
   }
 
   @Override
   public void pop() {
     checkState(!closed);
+    closeAssumptionFrame();
     assertedFormulas.pop();
+    for (Term assumption : selectorAssumptionsPerLevel.pop()) {
+      selectorsByAssumption.remove(assumption);
+    }
     env.pop(1);
   }
 
   @Override
   public boolean isUnsat() throws InterruptedException {
     checkState(!closed);
+    closeAssumptionFrame();
 
     // We actually terminate SmtInterpol during the analysis
     // by using a shutdown listener. However, SmtInterpol resets the
     // mStopEngine flag in DPLLEngine before starting to solve,
     // so we check here, too.
     shutdownNotifier.shutdownIfNecessary();
+    return isUnsat(env.checkSat());
+  }
 
-    LBool result = env.checkSat();
+  private boolean isUnsat(LBool result) throws InterruptedException {
     switch (result) {
       case SAT:
         return false;
@@ -145,7 +183,8 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
         throw e;
       }
     }
-    return new SmtInterpolModel(model, creator, getAssertedTerms());
+    return new SmtInterpolModel(
+        model, creator, Iterables.concat(getAssertedTerms(), openAssumptions));
   }
 
   protected static String generateTermName() {
@@ -167,7 +206,11 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
   private List<BooleanFormula> getUnsatCore0() {
     return Collections3.transformedImmutableListCopy(
         env.getUnsatCore(),
-        input -> creator.encapsulateBoolean(annotatedTerms.get(input.toString())));
+        input -> {
+          Term assumption = assumptionsByName.get(input);
+          return creator.encapsulateBoolean(
+              assumption != null ? assumption : annotatedTerms.get(input.toString()));
+        });
   }
 
   @Override
@@ -175,22 +218,17 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
       Collection<BooleanFormula> assumptions) throws InterruptedException {
     checkState(!closed);
     checkGenerateUnsatCoresOverAssumptions();
-    push();
-    checkState(
-        annotatedTerms.isEmpty(),
-        "Empty environment required for UNSAT core over assumptions: %s",
-        annotatedTerms);
-    for (BooleanFormula assumption : assumptions) {
-      String termName = generateTermName();
-      Term t = mgr.extractInfo(assumption);
-      Term annotated = env.annotate(t, new Annotation(":named", termName));
-      annotatedTerms.put(termName, t);
-      env.assertTerm(annotated);
+    if (!isUnsatWithAssumptions(assumptions)) {
+      return Optional.empty();
     }
-    Optional<List<BooleanFormula>> result =
-        isUnsat() ? Optional.of(getUnsatCore0()) : Optional.empty();
-    pop();
-    return result;
+    List<BooleanFormula> core = new ArrayList<>();
+    for (Term name : env.getUnsatCore()) {
+      Term assumption = assumptionsByName.get(name);
+      if (assumption != null) {
+        core.add(creator.encapsulateBoolean(assumption));
+      }
+    }
+    return Optional.of(core);
   }
 
   @Override
@@ -205,15 +243,88 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
     if (!closed) {
       assertedFormulas.clear();
       annotatedTerms.clear();
+      closeAssumptionFrame();
+      selectorsByAssumption.clear();
+      selectorAssumptionsPerLevel.clear();
       env.pop(assertedFormulas.size());
       closed = true;
     }
   }
 
+  /**
+   * Check satisfiability with all assumptions in a single frame on top of the current level. The
+   * frame stays open until the next operation on the stack, such that the model or unsat core of
+   * this check remains available. We do not use check-sat-assuming, because SMTInterpol only
+   * accepts Boolean constants there and does not support interpolation over such checks.
+   */
   @Override
   public boolean isUnsatWithAssumptions(Collection<BooleanFormula> pAssumptions)
-      throws SolverException, InterruptedException {
-    throw new UnsupportedOperationException("Assumption-solving is not supported.");
+      throws InterruptedException {
+    checkState(!closed);
+    closeAssumptionFrame();
+    List<Term> literals = new ArrayList<>(pAssumptions.size());
+    for (BooleanFormula assumption : pAssumptions) {
+      literals.add(getAssumptionLiteral(mgr.extractInfo(assumption)));
+    }
+
+    env.push(1);
+    assumptionFrameOpen = true;
+    int i = 0;
+    for (BooleanFormula assumption : pAssumptions) {
+      openAssumptions.add(mgr.extractInfo(assumption));
+      Term literal = literals.get(i++);
+      if (generateUnsatCores || generateUnsatCoresOverAssumptions) {
+        // names are declared globally, thus they can not be reused for the next check
+        String name = generateAssumptionName();
+        env.assertTerm(env.annotate(literal, new Annotation(":named", name)));
+        assumptionsByName.put(env.term(name), mgr.extractInfo(assumption));
+      } else {
+        env.assertTerm(literal);
+      }
+    }
+
+    // see isUnsat()
+    shutdownNotifier.shutdownIfNecessary();
+    return isUnsat(env.checkSat());
+  }
+
+  /** Remove the assumptions of the last check from the solver. */
+  protected void closeAssumptionFrame() {
+    if (assumptionFrameOpen) {
+      assumptionFrameOpen = false;
+      assumptionsByName.clear();
+      openAssumptions.clear();
+      env.pop(1);
+    }
+  }
+
+  private static String generateAssumptionName() {
+    return ASSUMPTION_PREFIX + selectorIdGenerator.getFreshId();
+  }
+
+  /** Returns the assumption itself if it is a constant, otherwise a selector that implies it. */
+  private Term getAssumptionLiteral(Term assumption) {
+    if (isBooleanConstant(assumption)) {
+      return assumption;
+    }
+    Term selector = selectorsByAssumption.get(assumption);
+    if (selector == null) {
+      selector =
+          creator.makeVariable(
+              creator.getBoolType(), SELECTOR_PREFIX + selectorIdGenerator.getFreshId());
+      env.assertTerm(env.term("=>", selector, assumption));
+      selectorsByAssumption.put(assumption, selector);
+      selectorAssumptionsPerLevel.peek().add(assumption);
+    }
+    return selector;
+  }
+
+  private static boolean isBooleanConstant(Term term) {
+    if (term instanceof ApplicationTerm) {
+      ApplicationTerm app = (ApplicationTerm) term;
+      return app.getParameters().length == 0 && !app.getFunction().isIntern();
+    }
+    return false;
   }
 
   @Override
@@ -221,6 +332,7 @@ abstract class SmtInterpolAbstractProver<T, AF> extends AbstractProver<T> {
       throws InterruptedException, SolverException {
     checkState(!closed);
     checkGenerateAllSat();
+    closeAssumptionFrame();
 
     Term[] importantTerms = new Term[important.size()];
     int i = 0;
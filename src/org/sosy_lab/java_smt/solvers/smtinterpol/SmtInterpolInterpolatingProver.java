@@ -49,6 +49,7 @@ class SmtInterpolInterpolatingProver extends SmtInterpolAbstractProver<String, S
   @Override
   public String addConstraint(BooleanFormula f) {
     Preconditions.checkState(!closed);
+    closeAssumptionFrame();
     String termName = generateTermName();
     Term t = mgr.extractInfo(f);
     Term annotatedTerm = env.annotate(t, new Annotation(":named", termName));
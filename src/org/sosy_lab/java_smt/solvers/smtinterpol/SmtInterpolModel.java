@@ -34,7 +34,7 @@ class SmtInterpolModel extends CachingAbstractModel<Term, Sort, Script> {
   SmtInterpolModel(
       Model pModel,
       FormulaCreator<Term, Sort, Script, ?> pCreator,
-      Collection<Term> pAssertedTerms) {
+      Iterable<Term> pAssertedTerms) {
     super(pCreator);
     model = pModel;
     env = pCreator.getEnv();
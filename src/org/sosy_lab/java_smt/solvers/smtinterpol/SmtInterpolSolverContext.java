@@ -61,6 +61,15 @@ public final class SmtInterpolSolverContext extends AbstractSolverContext {
                 + "in addition to the default options. Format is 'option1,option2,option3'")
     private List<String> furtherOptions = ImmutableList.of();
 
+    @Option(
+        secure = true,
+        description =
+            "Implement solving with assumptions by the solver-independent wrapper with "
+                + "selector literals, instead of the native implementation of SMTInterpol. "
+                + "Both reuse selector literals across checks, this option is mainly useful "
+                + "for comparing them.")
+    private boolean assumptionsWithSelectors = false;
+
     private final @Nullable PathCounterTemplate smtLogfile;
 
     private final ImmutableMap<String, Object> optionsMap;
@@ -323,8 +332,24 @@ public final class SmtInterpolSolverContext extends AbstractSolverContext {
   @Override
   public void close() {}
 
+  /**
+   * The provers of SMTInterpol implement assumptions natively, unless the option {@code
+   * assumptionsWithSelectors} explicitly requests the solver-independent wrapper (see {@link
+   * #useSelectorsForAssumptions()}).
+   */
   @Override
   protected boolean supportsAssumptionSolving() {
+    return !useSelectorsForAssumptions();
+  }
+
+  @Override
+  protected boolean supportsAssumptionSolvingWithInterpolation() {
+    // assumptions asserted by the prover would be part of the interpolation problem
     return false;
   }
+
+  @Override
+  protected boolean useSelectorsForAssumptions() {
+    return settings.assumptionsWithSelectors;
+  }
 }
@@ -37,6 +37,7 @@ class SmtInterpolTheoremProver extends SmtInterpolAbstractProver<Void, Term>
   @Nullable
   public Void addConstraint(BooleanFormula constraint) {
     Preconditions.checkState(!closed);
+    closeAssumptionFrame();
     Term t = mgr.extractInfo(constraint);
     if (generateUnsatCores) {
       String termName = generateTermName();
@@ -138,6 +138,8 @@ import org.sosy_lab.java_smt.api.FunctionDeclarationKind;
 import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 import org.sosy_lab.java_smt.basicimpl.FormulaCreator;
 import org.sosy_lab.java_smt.basicimpl.FunctionDeclarationImpl;
+import org.sosy_lab.java_smt.basicimpl.IntTermMap;
+import org.sosy_lab.java_smt.basicimpl.NativeTermMap;
 import org.sosy_lab.java_smt.solvers.yices2.Yices2Formula.Yices2BitvectorFormula;
 import org.sosy_lab.java_smt.solvers.yices2.Yices2Formula.Yices2BooleanFormula;
 import org.sosy_lab.java_smt.solvers.yices2.Yices2Formula.Yices2IntegerFormula;
@@ -746,4 +748,9 @@ public class Yices2FormulaCreator extends FormulaCreator<Integer, Integer, Long,
           "Unexpected type: " + yices_type_to_string(yices_type_of_term(pF)));
     }
   }
+
+  @Override
+  protected <V> NativeTermMap<Integer, V> newTermMap() {
+    return new IntTermMap<>(f -> ((Yices2Formula) f).getTerm());
+  }
 }
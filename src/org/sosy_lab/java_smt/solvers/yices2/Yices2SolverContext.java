@@ -123,4 +123,9 @@ public class Yices2SolverContext extends AbstractSolverContext {
   protected boolean supportsAssumptionSolving() {
     return true;
   }
+
+  @Override
+  protected boolean supportsMinimizedAllSatModels() {
+    return true;
+  }
 }
@@ -125,6 +125,17 @@ class Yices2TheoremProver extends AbstractProverWithAllSat<Void> implements Prov
     // push actions, even if Yices did not push.
   }
 
+  @Override
+  protected List<BooleanFormula> getAssertedConstraints() {
+    Preconditions.checkState(!closed);
+    List<BooleanFormula> result = new ArrayList<>();
+    // the deque contains the topmost level first
+    constraintStack
+        .descendingIterator()
+        .forEachRemaining(level -> level.forEach(t -> result.add(creator.encapsulateBoolean(t))));
+    return result;
+  }
+
   @Override
   public int size() {
     Preconditions.checkState(!closed);
@@ -0,0 +1,95 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.solvers.z3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys to non-negative int values with open addressing, which avoids boxing for
+ * lookups in the inner loops of the solver.
+ */
+final class IntToIntMap {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Value of an empty slot, and result for missing keys. */
+  static final int MISSING = -1;
+
+  private int[] keys = new int[INITIAL_CAPACITY];
+
+  private int[] values = newValues(INITIAL_CAPACITY);
+
+  private int size = 0;
+
+  private static int[] newValues(int pCapacity) {
+    int[] values = new int[pCapacity];
+    Arrays.fill(values, MISSING);
+    return values;
+  }
+
+  /** Returns the value for the key, or {@link #MISSING}. */
+  int get(int pKey) {
+    int mask = keys.length - 1;
+    for (int i = slot(pKey, mask); values[i] != MISSING; i = (i + 1) & mask) {
+      if (keys[i] == pKey) {
+        return values[i];
+      }
+    }
+    return MISSING;
+  }
+
+  void put(int pKey, int pValue) {
+    checkArgument(pValue >= 0, "value must not be negative");
+    if (2 * (size + 1) > keys.length) {
+      resize();
+    }
+    int mask = keys.length - 1;
+    int i = slot(pKey, mask);
+    while (values[i] != MISSING) {
+      if (keys[i] == pKey) {
+        values[i] = pValue;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = pKey;
+    values[i] = pValue;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private static int slot(int pKey, int mask) {
+    // AST ids are often consecutive, thus the bits need to be mixed
+    int h = pKey * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private void resize() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[2 * oldKeys.length];
+    values = newValues(2 * oldValues.length);
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != MISSING) {
+        int i = slot(oldKeys[j], mask);
+        while (values[i] != MISSING) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+}
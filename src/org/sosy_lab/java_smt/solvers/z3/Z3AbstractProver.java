@@ -14,12 +14,16 @@ import com.google.common.io.MoreFiles;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.microsoft.z3.Native;
 import com.microsoft.z3.Z3Exception;
+import com.microsoft.z3.enumerations.Z3_decl_kind;
 import com.microsoft.z3.enumerations.Z3_lbool;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +51,26 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
   private final UniqueIdGenerator trackId = new UniqueIdGenerator();
   private final @Nullable Map<String, BooleanFormula> storedConstraints;
 
+  /**
+   * Tracked constraints in the order of the assertion stack, if constraints are tracked by index.
+   * The constraint at position i is tracked by the literal {@code trackingLiterals[i]}.
+   */
+  private final @Nullable List<BooleanFormula> trackedConstraints;
+
+  /** Number of tracked constraints below each pushed level. */
+  private final Deque<Integer> trackedConstraintsPerLevel = new ArrayDeque<>();
+
+  /**
+   * Tracking literals by position. Literals above the current number of tracked constraints are no
+   * longer asserted and are reused for the next constraints at these positions.
+   */
+  private long[] trackingLiterals = new long[0];
+
+  private int numTrackingLiterals = 0;
+
+  /** Maps the AST id of a tracking literal to its position. */
+  private final IntToIntMap trackingLiteralPositions = new IntToIntMap();
+
   private final @Nullable PathCounterTemplate logfile;
 
   private final ShutdownRequestListener interruptListener;
@@ -57,7 +81,8 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
       Set<ProverOptions> pOptions,
       ImmutableMap<String, Object> pSolverOptions,
       @Nullable PathCounterTemplate pLogfile,
-      ShutdownNotifier pShutdownNotifier) {
+      ShutdownNotifier pShutdownNotifier,
+      boolean pTrackUnsatCoreByIndex) {
     super(pOptions, pMgr.getBooleanFormulaManager(), pShutdownNotifier);
     creator = pCreator;
     z3context = creator.getEnv();
@@ -65,8 +90,9 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
 
     interruptListener = reason -> Native.solverInterrupt(z3context, z3solver);
     shutdownNotifier.register(interruptListener);
-    storedConstraints =
-        pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE) ? new HashMap<>() : null;
+    boolean generateUnsatCore = pOptions.contains(ProverOptions.GENERATE_UNSAT_CORE);
+    storedConstraints = generateUnsatCore && !pTrackUnsatCoreByIndex ? new HashMap<>() : null;
+    trackedConstraints = generateUnsatCore && pTrackUnsatCoreByIndex ? new ArrayList<>() : null;
 
     logfile = pLogfile;
     mgr = pMgr;
@@ -180,7 +206,11 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
     long e = creator.extractInfo(f);
     Native.incRef(z3context, e);
     try {
-      if (storedConstraints != null) { // Unsat core generation is on.
+      if (trackedConstraints != null) { // Unsat core generation by index is on.
+        long trackingLiteral = getTrackingLiteral(trackedConstraints.size());
+        Native.solverAssertAndTrack(z3context, z3solver, e, trackingLiteral);
+        trackedConstraints.add(f);
+      } else if (storedConstraints != null) { // Unsat core generation is on.
         String varName = String.format("Z3_UNSAT_CORE_%d", trackId.getFreshId());
         BooleanFormula t = mgr.getBooleanFormulaManager().makeVariable(varName);
 
@@ -198,10 +228,32 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
     return e;
   }
 
+  /**
+   * Returns the tracking literal for the given position in the assertion stack. A literal that was
+   * used at this position before and was removed by {@link #pop} is reused, such that the number of
+   * tracking literals is bounded by the maximal number of tracked constraints at any time.
+   */
+  private long getTrackingLiteral(int position) {
+    if (position < numTrackingLiterals) {
+      return trackingLiterals[position];
+    }
+    if (numTrackingLiterals == trackingLiterals.length) {
+      trackingLiterals = Arrays.copyOf(trackingLiterals, Math.max(16, 2 * numTrackingLiterals));
+    }
+    long literal = Native.mkFreshConst(z3context, "Z3_UNSAT_CORE", creator.getBoolType());
+    Native.incRef(z3context, literal);
+    trackingLiterals[numTrackingLiterals++] = literal;
+    trackingLiteralPositions.put(Native.getAstId(z3context, literal), position);
+    return literal;
+  }
+
   @Override
   public void push() {
     Preconditions.checkState(!closed);
     Native.solverPush(z3context, z3solver);
+    if (trackedConstraints != null) {
+      trackedConstraintsPerLevel.push(trackedConstraints.size());
+    }
   }
 
   @Override
@@ -209,6 +261,10 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
     Preconditions.checkState(!closed);
     Preconditions.checkState(Native.solverGetNumScopes(z3context, z3solver) >= 1);
     Native.solverPop(z3context, z3solver, 1);
+    if (trackedConstraints != null) {
+      int remaining = trackedConstraintsPerLevel.pop();
+      trackedConstraints.subList(remaining, trackedConstraints.size()).clear();
+    }
   }
 
   @Override
@@ -221,6 +277,13 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
   public List<BooleanFormula> getUnsatCore() {
     Preconditions.checkState(!closed);
     checkGenerateUnsatCores();
+    if (trackedConstraints != null) {
+      List<BooleanFormula> constraints = new ArrayList<>();
+      for (int position : getUnsatCoreIndices()) {
+        constraints.add(trackedConstraints.get(position));
+      }
+      return constraints;
+    }
     if (storedConstraints == null) {
       throw new UnsupportedOperationException(
           "Option to generate the UNSAT core wasn't enabled when creating the prover environment.");
@@ -240,6 +303,61 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
     return constraints;
   }
 
+  /** This requires the option {@code solver.z3.trackUnsatCoreByIndex}. */
+  @Override
+  public int[] getUnsatCoreIndices() {
+    Preconditions.checkState(!closed);
+    checkGenerateUnsatCores();
+    if (trackedConstraints == null) {
+      throw new UnsupportedOperationException("Unsat core tracking by index is not enabled.");
+    }
+    long unsatCore = Native.solverGetUnsatCore(z3context, z3solver);
+    Native.astVectorIncRef(z3context, unsatCore);
+    int size = Native.astVectorSize(z3context, unsatCore);
+    int[] positions = new int[size];
+    int numPositions = 0;
+    for (int i = 0; i < size; i++) {
+      long ast = Native.astVectorGet(z3context, unsatCore, i);
+      int position = trackingLiteralPositions.get(Native.getAstId(z3context, ast));
+      if (position != IntToIntMap.MISSING) { // skip assumptions from isUnsatWithAssumptions
+        positions[numPositions++] = position;
+      }
+    }
+    Native.astVectorDecRef(z3context, unsatCore);
+    return Arrays.copyOf(positions, numPositions);
+  }
+
+  @Override
+  protected List<BooleanFormula> getAssertedConstraints() {
+    Preconditions.checkState(!closed);
+    if (trackedConstraints != null) {
+      return new ArrayList<>(trackedConstraints);
+    }
+    return encapsulateAssertions(Native.solverGetAssertions(z3context, z3solver));
+  }
+
+  /**
+   * Convert a vector of asserted ASTs into formulas. Constraints that are tracked by name for unsat
+   * cores are asserted by Z3 as implication from their tracking literal, the original constraint is
+   * returned instead.
+   */
+  protected List<BooleanFormula> encapsulateAssertions(long assertions) {
+    List<BooleanFormula> constraints = new ArrayList<>();
+    Native.astVectorIncRef(z3context, assertions);
+    for (int i = 0; i < Native.astVectorSize(z3context, assertions); i++) {
+      long ast = Native.astVectorGet(z3context, assertions, i);
+      BooleanFormula constraint = null;
+      if (storedConstraints != null
+          && Z3FormulaCreator.isOP(z3context, ast, Z3_decl_kind.Z3_OP_IMPLIES.toInt())) {
+        long trackingLiteral = Native.getAppArg(z3context, ast, 0);
+        constraint = storedConstraints.get(Native.astToString(z3context, trackingLiteral));
+      }
+      constraints.add(constraint == null ? creator.encapsulateBoolean(ast) : constraint);
+    }
+    Native.astVectorDecRef(z3context, assertions);
+    return constraints;
+  }
+
   @Override
   public Optional<List<BooleanFormula>> unsatCoreOverAssumptions(
       Collection<BooleanFormula> assumptions) throws SolverException, InterruptedException {
@@ -292,6 +410,9 @@ abstract class Z3AbstractProver<T> extends AbstractProverWithAllSat<T> {
 
       Native.solverReset(z3context, z3solver); // remove all assertions from the solver
       Native.solverDecRef(z3context, z3solver);
+      for (int i = 0; i < numTrackingLiterals; i++) {
+        Native.decRef(z3context, trackingLiterals[i]);
+      }
 
       shutdownNotifier.unregister(interruptListener);
 
@@ -0,0 +1,228 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.solvers.z3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.microsoft.z3.Native;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.time.TimeSpan;
+import org.sosy_lab.common.time.Timer;
+
+/**
+ * Releases the Z3 ASTs of formulas that are no longer reachable from Java.
+ *
+ * <p>Each registered formula gets a phantom reference that stores its AST as a primitive value and
+ * its slot in a table of live references, such that no boxing and no hash map is required. The ASTs
+ * of collected formulas are released in batches: either the reference queue is drained after a
+ * configurable number of registrations, or a single daemon thread that is shared by all contexts
+ * waits on a shared reference queue and hands the references over to their owning context, which
+ * releases them at its next registration. Z3 itself is only accessed from the owning context. The
+ * shared thread only references contexts with enqueued references, thus it does not keep contexts
+ * alive that are no longer used.
+ */
+final class Z3AstReclaimer {
+
+  private static final class AstReference extends PhantomReference<Z3Formula> {
+
+    private final long z3ast;
+    private final int slot;
+    private final Z3AstReclaimer owner;
+
+    private AstReference(
+        Z3Formula pFormula,
+        ReferenceQueue<Z3Formula> pQueue,
+        long pAst,
+        int pSlot,
+        Z3AstReclaimer pOwner) {
+      super(pFormula, pQueue);
+      z3ast = pAst;
+      slot = pSlot;
+      owner = pOwner;
+    }
+  }
+
+  /** The reference queue and daemon thread of the background mode, shared by all contexts. */
+  private static final class SharedCollector {
+
+    private static final ReferenceQueue<Z3Formula> QUEUE = new ReferenceQueue<>();
+
+    static {
+      Thread thread = new Thread(SharedCollector::collect, "Z3 AST reclaimer");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    /** Loop of the daemon thread: hand over every enqueued reference to its owning context. */
+    private static void collect() {
+      while (true) {
+        try {
+          AstReference ref = (AstReference) QUEUE.remove();
+          ref.owner.handOver(ref);
+        } catch (InterruptedException e) {
+          // nobody else uses this thread, thus we continue
+        }
+      }
+    }
+  }
+
+  private final long environment;
+
+  /** The queue of this context in synchronous mode, or the shared queue in background mode. */
+  private final ReferenceQueue<Z3Formula> referenceQueue;
+
+  /** Whether references are collected by the shared daemon thread. */
+  private final boolean collectInBackground;
+
+  /** Number of registrations (or collected references) after which the ASTs are released. */
+  private final int threshold;
+
+  /** Live references by slot, the references keep themselves reachable until they are enqueued. */
+  private @Nullable AstReference[] references = new AstReference[1024];
+
+  private int numUsedSlots = 0;
+  private int[] freeSlots = new int[64];
+  private int numFreeSlots = 0;
+
+  private int registrationsSinceCleanup = 0;
+  private long reclaimed = 0;
+  private final Timer cleanupTimer = new Timer();
+
+  /** References collected by the daemon thread, guarded by {@link #collectedLock}. */
+  private AstReference[] collected = new AstReference[64];
+
+  private int numCollected = 0;
+  private boolean closed = false;
+  private final Object collectedLock = new Object();
+
+  /** Number of references collected by the daemon thread and not yet released. */
+  private volatile int pending = 0;
+
+  Z3AstReclaimer(long pEnvironment, int pThreshold, boolean pCollectInBackground) {
+    checkArgument(pThreshold > 0, "threshold for cleanup must be positive");
+    environment = pEnvironment;
+    threshold = pThreshold;
+    collectInBackground = pCollectInBackground;
+    referenceQueue = pCollectInBackground ? SharedCollector.QUEUE : new ReferenceQueue<>();
+  }
+
+  /** Track the given formula and release its AST after the formula was garbage collected. */
+  void register(Z3Formula pFormula, long pAst) {
+    int slot = numFreeSlots > 0 ? freeSlots[--numFreeSlots] : numUsedSlots++;
+    if (slot == references.length) {
+      references = Arrays.copyOf(references, 2 * references.length);
+    }
+    references[slot] = new AstReference(pFormula, referenceQueue, pAst, slot, this);
+  }
+
+  /** Release the ASTs of collected formulas, if the threshold for a batch is reached. */
+  void cleanupIfNecessary() {
+    if (collectInBackground) {
+      if (pending >= threshold) {
+        cleanup();
+      }
+    } else if (++registrationsSinceCleanup >= threshold) {
+      cleanup();
+    }
+  }
+
+  /** Release the ASTs of all formulas that were garbage collected so far. */
+  void cleanup() {
+    cleanupTimer.start();
+    try {
+      registrationsSinceCleanup = 0;
+      if (collectInBackground) {
+        AstReference[] batch;
+        int batchSize;
+        synchronized (collectedLock) {
+          batch = collected;
+          batchSize = numCollected;
+          collected = new AstReference[Math.max(64, batchSize)];
+          numCollected = 0;
+          pending = 0;
+        }
+        for (int i = 0; i < batchSize; i++) {
+          release(batch[i]);
+        }
+      } else {
+        Reference<? extends Z3Formula> ref;
+        while ((ref = referenceQueue.poll()) != null) {
+          release((AstReference) ref);
+        }
+      }
+    } finally {
+      cleanupTimer.stop();
+    }
+  }
+
+  private void release(AstReference ref) {
+    Native.decRef(environment, ref.z3ast);
+    references[ref.slot] = null;
+    if (numFreeSlots == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlots.length);
+    }
+    freeSlots[numFreeSlots++] = ref.slot;
+    reclaimed++;
+  }
+
+  /** Called by the shared daemon thread for a reference of this context. */
+  private void handOver(AstReference ref) {
+    synchronized (collectedLock) {
+      if (closed) {
+        return; // the AST was already released by releaseAll
+      }
+      if (numCollected == collected.length) {
+        collected = Arrays.copyOf(collected, 2 * collected.length);
+      }
+      collected[numCollected++] = ref;
+      pending = numCollected;
+    }
+  }
+
+  /** Release the ASTs of all tracked formulas, even of those that are still reachable. */
+  void releaseAll() {
+    synchronized (collectedLock) {
+      closed = true;
+      collected = new AstReference[0];
+      numCollected = 0;
+      pending = 0;
+    }
+    for (int slot = 0; slot < numUsedSlots; slot++) {
+      AstReference ref = references[slot];
+      if (ref != null) {
+        Native.decRef(environment, ref.z3ast);
+        references[slot] = null;
+      }
+    }
+    numUsedSlots = 0;
+    numFreeSlots = 0;
+  }
+
+  /** Number of formulas whose AST is not yet released. */
+  int getTracked() {
+    return numUsedSlots - numFreeSlots;
+  }
+
+  /** Number of collected formulas whose AST waits for release, only known in background mode. */
+  int getPending() {
+    return pending;
+  }
+
+  long getReclaimed() {
+    return reclaimed;
+  }
+
+  TimeSpan getCleanupTime() {
+    return cleanupTimer.getSumTime();
+  }
+}
@@ -22,15 +22,12 @@ import com.microsoft.z3.enumerations.Z3_ast_kind;
 import com.microsoft.z3.enumerations.Z3_decl_kind;
 import com.microsoft.z3.enumerations.Z3_sort_kind;
 import com.microsoft.z3.enumerations.Z3_symbol_kind;
-import java.lang.ref.PhantomReference;
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.Configuration;
@@ -38,7 +35,6 @@ import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.rationals.Rational;
-import org.sosy_lab.common.time.Timer;
 import org.sosy_lab.java_smt.api.ArrayFormula;
 import org.sosy_lab.java_smt.api.BitvectorFormula;
 import org.sosy_lab.java_smt.api.BooleanFormula;
@@ -55,6 +51,8 @@ import org.sosy_lab.java_smt.api.StringFormula;
 import org.sosy_lab.java_smt.api.visitors.FormulaVisitor;
 import org.sosy_lab.java_smt.basicimpl.FormulaCreator;
 import org.sosy_lab.java_smt.basicimpl.FunctionDeclarationImpl;
+import org.sosy_lab.java_smt.basicimpl.LongTermMap;
+import org.sosy_lab.java_smt.basicimpl.NativeTermMap;
 import org.sosy_lab.java_smt.solvers.z3.Z3Formula.Z3ArrayFormula;
 import org.sosy_lab.java_smt.solvers.z3.Z3Formula.Z3BitvectorFormula;
 import org.sosy_lab.java_smt.solvers.z3.Z3Formula.Z3BooleanFormula;
@@ -113,14 +111,24 @@ class Z3FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
 
   private final Table<Long, Long, Long> allocatedArraySorts = HashBasedTable.create();
 
-  /** Automatic clean-up of Z3 ASTs. */
-  private final ReferenceQueue<Z3Formula> referenceQueue = new ReferenceQueue<>();
+  @Option(
+      secure = true,
+      description =
+          "Number of created formulas after which the ASTs of garbage-collected formulas are"
+              + " released in one batch when using PhantomReferences. In background mode, this is"
+              + " the number of collected formulas that triggers the release.")
+  private int phantomReferenceCleanupThreshold = 1;
 
-  private final IdentityHashMap<PhantomReference<? extends Z3Formula>, Long> referenceMap =
-      new IdentityHashMap<>();
+  @Option(
+      secure = true,
+      description =
+          "Wait for garbage-collected formulas on a daemon thread when using PhantomReferences."
+              + " Their ASTs are still released by the context itself.")
+  private boolean phantomReferenceCleanupInBackground = false;
+
+  /** Automatic clean-up of Z3 ASTs, only used with PhantomReferences. */
+  private final @Nullable Z3AstReclaimer reclaimer;
 
-  // todo: getters for statistic.
-  private final Timer cleanupTimer = new Timer();
   protected final ShutdownNotifier shutdownNotifier;
 
   @SuppressWarnings("ParameterNumber")
@@ -137,6 +145,11 @@ class Z3FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
     super(pEnv, pBoolType, pIntegerType, pRealType, pStringType, pRegexType);
     shutdownNotifier = pShutdownNotifier;
     config.inject(this);
+    reclaimer =
+        usePhantomReferences
+            ? new Z3AstReclaimer(
+                pEnv, phantomReferenceCleanupThreshold, phantomReferenceCleanupInBackground)
+            : null;
   }
 
   final Z3Exception handleZ3Exception(Z3Exception e) throws Z3Exception, InterruptedException {
@@ -247,9 +260,8 @@ class Z3FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
   }
 
   private <T extends Z3Formula> T storePhantomReference(T out, Long pTerm) {
-    if (usePhantomReferences) {
-      PhantomReference<T> ref = new PhantomReference<>(out, referenceQueue);
-      referenceMap.put(ref, pTerm);
+    if (reclaimer != null) {
+      reclaimer.register(out, pTerm);
     }
     return out;
   }
@@ -361,19 +373,21 @@ class Z3FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
   }
 
   private void cleanupReferences() {
-    if (!usePhantomReferences) {
-      return;
+    if (reclaimer != null) {
+      reclaimer.cleanupIfNecessary();
     }
-    cleanupTimer.start();
-    try {
-      Reference<? extends Z3Formula> ref;
-      while ((ref = referenceQueue.poll()) != null) {
-        long z3ast = referenceMap.remove(ref);
-        Native.decRef(environment, z3ast);
-      }
-    } finally {
-      cleanupTimer.stop();
+  }
+
+  /** Statistics about the release of ASTs, only available when using PhantomReferences. */
+  ImmutableMap<String, String> getReferenceStatistics() {
+    if (reclaimer == null) {
+      return ImmutableMap.of();
     }
+    return ImmutableMap.of(
+        "phantom references tracked", Integer.toString(reclaimer.getTracked()),
+        "phantom references pending", Integer.toString(reclaimer.getPending()),
+        "phantom references reclaimed", Long.toString(reclaimer.getReclaimed()),
+        "phantom references cleanup time", reclaimer.getCleanupTime().formatAs(TimeUnit.SECONDS));
   }
 
   private String getAppName(long f) {
@@ -885,12 +899,10 @@ class Z3FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
 
   /** Closing the context. */
   public void forceClose() {
-    cleanupReferences();
-
     // Force clean all ASTs, even those which were not GC'd yet.
     // Is a no-op if phantom reference handling is not enabled.
-    for (long ast : referenceMap.values()) {
-      Native.decRef(getEnv(), ast);
+    if (reclaimer != null) {
+      reclaimer.releaseAll();
     }
   }
 
@@ -901,4 +913,9 @@ class Z3FormulaCreator extends FormulaCreator<Long, Long, Long, Long> {
   @Nullable Long getKnownDeclaration(String symbolName) {
     return symbolsToDeclarations.get(symbolName);
   }
+
+  @Override
+  protected <V> NativeTermMap<Long, V> newTermMap() {
+    return new LongTermMap<>(f -> ((Z3Formula) f).getFormulaInfo());
+  }
 }
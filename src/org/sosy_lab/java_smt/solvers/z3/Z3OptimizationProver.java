@@ -46,7 +46,7 @@ class Z3OptimizationProver extends Z3AbstractProver<Void> implements Optimizatio
       ImmutableMap<String, String> pOptimizationOptions,
       @Nullable PathCounterTemplate pLogfile,
       ShutdownNotifier pShutdownNotifier) {
-    super(creator, pMgr, pOptions, pSolverOptions, pLogfile, pShutdownNotifier);
+    super(creator, pMgr, pOptions, pSolverOptions, pLogfile, pShutdownNotifier, false);
     z3optSolver = Native.mkOptimize(z3context);
     Native.optimizeIncRef(z3context, z3optSolver);
     logger = pLogger;
@@ -70,6 +70,12 @@ class Z3OptimizationProver extends Z3AbstractProver<Void> implements Optimizatio
     return null;
   }
 
+  @Override
+  protected List<BooleanFormula> getAssertedConstraints() {
+    Preconditions.checkState(!closed);
+    return encapsulateAssertions(Native.optimizeGetAssertions(z3context, z3optSolver));
+  }
+
   @Override
   public int maximize(Formula objective) {
     Preconditions.checkState(!closed);
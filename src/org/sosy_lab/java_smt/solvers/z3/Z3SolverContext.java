@@ -78,6 +78,14 @@ public final class Z3SolverContext extends AbstractSolverContext {
         values = {"lex", "pareto", "box"})
     String objectivePrioritizationMode = "box";
 
+    @Option(
+        secure = true,
+        description =
+            "Track constraints for unsat cores by the index of fresh tracking literals instead of"
+                + " by their names. This avoids string conversions when computing unsat cores and"
+                + " reuses tracking literals after pop.")
+    boolean trackUnsatCoreByIndex = false;
+
     private final @Nullable PathCounterTemplate logfile;
 
     private final int randomSeed;
@@ -227,7 +235,13 @@ public final class Z3SolverContext extends AbstractSolverContext {
                     || options.contains(ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS))
             .build();
     return new Z3TheoremProver(
-        creator, manager, options, solverOptions, extraOptions.logfile, shutdownNotifier);
+        creator,
+        manager,
+        options,
+        solverOptions,
+        extraOptions.logfile,
+        shutdownNotifier,
+        extraOptions.trackUnsatCoreByIndex);
   }
 
   @Override
@@ -257,6 +271,12 @@ public final class Z3SolverContext extends AbstractSolverContext {
         shutdownNotifier);
   }
 
+  @Override
+  public ImmutableMap<String, String> getStatistics() {
+    Preconditions.checkState(!closed, "solver context is already closed");
+    return creator.getReferenceStatistics();
+  }
+
   @Override
   public String getVersion() {
     Native.IntPtr major = new Native.IntPtr();
@@ -288,4 +308,9 @@ public final class Z3SolverContext extends AbstractSolverContext {
   protected boolean supportsAssumptionSolving() {
     return true;
   }
+
+  @Override
+  protected boolean supportsMinimizedAllSatModels() {
+    return true;
+  }
 }
@@ -25,8 +25,16 @@ class Z3TheoremProver extends Z3AbstractProver<Void> implements ProverEnvironmen
       Set<ProverOptions> pOptions,
       ImmutableMap<String, Object> pSolverOptions,
       @Nullable PathCounterTemplate pLogfile,
-      ShutdownNotifier pShutdownNotifier) {
-    super(creator, pMgr, pOptions, pSolverOptions, pLogfile, pShutdownNotifier);
+      ShutdownNotifier pShutdownNotifier,
+      boolean pTrackUnsatCoreByIndex) {
+    super(
+        creator,
+        pMgr,
+        pOptions,
+        pSolverOptions,
+        pLogfile,
+        pShutdownNotifier,
+        pTrackUnsatCoreByIndex);
   }
 
   @Override
@@ -0,0 +1,32 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+
+/**
+ * inherits many tests from {@link SolverStackTest}, for CVC4 provers that share the ExprManager of
+ * the context.
+ */
+public class CVC4SharedExprManagerTest extends SolverStackTest {
+
+  @Parameters(name = "{0} (interpolation={1}}")
+  public static List<Object[]> getAllCombinations() {
+    return ImmutableList.<Object[]>of(new Object[] {Solvers.CVC4, false});
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder().setOption("solver.cvc4.sharedExprManager", "true");
+  }
+}
@@ -18,6 +18,8 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.testing.EqualsTester;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -144,6 +146,43 @@ public class FormulaManagerTest extends SolverBasedTest0 {
     assertThatFormula(out2).isEquivalentTo(out);
   }
 
+  @Test
+  public void testBatchSubstitution() throws SolverException, InterruptedException {
+    // Boolector does not support substitution
+    assume().that(solverToUse()).isNotEqualTo(Solvers.BOOLECTOR);
+    requireIntegers();
+
+    FunctionDeclaration<IntegerFormula> ufDecl = fmgr.declareUF("uf", IntegerType, IntegerType);
+    IntegerFormula x1 = imgr.makeVariable("x@1");
+    IntegerFormula x2 = imgr.makeVariable("x@2");
+    IntegerFormula y = imgr.makeVariable("y");
+    BooleanFormula input =
+        bmgr.and(
+            imgr.lessThan(x1, x2),
+            imgr.lessThan(x2, y),
+            imgr.equal(fmgr.callUF(ufDecl, x1), imgr.add(y, imgr.makeNumber(3))));
+
+    List<Map<IntegerFormula, IntegerFormula>> mappings = new ArrayList<>();
+    for (int i = 2; i < 6; i++) {
+      mappings.add(
+          ImmutableMap.of(x1, imgr.makeVariable("x@" + i), x2, imgr.makeVariable("x@" + (i + 1))));
+    }
+    mappings.add(ImmutableMap.of(y, imgr.makeNumber(7)));
+    mappings.add(ImmutableMap.of(imgr.makeVariable("z"), y));
+    mappings.add(ImmutableMap.of(fmgr.callUF(ufDecl, x1), x2));
+
+    List<BooleanFormula> results = mgr.substitute(input, mappings);
+    assertThat(results).hasSize(mappings.size());
+    for (int i = 0; i < mappings.size(); i++) {
+      assertThatFormula(results.get(i)).isEquivalentTo(mgr.substitute(input, mappings.get(i)));
+    }
+    // substitutions without matching parts return the same formula
+    assertThat(results.get(mappings.size() - 2)).isEqualTo(input);
+
+    // repeating the substitution for the same formula gives the same result
+    assertThat(mgr.substitute(input, mappings.subList(0, 1))).containsExactly(results.get(0));
+  }
+
   @Test
   public void formulaEqualsAndHashCode() {
     // Solvers without integers (Boolector) get their own test below
@@ -12,6 +12,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.sosy_lab.java_smt.test.ProverEnvironmentSubject.assertThat;
 
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import java.math.BigInteger;
 import java.util.Collection;
@@ -25,6 +26,7 @@ import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.Formula;
 import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
 import org.sosy_lab.java_smt.api.ProverEnvironment;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
 import org.sosy_lab.java_smt.api.SolverException;
@@ -172,4 +174,26 @@ public class ModelEvaluationTest extends SolverBasedTest0 {
         Lists.newArrayList(null, DEFAULT_MODEL_STRING),
         Lists.newArrayList(null, smgr.makeString(DEFAULT_MODEL_STRING)));
   }
+
+  @Test
+  public void testBatchEvaluation() throws SolverException, InterruptedException {
+    requireIntegers();
+    IntegerFormula x = imgr.makeVariable("x");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula constraint = bmgr.and(b, imgr.equal(x, imgr.makeNumber(10)));
+    ImmutableList<Formula> formulas =
+        ImmutableList.of(b, x, imgr.add(x, imgr.makeNumber(1)), bmgr.not(b), x);
+
+    try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+      prover.push(constraint);
+      assertThat(prover).isSatisfiable();
+
+      try (Model m = prover.getModel()) {
+        assertThat(m.evaluateAll(formulas))
+            .containsExactly(true, BigInteger.TEN, BigInteger.valueOf(11), false, BigInteger.TEN)
+            .inOrder();
+        assertThat(m.evaluateAll(ImmutableList.of())).isEmpty();
+      }
+    }
+  }
 }
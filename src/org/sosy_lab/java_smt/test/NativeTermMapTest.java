@@ -0,0 +1,52 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.sosy_lab.java_smt.basicimpl.IntTermMap;
+import org.sosy_lab.java_smt.basicimpl.LongTermMap;
+
+/** Test the maps with primitive keys that are used for caching native terms. */
+public class NativeTermMapTest {
+
+  @Test
+  public void testLongTermMap() {
+    LongTermMap<Long> map = new LongTermMap<>();
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      // aligned pointers and zero are typical keys
+      long key = i % 3 == 0 ? random.nextInt(5000) * 16L : random.nextLong();
+      assertThat(map.putLong(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+    }
+    assertThat(map.size()).isEqualTo(expected.size());
+    expected.forEach((key, value) -> assertThat(map.getLong(key)).isEqualTo(value));
+    assertThat(map.getLong(0L)).isEqualTo(expected.get(0L));
+    assertThat(map.containsKey(-1L)).isEqualTo(expected.containsKey(-1L));
+  }
+
+  @Test
+  public void testIntTermMap() {
+    IntTermMap<Integer> map = new IntTermMap<>();
+    Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 10_000; i++) {
+      // consecutive indices are typical keys
+      int key = i % 7000;
+      assertThat(map.putInt(key, i)).isEqualTo(expected.put(key, i));
+    }
+    assertThat(map.size()).isEqualTo(7000);
+    expected.forEach((key, value) -> assertThat(map.getInt(key)).isEqualTo(value));
+    assertThat(map.getInt(-1)).isNull();
+  }
+}
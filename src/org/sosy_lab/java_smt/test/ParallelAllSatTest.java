@@ -0,0 +1,127 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BasicProverEnvironment.AllSatCallback;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * inherits all tests from {@link SolverAllSatTest}, for Princess with AllSAT computed in parallel
+ * over cubes of the important predicates.
+ */
+public class ParallelAllSatTest extends SolverAllSatTest {
+
+  @Parameters(name = "solver {0} with prover {1}")
+  public static Iterable<Object[]> getAllSolvers() {
+    return ImmutableList.of(
+        new Object[] {Solvers.PRINCESS, "normal"}, new Object[] {Solvers.PRINCESS, "itp"});
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder()
+        .setOption("solver.allsat.parallelism", "3")
+        .setOption("solver.allsat.cubeDepth", "2")
+        .setOption("solver.allsat.deterministicOrder", "true");
+  }
+
+  @Test
+  public void allSatTest_cubesInOrder() throws SolverException, InterruptedException {
+    // 0 <= x < 6 & p_i <=> (x = i), the cube [p0,p1] is unsat, the others have 1, 1, 4 models.
+    IntegerFormula x = imgr.makeVariable("x");
+    List<BooleanFormula> predicates = new ArrayList<>();
+    List<List<BooleanFormula>> expected = new ArrayList<>();
+    try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT)) {
+      prover.addConstraint(imgr.greaterOrEquals(x, imgr.makeNumber(0)));
+      prover.addConstraint(imgr.lessThan(x, imgr.makeNumber(6)));
+      for (int i = 0; i < 6; i++) {
+        BooleanFormula p = bmgr.makeVariable("p" + i);
+        prover.addConstraint(bmgr.equivalence(p, imgr.equal(x, imgr.makeNumber(i))));
+        predicates.add(p);
+      }
+      for (int i = 0; i < 6; i++) {
+        List<BooleanFormula> model = new ArrayList<>();
+        for (int j = 0; j < 6; j++) {
+          model.add(i == j ? predicates.get(j) : bmgr.not(predicates.get(j)));
+        }
+        expected.add(model);
+      }
+
+      List<List<BooleanFormula>> models = new ArrayList<>();
+      int result =
+          prover.allSat(
+              new AllSatCallback<Integer>() {
+                @Override
+                public void apply(List<BooleanFormula> pModel) {
+                  models.add(pModel);
+                }
+
+                @Override
+                public Integer getResult() {
+                  return models.size();
+                }
+              },
+              predicates);
+
+      assertThat(result).isEqualTo(6);
+      assertThat(models).containsExactlyElementsIn(expected);
+      // cubes [p0,-p1] and [-p0,p1] come before the cube [-p0,-p1]
+      assertThat(models.subList(0, 2)).containsExactlyElementsIn(expected.subList(0, 2)).inOrder();
+
+      // the stack of the prover is unchanged
+      assertThat(prover.isUnsat()).isFalse();
+      assertThat(prover.size()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void allSatTest_repeated() throws SolverException, InterruptedException {
+    // the contexts of the workers are reused, but must not see constraints of earlier computations
+    BooleanFormula p = bmgr.makeVariable("p");
+    BooleanFormula q = bmgr.makeVariable("q");
+    BooleanFormula r = bmgr.makeVariable("r");
+    ImmutableList<BooleanFormula> predicates = ImmutableList.of(p, q, r);
+    for (int round = 0; round < 3; round++) {
+      try (ProverEnvironment prover =
+          context.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT)) {
+        if (round % 2 == 0) {
+          prover.addConstraint(bmgr.or(p, q));
+        }
+        List<List<BooleanFormula>> models = new ArrayList<>();
+        prover.allSat(
+            new AllSatCallback<Void>() {
+              @Override
+              public void apply(List<BooleanFormula> pModel) {
+                models.add(pModel);
+              }
+
+              @Override
+              public Void getResult() {
+                return null;
+              }
+            },
+            predicates);
+        assertThat(models).hasSize(round % 2 == 0 ? 6 : 8);
+      }
+    }
+  }
+}
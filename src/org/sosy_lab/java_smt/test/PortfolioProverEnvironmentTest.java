@@ -0,0 +1,111 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigInteger;
+import java.util.Map;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.delegate.portfolio.PortfolioProverEnvironment;
+
+/** Test a portfolio of the Java-based solvers, which are available on all platforms. */
+public class PortfolioProverEnvironmentTest extends SolverBasedTest0 {
+
+  private static final ImmutableList<Solvers> PORTFOLIO =
+      ImmutableList.of(Solvers.SMTINTERPOL, Solvers.PRINCESS);
+
+  private ProverEnvironment newPortfolio(ProverOptions... options)
+      throws InvalidConfigurationException {
+    return new PortfolioProverEnvironment(
+        config, logger, shutdownNotifierToUse(), mgr, PORTFOLIO, options);
+  }
+
+  @Test
+  public void testIncrementalSolving()
+      throws InvalidConfigurationException, SolverException, InterruptedException {
+    IntegerFormula x = imgr.makeVariable("x");
+    IntegerFormula y = imgr.makeVariable("y");
+
+    try (ProverEnvironment prover = newPortfolio(ProverOptions.GENERATE_MODELS)) {
+      prover.addConstraint(imgr.lessThan(x, y));
+      assertThat(prover.isUnsat()).isFalse();
+
+      // several rounds, such that losing solvers apply queued changes or are re-created
+      for (int i = 0; i < 5; i++) {
+        prover.push();
+        prover.addConstraint(imgr.lessThan(y, x));
+        assertThat(prover.isUnsat()).isTrue();
+        prover.pop();
+        prover.push();
+        prover.addConstraint(imgr.equal(x, imgr.makeNumber(i)));
+        assertThat(prover.isUnsat()).isFalse();
+        try (Model model = prover.getModel()) {
+          assertThat(model.evaluate(x)).isEqualTo(BigInteger.valueOf(i));
+          assertThat(model.evaluate(imgr.lessThan(x, y))).isTrue();
+        }
+        prover.pop();
+      }
+      assertThat(prover.size()).isEqualTo(0);
+
+      int wins = 0;
+      Map<String, String> statistics = prover.getStatistics();
+      for (Solvers solver : PORTFOLIO) {
+        wins += Integer.parseInt(statistics.get(solver + ".wins"));
+        // only a solver that is still busy at the next query is interrupted and re-created
+        assertThat(Integer.parseInt(statistics.get(solver + ".rebuilds"))).isAtMost(11);
+      }
+      assertThat(wins).isEqualTo(11);
+    }
+  }
+
+  @Test
+  public void testModelAssignmentsAreTranslated()
+      throws InvalidConfigurationException, SolverException, InterruptedException {
+    IntegerFormula x = imgr.makeVariable("x");
+    BooleanFormula p = bmgr.makeVariable("p");
+
+    try (ProverEnvironment prover = newPortfolio(ProverOptions.GENERATE_MODELS)) {
+      prover.addConstraint(bmgr.and(p, imgr.equal(x, imgr.makeNumber(3))));
+      assertThat(prover.isUnsat()).isFalse();
+      for (Model.ValueAssignment assignment : prover.getModelAssignments()) {
+        assertThat(assignment.getKey()).isAnyOf(x, p);
+        assertThat(mgr.extractVariables(assignment.getAssignmentAsFormula()))
+            .containsKey(assignment.getName());
+      }
+    }
+  }
+
+  @Test
+  public void testUnsatCoreIsTranslated()
+      throws InvalidConfigurationException, SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula c = bmgr.makeVariable("c");
+
+    try (ProverEnvironment prover = newPortfolio(ProverOptions.GENERATE_UNSAT_CORE)) {
+      prover.addConstraint(a);
+      prover.addConstraint(c);
+      prover.addConstraint(bmgr.implication(a, b));
+      prover.addConstraint(bmgr.not(b));
+      assertThat(prover.isUnsat()).isTrue();
+      assertThat(prover.getUnsatCore()).containsNoneIn(ImmutableList.of(c));
+      assertThat(prover.getUnsatCore()).contains(bmgr.not(b));
+    }
+  }
+}
@@ -0,0 +1,80 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.sosy_lab.java_smt.api.SolverContext.ProverOptions.GENERATE_MODELS;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigInteger;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.FormulaType;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * inherits many tests from {@link SolverStackTest}, for Princess with symbols that are declared in
+ * a prover only when they are used.
+ */
+public class PrincessLazySymbolsTest extends SolverStackTest {
+
+  @Parameters(name = "{0} (interpolation={1}}")
+  public static List<Object[]> getAllCombinations() {
+    return ImmutableList.of(
+        new Object[] {Solvers.PRINCESS, false}, new Object[] {Solvers.PRINCESS, true});
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder()
+        .setOption("solver.princess.lazySymbolDeclaration", "true");
+  }
+
+  @Test
+  public void symbolsAreDeclaredOnUseAfterPop() throws SolverException, InterruptedException {
+    IntegerFormula x = imgr.makeVariable("x");
+    BooleanFormula p = bmgr.makeVariable("p");
+    FunctionDeclaration<IntegerFormula> f =
+        fmgr.declareUF("f", FormulaType.IntegerType, FormulaType.IntegerType);
+    BooleanFormula fx = imgr.equal(fmgr.callUF(f, x), imgr.makeNumber(3));
+
+    try (ProverEnvironment first = context.newProverEnvironment(GENERATE_MODELS);
+        ProverEnvironment second = context.newProverEnvironment(GENERATE_MODELS)) {
+      first.push();
+      first.addConstraint(bmgr.and(p, fx));
+      assertThat(first.isUnsat()).isFalse();
+      first.pop();
+
+      // the symbols were removed by pop and are declared again
+      first.push();
+      first.addConstraint(bmgr.and(bmgr.not(p), fx, imgr.equal(x, imgr.makeNumber(1))));
+      assertThat(first.isUnsat()).isFalse();
+      try (Model model = first.getModel()) {
+        assertThat(model.evaluate(p)).isFalse();
+        assertThat(model.evaluate(x)).isEqualTo(BigInteger.ONE);
+      }
+      first.pop();
+
+      // a symbol created after the prover
+      IntegerFormula y = imgr.makeVariable("y");
+      second.addConstraint(imgr.equal(fmgr.callUF(f, y), imgr.makeNumber(4)));
+      second.addConstraint(fx);
+      second.addConstraint(imgr.equal(x, y));
+      assertThat(second.isUnsat()).isTrue();
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.BasicProverEnvironment;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.Model.ValueAssignment;
 import org.sosy_lab.java_smt.api.ProverEnvironment;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
 import org.sosy_lab.java_smt.api.SolverException;
@@ -99,6 +100,25 @@ public class ProverEnvironmentTest extends SolverBasedTest0 {
     }
   }
 
+  @Test
+  public void unsatCoreOverSeveralLevelsTest() throws SolverException, InterruptedException {
+    // Boolector does not support unsat core
+    assume().that(solverToUse()).isNotEqualTo(Solvers.BOOLECTOR);
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula c = bmgr.makeVariable("c");
+    try (ProverEnvironment pe = context.newProverEnvironment(GENERATE_UNSAT_CORE)) {
+      pe.addConstraint(a);
+      pe.push();
+      pe.addConstraint(c);
+      pe.addConstraint(bmgr.implication(a, b));
+      pe.push();
+      pe.addConstraint(bmgr.not(b));
+      assertThat(pe).isUnsatisfiable();
+      assertThat(pe.getUnsatCore()).containsExactly(a, bmgr.implication(a, b), bmgr.not(b));
+    }
+  }
+
   @Test
   public void unsatCoreTestForInterpolation() throws SolverException, InterruptedException {
     requireInterpolation();
@@ -169,4 +189,52 @@ public class ProverEnvironmentTest extends SolverBasedTest0 {
       assertThat(unsatCore).containsExactly(bmgr.not(selector));
     }
   }
+
+  @Test
+  public void unsatCoreWithAssumptionsRepeatedTest() throws SolverException, InterruptedException {
+    assume()
+        .withMessage(
+            "Solver %s does not support unsat core generation over assumptions", solverToUse())
+        .that(solverToUse())
+        .isNoneOf(PRINCESS, BOOLECTOR, CVC4);
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula yIs1 = imgr.equal(imgr.makeVariable("y"), imgr.makeNumber(1));
+    BooleanFormula yIs2 = imgr.equal(imgr.makeVariable("y"), imgr.makeNumber(2));
+    try (ProverEnvironment pe =
+        context.newProverEnvironment(GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS)) {
+      pe.addConstraint(bmgr.or(b, yIs1));
+      for (int i = 0; i < 3; i++) {
+        assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(bmgr.not(b), yIs2)).orElseThrow())
+            .containsExactly(bmgr.not(b), yIs2);
+        assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(bmgr.not(b), yIs1))).isEmpty();
+        assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(yIs2))).isFalse();
+      }
+
+      pe.push();
+      pe.addConstraint(yIs2);
+      assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(bmgr.not(b), yIs2)).orElseThrow())
+          .containsExactly(bmgr.not(b));
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(yIs1))).isTrue();
+      pe.pop();
+
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(yIs1))).isFalse();
+      assertThat(pe).isSatisfiable();
+    }
+  }
+
+  @Test
+  public void modelContainsSymbolsOfAssumptionsTest() throws SolverException, InterruptedException {
+    requireModel();
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    try (ProverEnvironment pe = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+      pe.addConstraint(a);
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(bmgr.not(b)))).isFalse();
+      try (Model model = pe.getModel()) {
+        assertThat(model.evaluate(b)).isFalse();
+      }
+      assertThat(pe.getModelAssignments().stream().map(ValueAssignment::getName))
+          .containsAtLeast("a", "b");
+    }
+  }
 }
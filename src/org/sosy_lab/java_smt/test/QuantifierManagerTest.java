@@ -613,6 +613,51 @@ public class QuantifierManagerTest extends SolverBasedTest0 {
     assertThat(out).isEqualTo(imgr.equal(x, imgr.makeNumber(7)));
   }
 
+  @Test
+  public void testQELightBySubstitution() throws SolverException, InterruptedException {
+    // Z3 uses its own tactic, which is tested above
+    assume().that(solverToUse()).isNotEqualTo(Solvers.Z3);
+    IntegerFormula y = imgr.makeVariable("y");
+    IntegerFormula z = imgr.makeVariable("z");
+
+    // exists y : (y=4 && x=y+3) --> x=4+3
+    BooleanFormula definition =
+        qmgr.exists(
+            y,
+            bmgr.and(
+                imgr.equal(y, imgr.makeNumber(4)), imgr.equal(x, imgr.add(y, imgr.makeNumber(3)))));
+    BooleanFormula out = mgr.applyTactic(definition, Tactic.QE_LIGHT);
+    assertThat(mgr.extractVariables(out)).doesNotContainKey("y");
+    assertThatFormula(out).isEquivalentTo(imgr.equal(x, imgr.makeNumber(7)));
+
+    // exists y, z : (x<=y && 3<y && z=y+1 && z>=x) --> true, z is defined and y only bounded below
+    BooleanFormula bounds =
+        qmgr.exists(
+            ImmutableList.of(y, z),
+            bmgr.and(
+                imgr.lessOrEquals(x, y),
+                imgr.lessThan(imgr.makeNumber(3), y),
+                imgr.equal(z, imgr.add(y, imgr.makeNumber(1))),
+                imgr.greaterOrEquals(z, x)));
+    out = mgr.applyTactic(bounds, Tactic.QE_LIGHT);
+    assertThat(mgr.extractVariables(out)).doesNotContainKey("y");
+    assertThat(mgr.extractVariables(out)).doesNotContainKey("z");
+    assertThatFormula(out).isEquivalentTo(bmgr.makeTrue());
+
+    // forall y : (y!=x+1 || a[y]=0) --> a[x+1]=0
+    IntegerFormula xPlusOne = imgr.add(x, imgr.makeNumber(1));
+    BooleanFormula universal =
+        qmgr.forall(
+            y,
+            bmgr.or(
+                bmgr.not(imgr.equal(y, xPlusOne)),
+                imgr.equal(amgr.select(a, y), imgr.makeNumber(0))));
+    out = mgr.applyTactic(universal, Tactic.QE_LIGHT);
+    assertThat(mgr.extractVariables(out)).doesNotContainKey("y");
+    assertThatFormula(out)
+        .isEquivalentTo(imgr.equal(amgr.select(a, xPlusOne), imgr.makeNumber(0)));
+  }
+
   @Test
   public void testIntrospectionForall() {
     requireIntegers();
@@ -0,0 +1,173 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.converters.FileTypeConverter;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/** Test that results of satisfiability checks are stored in a file and reused. */
+@RunWith(Parameterized.class)
+public class QueryCacheTest extends SolverBasedTest0 {
+
+  @Parameters(name = "{0}")
+  public static Object[] getAllSolvers() {
+    return Solvers.values();
+  }
+
+  @Parameter public Solvers solver;
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Override
+  protected Solvers solverToUse() {
+    return solver;
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    FileTypeConverter fileTypeConverter;
+    try {
+      fileTypeConverter =
+          FileTypeConverter.create(
+              Configuration.builder()
+                  .setOption("output.path", tempFolder.getRoot().toString())
+                  .build());
+    } catch (InvalidConfigurationException e) {
+      throw new AssertionError(e);
+    }
+    return super.createTestConfigBuilder()
+        .addConverter(FileOption.class, fileTypeConverter)
+        .setOption("solver.cacheQueries", "true");
+  }
+
+  private void assertCacheStatistics(String hits, String misses) {
+    assertThat(context.getStatistics()).containsAtLeast("cache.hits", hits, "cache.misses", misses);
+  }
+
+  @Test
+  public void testOrderOfConstraintsIsIrrelevant() throws SolverException, InterruptedException {
+    IntegerFormula x = imgr.makeVariable("x");
+    BooleanFormula f1 = imgr.greaterThan(x, imgr.makeNumber(1));
+    BooleanFormula f2 = imgr.lessThan(x, imgr.makeNumber(2));
+
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.addConstraint(f1);
+      prover.addConstraint(f2);
+      assertThat(prover.isUnsat()).isTrue();
+    }
+    assertCacheStatistics("0", "1");
+
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.push(f2);
+      prover.push(f1);
+      prover.addConstraint(f2);
+      assertThat(prover.isUnsat()).isTrue();
+      prover.pop();
+      assertThat(prover.isUnsat()).isFalse();
+    }
+    assertCacheStatistics("1", "2");
+  }
+
+  @Test
+  public void testResultsArePersistent()
+      throws SolverException, InterruptedException, InvalidConfigurationException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula query = bmgr.and(a, bmgr.not(a));
+
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.addConstraint(query);
+      assertThat(prover.isUnsat()).isTrue();
+    }
+
+    // simulate a new run of the application
+    context.close();
+    context = factory.generateContext();
+    bmgr = context.getFormulaManager().getBooleanFormulaManager();
+    a = bmgr.makeVariable("a");
+
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.addConstraint(bmgr.and(a, bmgr.not(a)));
+      assertThat(prover.isUnsat()).isTrue();
+    }
+    assertCacheStatistics("1", "0");
+  }
+
+  @Test
+  public void testCorruptRecordsAreIgnored()
+      throws SolverException, InterruptedException, InvalidConfigurationException, IOException {
+    BooleanFormula a = bmgr.makeVariable("a");
+
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.addConstraint(bmgr.and(a, bmgr.not(a)));
+      assertThat(prover.isUnsat()).isTrue();
+    }
+    context.close();
+
+    // turn the result of the only record into SAT, as a crash during writing could do
+    Path file = tempFolder.getRoot().toPath().resolve("query-cache.bin");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, 2), 16 + 24);
+    }
+
+    context = factory.generateContext();
+    bmgr = context.getFormulaManager().getBooleanFormulaManager();
+    a = bmgr.makeVariable("a");
+
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.addConstraint(bmgr.and(a, bmgr.not(a)));
+      assertThat(prover.isUnsat()).isTrue();
+    }
+    assertCacheStatistics("0", "1");
+  }
+
+  @Test
+  public void testModelAfterCachedResult() throws SolverException, InterruptedException {
+    requireModel();
+
+    IntegerFormula x = imgr.makeVariable("x");
+    BooleanFormula query = imgr.equal(x, imgr.makeNumber(5));
+
+    for (int i = 0; i < 2; i++) {
+      try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+        prover.addConstraint(query);
+        assertThat(prover.isUnsat()).isFalse();
+        try (Model model = prover.getModel()) {
+          assertThat(model.evaluate(x)).isEqualTo(BigInteger.valueOf(5));
+        }
+      }
+    }
+    assertCacheStatistics("1", "1");
+    assertThat(context.getStatistics()).containsEntry("cache.recomputations", "1");
+  }
+}
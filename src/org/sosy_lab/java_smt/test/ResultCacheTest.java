@@ -0,0 +1,150 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/** Test the in-memory cache that answers subsumed satisfiability checks. */
+@RunWith(Parameterized.class)
+public class ResultCacheTest extends SolverBasedTest0 {
+
+  @Parameters(name = "{0}")
+  public static Object[] getAllSolvers() {
+    return Solvers.values();
+  }
+
+  @Parameter public Solvers solver;
+
+  @Override
+  protected Solvers solverToUse() {
+    return solver;
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder()
+        .setOption("solver.cacheQueries", "true")
+        .setOption("solver.cache.persistent", "false")
+        .setOption("solver.cache.inMemorySize", "3")
+        .setOption("solver.cache.inMemoryModelChecks", "3");
+  }
+
+  private boolean isUnsat(ProverOptions option, BooleanFormula... constraints)
+      throws SolverException, InterruptedException {
+    try (ProverEnvironment prover = context.newProverEnvironment(option)) {
+      for (BooleanFormula constraint : constraints) {
+        prover.addConstraint(constraint);
+      }
+      return prover.isUnsat();
+    }
+  }
+
+  @Test
+  public void testUnsatCoreSubsumption() throws SolverException, InterruptedException {
+    requireUnsatCore();
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula c = bmgr.makeVariable("c");
+
+    assertThat(isUnsat(ProverOptions.GENERATE_UNSAT_CORE, a, b, bmgr.not(a))).isTrue();
+
+    try (ProverEnvironment prover =
+        context.newProverEnvironment(ProverOptions.GENERATE_UNSAT_CORE)) {
+      prover.addConstraint(bmgr.not(a));
+      prover.addConstraint(c);
+      prover.addConstraint(a);
+      assertThat(prover.isUnsat()).isTrue();
+      assertThat(prover.getUnsatCore()).containsExactly(a, bmgr.not(a));
+    }
+    assertThat(context.getStatistics())
+        .containsAtLeast("cache.memory.unsatCoreHits", "1", "cache.memory.misses", "1");
+  }
+
+  @Test
+  public void testUnsatCoreRequiresOption() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+
+    assertThat(isUnsat(ProverOptions.GENERATE_MODELS, a, bmgr.not(a))).isTrue();
+
+    try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+      prover.addConstraint(a);
+      prover.addConstraint(bmgr.not(a));
+      assertThat(prover.isUnsat()).isTrue();
+      assertThrows(IllegalStateException.class, prover::getUnsatCore);
+    }
+    assertThat(context.getStatistics()).containsEntry("cache.memory.exactHits", "1");
+  }
+
+  @Test
+  public void testSatSubset() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+
+    assertThat(isUnsat(ProverOptions.GENERATE_UNSAT_CORE, a, b)).isFalse();
+    assertThat(isUnsat(ProverOptions.GENERATE_UNSAT_CORE, b)).isFalse();
+    assertThat(isUnsat(ProverOptions.GENERATE_UNSAT_CORE, b, a)).isFalse();
+    assertThat(context.getStatistics())
+        .containsAtLeast("cache.memory.satSubsetHits", "1", "cache.memory.exactHits", "1");
+  }
+
+  @Test
+  public void testSatModel() throws SolverException, InterruptedException {
+    requireModel();
+    IntegerFormula x = imgr.makeVariable("x");
+    IntegerFormula y = imgr.makeVariable("y");
+
+    assertThat(
+            isUnsat(
+                ProverOptions.GENERATE_MODELS,
+                imgr.equal(x, imgr.makeNumber(5)),
+                imgr.equal(y, imgr.makeNumber(7))))
+        .isFalse();
+
+    try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+      prover.addConstraint(imgr.lessThan(x, y));
+      prover.addConstraint(imgr.greaterThan(x, imgr.makeNumber(0)));
+      assertThat(prover.isUnsat()).isFalse();
+      try (Model model = prover.getModel()) {
+        assertThat(model.evaluate(imgr.lessThan(x, y))).isTrue();
+      }
+    }
+    // only models that stay valid after closing their prover are reused
+    String expectedHits =
+        ImmutableSet.of(Solvers.PRINCESS, Solvers.SMTINTERPOL, Solvers.Z3).contains(solver)
+            ? "1"
+            : "0";
+    assertThat(context.getStatistics()).containsEntry("cache.memory.satModelHits", expectedHits);
+  }
+
+  @Test
+  public void testEviction() throws SolverException, InterruptedException {
+    for (int i = 0; i < 5; i++) {
+      BooleanFormula v = bmgr.makeVariable("v" + i);
+      assertThat(isUnsat(ProverOptions.GENERATE_UNSAT_CORE, v, bmgr.not(v))).isTrue();
+    }
+    assertThat(context.getStatistics())
+        .containsAtLeast("cache.memory.entries", "3", "cache.memory.evictions", "2");
+  }
+}
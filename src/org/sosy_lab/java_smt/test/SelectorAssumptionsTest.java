@@ -0,0 +1,126 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.sosy_lab.java_smt.api.SolverContext.ProverOptions.GENERATE_MODELS;
+import static org.sosy_lab.java_smt.api.SolverContext.ProverOptions.GENERATE_UNSAT_CORE;
+import static org.sosy_lab.java_smt.api.SolverContext.ProverOptions.GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.Model.ValueAssignment;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * inherits many tests from {@link ProverEnvironmentTest}, for solving with assumptions by selector
+ * literals.
+ */
+public class SelectorAssumptionsTest extends ProverEnvironmentTest {
+
+  @Parameters(name = "{0}")
+  public static Solvers[] getAllSolvers() {
+    // the solvers without native support for assumptions that provide the option
+    return new Solvers[] {Solvers.SMTINTERPOL, Solvers.PRINCESS};
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder()
+        .setOption("solver.smtinterpol.assumptionsWithSelectors", "true")
+        .setOption("solver.princess.assumptionsWithSelectors", "true");
+  }
+
+  @Test
+  public void unsatCoreOverOverlappingAssumptions() throws SolverException, InterruptedException {
+    requireIntegers();
+    IntegerFormula x = imgr.makeVariable("x");
+    BooleanFormula a = imgr.greaterThan(x, imgr.makeNumber(5));
+    BooleanFormula b = imgr.lessThan(x, imgr.makeNumber(3));
+    BooleanFormula c = imgr.equal(x, imgr.makeNumber(4));
+    BooleanFormula d = bmgr.makeVariable("d");
+
+    try (ProverEnvironment pe =
+        context.newProverEnvironment(GENERATE_UNSAT_CORE_OVER_ASSUMPTIONS)) {
+      assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(a, d))).isEmpty();
+      assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(d, a, b)).orElseThrow())
+          .containsExactly(a, b);
+      pe.push();
+      pe.addConstraint(bmgr.not(d));
+      assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(c, d)).orElseThrow())
+          .containsExactly(d);
+      pe.pop();
+      assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(c, d))).isEmpty();
+      assertThat(pe.unsatCoreOverAssumptions(ImmutableList.of(c, a)).orElseThrow())
+          .containsExactly(c, a);
+      assertThat(pe.size()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void unsatCoreContainsAssumptions() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+
+    try (ProverEnvironment pe = context.newProverEnvironment(GENERATE_UNSAT_CORE)) {
+      pe.addConstraint(bmgr.implication(a, b));
+      pe.addConstraint(bmgr.makeVariable("c"));
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(a, bmgr.not(b)))).isTrue();
+      assertThat(pe.getUnsatCore()).containsExactly(bmgr.implication(a, b), a, bmgr.not(b));
+    }
+  }
+
+  @Test
+  public void modelHidesSelectors() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+
+    try (ProverEnvironment pe = context.newProverEnvironment(GENERATE_MODELS)) {
+      pe.addConstraint(bmgr.or(a, b));
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(bmgr.not(a)))).isFalse();
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(bmgr.not(a)))).isFalse();
+      ImmutableList<ValueAssignment> assignments = pe.getModelAssignments();
+      assertThat(assignments.stream().map(ValueAssignment::getName)).containsExactly("a", "b");
+      try (Model model = pe.getModel()) {
+        assertThat(model.asList()).containsExactlyElementsIn(assignments);
+        for (ValueAssignment assignment : model) {
+          assertThat(assignment.getName()).isAnyOf("a", "b");
+        }
+        assertThat(model.evaluate(a)).isFalse();
+      }
+    }
+  }
+
+  @Test
+  public void modelHidesSelectorsOfPoppedLevels() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+
+    try (ProverEnvironment pe = context.newProverEnvironment(GENERATE_MODELS)) {
+      pe.push();
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(a))).isFalse();
+      pe.pop();
+      pe.addConstraint(bmgr.or(a, b));
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(b))).isFalse();
+      try (Model model = pe.getModel()) {
+        for (ValueAssignment assignment : model) {
+          assertThat(assignment.getName()).isAnyOf("a", "b");
+        }
+      }
+    }
+  }
+}
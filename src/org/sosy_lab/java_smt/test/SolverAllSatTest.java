@@ -11,6 +11,7 @@ package org.sosy_lab.java_smt.test;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assert_;
 import static com.google.common.truth.TruthJUnit.assume;
+import static org.junit.Assert.assertThrows;
 
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
@@ -251,4 +252,107 @@ public class SolverAllSatTest extends SolverBasedTest0 {
     assertThat(callback.models)
         .isEqualTo(ImmutableList.of(ImmutableList.of(pred1, bmgr.not(pred3))));
   }
+
+  private void requireMinimizedAllSat() {
+    assume()
+        .withMessage("Solver %s computes AllSAT by itself", solverToUse())
+        .that(solverToUse())
+        .isNoneOf(Solvers.MATHSAT5, Solvers.SMTINTERPOL);
+  }
+
+  @Test
+  public void allSatTest_minimizedModelsUnsupported() {
+    assume().that(proverEnv).isEqualTo("normal");
+    assume().that(solverToUse()).isAnyOf(Solvers.MATHSAT5, Solvers.SMTINTERPOL);
+
+    assertThrows(
+        UnsupportedOperationException.class,
+        () ->
+            context.newProverEnvironment(
+                ProverOptions.GENERATE_ALL_SAT, ProverOptions.MINIMIZE_ALL_SAT_MODELS));
+  }
+
+  @Test
+  public void allSatTest_minimizedModels() throws SolverException, InterruptedException {
+    assume().that(proverEnv).isEqualTo("normal");
+    requireMinimizedAllSat();
+
+    BooleanFormula v1 = bmgr.makeVariable("b1");
+    BooleanFormula v2 = bmgr.makeVariable("b2");
+    BooleanFormula v3 = bmgr.makeVariable("b3");
+    ImmutableList<BooleanFormula> predicates = ImmutableList.of(v1, v2, v3);
+
+    // (b1 | b2) has 6 models over [b1, b2, b3], which can be covered by 2 implicants.
+    TestAllSatCallback callback = new TestAllSatCallback();
+    try (BasicProverEnvironment<?> prover =
+        context.newProverEnvironment(
+            ProverOptions.GENERATE_ALL_SAT, ProverOptions.MINIMIZE_ALL_SAT_MODELS)) {
+      prover.push(bmgr.or(v1, v2));
+      assertThat(prover.allSat(callback, predicates)).isEqualTo(EXPECTED_RESULT);
+      assertThat(prover.size()).isEqualTo(1);
+    }
+
+    // every model is reported exactly once, possibly as part of a partial assignment
+    List<List<Boolean>> covered = getCoveredModels(callback.models, predicates);
+    assertThat(covered)
+        .containsExactly(
+            ImmutableList.of(true, true, true),
+            ImmutableList.of(true, true, false),
+            ImmutableList.of(true, false, true),
+            ImmutableList.of(true, false, false),
+            ImmutableList.of(false, true, true),
+            ImmutableList.of(false, true, false));
+  }
+
+  @Test
+  public void allSatTest_minimizedModelsWithOverlappingDisjuncts()
+      throws SolverException, InterruptedException {
+    assume().that(proverEnv).isEqualTo("normal");
+    requireMinimizedAllSat();
+
+    BooleanFormula v1 = bmgr.makeVariable("b1");
+    BooleanFormula v2 = bmgr.makeVariable("b2");
+    BooleanFormula v3 = bmgr.makeVariable("b3");
+    ImmutableList<BooleanFormula> predicates = ImmutableList.of(v1, v2, v3);
+
+    // each pair of disjuncts shares the model [true, true, true]
+    TestAllSatCallback callback = new TestAllSatCallback();
+    try (BasicProverEnvironment<?> prover =
+        context.newProverEnvironment(
+            ProverOptions.GENERATE_ALL_SAT, ProverOptions.MINIMIZE_ALL_SAT_MODELS)) {
+      prover.push(bmgr.or(bmgr.and(v1, v2), bmgr.and(v2, v3), bmgr.and(v1, v3)));
+      assertThat(prover.allSat(callback, predicates)).isEqualTo(EXPECTED_RESULT);
+      assertThat(prover.size()).isEqualTo(1);
+    }
+
+    assertThat(getCoveredModels(callback.models, predicates))
+        .containsExactly(
+            ImmutableList.of(true, true, true),
+            ImmutableList.of(true, true, false),
+            ImmutableList.of(true, false, true),
+            ImmutableList.of(false, true, true));
+  }
+
+  /** Expands each partial assignment into the total assignments that it covers. */
+  private List<List<Boolean>> getCoveredModels(
+      List<List<BooleanFormula>> models, List<BooleanFormula> predicates) {
+    List<List<Boolean>> covered = new ArrayList<>();
+    for (List<BooleanFormula> model : models) {
+      List<List<Boolean>> assignments = ImmutableList.of(ImmutableList.of());
+      for (BooleanFormula predicate : predicates) {
+        List<List<Boolean>> extended = new ArrayList<>();
+        for (List<Boolean> assignment : assignments) {
+          for (boolean value : new boolean[] {true, false}) {
+            if (!model.contains(value ? bmgr.not(predicate) : predicate)) {
+              extended.add(
+                  ImmutableList.<Boolean>builder().addAll(assignment).add(value).build());
+            }
+          }
+        }
+        assignments = extended;
+      }
+      covered.addAll(assignments);
+    }
+    return covered;
+  }
 }
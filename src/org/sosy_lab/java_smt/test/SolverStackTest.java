@@ -87,6 +87,38 @@ public class SolverStackTest extends SolverBasedTest0 {
         .isNotEqualTo(Solvers.Z3);
   }
 
+  @Test
+  public void nonIncrementalStackTest() throws SolverException, InterruptedException {
+    assume()
+        .withMessage("Only CVC4 uses a non-incremental mode, which is needed for separation logic")
+        .that(solver)
+        .isEqualTo(Solvers.CVC4);
+    BasicProverEnvironment<?> stack =
+        newEnvironmentForTest(ProverOptions.ENABLE_SEPARATION_LOGIC, ProverOptions.GENERATE_MODELS);
+
+    BooleanFormula a = bmgr.makeVariable("bool_a");
+    BooleanFormula b = bmgr.makeVariable("bool_b");
+
+    // each check needs a new engine with all options and all formulas of the stack
+    stack.push(bmgr.or(a, b));
+    assertThat(stack).isSatisfiable();
+    assertThat(stack).isSatisfiable();
+    stack.push(bmgr.not(a));
+    assertThat(stack).isSatisfiable();
+    try (Model model = stack.getModel()) {
+      assertThat(model.evaluate(b)).isTrue();
+    }
+    stack.push(bmgr.not(b));
+    assertThat(stack).isUnsatisfiable();
+    stack.pop();
+    stack.pop();
+    stack.push(bmgr.not(b));
+    assertThat(stack).isSatisfiable();
+    try (Model model = stack.getModel()) {
+      assertThat(model.evaluate(a)).isTrue();
+    }
+  }
+
   @Test
   public void simpleStackTestBool() throws SolverException, InterruptedException {
     BasicProverEnvironment<?> stack = newEnvironmentForTest();
@@ -14,7 +14,6 @@ import static org.sosy_lab.java_smt.api.FormulaType.BooleanType;
 import static org.sosy_lab.java_smt.api.FormulaType.IntegerType;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.truth.TruthJUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +33,8 @@ import org.sosy_lab.java_smt.api.QuantifiedFormulaManager.Quantifier;
 import org.sosy_lab.java_smt.api.SolverException;
 import org.sosy_lab.java_smt.api.Tactic;
 import org.sosy_lab.java_smt.api.visitors.BooleanFormulaVisitor;
+import org.sosy_lab.java_smt.api.visitors.DefaultBooleanFormulaVisitor;
+import org.sosy_lab.java_smt.basicimpl.tactics.TseitinCNFConverter;
 
 @RunWith(Parameterized.class)
 @SuppressWarnings("LocalVariableName")
@@ -84,7 +85,7 @@ public class SolverTacticsTest extends SolverBasedTest0 {
 
   @Test
   public void cnfTacticDefaultTest1() throws SolverException, InterruptedException {
-    TruthJUnit.assume().that(solver).isEqualTo(Solvers.Z3);
+    requireVisitor();
     BooleanFormula a = bmgr.makeVariable("a");
     BooleanFormula b = bmgr.makeVariable("b");
     BooleanFormula equiv_a_b = bmgr.equivalence(a, b);
@@ -105,7 +106,7 @@ public class SolverTacticsTest extends SolverBasedTest0 {
 
   @Test
   public void cnfTacticDefaultTest2() throws SolverException, InterruptedException {
-    TruthJUnit.assume().that(solver).isEqualTo(Solvers.Z3);
+    requireVisitor();
     BooleanFormula a = bmgr.makeVariable("a");
     BooleanFormula b = bmgr.makeVariable("b");
     BooleanFormula c = bmgr.makeVariable("c");
@@ -128,7 +129,7 @@ public class SolverTacticsTest extends SolverBasedTest0 {
 
   @Test
   public void cnfTacticDefaultTest3() throws SolverException, InterruptedException {
-    TruthJUnit.assume().that(solver).isEqualTo(Solvers.Z3);
+    requireVisitor();
     BooleanFormula x = bmgr.makeVariable("x");
     BooleanFormula y = bmgr.makeVariable("y");
     BooleanFormula z = bmgr.makeVariable("z");
@@ -148,6 +149,31 @@ public class SolverTacticsTest extends SolverBasedTest0 {
     assertThat(checker.isInCNF()).isTrue();
   }
 
+  @Test
+  public void cnfConverterStreamingTest() throws SolverException, InterruptedException {
+    requireVisitor();
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula c = bmgr.makeVariable("c");
+    BooleanFormula shared = bmgr.xor(a, bmgr.ifThenElse(b, c, a));
+    // the shared subformula occurs with both polarities
+    BooleanFormula f = bmgr.and(bmgr.implication(shared, c), bmgr.or(shared, bmgr.not(c)));
+
+    List<List<BooleanFormula>> clauses = new ArrayList<>();
+    new TseitinCNFConverter(mgr).toCNF(f, clauses::add);
+
+    List<BooleanFormula> disjunctions = new ArrayList<>();
+    for (List<BooleanFormula> clause : clauses) {
+      assertThat(clause).isNotEmpty();
+      for (BooleanFormula literal : clause) {
+        assertThat(bmgr.visit(literal, new LiteralChecker(bmgr))).isTrue();
+      }
+      disjunctions.add(bmgr.or(clause));
+    }
+    assertThatFormula(bmgr.and(disjunctions)).isEquisatisfiableTo(f);
+    assertThatFormula(bmgr.and(bmgr.and(disjunctions), bmgr.not(f))).isUnsatisfiable();
+  }
+
   @Test
   public void ufEliminationSimpleTest() throws SolverException, InterruptedException {
     requireIntegers();
@@ -353,6 +379,41 @@ public class SolverTacticsTest extends SolverBasedTest0 {
     }
   }
 
+  /** Accepts constants, atoms and negated atoms. */
+  private static class LiteralChecker extends DefaultBooleanFormulaVisitor<Boolean> {
+
+    private final BooleanFormulaManager bfmgr;
+    private boolean negated = false;
+
+    LiteralChecker(BooleanFormulaManager pBfmgr) {
+      bfmgr = pBfmgr;
+    }
+
+    @Override
+    protected Boolean visitDefault() {
+      return false;
+    }
+
+    @Override
+    public Boolean visitConstant(boolean value) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitAtom(BooleanFormula pAtom, FunctionDeclaration<BooleanFormula> decl) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitNot(BooleanFormula pOperand) {
+      if (negated) {
+        return false;
+      }
+      negated = true;
+      return bfmgr.visit(pOperand, this);
+    }
+  }
+
   private static class NNFChecker implements BooleanFormulaVisitor<Void> {
 
     private final BooleanFormulaManager bfmgr;
@@ -831,6 +831,72 @@ public class SolverVisitorTest extends SolverBasedTest0 {
     assertThat(foundVars).containsExactly("x", "y", "z", "d");
   }
 
+  @Test
+  public void recursiveTraversalVisitsSharedSubtermsOnce() {
+    // the formula is a DAG of linear size, but its tree representation has exponential size
+    BooleanFormula f = bmgr.makeVariable("f");
+    for (int i = 0; i < 40; i++) {
+      f = bmgr.or(bmgr.and(f, bmgr.makeVariable("v" + i)), bmgr.and(f, bmgr.makeVariable("w" + i)));
+    }
+    final List<Formula> visited = new ArrayList<>();
+    mgr.visitRecursively(
+        f,
+        new DefaultFormulaVisitor<>() {
+          @Override
+          protected TraversalProcess visitDefault(Formula pF) {
+            visited.add(pF);
+            return TraversalProcess.CONTINUE;
+          }
+        });
+    assertThat(visited).containsNoDuplicates();
+    assertThat(visited).contains(bmgr.makeVariable("f"));
+    assertThat(mgr.extractVariables(f)).hasSize(81);
+  }
+
+  @Test
+  public void recursiveTraversalVisitsTermsOnceAcrossQuantifiers() {
+    requireQuantifiers();
+    requireIntegers();
+
+    IntegerFormula x = imgr.makeVariable("x");
+    IntegerFormula y = imgr.makeVariable("y");
+    BooleanFormula xIsZero = imgr.equal(x, imgr.makeNumber(0));
+    // x = 0 && EX y: (x = 0 && x = y)
+    BooleanFormula constraint =
+        bmgr.and(
+            xIsZero, qmgr.exists(ImmutableList.of(y), bmgr.and(xIsZero, imgr.equal(x, y))));
+
+    final List<Formula> visited = new ArrayList<>();
+    mgr.visitRecursively(
+        constraint,
+        new DefaultFormulaVisitor<>() {
+          @Override
+          protected TraversalProcess visitDefault(Formula pF) {
+            visited.add(pF);
+            return TraversalProcess.CONTINUE;
+          }
+        });
+    assertThat(visited).containsNoDuplicates();
+    assertThat(visited).contains(xIsZero);
+  }
+
+  @Test
+  public void testNestedQuantifierSymbolsExtraction() {
+    requireQuantifiers();
+    requireIntegers();
+
+    IntegerFormula x = imgr.makeVariable("x");
+    IntegerFormula y = imgr.makeVariable("y");
+    // EX x: (x=y && FORALL y: (y=x))
+    BooleanFormula constraint =
+        qmgr.exists(
+            ImmutableList.of(x),
+            bmgr.and(imgr.equal(x, y), qmgr.forall(ImmutableList.of(y), imgr.equal(y, x))));
+
+    assertThat(mgr.extractVariables(constraint)).containsExactly(y.toString(), y);
+    assertThat(mgr.extractVariablesAndUFs(constraint)).containsExactly(y.toString(), y);
+  }
+
   @Test
   public void testTransformationInsideQuantifiers() {
     requireQuantifiers();
@@ -0,0 +1,124 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Splitter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.delegate.statistics.StatisticsMetricsExporter;
+import org.sosy_lab.java_smt.delegate.statistics.StatisticsSolverContext;
+
+public class StatisticsMetricsExporterTest extends SolverBasedTest0 {
+
+  private String solverLabel;
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder().setOption("solver.collectStatistics", "true");
+  }
+
+  @Before
+  public void solveQueries() throws SolverException, InterruptedException {
+    solverLabel = "solver=\"" + solverToUse().toString().toLowerCase(Locale.ROOT) + "\"";
+    BooleanFormula a = bmgr.makeVariable("a");
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.push();
+      prover.addConstraint(a);
+      assertThat(prover.isUnsat()).isFalse();
+      prover.pop();
+    }
+  }
+
+  private StatisticsMetricsExporter createExporter() {
+    assertThat(context).isInstanceOf(StatisticsSolverContext.class);
+    return new StatisticsMetricsExporter((StatisticsSolverContext) context);
+  }
+
+  @Test
+  public void testPrometheusSnapshot() throws IOException {
+    StringWriter writer = new StringWriter();
+    createExporter().writePrometheus(writer);
+    String output = writer.toString();
+
+    assertThat(output)
+        .contains(
+            "# TYPE javasmt_push_total counter\njavasmt_push_total{" + solverLabel + "} 1\n");
+    assertThat(output).contains("javasmt_pop_total{" + solverLabel + "} 1\n");
+    assertThat(output).contains("javasmt_add_constraint_total{" + solverLabel + "} 1\n");
+    assertThat(output)
+        .contains(
+            "javasmt_formula_operations_total{" + solverLabel + ",theory=\"boolean\"} 1\n");
+    assertThat(output).contains("# TYPE javasmt_query_seconds summary\n");
+    assertThat(output)
+        .contains("javasmt_query_seconds_count{" + solverLabel + ",operation=\"isUnsat\"} 1\n");
+
+    // each line is either a comment or a sample with a valid name, labels, and value
+    String samplePattern = "javasmt_[a-z0-9_]+\\{" + solverLabel + "(,[a-z]+=\"[^\"]*\")*\\} \\S+";
+    for (String line : Splitter.on('\n').omitEmptyStrings().split(output)) {
+      if (!line.startsWith("# HELP ") && !line.startsWith("# TYPE ")) {
+        assertThat(line).matches(samplePattern);
+      }
+    }
+  }
+
+  @Test
+  public void testMBean() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    StatisticsMetricsExporter exporter = createExporter();
+    ObjectName name = exporter.registerMBean(server);
+    try {
+      assertThat(server.getAttribute(name, "push_total")).isEqualTo(1.0);
+      assertThat(server.getAttribute(name, "query_seconds_count.isUnsat")).isEqualTo(1.0);
+      assertThat(server.getAttribute(name, "formula_operations_total.boolean")).isEqualTo(1.0);
+    } finally {
+      exporter.unregisterMBean();
+    }
+    assertThat(server.isRegistered(name)).isFalse();
+  }
+
+  @Test
+  public void testMBeanIsUnregisteredOnClose() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    StatisticsMetricsExporter exporter = createExporter();
+    ObjectName name = exporter.registerMBean(server);
+    assertThat(server.isRegistered(name)).isTrue();
+
+    context.close();
+    assertThat(server.isRegistered(name)).isFalse();
+    context = null;
+
+    // unregistering again has no effect
+    exporter.unregisterMBean();
+  }
+
+  @Test
+  public void testSnapshotAfterClose() throws IOException {
+    StatisticsMetricsExporter exporter = createExporter();
+    context.close();
+    context = null;
+
+    // the solver is not accessed after it was closed
+    StringWriter writer = new StringWriter();
+    exporter.writePrometheus(writer);
+    assertThat(writer.toString()).contains("javasmt_push_total{" + solverLabel + "} 1\n");
+  }
+}
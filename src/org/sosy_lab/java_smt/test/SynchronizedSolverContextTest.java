@@ -0,0 +1,125 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Model;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/** Test provers that solve their queries in a separate context. */
+@RunWith(Parameterized.class)
+public class SynchronizedSolverContextTest extends SolverBasedTest0 {
+
+  @Parameters(name = "{0}")
+  public static Object[] getAllSolvers() {
+    return Solvers.values();
+  }
+
+  @Parameter public Solvers solver;
+
+  @Override
+  protected Solvers solverToUse() {
+    return solver;
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder()
+        .setOption("solver.synchronize", "true")
+        .setOption("solver.synchronized.useSeperateProvers", "true")
+        .setOption("solver.synchronized.contextPoolSize", "1");
+  }
+
+  @Test
+  public void testSolvingInSeparateContext() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+
+    try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+      prover.addConstraint(bmgr.or(a, b));
+      assertThat(prover.isUnsat()).isFalse();
+      prover.push();
+      prover.addConstraint(bmgr.not(a));
+      prover.addConstraint(bmgr.not(b));
+      assertThat(prover.isUnsat()).isTrue();
+      prover.pop();
+      prover.addConstraint(bmgr.not(a));
+      assertThat(prover.isUnsat()).isFalse();
+      assertThat(prover.getModel().evaluate(b)).isTrue();
+    }
+  }
+
+  @Test
+  public void testEvaluateAllInSeparateContext() throws SolverException, InterruptedException {
+    requireIntegers();
+    BooleanFormula a = bmgr.makeVariable("a");
+    IntegerFormula x = imgr.makeVariable("x");
+
+    try (ProverEnvironment prover = context.newProverEnvironment(ProverOptions.GENERATE_MODELS)) {
+      prover.addConstraint(bmgr.not(a));
+      prover.addConstraint(imgr.equal(x, imgr.makeNumber(3)));
+      assertThat(prover.isUnsat()).isFalse();
+      try (Model model = prover.getModel()) {
+        assertThat(model.evaluateAll(ImmutableList.of(a, x, imgr.add(x, x))))
+            .containsExactly(false, BigInteger.valueOf(3), BigInteger.valueOf(6))
+            .inOrder();
+      }
+    }
+  }
+
+  @Test
+  public void testContextIsReused() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+
+    for (int i = 0; i < 3; i++) {
+      try (ProverEnvironment prover = context.newProverEnvironment()) {
+        prover.addConstraint(bmgr.and(a, bmgr.not(a)));
+        assertThat(prover.isUnsat()).isTrue();
+      }
+    }
+
+    assertThat(context.getStatistics())
+        .containsAtLeast(
+            "synchronized.contextPool.leases", "3", "synchronized.contextPool.creations", "1");
+  }
+
+  @Test
+  public void testWaitingForContextStopsOnShutdown() {
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      // the only context of the pool is in use, thus this would wait forever
+      shutdownManager.requestShutdown("test");
+      assertThrows(IllegalStateException.class, () -> context.newProverEnvironment());
+    }
+  }
+
+  @Test
+  public void testWaitingForContextStopsOnInterrupt() {
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      Thread.currentThread().interrupt();
+      assertThrows(IllegalStateException.class, () -> context.newProverEnvironment());
+      assertThat(Thread.interrupted()).isTrue();
+    }
+    assertThat(context.getStatistics()).containsEntry("synchronized.contextPool.waits", "1");
+  }
+}
@@ -8,6 +8,7 @@
 
 package org.sosy_lab.java_smt.test;
 
+import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.TruthJUnit.assume;
 import static org.sosy_lab.java_smt.test.BooleanFormulaSubject.assertUsing;
 
@@ -30,10 +31,15 @@ import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.BooleanFormulaManager;
 import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.FormulaType;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
 import org.sosy_lab.java_smt.api.IntegerFormulaManager;
 import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
 import org.sosy_lab.java_smt.api.SolverContext;
 import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.api.UFManager;
+import org.sosy_lab.java_smt.utils.FormulaTranslator;
+import org.sosy_lab.java_smt.utils.SolverUtils;
 
 /** Testing formula serialization. */
 @RunWith(Parameterized.class)
@@ -156,6 +162,57 @@ public class TranslateFormulaTest {
     assertUsing(from).that(inputFrom).isEquivalentTo(translatedReverseInput);
   }
 
+  @Test
+  public void testTranslatingSharedSubterms() throws SolverException, InterruptedException {
+    requireParserTo();
+
+    BooleanFormula inputFrom = createSharedTestFormula(managerFrom);
+    BooleanFormula inputTo = createSharedTestFormula(managerTo);
+    BooleanFormula translatedInput = managerTo.translateFrom(inputFrom, managerFrom);
+
+    assertUsing(to).that(inputTo).isEquivalentTo(translatedInput);
+  }
+
+  @Test
+  public void testTranslatingUF() throws SolverException, InterruptedException {
+    requireParserTo();
+
+    BooleanFormula inputFrom = createUFTestFormula(managerFrom);
+    BooleanFormula inputTo = createUFTestFormula(managerTo);
+    BooleanFormula translatedInput = managerTo.translateFrom(inputFrom, managerFrom);
+
+    assertUsing(to).that(inputTo).isEquivalentTo(translatedInput);
+  }
+
+  @Test
+  public void testTranslatorReusesCache() throws SolverException, InterruptedException {
+    requireParserTo();
+    assume().that(translateTo).isNotEqualTo(translateFrom);
+
+    FormulaTranslator translator = SolverUtils.formulaTranslator(managerFrom, managerTo);
+    BooleanFormula inputFrom = createSharedTestFormula(managerFrom);
+    BooleanFormula inputTo = createSharedTestFormula(managerTo);
+
+    BooleanFormula translatedInput = translator.translate(inputFrom);
+    assertUsing(to).that(inputTo).isEquivalentTo(translatedInput);
+    long misses = translator.getCacheMisses();
+
+    // translating an extended formula only translates the new nodes
+    BooleanFormulaManager bfmgr = managerFrom.getBooleanFormulaManager();
+    BooleanFormula extendedFrom = bfmgr.and(inputFrom, bfmgr.makeVariable("c"));
+    BooleanFormula translatedExtended = translator.translate(extendedFrom);
+    BooleanFormula extendedTo =
+        managerTo
+            .getBooleanFormulaManager()
+            .and(inputTo, managerTo.getBooleanFormulaManager().makeVariable("c"));
+    assertUsing(to).that(extendedTo).isEquivalentTo(translatedExtended);
+
+    if (translator.getFallbacks() == 0) {
+      assertThat(translator.getCacheHits()).isAtLeast(1);
+      assertThat(translator.getCacheMisses() - misses).isAtMost(2);
+    }
+  }
+
   private BooleanFormula createTestFormula(FormulaManager mgr) {
     requireIntegers();
 
@@ -170,4 +227,36 @@ public class TranslateFormulaTest {
             bfmgr.or(ifmgr.equal(y, z), ifmgr.equal(z, ifmgr.makeNumber(10))));
     return t;
   }
+
+  /** Build a formula whose tree representation is exponentially larger than its DAG. */
+  private BooleanFormula createSharedTestFormula(FormulaManager mgr) {
+    requireIntegers();
+
+    BooleanFormulaManager bfmgr = mgr.getBooleanFormulaManager();
+    IntegerFormulaManager ifmgr = mgr.getIntegerFormulaManager();
+    IntegerFormula sum = ifmgr.makeVariable("x");
+    BooleanFormula guard = bfmgr.makeVariable("b");
+    for (int i = 0; i < 10; i++) {
+      IntegerFormula y = ifmgr.makeVariable("y" + i);
+      sum = ifmgr.add(ifmgr.add(sum, y), sum);
+      guard = bfmgr.or(bfmgr.and(guard, ifmgr.lessThan(y, sum)), bfmgr.not(guard));
+    }
+    return bfmgr.and(guard, ifmgr.greaterOrEquals(sum, ifmgr.makeNumber(0)));
+  }
+
+  private BooleanFormula createUFTestFormula(FormulaManager mgr) {
+    requireIntegers();
+
+    BooleanFormulaManager bfmgr = mgr.getBooleanFormulaManager();
+    IntegerFormulaManager ifmgr = mgr.getIntegerFormulaManager();
+    UFManager ufmgr = mgr.getUFManager();
+    IntegerFormula x = ifmgr.makeVariable("x");
+    IntegerFormula y = ifmgr.makeVariable("y");
+    FunctionDeclaration<IntegerFormula> f =
+        ufmgr.declareUF("f", FormulaType.IntegerType, FormulaType.IntegerType);
+    IntegerFormula fx = ufmgr.callUF(f, x);
+    return bfmgr.and(
+        ifmgr.equal(ufmgr.callUF(f, fx), ifmgr.add(y, ifmgr.makeNumber(1))),
+        bfmgr.not(ifmgr.equal(fx, ifmgr.subtract(x, y))));
+  }
 }
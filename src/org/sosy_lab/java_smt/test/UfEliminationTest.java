@@ -16,7 +16,10 @@ import static org.sosy_lab.java_smt.api.FormulaType.IntegerType;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.truth.Truth;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,19 +35,26 @@ import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
 import org.sosy_lab.java_smt.api.SolverException;
 import org.sosy_lab.java_smt.utils.SolverUtils;
 import org.sosy_lab.java_smt.utils.UfElimination;
+import org.sosy_lab.java_smt.utils.UfElimination.Mode;
 import org.sosy_lab.java_smt.utils.UfElimination.Result;
 
 @RunWith(Parameterized.class)
 public class UfEliminationTest extends SolverBasedTest0 {
 
-  @Parameters(name = "{0}")
-  public static Object[] getAllSolvers() {
-    return Solvers.values();
+  @Parameters(name = "{0} {1}")
+  public static List<Object[]> getAllSolversAndModes() {
+    return Lists.transform(
+        Lists.cartesianProduct(
+            ImmutableList.copyOf(Solvers.values()), ImmutableList.copyOf(Mode.values())),
+        List::toArray);
   }
 
   @Parameter(0)
   public Solvers solver;
 
+  @Parameter(1)
+  public Mode mode;
+
   @Override
   protected Solvers solverToUse() {
     return solver;
@@ -54,7 +64,7 @@ public class UfEliminationTest extends SolverBasedTest0 {
 
   @Before
   public void setUp() {
-    ackermannization = SolverUtils.ufElimination(mgr);
+    ackermannization = SolverUtils.ufElimination(mgr, mode);
   }
 
   @Test
@@ -289,4 +299,31 @@ public class UfEliminationTest extends SolverBasedTest0 {
         mgr.substitute(withOutUfs.getFormula(), inverseSubstitution);
     assertThatFormula(f).isEquivalentTo(revertedSubstitution);
   }
+
+  @Test
+  public void constantArgumentsTest() throws SolverException, InterruptedException {
+    requireIntegers();
+
+    // f := uf(0) < uf(1) < ... < uf(9) AND uf(x) != uf(3)
+    FunctionDeclaration<IntegerFormula> ufDecl = fmgr.declareUF("uf", IntegerType, IntegerType);
+    IntegerFormula x = imgr.makeVariable("x");
+    List<BooleanFormula> parts = new ArrayList<>();
+    for (int i = 0; i < 9; i++) {
+      IntegerFormula current = fmgr.callUF(ufDecl, imgr.makeNumber(i));
+      IntegerFormula next = fmgr.callUF(ufDecl, imgr.makeNumber(i + 1));
+      parts.add(imgr.lessThan(current, next));
+    }
+    parts.add(
+        bmgr.not(imgr.equal(fmgr.callUF(ufDecl, x), fmgr.callUF(ufDecl, imgr.makeNumber(3)))));
+    BooleanFormula f = bmgr.and(parts);
+
+    Result result = ackermannization.eliminateUfs(f, Result.empty(mgr));
+    BooleanFormula withOutUfs = bmgr.and(result.getFormula(), result.getConstraints());
+    assertThatFormula(withOutUfs).isSatisfiable();
+    assertThatFormula(bmgr.and(imgr.equal(x, imgr.makeNumber(3)), withOutUfs)).isUnsatisfiable();
+
+    // 11 applications give 55 pairs, but applications with distinct constants need no constraint
+    int expectedConstraints = mode == Mode.PAIRWISE ? 55 : 10;
+    Truth.assertThat(result.getNumberOfConstraints()).isEqualTo(expectedConstraints);
+  }
 }
@@ -0,0 +1,112 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/** Test the release of Z3 ASTs via PhantomReferences, synchronously and in background mode. */
+@RunWith(Parameterized.class)
+public class Z3AstReclaimerTest extends SolverBasedTest0 {
+
+  private static final int FORMULAS = 1000;
+
+  @Parameters(name = "background {0}")
+  public static ImmutableList<Object[]> getModes() {
+    return ImmutableList.of(new Object[] {false}, new Object[] {true});
+  }
+
+  @Parameter(0)
+  public boolean collectInBackground;
+
+  @Override
+  protected Solvers solverToUse() {
+    return Solvers.Z3;
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder()
+        .setOption("solver.z3.usePhantomReferences", "true")
+        .setOption("solver.z3.phantomReferenceCleanupThreshold", "10")
+        .setOption(
+            "solver.z3.phantomReferenceCleanupInBackground",
+            Boolean.toString(collectInBackground));
+  }
+
+  private long getStatistic(String pKey) {
+    String value = context.getStatistics().get(pKey);
+    assertThat(value).isNotNull();
+    return Long.parseLong(value);
+  }
+
+  /** Create formulas that are not referenced afterwards. */
+  private void createGarbage(int pRound) {
+    for (int i = 0; i < FORMULAS; i++) {
+      bmgr.makeVariable("garbage_" + pRound + "_" + i);
+    }
+  }
+
+  @Test
+  public void unreachableFormulasAreReleased() throws InterruptedException {
+    for (int round = 0; round < 50 && getStatistic("phantom references reclaimed") == 0; round++) {
+      createGarbage(round);
+      System.gc();
+      Thread.sleep(10);
+      // creating formulas triggers the release of collected ones
+      createGarbage(-round - 1);
+    }
+    long reclaimed = getStatistic("phantom references reclaimed");
+    assertThat(reclaimed).isGreaterThan(0L);
+    assertThat(getStatistic("phantom references tracked") + reclaimed).isAtLeast(2L * FORMULAS);
+  }
+
+  @Test
+  public void reachableFormulasAreKept() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula notA = bmgr.not(a);
+    for (int round = 0; round < 5; round++) {
+      createGarbage(round);
+      System.gc();
+      Thread.sleep(10);
+    }
+    createGarbage(-1);
+
+    // the ASTs of the referenced formulas are still valid
+    try (ProverEnvironment prover = context.newProverEnvironment()) {
+      prover.push(a);
+      assertThat(prover.isUnsat()).isFalse();
+      prover.push(notA);
+      assertThat(prover.isUnsat()).isTrue();
+    }
+  }
+
+  @Test
+  public void closeWithPendingFormulas() throws InterruptedException {
+    createGarbage(0);
+    System.gc();
+    Thread.sleep(10);
+    // no further release after the context was closed
+    context.close();
+    context = null;
+    System.gc();
+    Thread.sleep(10);
+  }
+}
@@ -0,0 +1,120 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.sosy_lab.java_smt.api.SolverContext.ProverOptions.GENERATE_UNSAT_CORE;
+
+import com.google.common.collect.ImmutableList;
+import java.util.EnumSet;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.basicimpl.withAssumptionsWrapper.SelectorProverWithAssumptionsWrapper;
+
+/**
+ * inherits many tests from {@link ProverEnvironmentTest}, for unsat cores tracked by index in Z3.
+ */
+public class Z3UnsatCoreByIndexTest extends ProverEnvironmentTest {
+
+  @Parameters(name = "{0}")
+  public static Solvers[] getAllSolvers() {
+    return new Solvers[] {Solvers.Z3};
+  }
+
+  @Override
+  protected ConfigurationBuilder createTestConfigBuilder() {
+    return super.createTestConfigBuilder().setOption("solver.z3.trackUnsatCoreByIndex", "true");
+  }
+
+  @Test
+  public void unsatCoreWithReusedTrackingLiterals() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula c = bmgr.makeVariable("c");
+
+    try (ProverEnvironment pe = context.newProverEnvironment(GENERATE_UNSAT_CORE)) {
+      pe.addConstraint(a);
+      pe.push();
+      pe.addConstraint(b);
+      pe.addConstraint(bmgr.not(b));
+      assertThat(pe.isUnsat()).isTrue();
+      assertThat(pe.getUnsatCore()).containsExactly(b, bmgr.not(b));
+      pe.pop();
+
+      // the tracking literals of the popped constraints are used again
+      pe.push();
+      pe.addConstraint(c);
+      pe.addConstraint(bmgr.not(a));
+      assertThat(pe.isUnsat()).isTrue();
+      assertThat(pe.getUnsatCore()).containsExactly(a, bmgr.not(a));
+      pe.pop();
+
+      assertThat(pe.isUnsat()).isFalse();
+    }
+  }
+
+  @Test
+  public void unsatCoreIndices() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula b = bmgr.makeVariable("b");
+    BooleanFormula c = bmgr.makeVariable("c");
+
+    try (ProverEnvironment pe = context.newProverEnvironment(GENERATE_UNSAT_CORE)) {
+      pe.addConstraint(a);
+      pe.addConstraint(c);
+      pe.push();
+      pe.addConstraint(b);
+      pe.addConstraint(bmgr.not(a));
+      assertThat(pe.isUnsat()).isTrue();
+      assertThat(pe.getUnsatCoreIndices()).asList().containsExactly(0, 3);
+      pe.pop();
+
+      // the positions are relative to the current stack
+      pe.push();
+      pe.addConstraint(bmgr.not(c));
+      assertThat(pe.isUnsat()).isTrue();
+      assertThat(pe.getUnsatCoreIndices()).asList().containsExactly(1, 2);
+
+      // assumptions are not part of the stack
+      pe.pop();
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(bmgr.not(a)))).isTrue();
+      assertThat(pe.getUnsatCoreIndices()).asList().containsExactly(0);
+    }
+  }
+
+  @Test
+  public void unsatCoreIndicesWithSelectors() throws SolverException, InterruptedException {
+    BooleanFormula a = bmgr.makeVariable("a");
+    BooleanFormula c = bmgr.makeVariable("c");
+
+    try (ProverEnvironment pe =
+        new SelectorProverWithAssumptionsWrapper(
+            context.newProverEnvironment(GENERATE_UNSAT_CORE),
+            bmgr,
+            EnumSet.of(GENERATE_UNSAT_CORE))) {
+      pe.addConstraint(a);
+      pe.push();
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(c))).isFalse();
+      pe.addConstraint(bmgr.not(c));
+      assertThat(pe.isUnsatWithAssumptions(ImmutableList.of(c))).isTrue();
+      // the implication and the selector of the assumption are skipped
+      assertThat(pe.getUnsatCoreIndices()).asList().containsExactly(1);
+      pe.pop();
+
+      pe.addConstraint(bmgr.not(a));
+      assertThat(pe.isUnsat()).isTrue();
+      assertThat(pe.getUnsatCoreIndices()).asList().containsExactly(0, 1);
+    }
+  }
+}
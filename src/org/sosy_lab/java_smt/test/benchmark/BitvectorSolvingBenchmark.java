@@ -0,0 +1,74 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.SolverContext;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.test.HardBitvectorFormulaGenerator;
+
+/**
+ * Benchmarks for satisfiability checks of hard bitvector formulas in a fresh prover environment.
+ * This uses its own set of solvers, because SMTInterpol does not support bitvectors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitvectorSolvingBenchmark {
+
+  @Param({"PRINCESS"})
+  public Solvers solver;
+
+  /** Size parameter for the formula generator, the solving time grows exponentially. */
+  @Param({"4"})
+  public int size;
+
+  private SolverContext context;
+  private BooleanFormula formula;
+
+  @Setup(Level.Trial)
+  public void createFormula() throws InvalidConfigurationException {
+    context = SolverState.createContext(solver);
+    FormulaManager mgr = context.getFormulaManager();
+    formula =
+        new HardBitvectorFormulaGenerator(
+                mgr.getBitvectorFormulaManager(), mgr.getBooleanFormulaManager())
+            .generate(size);
+  }
+
+  @TearDown(Level.Trial)
+  public void closeContext() {
+    context.close();
+  }
+
+  @Benchmark
+  public boolean isUnsat() throws SolverException, InterruptedException {
+    return SolvingBenchmark.isUnsat(context, formula);
+  }
+}
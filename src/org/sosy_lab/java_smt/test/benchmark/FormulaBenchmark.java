@@ -0,0 +1,138 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.visitors.DefaultFormulaVisitor;
+import org.sosy_lab.java_smt.api.visitors.TraversalProcess;
+import org.sosy_lab.java_smt.test.HardIntegerFormulaGenerator;
+
+/** Benchmarks for creating, traversing, and exporting formulas without solving them. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormulaBenchmark {
+
+  /** Size parameter for {@link HardIntegerFormulaGenerator}. */
+  @Param({"20"})
+  public int size;
+
+  /** Number of operands for conjunctions. */
+  @Param({"1000"})
+  public int operands;
+
+  private BooleanFormula formula;
+  private String dump;
+  private List<BooleanFormula> variables;
+  private Map<Formula, Formula> substitution;
+  private List<Map<Formula, Formula>> renamings;
+
+  private int counter = 0;
+
+  @Setup(Level.Trial)
+  public void createFormulas(SolverState s) {
+    formula = new HardIntegerFormulaGenerator(s.imgr, s.bmgr).generate(size);
+    dump = s.mgr.dumpFormula(formula).toString();
+
+    variables = new ArrayList<>(operands);
+    for (int i = 0; i < operands; i++) {
+      variables.add(s.bmgr.makeVariable("operand" + i));
+    }
+
+    ImmutableMap.Builder<Formula, Formula> builder = ImmutableMap.builder();
+    s.mgr
+        .extractVariables(formula)
+        .forEach(
+            (name, variable) ->
+                builder.put(
+                    variable, s.mgr.makeVariable(s.mgr.getFormulaType(variable), name + "'")));
+    substitution = builder.buildOrThrow();
+
+    // rename one variable per mapping, like shifting SSA indices
+    renamings = new ArrayList<>();
+    substitution.forEach((from, to) -> renamings.add(ImmutableMap.of(from, to)));
+  }
+
+  @Benchmark
+  public BooleanFormula makeVariable(SolverState s) {
+    return s.bmgr.makeVariable("fresh" + counter++);
+  }
+
+  @Benchmark
+  public BooleanFormula andCollection(SolverState s) {
+    return s.bmgr.and(variables);
+  }
+
+  @Benchmark
+  public int visitRecursively(SolverState s) {
+    NodeCounter nodeCounter = new NodeCounter();
+    s.mgr.visitRecursively(formula, nodeCounter);
+    return nodeCounter.nodes;
+  }
+
+  @Benchmark
+  public BooleanFormula substitute(SolverState s) {
+    return s.mgr.substitute(formula, substitution);
+  }
+
+  @Benchmark
+  public List<BooleanFormula> substituteEach(SolverState s) {
+    List<BooleanFormula> results = new ArrayList<>(renamings.size());
+    for (Map<Formula, Formula> renaming : renamings) {
+      results.add(s.mgr.substitute(formula, renaming));
+    }
+    return results;
+  }
+
+  @Benchmark
+  public List<BooleanFormula> substituteBatch(SolverState s) {
+    return s.mgr.substitute(formula, renamings);
+  }
+
+  @Benchmark
+  public String dumpFormula(SolverState s) {
+    return s.mgr.dumpFormula(formula).toString();
+  }
+
+  @Benchmark
+  public BooleanFormula parse(SolverState s) {
+    return s.mgr.parse(dump);
+  }
+
+  private static final class NodeCounter extends DefaultFormulaVisitor<TraversalProcess> {
+    private int nodes = 0;
+
+    @Override
+    protected TraversalProcess visitDefault(Formula pF) {
+      nodes++;
+      return TraversalProcess.CONTINUE;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.SolverContextFactory.Solvers;
+import org.sosy_lab.java_smt.api.BooleanFormulaManager;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.IntegerFormulaManager;
+import org.sosy_lab.java_smt.api.SolverContext;
+
+/**
+ * Solver context that is shared by all invocations of a benchmark.
+ *
+ * <p>By default, only the Java-based solvers are benchmarked, because they are available on all
+ * platforms. Other solvers can be selected with the JMH parameter {@code solver}, e.g., {@code -p
+ * solver=Z3,MATHSAT5}.
+ */
+@State(Scope.Benchmark)
+public class SolverState {
+
+  @Param({"SMTINTERPOL", "PRINCESS"})
+  public Solvers solver;
+
+  SolverContext context;
+  FormulaManager mgr;
+  BooleanFormulaManager bmgr;
+  IntegerFormulaManager imgr;
+
+  @Setup(Level.Trial)
+  public void createContext() throws InvalidConfigurationException {
+    context = createContext(solver);
+    mgr = context.getFormulaManager();
+    bmgr = mgr.getBooleanFormulaManager();
+    imgr = mgr.getIntegerFormulaManager();
+  }
+
+  static SolverContext createContext(Solvers pSolver) throws InvalidConfigurationException {
+    return SolverContextFactory.createSolverContext(
+        Configuration.defaultConfiguration(),
+        LogManager.createNullLogManager(),
+        ShutdownNotifier.createDummy(),
+        pSolver);
+  }
+
+  @TearDown(Level.Trial)
+  public void closeContext() {
+    context.close();
+  }
+}
@@ -0,0 +1,66 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext;
+import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.test.HardIntegerFormulaGenerator;
+
+/**
+ * Benchmarks for satisfiability checks of hard integer formulas in a fresh prover environment.
+ *
+ * @see BitvectorSolvingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolvingBenchmark {
+
+  /** Size parameter for the formula generators, the solving time grows exponentially. */
+  @Param({"6"})
+  public int size;
+
+  private BooleanFormula formula;
+
+  @Setup(Level.Trial)
+  public void createFormula(SolverState s) {
+    formula = new HardIntegerFormulaGenerator(s.imgr, s.bmgr).generate(size);
+  }
+
+  @Benchmark
+  public boolean isUnsat(SolverState s) throws SolverException, InterruptedException {
+    return isUnsat(s.context, formula);
+  }
+
+  static boolean isUnsat(SolverContext pContext, BooleanFormula pFormula)
+      throws SolverException, InterruptedException {
+    try (ProverEnvironment prover = pContext.newProverEnvironment()) {
+      prover.addConstraint(pFormula);
+      return prover.isUnsat();
+    }
+  }
+}
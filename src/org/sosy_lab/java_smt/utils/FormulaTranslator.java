@@ -0,0 +1,174 @@
+// This file is part of JavaSMT,
+// an API wrapper for a collection of SMT solvers:
+// https://github.com/sosy-lab/java-smt
+//
+// SPDX-FileCopyrightText: 2022 Dirk Beyer <https://www.sosy-lab.org>
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package org.sosy_lab.java_smt.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ForwardingMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
+import org.sosy_lab.java_smt.api.FormulaManager;
+import org.sosy_lab.java_smt.api.FunctionDeclaration;
+import org.sosy_lab.java_smt.basicimpl.StructuralFormulaTranslator;
+
+/**
+ * Translates formulas between a fixed pair of {@link FormulaManager}s and remembers already
+ * translated subterms and function declarations across several calls.
+ *
+ * <p>Repeated or overlapping translations, e.g., of constraints that share most of their structure,
+ * only translate the nodes that were not seen before. The cache is bounded and evicts the least
+ * recently used entries. Formulas that can not be translated structurally are translated by dumping
+ * and parsing SMT-LIB2.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class FormulaTranslator {
+
+  /** Default number of subterms and declarations that are cached. */
+  public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+  private final FormulaManager source;
+  private final FormulaManager target;
+
+  private final Map<Formula, Formula> cache;
+  private final Map<FunctionDeclaration<?>, FunctionDeclaration<?>> declarationCache;
+
+  private long cacheHits = 0;
+  private long cacheMisses = 0;
+  private long fallbacks = 0;
+
+  public FormulaTranslator(FormulaManager pSource, FormulaManager pTarget) {
+    this(pSource, pTarget, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param pSource the manager that created the formulas that will be translated.
+   * @param pTarget the manager that will create the translated formulas.
+   * @param pCacheSize maximum number of cached subterms (and separately of cached declarations).
+   */
+  public FormulaTranslator(FormulaManager pSource, FormulaManager pTarget, int pCacheSize) {
+    checkArgument(pCacheSize > 0, "cache size must be positive, but is %s", pCacheSize);
+    source = checkNotNull(pSource);
+    target = checkNotNull(pTarget);
+    cache = new LruMap<>(pCacheSize);
+    declarationCache = new LruMap<>(pCacheSize);
+  }
+
+  /**
+   * Translate the given formula from the source manager into the target manager.
+   *
+   * @throws UnsupportedOperationException if a non-Boolean formula can not be translated
+   *     structurally. Boolean formulas are translated via SMT-LIB2 in this case.
+   */
+  public <T extends Formula> T translate(T pFormula) {
+    if (source == target) {
+      return pFormula; // shortcut
+    }
+
+    // The bounded cache must not evict entries while a single formula is translated,
+    // thus new subterms are collected separately and published afterwards.
+    TranslationCache localCache = new TranslationCache();
+    try {
+      return new StructuralFormulaTranslator(source, target, localCache, declarationCache)
+          .translate(pFormula);
+    } catch (UnsupportedOperationException e) {
+      if (!(pFormula instanceof BooleanFormula)) {
+        throw e;
+      }
+      fallbacks++;
+      @SuppressWarnings("unchecked")
+      T out = (T) target.parse(source.dumpFormula((BooleanFormula) pFormula).toString());
+      return out;
+    } finally {
+      cache.putAll(localCache.newEntries);
+    }
+  }
+
+  /** Number of subterm lookups that were answered from the cache. */
+  public long getCacheHits() {
+    return cacheHits;
+  }
+
+  /** Number of subterm lookups that required a new translation. */
+  public long getCacheMisses() {
+    return cacheMisses;
+  }
+
+  /** Number of formulas that were translated via SMT-LIB2 instead of structurally. */
+  public long getFallbacks() {
+    return fallbacks;
+  }
+
+  /** Number of subterms that are currently cached. */
+  public int getCacheSize() {
+    return cache.size();
+  }
+
+  /** Remove all cached subterms and declarations. Statistics are not reset. */
+  public void clearCache() {
+    cache.clear();
+    declarationCache.clear();
+  }
+
+  /**
+   * Memo table for a single translation that combines the subterms translated in this run with the
+   * long-living bounded cache and counts the cache accesses.
+   */
+  private final class TranslationCache extends ForwardingMap<Formula, Formula> {
+
+    private final Map<Formula, Formula> newEntries = new HashMap<>();
+
+    @Override
+    protected Map<Formula, Formula> delegate() {
+      return newEntries;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+      return newEntries.containsKey(key) || cache.containsKey(key);
+    }
+
+    @Override
+    public @Nullable Formula get(@Nullable Object key) {
+      Formula result = newEntries.get(key);
+      if (result == null) {
+        result = cache.get(key);
+        if (result == null) {
+          cacheMisses++;
+        } else {
+          cacheHits++;
+        }
+      }
+      return result;
+    }
+  }
+
+  /** Map with bounded size that evicts the least recently accessed entry. */
+  private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    LruMap(int pMaxSize) {
+      super(16, 0.75f, true);
+      maxSize = pMaxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> pEldest) {
+      return size() > maxSize;
+    }
+  }
+}
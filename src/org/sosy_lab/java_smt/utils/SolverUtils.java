@@ -25,6 +25,18 @@ public final class SolverUtils {
     return new UfElimination(pFormulaManager);
   }
 
+  /**
+   * Creates a new {@link UfElimination} instance with the given strategy for the constraints.
+   *
+   * @param pFormulaManager the {@link FormulaManager} to be used
+   * @param pMode the strategy to generate the constraints for functional consistency
+   * @return a new {@link UfElimination} instance
+   */
+  public static UfElimination ufElimination(
+      FormulaManager pFormulaManager, UfElimination.Mode pMode) {
+    return new UfElimination(pFormulaManager, pMode);
+  }
+
   /**
    * Creates a new {@link PrettyPrinter} instance.
    *
@@ -34,4 +46,16 @@ public final class SolverUtils {
   public static PrettyPrinter prettyPrinter(FormulaManager pFormulaManager) {
     return new PrettyPrinter(pFormulaManager);
   }
+
+  /**
+   * Creates a new {@link FormulaTranslator} instance.
+   *
+   * @param pSource the {@link FormulaManager} of the formulas to be translated
+   * @param pTarget the {@link FormulaManager} of the translated formulas
+   * @return a new {@link FormulaTranslator} instance
+   */
+  public static FormulaTranslator formulaTranslator(
+      FormulaManager pSource, FormulaManager pTarget) {
+    return new FormulaTranslator(pSource, pTarget);
+  }
 }
@@ -22,11 +22,18 @@ import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Streams;
 import com.google.errorprone.annotations.CheckReturnValue;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.UniqueIdGenerator;
+import org.sosy_lab.common.rationals.Rational;
 import org.sosy_lab.java_smt.api.ArrayFormula;
 import org.sosy_lab.java_smt.api.BitvectorFormula;
 import org.sosy_lab.java_smt.api.BooleanFormula;
@@ -58,21 +65,24 @@ public class UfElimination {
     private final BooleanFormula constraints;
     private final ImmutableMap<Formula, Formula> substitutions;
     private final ImmutableMultimap<FunctionDeclaration<?>, UninterpretedFunctionApplication> ufs;
+    private final int numberOfConstraints;
 
     public static Result empty(FormulaManager pFormulaManager) {
       BooleanFormula trueFormula = pFormulaManager.getBooleanFormulaManager().makeTrue();
-      return new Result(trueFormula, trueFormula, ImmutableMap.of(), ImmutableListMultimap.of());
+      return new Result(trueFormula, trueFormula, ImmutableMap.of(), ImmutableListMultimap.of(), 0);
     }
 
     Result(
         BooleanFormula pFormula,
         BooleanFormula pConstraints,
         ImmutableMap<Formula, Formula> pSubstitutions,
-        ImmutableMultimap<FunctionDeclaration<?>, UninterpretedFunctionApplication> pUfs) {
+        ImmutableMultimap<FunctionDeclaration<?>, UninterpretedFunctionApplication> pUfs,
+        int pNumberOfConstraints) {
       formula = checkNotNull(pFormula);
       constraints = checkNotNull(pConstraints);
       substitutions = checkNotNull(pSubstitutions);
       ufs = checkNotNull(pUfs);
+      numberOfConstraints = pNumberOfConstraints;
     }
 
     /**
@@ -89,6 +99,13 @@ public class UfElimination {
       return constraints;
     }
 
+    /**
+     * @return the number of constraints in {@link #getConstraints()}
+     */
+    public int getNumberOfConstraints() {
+      return numberOfConstraints;
+    }
+
     /**
      * @return the substitution used to replace UFs
      */
@@ -104,16 +121,40 @@ public class UfElimination {
     }
   }
 
+  /** Strategies to generate the constraints that enforce the functional consistency. */
+  public enum Mode {
+
+    /**
+     * Add one constraint for each pair of applications of the same function (Ackermann). Nested
+     * applications are substituted in the constraints once per level of nesting.
+     */
+    PAIRWISE,
+
+    /**
+     * Group applications of the same function with syntactically equal arguments into one class
+     * that is replaced by a single variable, and add constraints only for pairs of classes that can
+     * be equal, i.e., whose arguments are not distinct constants at some position. Nested
+     * applications are substituted bottom-up in a single pass.
+     */
+    CONGRUENCE,
+  }
+
   private static final UniqueIdGenerator UNIQUE_ID_GENERATOR = new UniqueIdGenerator();
 
   private static final String prefix = "__UF_fresh_";
 
   private final BooleanFormulaManager bfmgr;
   private final FormulaManager fmgr;
+  private final Mode mode;
 
   UfElimination(FormulaManager pFmgr) {
+    this(pFmgr, Mode.PAIRWISE);
+  }
+
+  UfElimination(FormulaManager pFmgr, Mode pMode) {
     bfmgr = pFmgr.getBooleanFormulaManager();
     fmgr = pFmgr;
+    mode = checkNotNull(pMode);
   }
 
   /**
@@ -145,10 +186,15 @@ public class UfElimination {
       f = pF;
     }
 
-    int depth = getNestingDepthOfUfs(f);
     Multimap<FunctionDeclaration<?>, UninterpretedFunctionApplication> ufs = findUFs(f);
     merge(ufs, pOtherResult);
 
+    if (mode == Mode.CONGRUENCE) {
+      return eliminateUfsByCongruence(f, ufs, pOtherResult);
+    }
+
+    int depth = getNestingDepthOfUfs(f);
+
     ImmutableMap.Builder<Formula, Formula> substitutionsBuilder = ImmutableMap.builder();
     List<BooleanFormula> extraConstraints = new ArrayList<>();
 
@@ -197,7 +243,225 @@ public class UfElimination {
     ImmutableMap<Formula, Formula> allSubstitutions = substitutionsBuilder.build();
     BooleanFormula constraints = bfmgr.and(extraConstraints);
     return new Result(
-        formulaWithoutUFs, constraints, allSubstitutions, ImmutableListMultimap.copyOf(ufs));
+        formulaWithoutUFs,
+        constraints,
+        allSubstitutions,
+        ImmutableListMultimap.copyOf(ufs),
+        extraConstraints.size());
+  }
+
+  private Result eliminateUfsByCongruence(
+      BooleanFormula f,
+      Multimap<FunctionDeclaration<?>, UninterpretedFunctionApplication> ufs,
+      Result pOtherResult) {
+
+    // Inner applications are handled before outer ones, such that the arguments of each
+    // application can be flattened by a single substitution of the inner applications.
+    Map<Formula, Integer> depths = new HashMap<>();
+    List<Map.Entry<FunctionDeclaration<?>, UninterpretedFunctionApplication>> applications =
+        new ArrayList<>(ufs.entries());
+    for (Map.Entry<FunctionDeclaration<?>, UninterpretedFunctionApplication> entry :
+        applications) {
+      getNestingDepthOfUfs(entry.getValue().getFormula(), depths);
+    }
+    applications.sort(
+        Comparator.comparingInt(entry -> depths.get(entry.getValue().getFormula())));
+
+    Map<Formula, Formula> substitutions = new HashMap<>(pOtherResult.getSubstitution());
+    Map<FunctionDeclaration<?>, List<CongruenceClass>> classes = new LinkedHashMap<>();
+    Map<FunctionDeclaration<?>, Map<List<Formula>, CongruenceClass>> classesByArgs =
+        new HashMap<>();
+    ImmutableListMultimap.Builder<FunctionDeclaration<?>, UninterpretedFunctionApplication>
+        newUfs = ImmutableListMultimap.builder();
+    for (Map.Entry<FunctionDeclaration<?>, UninterpretedFunctionApplication> entry :
+        applications) {
+      FunctionDeclaration<?> function = entry.getKey();
+      UninterpretedFunctionApplication application = entry.getValue();
+      ImmutableList.Builder<Formula> flatArgsBuilder = ImmutableList.builder();
+      for (Formula arg : application.getArguments()) {
+        // only arguments with nested applications need to be substituted
+        flatArgsBuilder.add(
+            depths.getOrDefault(arg, 0) > 0 ? fmgr.substitute(arg, substitutions) : arg);
+      }
+      ImmutableList<Formula> flatArgs = flatArgsBuilder.build();
+      Map<List<Formula>, CongruenceClass> classOfArgs =
+          classesByArgs.computeIfAbsent(function, k -> new HashMap<>());
+      List<CongruenceClass> classesOfFunction =
+          classes.computeIfAbsent(function, k -> new ArrayList<>());
+
+      // applications from another formula keep their variable, the others join a class if possible
+      @Nullable Formula variable = substitutions.get(application.getFormula());
+      @Nullable CongruenceClass congruenceClass = classOfArgs.get(flatArgs);
+      if (variable == null && congruenceClass != null) {
+        variable = congruenceClass.variable;
+      } else if (congruenceClass == null || !congruenceClass.variable.equals(variable)) {
+        if (variable == null) {
+          variable = application.getSubstitution();
+        }
+        congruenceClass = new CongruenceClass(flatArgs, variable);
+        classOfArgs.putIfAbsent(flatArgs, congruenceClass);
+        classesOfFunction.add(congruenceClass);
+      }
+      substitutions.put(application.getFormula(), variable);
+      newUfs.put(
+          function,
+          UninterpretedFunctionApplication.create(
+              application.getFormula(), application.getArguments(), variable));
+    }
+
+    List<BooleanFormula> extraConstraints = new ArrayList<>();
+    for (List<CongruenceClass> classesOfFunction : classes.values()) {
+      addConsistencyConstraints(classesOfFunction, extraConstraints);
+    }
+
+    ImmutableMap<Formula, Formula> allSubstitutions = ImmutableMap.copyOf(substitutions);
+    BooleanFormula formulaWithoutUFs = fmgr.substitute(f, allSubstitutions);
+    return new Result(
+        formulaWithoutUFs,
+        bfmgr.and(extraConstraints),
+        allSubstitutions,
+        newUfs.build(),
+        extraConstraints.size());
+  }
+
+  /**
+   * Add constraints for all pairs of classes that can be equal. The classes are partitioned by the
+   * constant argument at the position with most constant arguments, such that classes with distinct
+   * constants at this position are never compared.
+   */
+  private void addConsistencyConstraints(
+      List<CongruenceClass> pClasses, List<BooleanFormula> pConstraints) {
+    if (pClasses.size() < 2) {
+      return;
+    }
+    int numberOfArgs = pClasses.get(0).args.size();
+    int bestPosition = -1;
+    int bestCount = 0;
+    for (int position = 0; position < numberOfArgs; position++) {
+      int count = 0;
+      for (CongruenceClass congruenceClass : pClasses) {
+        if (congruenceClass.constants[position] != null) {
+          count++;
+        }
+      }
+      if (count > bestCount) {
+        bestPosition = position;
+        bestCount = count;
+      }
+    }
+
+    if (bestPosition == -1) {
+      addConstraintsForPairs(pClasses, pClasses, pConstraints);
+      return;
+    }
+
+    Map<Object, List<CongruenceClass>> buckets = new LinkedHashMap<>();
+    List<CongruenceClass> others = new ArrayList<>();
+    for (CongruenceClass congruenceClass : pClasses) {
+      Object constant = congruenceClass.constants[bestPosition];
+      if (constant == null) {
+        others.add(congruenceClass);
+      } else {
+        buckets.computeIfAbsent(constant, k -> new ArrayList<>()).add(congruenceClass);
+      }
+    }
+    for (List<CongruenceClass> bucket : buckets.values()) {
+      addConstraintsForPairs(bucket, bucket, pConstraints);
+      addConstraintsForPairs(bucket, others, pConstraints);
+    }
+    addConstraintsForPairs(others, others, pConstraints);
+  }
+
+  /**
+   * Add constraints for all pairs of one class from each list. If both lists are the same, each
+   * unordered pair is handled once.
+   */
+  private void addConstraintsForPairs(
+      List<CongruenceClass> pFirst,
+      List<CongruenceClass> pSecond,
+      List<BooleanFormula> pConstraints) {
+    boolean same = pFirst == pSecond;
+    for (int idx1 = 0; idx1 < pFirst.size(); idx1++) {
+      CongruenceClass class1 = pFirst.get(idx1);
+      for (int idx2 = same ? idx1 + 1 : 0; idx2 < pSecond.size(); idx2++) {
+        CongruenceClass class2 = pSecond.get(idx2);
+        if (!class1.canBeEqual(class2)) {
+          continue;
+        }
+        List<BooleanFormula> argumentsEquality = new ArrayList<>();
+        for (int i = 0; i < class1.args.size(); i++) {
+          Formula arg1 = class1.args.get(i);
+          Formula arg2 = class2.args.get(i);
+          if (!arg1.equals(arg2)) {
+            argumentsEquality.add(makeEqual(arg1, arg2));
+          }
+        }
+        BooleanFormula functionEquality = makeEqual(class1.variable, class2.variable);
+        pConstraints.add(bfmgr.implication(bfmgr.and(argumentsEquality), functionEquality));
+      }
+    }
+  }
+
+  /** Applications of the same function with syntactically equal (flattened) arguments. */
+  private final class CongruenceClass {
+    private final ImmutableList<Formula> args;
+    private final Formula variable;
+
+    /** The value of each argument, if it is a constant, else null. */
+    private final @Nullable Object[] constants;
+
+    private CongruenceClass(ImmutableList<Formula> pArgs, Formula pVariable) {
+      args = pArgs;
+      variable = pVariable;
+      constants = new Object[pArgs.size()];
+      for (int i = 0; i < constants.length; i++) {
+        constants[i] = getConstantValue(pArgs.get(i));
+      }
+    }
+
+    private boolean canBeEqual(CongruenceClass other) {
+      for (int i = 0; i < constants.length; i++) {
+        // values of different types are not comparable and might be equal
+        if (constants[i] != null
+            && other.constants[i] != null
+            && constants[i].getClass() == other.constants[i].getClass()
+            && !constants[i].equals(other.constants[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Returns the value of a constant, or null if the formula is no constant or if distinct constants
+   * can be equal, as for floating points with "+0 = -0". Numbers are returned as {@link Rational},
+   * because solvers return the same number as different types, e.g., as BigInteger or Rational.
+   */
+  private @Nullable Object getConstantValue(Formula pFormula) {
+    if (pFormula instanceof FloatingPointFormula) {
+      return null;
+    }
+    return fmgr.visit(
+        pFormula,
+        new DefaultFormulaVisitor<@Nullable Object>() {
+          @Override
+          protected @Nullable Object visitDefault(Formula pF) {
+            return null;
+          }
+
+          @Override
+          public Object visitConstant(Formula pF, Object value) {
+            if (value instanceof BigInteger) {
+              return Rational.ofBigInteger((BigInteger) value);
+            } else if (value instanceof BigDecimal) {
+              return Rational.ofBigDecimal((BigDecimal) value);
+            } else if (value instanceof Long || value instanceof Integer) {
+              return Rational.of(((Number) value).longValue());
+            }
+            return value;
+          }
+        });
   }
 
   private void merge(
@@ -265,6 +529,40 @@ public class UfElimination {
     return result.get();
   }
 
+  /** Computes the nesting depth of UFs for the formula and all its subformulas, with a cache. */
+  private int getNestingDepthOfUfs(Formula pFormula, Map<Formula, Integer> pCache) {
+    Integer cached = pCache.get(pFormula);
+    if (cached != null) {
+      return cached;
+    }
+    int depth =
+        fmgr.visit(
+            pFormula,
+            new DefaultFormulaVisitor<Integer>() {
+
+              @Override
+              protected Integer visitDefault(Formula pF) {
+                return 0;
+              }
+
+              @Override
+              public Integer visitFunction(
+                  Formula pF, List<Formula> pArgs, FunctionDeclaration<?> pFunctionDeclaration) {
+                int depthOfArgs = 0;
+                for (Formula arg : pArgs) {
+                  depthOfArgs = Math.max(depthOfArgs, getNestingDepthOfUfs(arg, pCache));
+                }
+                if (pFunctionDeclaration.getKind() == FunctionDeclarationKind.UF) {
+                  return depthOfArgs + 1;
+                } else {
+                  return depthOfArgs;
+                }
+              }
+            });
+    pCache.put(pFormula, depth);
+    return depth;
+  }
+
   private int getNestingDepthOfUfs(Formula pFormula) {
     return fmgr.visit(
         pFormula,